@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.config.MemcachedBucketConfig;
+import com.couchbase.client.core.config.parser.BucketConfigParser;
+import com.couchbase.client.core.env.ConfigParserEnvironment;
+
+/**
+ * Generates synthetic bucket configurations of arbitrary size for the benchmarks.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class BenchmarkConfigs {
+
+    private BenchmarkConfigs() {
+    }
+
+    /**
+     * Returns the hostname of the node at the given index, which is always an IP literal so no lookup is needed.
+     *
+     * @param index the index of the node.
+     * @return the hostname of the node.
+     */
+    public static String hostname(final int index) {
+        return "10.0." + (index / 250) + "." + (1 + index % 250);
+    }
+
+    /**
+     * Creates the raw JSON of a couchbase bucket config with the partitions spread evenly across the nodes.
+     *
+     * @param name the name of the bucket.
+     * @param rev the revision of the config.
+     * @param nodes the number of nodes.
+     * @param partitions the number of partitions.
+     * @param replicas the number of replicas per partition.
+     * @return the raw JSON config.
+     */
+    public static String couchbaseBucketJson(final String name, final long rev, final int nodes,
+        final int partitions, final int replicas) {
+        StringBuilder sb = new StringBuilder(partitions * (replicas + 1) * 4 + nodes * 128);
+        sb.append("{\"rev\":").append(rev)
+            .append(",\"name\":\"").append(name).append('"')
+            .append(",\"nodeLocator\":\"vbucket\"")
+            .append(",\"uri\":\"/pools/default/buckets/").append(name).append('"')
+            .append(",\"streamingUri\":\"/pools/default/bucketsStreaming/").append(name).append('"')
+            .append(",\"nodes\":[");
+        for (int i = 0; i < nodes; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"hostname\":\"").append(hostname(i)).append(":8091\"")
+                .append(",\"couchApiBase\":\"http://").append(hostname(i)).append(":8092/").append(name).append('"')
+                .append(",\"ports\":{\"direct\":11210}}");
+        }
+        sb.append("],\"vBucketServerMap\":{\"numReplicas\":").append(replicas).append(",\"serverList\":[");
+        for (int i = 0; i < nodes; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(hostname(i)).append(":11210\"");
+        }
+        sb.append("],\"vBucketMap\":[");
+        for (int p = 0; p < partitions; p++) {
+            if (p > 0) {
+                sb.append(',');
+            }
+            sb.append('[');
+            for (int r = 0; r <= replicas; r++) {
+                if (r > 0) {
+                    sb.append(',');
+                }
+                sb.append(r < nodes ? (p + r) % nodes : -1);
+            }
+            sb.append(']');
+        }
+        sb.append("]}}");
+        return sb.toString();
+    }
+
+    /**
+     * Creates and parses a couchbase bucket config with the partitions spread evenly across the nodes.
+     *
+     * @param env the environment used for parsing.
+     * @param name the name of the bucket.
+     * @param nodes the number of nodes.
+     * @param partitions the number of partitions.
+     * @param replicas the number of replicas per partition.
+     * @return the parsed config.
+     */
+    public static CouchbaseBucketConfig couchbaseBucket(final ConfigParserEnvironment env, final String name,
+        final int nodes, final int partitions, final int replicas) {
+        return (CouchbaseBucketConfig) BucketConfigParser.parse(
+            couchbaseBucketJson(name, 1, nodes, partitions, replicas), env
+        );
+    }
+
+    /**
+     * Creates the raw JSON of a memcached bucket config with the given number of data nodes.
+     *
+     * @param name the name of the bucket.
+     * @param rev the revision of the config.
+     * @param nodes the number of nodes.
+     * @return the raw JSON config.
+     */
+    public static String memcachedBucketJson(final String name, final long rev, final int nodes) {
+        StringBuilder sb = new StringBuilder(nodes * 64 + 256);
+        sb.append("{\"rev\":").append(rev)
+            .append(",\"name\":\"").append(name).append('"')
+            .append(",\"nodeLocator\":\"ketama\"")
+            .append(",\"uri\":\"/pools/default/buckets/").append(name).append('"')
+            .append(",\"streamingUri\":\"/pools/default/bucketsStreaming/").append(name).append('"')
+            .append(",\"nodes\":[");
+        for (int i = 0; i < nodes; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"hostname\":\"").append(hostname(i)).append(":8091\"")
+                .append(",\"ports\":{\"direct\":11210}}");
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    /**
+     * Creates and parses a memcached bucket config with the given number of data nodes.
+     *
+     * @param env the environment used for parsing.
+     * @param name the name of the bucket.
+     * @param nodes the number of nodes.
+     * @return the parsed config.
+     */
+    public static MemcachedBucketConfig memcachedBucket(final ConfigParserEnvironment env, final String name,
+        final int nodes) {
+        return (MemcachedBucketConfig) BucketConfigParser.parse(memcachedBucketJson(name, 1, nodes), env);
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.endpoint.AbstractEndpoint;
+import com.couchbase.client.core.env.CoreEnvironment;
+import io.netty.channel.ChannelPipeline;
+
+/**
+ * An {@link AbstractEndpoint} which never connects, used as the parent of handlers driven through an
+ * {@link io.netty.channel.embedded.EmbeddedChannel}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class BenchmarkEndpoint extends AbstractEndpoint {
+
+    public BenchmarkEndpoint(final CoreEnvironment environment) {
+        super("127.0.0.1", "default", null, 0, environment, null, false, environment.ioPool(), true);
+    }
+
+    @Override
+    protected void customEndpointHandlers(final ChannelPipeline pipeline) {
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.internal.AddServiceRequest;
+import com.couchbase.client.core.message.internal.RemoveServiceRequest;
+import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.service.Service;
+import com.couchbase.client.core.service.ServiceType;
+import com.couchbase.client.core.state.LifecycleState;
+import rx.Observable;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * A connected {@link Node} which drops everything it is sent, so only the dispatch path is measured.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class BenchmarkNode implements Node {
+
+    private final InetAddress hostname;
+
+    public BenchmarkNode(final String hostname) {
+        try {
+            this.hostname = InetAddress.getByName(hostname);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public void send(final CouchbaseRequest request) {
+    }
+
+    @Override
+    public InetAddress hostname() {
+        return hostname;
+    }
+
+    @Override
+    public Observable<LifecycleState> connect() {
+        return Observable.just(LifecycleState.CONNECTED);
+    }
+
+    @Override
+    public Observable<LifecycleState> disconnect() {
+        return Observable.just(LifecycleState.DISCONNECTED);
+    }
+
+    @Override
+    public Observable<Service> addService(final AddServiceRequest request) {
+        return Observable.just((Service) null);
+    }
+
+    @Override
+    public Observable<Service> removeService(final RemoveServiceRequest request) {
+        return Observable.just((Service) null);
+    }
+
+    @Override
+    public boolean serviceEnabled(final ServiceType type) {
+        return true;
+    }
+
+    @Override
+    public Observable<LifecycleState> states() {
+        return Observable.just(LifecycleState.CONNECTED);
+    }
+
+    @Override
+    public LifecycleState state() {
+        return LifecycleState.CONNECTED;
+    }
+
+    @Override
+    public boolean isState(final LifecycleState state) {
+        return state == LifecycleState.CONNECTED;
+    }
+
+    @Override
+    public boolean hasSubscribers() {
+        return false;
+    }
+}
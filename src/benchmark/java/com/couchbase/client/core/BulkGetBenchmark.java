@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.internal.GetConfigProviderRequest;
+import com.couchbase.client.core.message.internal.GetConfigProviderResponse;
+import com.couchbase.client.core.message.kv.BulkGetRequest;
+import com.couchbase.client.core.message.kv.GetRequest;
+import com.couchbase.client.core.message.kv.GetResponse;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rx.Observer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares fetching a page of documents through one {@link CouchbaseCore#send(CouchbaseRequest)} per key with
+ * a single {@link BulkGetRequest}, waiting until every response arrived.
+ *
+ * The nodes answer every get right away on the dispatch thread, so the numbers show the cost of the request
+ * path (ring buffer, locator, observables) without any network involved.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkGetBenchmark {
+
+    private static final String BUCKET = "default";
+
+    @Param({"100", "1000"})
+    public int keys;
+
+    @Param({"4"})
+    public int nodes;
+
+    private CoreEnvironment env;
+    private CouchbaseCore core;
+    private List<String> ids;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        env = DefaultCoreEnvironment.create();
+        core = new CouchbaseCore(env);
+        for (int i = 0; i < nodes; i++) {
+            core.requestHandler().addNode(new RespondingNode(BenchmarkConfigs.hostname(i))).toBlocking().single();
+        }
+
+        GetConfigProviderResponse response = core.<GetConfigProviderResponse>send(new GetConfigProviderRequest())
+            .toBlocking().single();
+        response.provider().proposeBucketConfig(BUCKET,
+            BenchmarkConfigs.couchbaseBucketJson(BUCKET, 1, nodes, 1024, 1));
+
+        String[] generated = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            generated[i] = "user::" + i;
+        }
+        ids = Arrays.asList(generated);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        env.shutdown();
+    }
+
+    @Benchmark
+    public long individual() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(keys);
+        Observer<CouchbaseResponse> counter = new Observer<CouchbaseResponse>() {
+            @Override
+            public void onCompleted() {
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onNext(CouchbaseResponse response) {
+            }
+        };
+        for (String id : ids) {
+            core.<CouchbaseResponse>send(new GetRequest(id, BUCKET)).subscribe(counter);
+        }
+        latch.await();
+        return latch.getCount();
+    }
+
+    @Benchmark
+    public CouchbaseResponse bulk() {
+        return core.<CouchbaseResponse>send(new BulkGetRequest(ids, BUCKET)).toBlocking().last();
+    }
+
+    /**
+     * A node which answers every get request right away with an empty document.
+     */
+    static class RespondingNode extends BenchmarkNode {
+
+        RespondingNode(final String hostname) {
+            super(hostname);
+        }
+
+        @Override
+        public void send(final CouchbaseRequest request) {
+            if (request instanceof GetRequest) {
+                request.observable().onNext(new GetResponse(ResponseStatus.SUCCESS, (short) 0, 1, 0, BUCKET,
+                    Unpooled.EMPTY_BUFFER, request));
+                request.observable().onCompleted();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.message.internal.GetConfigProviderRequest;
+import com.couchbase.client.core.message.internal.GetConfigProviderResponse;
+import com.couchbase.client.core.message.kv.GetRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rx.Observable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CouchbaseCore#send(com.couchbase.client.core.message.CouchbaseRequest)} of key-value requests
+ * through the request RingBuffer into the {@link RequestHandler}.
+ *
+ * The core is set up with an open bucket whose nodes drop all requests, so everything up to the hand-off
+ * to the node is covered but nothing is written to the network.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CouchbaseCoreBenchmark {
+
+    private static final String BUCKET = "default";
+
+    @Param({"4"})
+    public int nodes;
+
+    private CoreEnvironment env;
+    private CouchbaseCore core;
+    private String[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        env = DefaultCoreEnvironment.create();
+        core = new CouchbaseCore(env);
+        for (int i = 0; i < nodes; i++) {
+            core.requestHandler().addNode(new BenchmarkNode(BenchmarkConfigs.hostname(i))).toBlocking().single();
+        }
+
+        GetConfigProviderResponse response = core.<GetConfigProviderResponse>send(new GetConfigProviderRequest())
+            .toBlocking().single();
+        response.provider().proposeBucketConfig(BUCKET,
+            BenchmarkConfigs.couchbaseBucketJson(BUCKET, 1, nodes, 1024, 1));
+
+        keys = new String[4096];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "user::" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        env.shutdown();
+    }
+
+    @Benchmark
+    public Observable<?> send() {
+        return core.send(new GetRequest(keys[next++ & (keys.length - 1)], BUCKET));
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.config.DefaultClusterConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.kv.GetRequest;
+import com.couchbase.client.core.node.Node;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import rx.subjects.BehaviorSubject;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the request dispatch throughput from many producer threads depending on the number of request
+ * ring buffers (and as a result dispatch threads) configured.
+ *
+ * The nodes drop every request they are sent, so the numbers show the cost of publishing into the ring
+ * buffers, locating the node and the hand-off to it.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class RequestDispatchBenchmark {
+
+    private static final String BUCKET = "default";
+
+    private static final EventTranslatorOneArg<RequestEvent, CouchbaseRequest> TRANSLATOR =
+        new EventTranslatorOneArg<RequestEvent, CouchbaseRequest>() {
+            @Override
+            public void translateTo(RequestEvent event, long sequence, CouchbaseRequest request) {
+                event.setRequest(request);
+            }
+        };
+
+    @Param({"1", "2", "4"})
+    public int requestBufferCount;
+
+    @Param({"4"})
+    public int nodes;
+
+    private CoreEnvironment env;
+    private Disruptor<RequestEvent>[] disruptors;
+    private RingBuffer<RequestEvent>[] ringBuffers;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        env = DefaultCoreEnvironment.builder().requestBufferCount(requestBufferCount).build();
+
+        DefaultClusterConfig config = new DefaultClusterConfig();
+        config.setBucketConfig(BUCKET, BenchmarkConfigs.couchbaseBucket(env, BUCKET, nodes, 1024, 1));
+        CopyOnWriteArrayList<Node> nodeList = new CopyOnWriteArrayList<Node>();
+        for (int i = 0; i < nodes; i++) {
+            nodeList.add(new BenchmarkNode(BenchmarkConfigs.hostname(i)));
+        }
+        RequestHandler handler = new RequestHandler(nodeList, env,
+            BehaviorSubject.<ClusterConfig>create(config), null);
+
+        ThreadFactory threadFactory = new DefaultThreadFactory("cb-bench", true);
+        disruptors = new Disruptor[env.requestBufferCount()];
+        ringBuffers = new RingBuffer[env.requestBufferCount()];
+        for (int i = 0; i < disruptors.length; i++) {
+            disruptors[i] = new Disruptor<RequestEvent>(
+                new RequestEventFactory(),
+                env.requestBufferSize(),
+                threadFactory,
+                ProducerType.MULTI,
+                env.requestBufferWaitStrategy().newWaitStrategy()
+            );
+            disruptors[i].handleEventsWith(handler);
+            ringBuffers[i] = disruptors[i].start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        for (Disruptor<RequestEvent> disruptor : disruptors) {
+            disruptor.shutdown();
+        }
+        env.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        final String[] keys = new String[1024];
+        int next;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            long thread = Thread.currentThread().getId();
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = "key-" + thread + "-" + i;
+            }
+        }
+
+        String next() {
+            return keys[next++ & (keys.length - 1)];
+        }
+    }
+
+    @Benchmark
+    public void dispatch(final Keys keys) {
+        GetRequest request = new GetRequest(keys.next(), BUCKET);
+        RingBuffer<RequestEvent> ringBuffer = ringBuffers.length == 1
+            ? ringBuffers[0]
+            : ringBuffers[CouchbaseCore.requestBufferIndex(request, ringBuffers.length)];
+        while (!ringBuffer.tryPublishEvent(TRANSLATOR, request)) {
+            Thread.yield();
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.config.parser;
+
+import com.couchbase.client.core.BenchmarkConfigs;
+import com.couchbase.client.core.config.BucketConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link BucketConfigParser#parse(String, com.couchbase.client.core.env.ConfigParserEnvironment)} of
+ * couchbase bucket configs depending on the cluster size, compared to parsing the raw bytes directly (with and
+ * without decoding them into a string first) and to only scanning them for the revision with the
+ * {@link RevisionScanner}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketConfigParserBenchmark {
+
+    @Param({"4", "16", "64"})
+    public int nodes;
+
+    @Param({"1024"})
+    public int partitions;
+
+    private CoreEnvironment env;
+    private String config;
+    private ByteBuf rawConfig;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        env = DefaultCoreEnvironment.create();
+        config = BenchmarkConfigs.couchbaseBucketJson("default", 1, nodes, partitions, 1);
+        rawConfig = Unpooled.copiedBuffer(config, CharsetUtil.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        rawConfig.release();
+        env.shutdown();
+    }
+
+    @Benchmark
+    public BucketConfig parse() {
+        return BucketConfigParser.parse(config, env);
+    }
+
+    @Benchmark
+    public BucketConfig parseBuffer() {
+        return BucketConfigParser.parse(rawConfig, env);
+    }
+
+    @Benchmark
+    public BucketConfig decodeAndParse() {
+        return BucketConfigParser.parse(rawConfig.toString(CharsetUtil.UTF_8), env);
+    }
+
+    @Benchmark
+    public long scanRevision() {
+        return RevisionScanner.scan(rawConfig);
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.config;
+
+import com.couchbase.client.core.BenchmarkConfigs;
+import com.couchbase.client.core.BenchmarkEndpoint;
+import com.couchbase.client.core.ResponseEvent;
+import com.couchbase.client.core.ResponseEventFactory;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.message.config.BucketStreamingRequest;
+import com.couchbase.client.core.message.config.BucketStreamingResponse;
+import com.couchbase.client.core.message.config.ConfigRequest;
+import com.lmax.disruptor.RingBuffer;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rx.functions.Action1;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures splitting the configs pushed on a long lived bucket streaming connection in the {@link ConfigHandler},
+ * driven through an {@link EmbeddedChannel}.
+ *
+ * Every operation pushes one config of the given cluster size followed by the separator, in chunks of 8KB like
+ * it would arrive from the socket.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConfigHandlerBenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"4", "100", "1000"})
+    public int nodes;
+
+    private CoreEnvironment env;
+    private EmbeddedChannel channel;
+    private byte[] config;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        env = DefaultCoreEnvironment.builder().callbacksOnIoPool(true).build();
+        RingBuffer<ResponseEvent> responseBuffer = RingBuffer.createSingleProducer(new ResponseEventFactory(), 1024);
+        Queue<ConfigRequest> queue = new ArrayDeque<ConfigRequest>();
+        channel = new EmbeddedChannel(new ConfigHandler(new BenchmarkEndpoint(env), responseBuffer, queue, false,
+            false));
+
+        BucketStreamingRequest request = new BucketStreamingRequest("/pools/default/bs/", "default", "");
+        queue.add(request);
+        channel.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        BucketStreamingResponse response = (BucketStreamingResponse) request.observable().toBlocking().single();
+        response.configs().subscribe(new Action1<String>() {
+            @Override
+            public void call(String config) {
+            }
+        });
+
+        config = (BenchmarkConfigs.couchbaseBucketJson("default", 1, nodes, 1024, 1) + "\n\n\n\n")
+            .getBytes(CharsetUtil.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        channel.finishAndReleaseAll();
+        env.shutdown();
+    }
+
+    @Benchmark
+    public void split() {
+        for (int offset = 0; offset < config.length; offset += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, config.length - offset);
+            channel.writeInbound(new DefaultHttpContent(Unpooled.buffer(length).writeBytes(config, offset, length)));
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.kv;
+
+import com.couchbase.client.core.BenchmarkEndpoint;
+import com.couchbase.client.core.ResponseEvent;
+import com.couchbase.client.core.ResponseEventFactory;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.message.kv.GetRequest;
+import com.couchbase.client.core.message.kv.GetResponse;
+import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.BinaryMemcacheClientCodec;
+import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.BinaryMemcacheObjectAggregator;
+import com.lmax.disruptor.RingBuffer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full encode/decode roundtrip of a {@link GetRequest} through the {@link KeyValueHandler} and the
+ * memcache codec, driven through an {@link EmbeddedChannel}.
+ *
+ * The response is completed on the calling thread, so the numbers include completing the observable of the
+ * request but not the hand-off to another thread.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyValueHandlerBenchmark {
+
+    private static final String BUCKET = "default";
+
+    @Param({"128", "4096"})
+    public int valueSize;
+
+    private CoreEnvironment env;
+    private EmbeddedChannel channel;
+    private byte[] response;
+    private String[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        env = DefaultCoreEnvironment.builder().callbacksOnIoPool(true).build();
+        RingBuffer<ResponseEvent> responseBuffer = RingBuffer.createSingleProducer(new ResponseEventFactory(), 1024);
+        channel = new EmbeddedChannel(
+            new BinaryMemcacheClientCodec(),
+            new BinaryMemcacheObjectAggregator(Integer.MAX_VALUE),
+            new KeyValueHandler(new BenchmarkEndpoint(env), responseBuffer, false, true)
+        );
+
+        response = new byte[24 + 4 + valueSize];
+        response[0] = (byte) 0x81;
+        response[4] = 4;
+        int bodyLength = 4 + valueSize;
+        response[8] = (byte) (bodyLength >>> 24);
+        response[9] = (byte) (bodyLength >>> 16);
+        response[10] = (byte) (bodyLength >>> 8);
+        response[11] = (byte) bodyLength;
+        for (int i = 28; i < response.length; i++) {
+            response[i] = 'x';
+        }
+
+        keys = new String[1024];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "user::" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        channel.finishAndReleaseAll();
+        env.shutdown();
+    }
+
+    @Benchmark
+    public void roundtrip(final Blackhole blackhole) {
+        int index = next++ & (keys.length - 1);
+        GetRequest request = new GetRequest(keys[index], BUCKET);
+        request.partition((short) index);
+        channel.writeOutbound(request);
+        ReferenceCountUtil.release(channel.readOutbound());
+
+        int opaque = request.opaque();
+        ByteBuf buf = Unpooled.buffer(response.length).writeBytes(response);
+        buf.setInt(12, opaque);
+        channel.writeInbound(buf);
+
+        GetResponse getResponse = (GetResponse) request.observable().toBlocking().single();
+        blackhole.consume(getResponse.cas());
+        getResponse.content().release();
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.search;
+
+import com.couchbase.client.core.BenchmarkEndpoint;
+import com.couchbase.client.core.ResponseEvent;
+import com.couchbase.client.core.ResponseEventFactory;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.message.search.SearchQueryRequest;
+import com.couchbase.client.core.message.search.SearchQueryResponse;
+import com.couchbase.client.core.message.search.StreamingSearchQueryRequest;
+import com.couchbase.client.core.message.search.StreamingSearchQueryResponse;
+import com.couchbase.client.core.utils.Buffers;
+import com.lmax.disruptor.RingBuffer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a large full text search result into a single String against streaming its hits through
+ * the {@link SearchHandler} and the HTTP codec, driven through an {@link EmbeddedChannel}.
+ *
+ * The raw HTTP response is fed in chunks of 8KB, like it would arrive from the socket, and every hit is consumed
+ * and released on the calling thread.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchHandlerBenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"1000", "10000"})
+    public int hits;
+
+    private CoreEnvironment env;
+    private EmbeddedChannel channel;
+    private byte[] response;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        env = DefaultCoreEnvironment.builder().callbacksOnIoPool(true).build();
+        RingBuffer<ResponseEvent> responseBuffer = RingBuffer.createSingleProducer(new ResponseEventFactory(), 1024);
+        channel = new EmbeddedChannel(
+            new HttpClientCodec(),
+            new SearchHandler(new BenchmarkEndpoint(env), responseBuffer, false, false)
+        );
+
+        StringBuilder body = new StringBuilder(hits * 256);
+        body.append("{\"status\":{\"total\":1,\"failed\":0,\"successful\":1},")
+            .append("\"request\":{\"query\":{\"query\":\"brew\"},\"size\":").append(hits).append("},\"hits\":[");
+        for (int i = 0; i < hits; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"index\":\"beers_1\",\"id\":\"brewery-").append(i).append("\",\"score\":0.").append(i)
+                .append(",\"locations\":{\"description\":{\"brew\":[{\"pos\":4,\"start\":17,\"end\":21}]}}")
+                .append(",\"fragments\":{\"description\":[\"The <mark>brew</mark> pub number ").append(i)
+                .append("\"]}}");
+        }
+        body.append("],\"total_hits\":").append(hits).append(",\"max_score\":0.99,\"took\":1245231,")
+            .append("\"facets\":{\"type\":{\"field\":\"type\",\"total\":").append(hits)
+            .append(",\"terms\":[{\"term\":\"brewery\",\"count\":").append(hits).append("}]}}}");
+        byte[] content = body.toString().getBytes(CharsetUtil.UTF_8);
+        byte[] header = ("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: "
+            + content.length + "\r\n\r\n").getBytes(CharsetUtil.UTF_8);
+        response = new byte[header.length + content.length];
+        System.arraycopy(header, 0, response, 0, header.length);
+        System.arraycopy(content, 0, response, header.length, content.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        channel.finishAndReleaseAll();
+        env.shutdown();
+    }
+
+    @Benchmark
+    public int buffered() {
+        SearchQueryRequest request = new SearchQueryRequest("beers", "{}", "default", "");
+        write(request);
+        SearchQueryResponse response = (SearchQueryResponse) request.observable().toBlocking().single();
+        return response.payload().length();
+    }
+
+    @Benchmark
+    public int streaming() {
+        StreamingSearchQueryRequest request = new StreamingSearchQueryRequest("beers", "{}", "default", "");
+        write(request);
+        StreamingSearchQueryResponse response = (StreamingSearchQueryResponse) request.observable()
+            .toBlocking().single();
+        response.hits().subscribe(Buffers.BYTE_BUF_RELEASER);
+        ByteBuf meta = response.meta().toBlocking().single();
+        int length = meta.readableBytes();
+        meta.release();
+        return length;
+    }
+
+    private void write(final SearchQueryRequest request) {
+        channel.writeOutbound(request);
+        Object outbound;
+        while ((outbound = channel.readOutbound()) != null) {
+            ReferenceCountUtil.release(outbound);
+        }
+
+        for (int offset = 0; offset < response.length; offset += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, response.length - offset);
+            channel.writeInbound(Unpooled.buffer(length).writeBytes(response, offset, length));
+        }
+    }
+
+}
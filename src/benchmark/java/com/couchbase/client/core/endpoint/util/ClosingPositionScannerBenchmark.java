@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the end of a single large JSON row which arrives in many chunks, once by applying a new
+ * {@link ClosingPositionBufProcessor} from the reader index after every chunk (like the handlers used to) and once
+ * with the resumable {@link ClosingPositionScanner}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClosingPositionScannerBenchmark {
+
+    @Param({"65536", "1048576"})
+    public int rowSize;
+
+    @Param({"1024", "8192"})
+    public int chunkSize;
+
+    private byte[] row;
+    private ByteBuf content;
+    private ClosingPositionScanner scanner;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder sb = new StringBuilder(rowSize + 64);
+        sb.append("{\"id\":1,\"items\":[");
+        int i = 0;
+        while (sb.length() < rowSize) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"n\":").append(i++).append(",\"s\":\"a \\\"quoted\\\" {value}\"}");
+        }
+        sb.append("]}");
+        row = sb.toString().getBytes(CharsetUtil.UTF_8);
+        content = Unpooled.buffer(row.length);
+        scanner = new ClosingPositionScanner('{', '}');
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        content.release();
+    }
+
+    @Benchmark
+    public int rescan() {
+        content.clear();
+        for (int offset = 0; offset < row.length; offset += chunkSize) {
+            content.writeBytes(row, offset, Math.min(chunkSize, row.length - offset));
+            int closingPos = ByteBufJsonHelper.findSectionClosingPosition(content, '{', '}');
+            if (closingPos >= 0) {
+                return closingPos;
+            }
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int resume() {
+        content.clear();
+        scanner.reset();
+        for (int offset = 0; offset < row.length; offset += chunkSize) {
+            content.writeBytes(row, offset, Math.min(chunkSize, row.length - offset));
+            int closingPos = scanner.find(content);
+            if (closingPos >= 0) {
+                return closingPos;
+            }
+        }
+        return -1;
+    }
+
+}
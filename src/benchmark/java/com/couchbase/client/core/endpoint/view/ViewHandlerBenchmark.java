@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.view;
+
+import com.couchbase.client.core.BenchmarkEndpoint;
+import com.couchbase.client.core.ResponseEvent;
+import com.couchbase.client.core.ResponseEventFactory;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.message.view.ViewQueryRequest;
+import com.couchbase.client.core.message.view.ViewQueryResponse;
+import com.couchbase.client.core.utils.Buffers;
+import com.lmax.disruptor.RingBuffer;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the row parsing of a large view result through the {@link ViewHandler} and the HTTP codec,
+ * driven through an {@link EmbeddedChannel}.
+ *
+ * The raw HTTP response is fed in chunks of 8KB, like it would arrive from the socket, and every row is
+ * consumed and released on the calling thread.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ViewHandlerBenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean zeroCopyRows;
+
+    private CoreEnvironment env;
+    private EmbeddedChannel channel;
+    private byte[] response;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        env = DefaultCoreEnvironment.builder()
+            .callbacksOnIoPool(true)
+            .zeroCopyRowsEnabled(zeroCopyRows)
+            .build();
+        RingBuffer<ResponseEvent> responseBuffer = RingBuffer.createSingleProducer(new ResponseEventFactory(), 1024);
+        channel = new EmbeddedChannel(
+            new HttpClientCodec(),
+            new ViewHandler(new BenchmarkEndpoint(env), responseBuffer, false, false)
+        );
+
+        StringBuilder body = new StringBuilder(rows * 96);
+        body.append("{\"total_rows\":").append(rows).append(",\"rows\":[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                body.append(",\r\n");
+            }
+            body.append("{\"id\":\"user::").append(i).append("\",\"key\":[\"user\",").append(i)
+                .append("],\"value\":{\"name\":\"user ").append(i).append("\",\"active\":true}}");
+        }
+        body.append("\r\n]\n}");
+        byte[] content = body.toString().getBytes(CharsetUtil.UTF_8);
+        byte[] header = ("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: "
+            + content.length + "\r\n\r\n").getBytes(CharsetUtil.UTF_8);
+        response = new byte[header.length + content.length];
+        System.arraycopy(header, 0, response, 0, header.length);
+        System.arraycopy(content, 0, response, header.length, content.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        channel.finishAndReleaseAll();
+        env.shutdown();
+    }
+
+    @Benchmark
+    public String parse() {
+        ViewQueryRequest request = new ViewQueryRequest("design", "view", false, "", null, "default", "");
+        channel.writeOutbound(request);
+        Object outbound;
+        while ((outbound = channel.readOutbound()) != null) {
+            ReferenceCountUtil.release(outbound);
+        }
+
+        for (int offset = 0; offset < response.length; offset += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, response.length - offset);
+            channel.writeInbound(Unpooled.buffer(length).writeBytes(response, offset, length));
+        }
+
+        ViewQueryResponse viewResponse = (ViewQueryResponse) request.observable().toBlocking().single();
+        viewResponse.rows().subscribe(Buffers.BYTE_BUF_RELEASER);
+        viewResponse.info().subscribe(Buffers.BYTE_BUF_RELEASER);
+        return viewResponse.error().toBlocking().singleOrDefault(null);
+    }
+
+}
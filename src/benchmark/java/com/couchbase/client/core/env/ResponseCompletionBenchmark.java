@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.env;
+
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.kv.GetResponse;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subjects.Subject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the ways a response can be moved off the event loop for completion: through a new worker of the
+ * scheduler, directly on the {@link CoreScheduler} and through the {@link ResponseCompletionPool}.
+ *
+ * The observable only counts its completions, so the numbers show the hand-off cost alone. Run with
+ * "-prof gc" to see the allocations per operation, where the pool should stay close to zero.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseCompletionBenchmark {
+
+    /**
+     * How many completions may be outstanding before the producer waits, so the queues stay bounded.
+     */
+    private static final long MAX_OUTSTANDING = 4096;
+
+    @Param({"worker", "direct", "pool"})
+    public String mode;
+
+    private CoreScheduler scheduler;
+    private ResponseCompletionPool pool;
+    private ResponseCompletionPool.Lane lane;
+    private CountingSubject subject;
+    private CouchbaseResponse response;
+    private long sent;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        scheduler = new CoreScheduler(2);
+        pool = new ResponseCompletionPool(2);
+        lane = pool.lane();
+        subject = new CountingSubject();
+        response = new GetResponse(ResponseStatus.SUCCESS, (short) 0, 0, 0, "default", Unpooled.EMPTY_BUFFER, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        scheduler.shutdown();
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public void complete() {
+        while (sent - subject.completed.get() >= MAX_OUTSTANDING) {
+            Thread.yield();
+        }
+        sent++;
+
+        if ("pool".equals(mode)) {
+            lane.complete(response, subject);
+        } else if ("direct".equals(mode)) {
+            scheduler.scheduleDirect(new Completion(response, subject));
+        } else {
+            final Scheduler.Worker worker = scheduler.createWorker();
+            final Completion completion = new Completion(response, subject);
+            worker.schedule(new Action0() {
+                @Override
+                public void call() {
+                    try {
+                        completion.call();
+                    } finally {
+                        worker.unsubscribe();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Mirrors the completion action the handlers schedule for every response.
+     */
+    static final class Completion implements Action0 {
+        private final CouchbaseResponse response;
+        private final Subject<CouchbaseResponse, CouchbaseResponse> observable;
+
+        Completion(CouchbaseResponse response, Subject<CouchbaseResponse, CouchbaseResponse> observable) {
+            this.response = response;
+            this.observable = observable;
+        }
+
+        @Override
+        public void call() {
+            observable.onNext(response);
+            observable.onCompleted();
+        }
+    }
+
+    /**
+     * A subject which can be completed any number of times and only counts completions.
+     */
+    static final class CountingSubject extends Subject<CouchbaseResponse, CouchbaseResponse> {
+        final AtomicLong completed = new AtomicLong();
+
+        CountingSubject() {
+            super(new Observable.OnSubscribe<CouchbaseResponse>() {
+                @Override
+                public void call(Subscriber<? super CouchbaseResponse> subscriber) {
+                    subscriber.onCompleted();
+                }
+            });
+        }
+
+        @Override
+        public boolean hasObservers() {
+            return false;
+        }
+
+        @Override
+        public void onCompleted() {
+            completed.incrementAndGet();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+        }
+
+        @Override
+        public void onNext(CouchbaseResponse response) {
+        }
+    }
+
+}
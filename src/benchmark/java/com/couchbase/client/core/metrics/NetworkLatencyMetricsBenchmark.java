@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.metrics;
+
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures recording into the {@link NetworkLatencyMetricsCollector} from multiple threads, the same way the
+ * handlers record the latency of every response they complete.
+ *
+ * {@link #record(Latencies)} creates a new identifier for every latency, while {@link #recordInterned(Latencies)}
+ * reuses them like the handlers do.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class NetworkLatencyMetricsBenchmark {
+
+    private static final String[] HOSTS = { "10.0.0.1", "10.0.0.2", "10.0.0.3", "10.0.0.4" };
+
+    private CoreEnvironment env;
+    private NetworkLatencyMetricsCollector collector;
+    private NetworkLatencyMetricsIdentifier[] identifiers;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        env = DefaultCoreEnvironment.create();
+        collector = env.networkLatencyMetricsCollector();
+        identifiers = new NetworkLatencyMetricsIdentifier[HOSTS.length];
+        for (int i = 0; i < HOSTS.length; i++) {
+            identifiers[i] = new NetworkLatencyMetricsIdentifier(HOSTS[i], "BINARY", "GetRequest", "SUCCESS");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        env.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Latencies {
+        long next = 100000;
+
+        long next() {
+            next = next * 6364136223846793005L + 1442695040888963407L;
+            return 50000 + ((next >>> 33) % 2000000);
+        }
+    }
+
+    @Benchmark
+    public void record(final Latencies latencies) {
+        long latency = latencies.next();
+        NetworkLatencyMetricsIdentifier identifier = new NetworkLatencyMetricsIdentifier(
+            HOSTS[(int) (latency & 3)], "BINARY", "GetRequest", "SUCCESS"
+        );
+        collector.record(identifier, latency);
+    }
+
+    @Benchmark
+    public void recordInterned(final Latencies latencies) {
+        long latency = latencies.next();
+        collector.record(identifiers[(int) (latency & 3)], latency);
+    }
+
+}
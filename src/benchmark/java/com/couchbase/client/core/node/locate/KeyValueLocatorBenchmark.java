@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.BenchmarkConfigs;
+import com.couchbase.client.core.BenchmarkNode;
+import com.couchbase.client.core.config.DefaultClusterConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.message.kv.GetRequest;
+import com.couchbase.client.core.node.Node;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Measures the throughput of locating the target node of key-value requests for a couchbase bucket with
+ * 1024 partitions across a varying number of nodes.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyValueLocatorBenchmark {
+
+    private static final String BUCKET = "default";
+
+    @Param({"4", "16", "64"})
+    public int nodes;
+
+    @Param({"1024"})
+    public int partitions;
+
+    private CoreEnvironment env;
+    private DefaultClusterConfig config;
+    private List<Node> nodeList;
+    private KeyValueLocator locator;
+    private GetRequest[] requests;
+    private byte[][] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        env = DefaultCoreEnvironment.create();
+        config = new DefaultClusterConfig();
+        config.setBucketConfig(BUCKET, BenchmarkConfigs.couchbaseBucket(env, BUCKET, nodes, partitions, 1));
+
+        nodeList = new CopyOnWriteArrayList<Node>();
+        for (int i = 0; i < nodes; i++) {
+            nodeList.add(new BenchmarkNode(BenchmarkConfigs.hostname(i)));
+        }
+
+        locator = new KeyValueLocator();
+        requests = new GetRequest[4096];
+        keys = new byte[requests.length][];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = new GetRequest("user::" + i, BUCKET);
+            keys[i] = ("user::" + i).getBytes(CharsetUtil.UTF_8);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        env.shutdown();
+    }
+
+    @Benchmark
+    public void locate() {
+        locator.locateAndDispatch(requests[next++ & (requests.length - 1)], nodeList, config, env, null);
+    }
+
+    @Benchmark
+    public int partitionForKey() {
+        return KeyValueLocator.partitionForKey(keys[next++ & (keys.length - 1)], partitions);
+    }
+
+    @Benchmark
+    public int partitionForKeyWithZipCrc32() {
+        CRC32 crc32 = new CRC32();
+        crc32.update(keys[next++ & (keys.length - 1)]);
+        return (int) ((crc32.getValue() >> 16) & 0x7fff) & partitions - 1;
+    }
+
+}
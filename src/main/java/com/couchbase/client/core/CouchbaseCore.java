@@ -51,6 +51,10 @@ import com.couchbase.client.core.message.internal.RemoveNodeRequest;
 import com.couchbase.client.core.message.internal.RemoveNodeResponse;
 import com.couchbase.client.core.message.internal.RemoveServiceRequest;
 import com.couchbase.client.core.message.internal.RemoveServiceResponse;
+import com.couchbase.client.core.message.kv.BinaryRequest;
+import com.couchbase.client.core.message.kv.HedgedGetRequest;
+import com.couchbase.client.core.message.observe.BatchedObserveRequest;
+import com.couchbase.client.core.message.observe.DurabilityCoordinator;
 import com.couchbase.client.core.service.Service;
 import com.couchbase.client.core.state.LifecycleState;
 import com.lmax.disruptor.EventTranslatorOneArg;
@@ -62,6 +66,7 @@ import io.netty.util.concurrent.DefaultThreadFactory;
 import rx.Observable;
 import rx.functions.Func1;
 
+import java.util.Arrays;
 import java.util.concurrent.ThreadFactory;
 
 /**
@@ -94,12 +99,12 @@ public class CouchbaseCore implements ClusterFacade {
     public static final BackpressureException BACKPRESSURE_EXCEPTION = new BackpressureException();
 
     /**
-     * The {@link RequestEvent} {@link RingBuffer}.
+     * The {@link RequestEvent} {@link RingBuffer}s, one per configured request buffer.
      */
-    private final RingBuffer<RequestEvent> requestRingBuffer;
+    private final RingBuffer<RequestEvent>[] requestRingBuffers;
 
     /**
-     * The handler for all cluster nodes.
+     * The handler for all cluster nodes, shared across all request {@link RingBuffer}s.
      */
     private final RequestHandler requestHandler;
 
@@ -108,9 +113,19 @@ public class CouchbaseCore implements ClusterFacade {
      */
     private final ConfigurationProvider configProvider;
 
+    /**
+     * The handler for {@link HedgedGetRequest}s, which are dispatched as their contained requests.
+     */
+    private final HedgedGetHandler hedgedGetHandler;
+
+    /**
+     * The coordinator for {@link BatchedObserveRequest}s, which polls their durability grouped by vbucket.
+     */
+    private final DurabilityCoordinator durabilityCoordinator;
+
     private final CoreEnvironment environment;
 
-    private final Disruptor<RequestEvent> requestDisruptor;
+    private final Disruptor<RequestEvent>[] requestDisruptors;
     private final Disruptor<ResponseEvent> responseDisruptor;
 
     private volatile boolean sharedEnvironment = true;
@@ -133,12 +148,15 @@ public class CouchbaseCore implements ClusterFacade {
     /**
      * Creates a new {@link CouchbaseCore}.
      */
+    @SuppressWarnings("unchecked")
     public CouchbaseCore(final CoreEnvironment environment) {
         LOGGER.info(environment.toString());
         LOGGER.debug(Diagnostics.collectAndFormat());
 
         this.environment = environment;
         configProvider = new DefaultConfigurationProvider(this, environment);
+        hedgedGetHandler = new HedgedGetHandler(environment, this, configProvider);
+        durabilityCoordinator = new DurabilityCoordinator(environment, this, configProvider);
         ThreadFactory disruptorThreadFactory = new DefaultThreadFactory("cb-core", true);
         responseDisruptor = new Disruptor<ResponseEvent>(
             new ResponseEventFactory(),
@@ -165,33 +183,39 @@ public class CouchbaseCore implements ClusterFacade {
         responseDisruptor.start();
         RingBuffer<ResponseEvent> responseRingBuffer = responseDisruptor.getRingBuffer();
 
-        requestDisruptor = new Disruptor<RequestEvent>(
-            new RequestEventFactory(),
-            environment.requestBufferSize(),
-            disruptorThreadFactory,
-            ProducerType.MULTI,
-            environment.requestBufferWaitStrategy().newWaitStrategy()
-        );
         requestHandler = new RequestHandler(environment, configProvider.configs(), responseRingBuffer);
-        requestDisruptor.setDefaultExceptionHandler(new ExceptionHandler<RequestEvent>() {
-            @Override
-            public void handleEventException(Throwable ex, long sequence, RequestEvent event) {
-                LOGGER.warn("Exception while Handling Request Events {}", event, ex);
-            }
+        int requestBufferCount = environment.requestBufferCount();
+        requestDisruptors = new Disruptor[requestBufferCount];
+        requestRingBuffers = new RingBuffer[requestBufferCount];
+        for (int i = 0; i < requestBufferCount; i++) {
+            Disruptor<RequestEvent> requestDisruptor = new Disruptor<RequestEvent>(
+                new RequestEventFactory(),
+                environment.requestBufferSize(),
+                disruptorThreadFactory,
+                ProducerType.MULTI,
+                environment.requestBufferWaitStrategy().newWaitStrategy()
+            );
+            requestDisruptor.setDefaultExceptionHandler(new ExceptionHandler<RequestEvent>() {
+                @Override
+                public void handleEventException(Throwable ex, long sequence, RequestEvent event) {
+                    LOGGER.warn("Exception while Handling Request Events {}", event, ex);
+                }
 
-            @Override
-            public void handleOnStartException(Throwable ex) {
-                LOGGER.warn("Exception while Starting Request RingBuffer", ex);
-            }
+                @Override
+                public void handleOnStartException(Throwable ex) {
+                    LOGGER.warn("Exception while Starting Request RingBuffer", ex);
+                }
 
-            @Override
-            public void handleOnShutdownException(Throwable ex) {
-                LOGGER.info("Exception while shutting down Request RingBuffer", ex);
-            }
-        });
-        requestDisruptor.handleEventsWith(requestHandler);
-        requestDisruptor.start();
-        requestRingBuffer = requestDisruptor.getRingBuffer();
+                @Override
+                public void handleOnShutdownException(Throwable ex) {
+                    LOGGER.info("Exception while shutting down Request RingBuffer", ex);
+                }
+            });
+            requestDisruptor.handleEventsWith(requestHandler);
+            requestDisruptor.start();
+            requestDisruptors[i] = requestDisruptor;
+            requestRingBuffers[i] = requestDisruptor.getRingBuffer();
+        }
     }
 
     @Override
@@ -203,8 +227,17 @@ public class CouchbaseCore implements ClusterFacade {
         } else if (request instanceof ClusterRequest) {
             handleClusterRequest(request);
             return (Observable<R>) request.observable().observeOn(environment.scheduler());
+        } else if (request instanceof HedgedGetRequest) {
+            hedgedGetHandler.send((HedgedGetRequest) request);
+            return (Observable<R>) request.observable();
+        } else if (request instanceof BatchedObserveRequest) {
+            durabilityCoordinator.send((BatchedObserveRequest) request);
+            return (Observable<R>) request.observable();
         } else {
-            boolean published = requestRingBuffer.tryPublishEvent(REQUEST_TRANSLATOR, request);
+            RingBuffer<RequestEvent> ringBuffer = requestRingBuffers.length == 1
+                ? requestRingBuffers[0]
+                : requestRingBuffers[requestBufferIndex(request, requestRingBuffers.length)];
+            boolean published = ringBuffer.tryPublishEvent(REQUEST_TRANSLATOR, request);
             if (!published) {
                 request.observable().onError(BACKPRESSURE_EXCEPTION);
             }
@@ -212,6 +245,36 @@ public class CouchbaseCore implements ClusterFacade {
         }
     }
 
+    /**
+     * Returns the {@link RequestHandler} shared by all request {@link RingBuffer}s.
+     *
+     * This method should only be used for testing and benchmarking purposes.
+     */
+    RequestHandler requestHandler() {
+        return requestHandler;
+    }
+
+    /**
+     * Selects the request {@link RingBuffer} a request is published into if more than one is configured.
+     *
+     * Requests with a document key are always assigned by key, so all operations on the same document are
+     * dispatched by the same thread and keep their order. All other requests stay on the buffer assigned to the
+     * calling thread, which keeps them in order per producer without any shared state.
+     *
+     * @param request the request to publish.
+     * @param count the number of request buffers.
+     * @return the index of the request buffer to use.
+     */
+    static int requestBufferIndex(final CouchbaseRequest request, final int count) {
+        if (request instanceof BinaryRequest) {
+            byte[] key = ((BinaryRequest) request).keyBytes();
+            if (key != null && key.length > 0) {
+                return (Arrays.hashCode(key) & Integer.MAX_VALUE) % count;
+            }
+        }
+        return (int) (Thread.currentThread().getId() % count);
+    }
+
     /**
      * Helper method to handle the cluster requests.
      *
@@ -272,7 +335,9 @@ public class CouchbaseCore implements ClusterFacade {
                 }).map(new Func1<Boolean, Boolean>() {
                     @Override
                     public Boolean call(Boolean success) {
-                        requestDisruptor.shutdown();
+                        for (Disruptor<RequestEvent> requestDisruptor : requestDisruptors) {
+                            requestDisruptor.shutdown();
+                        }
                         responseDisruptor.shutdown();
                         return success;
                     }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.config.BucketConfig;
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.config.ConfigurationProvider;
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.logging.CouchbaseLogger;
+import com.couchbase.client.core.logging.CouchbaseLoggerFactory;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.kv.GetRequest;
+import com.couchbase.client.core.message.kv.HedgedGetRequest;
+import com.couchbase.client.core.message.kv.ReplicaGetRequest;
+import com.couchbase.client.core.metrics.NetworkLatencyMetricsCollector;
+import com.couchbase.client.core.metrics.RuntimeMetricsCollector;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import rx.Observer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Dispatches {@link HedgedGetRequest}s, asking the replicas as well if the active node is slow to answer.
+ *
+ * The delay after which the replicas are asked is the configured percentile of the latencies of successful
+ * {@link GetRequest}s, as recorded by the {@link NetworkLatencyMetricsCollector} during its last rolling window,
+ * but at least the configured minimum delay. It is tracked on the shared request timer of the environment, so a
+ * hedged get does not need a thread of its own while it waits.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class HedgedGetHandler {
+
+    /**
+     * The logger used.
+     */
+    private static final CouchbaseLogger LOGGER = CouchbaseLoggerFactory.getInstance(HedgedGetHandler.class);
+
+    private static final String GET_REQUEST = GetRequest.class.getSimpleName();
+
+    private final CoreEnvironment environment;
+    private final ClusterFacade core;
+    private final ConfigurationProvider configProvider;
+    private final RuntimeMetricsCollector runtimeMetrics;
+
+    public HedgedGetHandler(final CoreEnvironment environment, final ClusterFacade core,
+        final ConfigurationProvider configProvider) {
+        this.environment = environment;
+        this.core = core;
+        this.configProvider = configProvider;
+        this.runtimeMetrics = RuntimeMetricsCollector.enabled(environment);
+    }
+
+    /**
+     * Sends the get request to the active node and starts waiting for the delay after which the replicas are asked.
+     *
+     * @param request the hedged get request.
+     */
+    public void send(final HedgedGetRequest request) {
+        new HedgedGet(request).start();
+    }
+
+    /**
+     * Returns the delay after which the replicas are asked, in nanoseconds.
+     *
+     * @return the hedge delay.
+     */
+    long hedgeDelay() {
+        long delay = TimeUnit.MILLISECONDS.toNanos(environment.hedgedGetMinDelay());
+        NetworkLatencyMetricsCollector collector = environment.networkLatencyMetricsCollector();
+        if (collector != null && collector.isEnabled()) {
+            delay = Math.max(delay, collector.latencyAtPercentile(GET_REQUEST, environment.hedgedGetPercentile()));
+        }
+        return delay;
+    }
+
+    /**
+     * Returns the number of replicas configured for the given bucket.
+     *
+     * @param bucket the name of the bucket.
+     * @return the number of replicas, 0 if unknown or not a couchbase bucket.
+     */
+    private int numberOfReplicas(final String bucket) {
+        ClusterConfig config = configProvider.config();
+        BucketConfig bucketConfig = config == null ? null : config.bucketConfig(bucket);
+        if (bucketConfig instanceof CouchbaseBucketConfig) {
+            return ((CouchbaseBucketConfig) bucketConfig).numberOfReplicas();
+        }
+        return 0;
+    }
+
+    /**
+     * The state of one hedged get, completing its request with the first eligible response.
+     */
+    private class HedgedGet implements TimerTask {
+
+        private final HedgedGetRequest request;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile Timeout timeout;
+
+        HedgedGet(final HedgedGetRequest request) {
+            this.request = request;
+        }
+
+        void start() {
+            GetRequest active = request.request();
+            active.deadline(request.deadline());
+            active.observable().subscribe(new Contender(true));
+
+            try {
+                timeout = environment.requestTimer().newTimeout(this, hedgeDelay(), TimeUnit.NANOSECONDS);
+            } catch (IllegalStateException ex) {
+                LOGGER.debug("Not hedging {}, the request timer is stopped.", request);
+            }
+            core.send(active);
+        }
+
+        /**
+         * Called by the timer once the hedge delay passed, asks all replicas if no response arrived yet.
+         */
+        @Override
+        public void run(final Timeout timeout) throws Exception {
+            if (done.get()) {
+                return;
+            }
+
+            int replicas = numberOfReplicas(request.bucket());
+            if (replicas == 0) {
+                return;
+            }
+
+            if (runtimeMetrics != null) {
+                runtimeMetrics.recordHedgedGetFired(replicas);
+            }
+            for (short replica = 1; replica <= replicas; replica++) {
+                ReplicaGetRequest replicaRequest = new ReplicaGetRequest(request.key(), request.bucket(), replica);
+                replicaRequest.deadline(request.deadline());
+                replicaRequest.observable().subscribe(new Contender(false));
+                core.send(replicaRequest);
+            }
+        }
+
+        /**
+         * Completes the hedged get with the given response, or releases it if another one has been faster.
+         */
+        void complete(final CouchbaseResponse response, final boolean active) {
+            if (!done.compareAndSet(false, true)) {
+                ReferenceCountUtil.release(response);
+                return;
+            }
+
+            Timeout pending = timeout;
+            if (pending != null) {
+                pending.cancel();
+            }
+            if (!active && runtimeMetrics != null) {
+                runtimeMetrics.recordHedgedGetWon();
+            }
+            request.observable().onNext(response);
+            request.observable().onCompleted();
+        }
+
+        /**
+         * Fails the hedged get with the error of the active node, unless a replica has answered already.
+         */
+        void fail(final Throwable error) {
+            if (done.compareAndSet(false, true)) {
+                Timeout pending = timeout;
+                if (pending != null) {
+                    pending.cancel();
+                }
+                request.observable().onError(error);
+            }
+        }
+
+        /**
+         * Observes the response of either the active node or one of the replicas.
+         *
+         * Any response of the active node is eligible, since it is authoritative for the document. A replica only
+         * wins with a successful response, since it might not know about a document which has just been created.
+         */
+        private class Contender implements Observer<CouchbaseResponse> {
+
+            private final boolean active;
+
+            Contender(final boolean active) {
+                this.active = active;
+            }
+
+            @Override
+            public void onNext(final CouchbaseResponse response) {
+                if (active || response.status().isSuccess()) {
+                    complete(response, active);
+                } else {
+                    ReferenceCountUtil.release(response);
+                }
+            }
+
+            @Override
+            public void onError(final Throwable e) {
+                if (active) {
+                    fail(e);
+                } else if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("Ignoring replica error for hedged get {}", request, e);
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                // the response has been handled in onNext already
+            }
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ package com.couchbase.client.core;
 import com.couchbase.client.core.config.BucketConfig;
 import com.couchbase.client.core.config.ClusterConfig;
 import com.couchbase.client.core.config.NodeInfo;
+import com.couchbase.client.core.endpoint.DispatchBatch;
 import com.couchbase.client.core.env.CoreEnvironment;
 import com.couchbase.client.core.event.EventBus;
 import com.couchbase.client.core.event.system.ConfigUpdatedEvent;
@@ -29,11 +30,12 @@ import com.couchbase.client.core.message.config.ConfigRequest;
 import com.couchbase.client.core.message.dcp.DCPRequest;
 import com.couchbase.client.core.message.internal.AddServiceRequest;
 import com.couchbase.client.core.message.internal.RemoveServiceRequest;
-import com.couchbase.client.core.message.internal.SignalFlush;
 import com.couchbase.client.core.message.kv.BinaryRequest;
+import com.couchbase.client.core.message.kv.BulkRequest;
 import com.couchbase.client.core.message.query.QueryRequest;
 import com.couchbase.client.core.message.search.SearchRequest;
 import com.couchbase.client.core.message.view.ViewRequest;
+import com.couchbase.client.core.metrics.RuntimeMetricsCollector;
 import com.couchbase.client.core.node.CouchbaseNode;
 import com.couchbase.client.core.node.Node;
 import com.couchbase.client.core.node.locate.ConfigLocator;
@@ -55,6 +57,8 @@ import rx.functions.Func1;
 
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -80,7 +84,7 @@ public class RequestHandler implements EventHandler<RequestEvent> {
     /**
      * The node locator for the binary service.
      */
-    private final Locator binaryLocator = new KeyValueLocator();
+    private final KeyValueLocator binaryLocator = new KeyValueLocator();
 
     /**
      * The node locator for the view service.
@@ -112,6 +116,14 @@ public class RequestHandler implements EventHandler<RequestEvent> {
      */
     private final CopyOnWriteArrayList<Node> nodes;
 
+    /**
+     * An immutable snapshot of {@link #nodes}, replaced whenever a node is added or removed.
+     *
+     * The locators get this snapshot, so they can check if what they derived from the node list is still current
+     * with a single identity comparison instead of walking the list for every request.
+     */
+    private volatile List<Node> nodeSnapshot;
+
     /**
      * The shared couchbase environment.
      */
@@ -127,6 +139,11 @@ public class RequestHandler implements EventHandler<RequestEvent> {
      */
     private final EventBus eventBus;
 
+    /**
+     * The collector to record dispatch batches on, null if not available or disabled.
+     */
+    private final RuntimeMetricsCollector runtimeMetrics;
+
     /**
      * Contains the current cluster configuration.
      */
@@ -149,9 +166,11 @@ public class RequestHandler implements EventHandler<RequestEvent> {
     RequestHandler(final CopyOnWriteArrayList<Node> nodes, final CoreEnvironment environment,
         final Observable<ClusterConfig> configObservable, final RingBuffer<ResponseEvent> responseBuffer) {
         this.nodes = nodes;
+        publishNodeSnapshot();
         this.environment = environment;
         this.responseBuffer = responseBuffer;
         this.eventBus = environment.eventBus();
+        this.runtimeMetrics = RuntimeMetricsCollector.enabled(environment);
         configuration = null;
 
         configObservable.subscribe(new Action1<ClusterConfig>() {
@@ -160,6 +179,7 @@ public class RequestHandler implements EventHandler<RequestEvent> {
                 try {
                     LOGGER.debug("Got notified of a new configuration arriving.");
                     configuration = config;
+                    binaryLocator.pruneTables(config);
                     reconfigure(config).subscribe(new Subscriber<ClusterConfig>() {
                         @Override
                         public void onCompleted() {}
@@ -193,22 +213,28 @@ public class RequestHandler implements EventHandler<RequestEvent> {
 
     @Override
     public void onEvent(final RequestEvent event, final long sequence, final boolean endOfBatch) throws Exception {
+        DispatchBatch batch = DispatchBatch.current();
         try {
+            batch.requestDispatched();
             dispatchRequest(event.getRequest());
         } finally {
             event.setRequest(null);
-            if (endOfBatch && nodes != null) {
-                flush();
+            if (endOfBatch) {
+                flush(batch);
             }
         }
     }
 
     /**
-     * Helper method to send the flush signal to all of the nodes available.
+     * Helper method to flush only the endpoints which have been written to during the batch.
+     *
+     * @param batch the batch of the current dispatch thread.
      */
-    private void flush() {
-        for (Node node : nodes) {
-            node.send(SignalFlush.INSTANCE);
+    private void flush(final DispatchBatch batch) {
+        int requests = batch.requestCount();
+        int flushes = batch.flush();
+        if (runtimeMetrics != null) {
+            runtimeMetrics.recordDispatchBatch(requests, flushes);
         }
     }
 
@@ -238,7 +264,7 @@ public class RequestHandler implements EventHandler<RequestEvent> {
             }
         }
 
-        locator(request).locateAndDispatch(request, nodes, config, environment, responseBuffer);
+        locator(request).locateAndDispatch(request, nodeSnapshot, config, environment, responseBuffer);
     }
 
     /**
@@ -249,7 +275,8 @@ public class RequestHandler implements EventHandler<RequestEvent> {
      * @throws ServiceNotAvailableException if the request type needs a particular feature which isn't activated.
      */
     protected void checkFeaturesForRequest(final CouchbaseRequest request, final BucketConfig config) {
-        if (request instanceof BinaryRequest && !config.serviceEnabled(ServiceType.BINARY)) {
+        if ((request instanceof BinaryRequest || request instanceof BulkRequest)
+            && !config.serviceEnabled(ServiceType.BINARY)) {
             throw new ServiceNotAvailableException("The KeyValue service is not enabled or no node in the cluster "
                 + "supports it.");
         } else if (request instanceof ViewRequest && !config.serviceEnabled(ServiceType.VIEW)) {
@@ -302,7 +329,9 @@ public class RequestHandler implements EventHandler<RequestEvent> {
             @Override
             public LifecycleState call(LifecycleState lifecycleState) {
                 LOGGER.debug("Connect finished, registering for use.");
-                nodes.addIfAbsent(node);
+                if (nodes.addIfAbsent(node)) {
+                    publishNodeSnapshot();
+                }
                 return lifecycleState;
             }
         });
@@ -326,10 +355,24 @@ public class RequestHandler implements EventHandler<RequestEvent> {
      */
     Observable<LifecycleState> removeNode(final Node node) {
         LOGGER.debug("Got instructed to remove Node {}", node.hostname());
-        nodes.remove(node);
+        if (nodes.remove(node)) {
+            publishNodeSnapshot();
+        }
         return node.disconnect();
     }
 
+    /**
+     * Replaces the {@link #nodeSnapshot} with the current content of the node list.
+     *
+     * Publishing is serialized and always reads the list after the change it follows, so the last snapshot
+     * published is never older than the list.
+     */
+    private void publishNodeSnapshot() {
+        synchronized (nodes) {
+            nodeSnapshot = Collections.unmodifiableList(Arrays.asList(nodes.toArray(new Node[0])));
+        }
+    }
+
     /**
      * Add the service to the node.
      *
@@ -377,7 +420,7 @@ public class RequestHandler implements EventHandler<RequestEvent> {
      * @return the locator for the given request type.
      */
     protected Locator locator(final CouchbaseRequest request) {
-        if (request instanceof BinaryRequest) {
+        if (request instanceof BinaryRequest || request instanceof BulkRequest) {
             return binaryLocator;
         } else if (request instanceof ViewRequest) {
             return viewLocator;
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core;
+
+/**
+ * This exception is raised when a request has been written to the network, but no response has been received
+ * before its {@link com.couchbase.client.core.message.CouchbaseRequest#deadline()}.
+ *
+ * Note that it is not known whether the operation succeeded on the server or not, so non-idempotent requests
+ * should be retried carefully.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class RequestTimeoutException extends CouchbaseException {
+
+    public RequestTimeoutException() {
+        super();
+    }
+
+    public RequestTimeoutException(String message) {
+        super(message);
+    }
+
+    public RequestTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public RequestTimeoutException(Throwable cause) {
+        super(cause);
+    }
+}
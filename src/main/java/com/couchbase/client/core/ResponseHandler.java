@@ -18,7 +18,10 @@ package com.couchbase.client.core;
 import com.couchbase.client.core.config.BucketConfig;
 import com.couchbase.client.core.config.ClusterConfig;
 import com.couchbase.client.core.config.ConfigurationProvider;
+import com.couchbase.client.core.config.parser.BucketConfigParser;
 import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.CoreScheduler;
+import com.couchbase.client.core.env.ResponseCompletionPool;
 import com.couchbase.client.core.logging.CouchbaseLogger;
 import com.couchbase.client.core.logging.CouchbaseLoggerFactory;
 import com.couchbase.client.core.message.CouchbaseMessage;
@@ -30,7 +33,7 @@ import com.couchbase.client.core.message.kv.BinaryResponse;
 import com.couchbase.client.core.time.Delay;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.EventTranslatorTwoArg;
-import io.netty.util.CharsetUtil;
+import io.netty.buffer.ByteBuf;
 import rx.Scheduler;
 import rx.functions.Action0;
 import rx.subjects.Subject;
@@ -46,6 +49,7 @@ public class ResponseHandler implements EventHandler<ResponseEvent> {
     private final CoreEnvironment environment;
     private final boolean traceLoggingEnabled;
     private final int nmvbRetryDelay;
+    private final ResponseCompletionPool.Lane completionLane;
 
     /**
      * Creates a new {@link ResponseHandler}.
@@ -60,6 +64,8 @@ public class ResponseHandler implements EventHandler<ResponseEvent> {
         this.environment = environment;
         this.nmvbRetryDelay = Integer.parseInt(System.getProperty("com.couchbase.nmvbRetryDelay", "100"));
         traceLoggingEnabled = LOGGER.isTraceEnabled();
+        ResponseCompletionPool completionPool = environment.responseCompletionPool();
+        completionLane = completionPool == null ? null : completionPool.lane();
     }
 
     /**
@@ -101,21 +107,7 @@ public class ResponseHandler implements EventHandler<ResponseEvent> {
                 if (status == ResponseStatus.RETRY) {
                     retry(event, true);
                 } else {
-                    final Scheduler.Worker worker = environment.scheduler().createWorker();
-                    final Subject<CouchbaseResponse, CouchbaseResponse> obs = event.getObservable();
-                    worker.schedule(new Action0() {
-                        @Override
-                        public void call() {
-                            try {
-                                obs.onNext(response);
-                                obs.onCompleted();
-                            } catch(Exception ex) {
-                                obs.onError(ex);
-                            } finally {
-                                worker.unsubscribe();
-                            }
-                        }
-                    });
+                    completeResponse(response, event.getObservable());
                 }
             } else if (message instanceof CouchbaseRequest) {
                 retry(event, false);
@@ -128,6 +120,48 @@ public class ResponseHandler implements EventHandler<ResponseEvent> {
         }
     }
 
+    /**
+     * Moves the completion of the observable out of the response RingBuffer.
+     *
+     * If a {@link ResponseCompletionPool} is configured the response is handed to it, if the scheduler is the
+     * {@link CoreScheduler} it is scheduled directly and only for any other scheduler a worker is created.
+     */
+    private void completeResponse(final CouchbaseResponse response,
+        final Subject<CouchbaseResponse, CouchbaseResponse> obs) {
+        if (completionLane != null) {
+            completionLane.complete(response, obs);
+            return;
+        }
+
+        final Action0 completion = new Action0() {
+            @Override
+            public void call() {
+                try {
+                    obs.onNext(response);
+                    obs.onCompleted();
+                } catch(Exception ex) {
+                    obs.onError(ex);
+                }
+            }
+        };
+        Scheduler scheduler = environment.scheduler();
+        if (scheduler instanceof CoreScheduler) {
+            ((CoreScheduler) scheduler).scheduleDirect(completion);
+        } else {
+            final Scheduler.Worker worker = scheduler.createWorker();
+            worker.schedule(new Action0() {
+                @Override
+                public void call() {
+                    try {
+                        completion.call();
+                    } finally {
+                        worker.unsubscribe();
+                    }
+                }
+            });
+        }
+    }
+
     private void retry(final ResponseEvent event, final boolean isNotMyVbucket) {
         final CouchbaseMessage message = event.getMessage();
         if (message instanceof CouchbaseRequest) {
@@ -143,11 +177,11 @@ public class ResponseHandler implements EventHandler<ResponseEvent> {
             }
             if (message instanceof BinaryResponse) {
                 BinaryResponse response = (BinaryResponse) message;
-                if (response.content() != null && response.content().readableBytes() > 0) {
+                ByteBuf content = response.content();
+                if (content != null && content.readableBytes() > 0) {
                     try {
-                        String config = response.content().toString(CharsetUtil.UTF_8).trim();
-                        if (config.startsWith("{")) {
-                            configurationProvider.proposeBucketConfig(response.bucket(), config);
+                        if (BucketConfigParser.isConfig(content)) {
+                            configurationProvider.proposeBucketConfig(response.bucket(), content);
                         }
                     } finally {
                         response.content().release();
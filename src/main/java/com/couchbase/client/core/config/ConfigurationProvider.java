@@ -15,6 +15,7 @@
  */
 package com.couchbase.client.core.config;
 
+import io.netty.buffer.ByteBuf;
 import rx.Observable;
 
 import java.net.InetAddress;
@@ -64,5 +65,16 @@ public interface ConfigurationProvider {
 
     void proposeBucketConfig(String bucket, String config);
 
+    /**
+     * Proposes a raw bucket config which has not been converted into a string yet, for example as part of a
+     * "not my vbucket" response.
+     *
+     * The buffer is not released, the caller still owns it after this method returns.
+     *
+     * @param bucket the name of the bucket.
+     * @param config the raw UTF-8 encoded config.
+     */
+    void proposeBucketConfig(String bucket, ByteBuf config);
+
     void signalOutdated();
 }
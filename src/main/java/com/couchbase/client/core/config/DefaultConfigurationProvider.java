@@ -20,6 +20,7 @@ import com.couchbase.client.core.config.loader.CarrierLoader;
 import com.couchbase.client.core.config.loader.HttpLoader;
 import com.couchbase.client.core.config.loader.Loader;
 import com.couchbase.client.core.config.parser.BucketConfigParser;
+import com.couchbase.client.core.config.parser.RevisionScanner;
 import com.couchbase.client.core.config.refresher.CarrierRefresher;
 import com.couchbase.client.core.config.refresher.HttpRefresher;
 import com.couchbase.client.core.config.refresher.Refresher;
@@ -30,6 +31,9 @@ import com.couchbase.client.core.event.system.BucketOpenedEvent;
 import com.couchbase.client.core.lang.Tuple2;
 import com.couchbase.client.core.logging.CouchbaseLogger;
 import com.couchbase.client.core.logging.CouchbaseLoggerFactory;
+import com.couchbase.client.core.metrics.RuntimeMetricsCollector;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
 import rx.Observable;
 import rx.functions.Action1;
 import rx.functions.Func1;
@@ -45,6 +49,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * **The default implementation of a {@link ConfigurationProvider}.**
@@ -119,6 +126,16 @@ public class DefaultConfigurationProvider implements ConfigurationProvider {
      */
     private volatile Set<InetAddress> seedHosts;
 
+    /**
+     * The highest revision proposed or applied per bucket, used to skip parsing configs which are already known.
+     */
+    private final ConcurrentMap<String, AtomicLong> knownRevisions;
+
+    /**
+     * The collector to record config proposals into, null if not enabled.
+     */
+    private final RuntimeMetricsCollector runtimeMetrics;
+
     /**
      * Create a new {@link DefaultConfigurationProvider}.
      *
@@ -162,6 +179,8 @@ public class DefaultConfigurationProvider implements ConfigurationProvider {
         this.refreshers = refreshers;
         this.environment = environment;
         this.eventBus = environment.eventBus();
+        this.knownRevisions = new ConcurrentHashMap<String, AtomicLong>();
+        this.runtimeMetrics = RuntimeMetricsCollector.enabled(environment);
 
         configObservable = PublishSubject.<ClusterConfig>create().toSerialized();
         seedHosts = null;
@@ -334,8 +353,100 @@ public class DefaultConfigurationProvider implements ConfigurationProvider {
             LOGGER.trace("Proposed raw config is {}", rawConfig);
         }
 
-        BucketConfig config = BucketConfigParser.parse(rawConfig, environment);
-        upsertBucketConfig(config);
+        long rev = RevisionScanner.scan(rawConfig);
+        if (isKnownRevision(bucket, rev)) {
+            return;
+        }
+        try {
+            upsertBucketConfig(BucketConfigParser.parse(rawConfig, environment));
+        } catch (RuntimeException ex) {
+            forgetRevision(bucket, rev);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void proposeBucketConfig(String bucket, ByteBuf rawConfig) {
+        LOGGER.debug("New Bucket {} config proposed.", bucket);
+        long rev = RevisionScanner.scan(rawConfig);
+        if (isKnownRevision(bucket, rev)) {
+            return;
+        }
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Proposed raw config is {}", rawConfig.toString(CharsetUtil.UTF_8));
+        }
+        try {
+            upsertBucketConfig(BucketConfigParser.parse(rawConfig, environment));
+        } catch (RuntimeException ex) {
+            forgetRevision(bucket, rev);
+            throw ex;
+        }
+    }
+
+    /**
+     * Checks if a config with the given revision has already been proposed or applied for the bucket and
+     * otherwise remembers it, so that concurrent proposals of the same revision are only parsed once.
+     *
+     * Configs without a revision are never considered known. If the config then cannot be applied, the revision
+     * needs to be forgotten again with {@link #forgetRevision(String, long)}.
+     *
+     * @param bucket the name of the bucket.
+     * @param rev the revision of the proposed config.
+     * @return true if the proposed config can be ignored.
+     */
+    private boolean isKnownRevision(final String bucket, final long rev) {
+        boolean known = rev > 0 && !raiseKnownRevision(bucket, rev);
+        if (runtimeMetrics != null) {
+            runtimeMetrics.recordConfigProposal(known);
+        }
+        if (known) {
+            LOGGER.trace("Ignoring proposed config for bucket {}, revision {} is already known.", bucket, rev);
+        }
+        return known;
+    }
+
+    /**
+     * Raises the known revision of the bucket to the given one.
+     *
+     * @param bucket the name of the bucket.
+     * @param rev the new revision.
+     * @return true if the revision has been raised, false if the same or a higher one is already known.
+     */
+    private boolean raiseKnownRevision(final String bucket, final long rev) {
+        AtomicLong known = knownRevisions.get(bucket);
+        if (known == null) {
+            AtomicLong created = new AtomicLong();
+            known = knownRevisions.putIfAbsent(bucket, created);
+            if (known == null) {
+                known = created;
+            }
+        }
+
+        while (true) {
+            long current = known.get();
+            if (rev <= current) {
+                return false;
+            }
+            if (known.compareAndSet(current, rev)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Lowers the known revision of the bucket back to the one of the applied config, after a config with the
+     * given revision could not be applied, unless a higher revision has been proposed in the meantime.
+     *
+     * @param bucket the name of the bucket.
+     * @param rev the revision which could not be applied.
+     */
+    private void forgetRevision(final String bucket, final long rev) {
+        AtomicLong known = knownRevisions.get(bucket);
+        if (rev > 0 && known != null) {
+            BucketConfig applied = currentConfig.bucketConfig(bucket);
+            known.compareAndSet(rev, applied == null ? 0 : applied.rev());
+        }
     }
 
     @Override
@@ -395,6 +506,9 @@ public class DefaultConfigurationProvider implements ConfigurationProvider {
 
         cluster.setBucketConfig(newConfig.name(), newConfig);
         LOGGER.debug("Applying new configuration {}", newConfig);
+        if (newConfig.rev() > 0) {
+            raiseKnownRevision(newConfig.name(), newConfig.rev());
+        }
 
         currentConfig = cluster;
 
@@ -419,6 +533,7 @@ public class DefaultConfigurationProvider implements ConfigurationProvider {
         LOGGER.debug("Removing bucket {} configuration from known configs.", name);
         ClusterConfig cluster = currentConfig;
         cluster.deleteBucketConfig(name);
+        knownRevisions.remove(name);
         currentConfig = cluster;
         configObservable.onNext(currentConfig);
     }
@@ -23,21 +23,43 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.FastThreadLocal;
 
 import java.net.InetAddress;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class DefaultMemcachedBucketConfig extends AbstractBucketConfig implements MemcachedBucketConfig {
 
+    /**
+     * The MD5 digest and its output buffer per thread, so hashing a document id does not allocate.
+     */
+    private static final FastThreadLocal<KetamaHasher> HASHERS = new FastThreadLocal<KetamaHasher>() {
+        @Override
+        protected KetamaHasher initialValue() throws Exception {
+            return new KetamaHasher();
+        }
+    };
+
     private final long rev;
     private final TreeMap<Long, NodeInfo> ketamaNodes;
     private final ConfigParserEnvironment env;
 
+    /**
+     * The ketama continuum as sorted hashes with the index (into {@link #nodes()}) of the owning node at the
+     * same position, so a lookup is a binary search over primitives.
+     */
+    private final long[] ketamaHashes;
+    private final int[] ketamaNodeIndexes;
+
     /**
      * Creates a new {@link MemcachedBucketConfig}.
      *
@@ -63,6 +85,19 @@ public class DefaultMemcachedBucketConfig extends AbstractBucketConfig implement
         this.rev = rev;
         this.ketamaNodes = new TreeMap<Long, NodeInfo>();
         populateKetamaNodes();
+
+        Map<NodeInfo, Integer> nodeIndexes = new IdentityHashMap<NodeInfo, Integer>();
+        for (int i = 0; i < nodes().size(); i++) {
+            nodeIndexes.put(nodes().get(i), i);
+        }
+        this.ketamaHashes = new long[ketamaNodes.size()];
+        this.ketamaNodeIndexes = new int[ketamaNodes.size()];
+        int i = 0;
+        for (Map.Entry<Long, NodeInfo> entry : ketamaNodes.entrySet()) {
+            ketamaHashes[i] = entry.getKey();
+            ketamaNodeIndexes[i] = nodeIndexes.get(entry.getValue());
+            i++;
+        }
     }
 
     @Override
@@ -86,26 +121,21 @@ public class DefaultMemcachedBucketConfig extends AbstractBucketConfig implement
     }
 
     private void populateKetamaNodes() {
+        MessageDigest md5 = newMd5();
         for (NodeInfo node : nodes()) {
             if (!node.services().containsKey(ServiceType.BINARY)) {
                 continue;
             }
 
             for (int i = 0; i < 40; i++) {
-                MessageDigest md5;
-                try {
-                    md5 = MessageDigest.getInstance("MD5");
-                    md5.update(env.memcachedHashingStrategy().hash(node, i).getBytes(CharsetUtil.UTF_8));
-                    byte[] digest = md5.digest();
-                    for (int j = 0; j < 4; j++) {
-                        Long key = ((long) (digest[3 + j * 4] & 0xFF) << 24)
-                            | ((long) (digest[2 + j * 4] & 0xFF) << 16)
-                            | ((long) (digest[1 + j * 4] & 0xFF) << 8)
-                            | (digest[j * 4] & 0xFF);
-                        ketamaNodes.put(key, node);
-                    }
-                } catch (NoSuchAlgorithmException e) {
-                    throw new IllegalStateException("Could not populate ketama nodes.", e);
+                md5.update(env.memcachedHashingStrategy().hash(node, i).getBytes(CharsetUtil.UTF_8));
+                byte[] digest = md5.digest();
+                for (int j = 0; j < 4; j++) {
+                    Long key = ((long) (digest[3 + j * 4] & 0xFF) << 24)
+                        | ((long) (digest[2 + j * 4] & 0xFF) << 16)
+                        | ((long) (digest[1 + j * 4] & 0xFF) << 8)
+                        | (digest[j * 4] & 0xFF);
+                    ketamaNodes.put(key, node);
                 }
             }
         }
@@ -113,18 +143,29 @@ public class DefaultMemcachedBucketConfig extends AbstractBucketConfig implement
 
     @Override
     public InetAddress nodeForId(final byte[] id) {
-        long hash = calculateKetamaHash(id);
-
-        if (!ketamaNodes.containsKey(hash)) {
-            SortedMap<Long, NodeInfo> tailMap = ketamaNodes.tailMap(hash);
-            if (tailMap.isEmpty()) {
-                hash = ketamaNodes.firstKey();
-            } else {
-                hash = tailMap.firstKey();
-            }
+        int nodeIndex = nodeIndexForId(id);
+        return nodeIndex < 0 ? null : nodes().get(nodeIndex).hostname();
+    }
+
+    /**
+     * Returns the index into {@link #nodes()} of the target node for the given document id.
+     *
+     * @param id the id for the document.
+     * @return the index of the target node, or -1 if no node serves key-value requests.
+     */
+    public int nodeIndexForId(final byte[] id) {
+        if (ketamaHashes.length == 0) {
+            return -1;
         }
 
-        return ketamaNodes.get(hash).hostname();
+        int position = Arrays.binarySearch(ketamaHashes, HASHERS.get().hash(id));
+        if (position < 0) {
+            position = -position - 1;
+            if (position == ketamaHashes.length) {
+                position = 0;
+            }
+        }
+        return ketamaNodeIndexes[position];
     }
 
     @Override
@@ -132,24 +173,34 @@ public class DefaultMemcachedBucketConfig extends AbstractBucketConfig implement
         return false;
     }
 
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not encode ketama hash.", e);
+        }
+    }
+
     /**
-     * Calculates the ketama hash for the given key.
-     *
-     * @param key the key to calculate.
-     * @return the calculated hash.
+     * Calculates the ketama hash of keys with a reused digest and output buffer.
      */
-    private static long calculateKetamaHash(final byte[] key) {
-        try {
-            MessageDigest md5 = MessageDigest.getInstance("MD5");
+    private static final class KetamaHasher {
+
+        private final MessageDigest md5 = newMd5();
+        private final byte[] digest = new byte[16];
+
+        long hash(final byte[] key) {
             md5.update(key);
-            byte[] digest = md5.digest();
+            try {
+                md5.digest(digest, 0, digest.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException("Could not encode ketama hash.", e);
+            }
             long rv = ((long) (digest[3] & 0xFF) << 24)
                     | ((long) (digest[2] & 0xFF) << 16)
                     | ((long) (digest[1] & 0xFF) << 8)
                     | (digest[0] & 0xFF);
             return rv & 0xffffffffL;
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalStateException("Could not encode ketama hash.", e);
         }
     }
 
@@ -20,12 +20,23 @@ import com.couchbase.client.core.config.BucketConfig;
 import com.couchbase.client.core.env.ConfigParserEnvironment;
 import com.fasterxml.jackson.databind.InjectableValues;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * An abstraction over the bucket parser which takes a raw config as a string and turns it into a
- * {@link BucketConfig}.
+ * An abstraction over the bucket parser which takes a raw config as a string, a {@link ByteBuf} or an
+ * {@link InputStream} and turns it into a {@link BucketConfig}.
+ *
+ * Raw configs received from the server are UTF-8 encoded, so parsing them from their bytes directly saves decoding
+ * them into (potentially very large) strings first.
  *
  * @author Michael Nitschinger
  * @since 2.0.0
@@ -37,6 +48,11 @@ public final class BucketConfigParser {
      */
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
+    /**
+     * The placeholder the server uses in configs for the hostname the config has been fetched from.
+     */
+    private static final byte[] HOST_PLACEHOLDER = "$HOST".getBytes(CharsetUtil.UTF_8);
+
     /**
      * Parse a raw configuration into a {@link BucketConfig}.
      *
@@ -45,11 +61,127 @@ public final class BucketConfigParser {
      */
     public static BucketConfig parse(final String input, final ConfigParserEnvironment env) {
         try {
-            InjectableValues inject = new InjectableValues.Std()
-                    .addValue("env", env);
-            return OBJECT_MAPPER.readerFor(BucketConfig.class).with(inject).readValue(input);
+            return reader(env).readValue(input);
+        } catch (IOException e) {
+            throw new CouchbaseException("Could not parse configuration", e);
+        }
+    }
+
+    /**
+     * Parse the readable bytes of a raw UTF-8 encoded configuration into a {@link BucketConfig}.
+     *
+     * Neither the reader index nor the reference count of the buffer are modified.
+     *
+     * @param input the raw input.
+     * @return the parsed bucket configuration.
+     */
+    public static BucketConfig parse(final ByteBuf input, final ConfigParserEnvironment env) {
+        try {
+            if (input.hasArray()) {
+                return reader(env).readValue(input.array(), input.arrayOffset() + input.readerIndex(),
+                    input.readableBytes());
+            }
+            return reader(env).readValue(new ByteBufInputStream(input.duplicate()));
         } catch (IOException e) {
             throw new CouchbaseException("Could not parse configuration", e);
         }
     }
+
+    /**
+     * Parse a raw configuration from the given stream into a {@link BucketConfig}.
+     *
+     * The stream is not closed.
+     *
+     * @param input the raw input stream.
+     * @return the parsed bucket configuration.
+     */
+    public static BucketConfig parse(final InputStream input, final ConfigParserEnvironment env) {
+        try {
+            return reader(env).readValue(input);
+        } catch (IOException e) {
+            throw new CouchbaseException("Could not parse configuration", e);
+        }
+    }
+
+    /**
+     * Checks if the first non-whitespace character of the raw config opens a JSON object, which tells a config
+     * apart from other content (like an error message) without decoding it.
+     *
+     * @param input the raw input.
+     * @return true if the input looks like a config.
+     */
+    public static boolean isConfig(final ByteBuf input) {
+        int end = input.writerIndex();
+        for (int i = input.readerIndex(); i < end; i++) {
+            byte b = input.getByte(i);
+            if (b > ' ') {
+                return b == '{';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces every "$HOST" placeholder in the raw config with the given hostname.
+     *
+     * If the config does not contain the placeholder it is returned as is. Otherwise the result is composed out
+     * of slices of the original config and the hostname, so the config itself is not copied. In both cases the
+     * ownership of the input is transferred: the caller needs to release the returned buffer instead of the input.
+     *
+     * @param input the raw config.
+     * @param hostname the hostname to replace the placeholder with.
+     * @return the raw config with the placeholder replaced.
+     */
+    public static ByteBuf replaceHostPlaceholder(final ByteBuf input, final String hostname) {
+        int index = indexOfHostPlaceholder(input, input.readerIndex());
+        if (index < 0) {
+            return input;
+        }
+
+        ByteBuf host = Unpooled.copiedBuffer(hostname, CharsetUtil.UTF_8);
+        List<ByteBuf> components = new ArrayList<ByteBuf>();
+        int start = input.readerIndex();
+        while (index >= 0) {
+            if (index > start) {
+                components.add(input.slice(start, index - start).retain());
+            }
+            components.add(host.duplicate().retain());
+            start = index + HOST_PLACEHOLDER.length;
+            index = indexOfHostPlaceholder(input, start);
+        }
+        if (start < input.writerIndex()) {
+            components.add(input.slice(start, input.writerIndex() - start).retain());
+        }
+        host.release();
+        input.release();
+        return Unpooled.wrappedBuffer(components.toArray(new ByteBuf[components.size()]));
+    }
+
+    private static int indexOfHostPlaceholder(final ByteBuf input, final int fromIndex) {
+        int last = input.writerIndex() - HOST_PLACEHOLDER.length;
+        int index = fromIndex;
+        while (index <= last) {
+            index = input.indexOf(index, last + 1, HOST_PLACEHOLDER[0]);
+            if (index < 0) {
+                return -1;
+            }
+            boolean matches = true;
+            for (int i = 1; i < HOST_PLACEHOLDER.length; i++) {
+                if (input.getByte(index + i) != HOST_PLACEHOLDER[i]) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    private static ObjectReader reader(final ConfigParserEnvironment env) {
+        InjectableValues inject = new InjectableValues.Std().addValue("env", env);
+        return OBJECT_MAPPER.readerFor(BucketConfig.class).with(inject);
+    }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.config.parser;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Extracts the revision of a raw bucket configuration without parsing the whole JSON document.
+ *
+ * Only the top-level {@code "rev"} field is considered: string contents (including escaped quotes) are skipped
+ * and nested objects or arrays are tracked by depth, so a {@code "rev"} key somewhere inside the node list or
+ * a string value which happens to read {@code "rev"} is never picked up. The scan stops as soon as the field is
+ * found, which for configs sent by the server is right at the beginning of the document.
+ *
+ * The content is not validated, a malformed document is only detected once it is actually parsed.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public final class RevisionScanner {
+
+    /**
+     * Returned if the config does not contain a (numeric) top-level revision.
+     */
+    public static final long UNKNOWN = -1;
+
+    /**
+     * The longest number of digits which can not overflow a long.
+     */
+    private static final int MAX_DIGITS = 18;
+
+    private RevisionScanner() {
+    }
+
+    /**
+     * Scans the readable bytes of the given UTF-8 encoded config for its revision.
+     *
+     * Neither the reader index nor the reference count of the buffer are modified.
+     *
+     * @param config the raw config.
+     * @return the revision or {@link #UNKNOWN} if not found.
+     */
+    public static long scan(final ByteBuf config) {
+        return scan(new ByteBufInput(config));
+    }
+
+    /**
+     * Scans the given config for its revision.
+     *
+     * @param config the raw config.
+     * @return the revision or {@link #UNKNOWN} if not found.
+     */
+    public static long scan(final String config) {
+        return scan(new StringInput(config));
+    }
+
+    private static long scan(final Input input) {
+        int length = input.length();
+        int depth = 0;
+        int i = 0;
+        while (i < length) {
+            int c = input.at(i);
+            if (c == '"') {
+                int start = ++i;
+                while (i < length) {
+                    c = input.at(i);
+                    if (c == '\\') {
+                        i += 2;
+                    } else if (c == '"') {
+                        break;
+                    } else {
+                        i++;
+                    }
+                }
+                if (i >= length) {
+                    return UNKNOWN;
+                }
+                int end = i++;
+                if (depth == 1 && end - start == 3 && input.at(start) == 'r' && input.at(start + 1) == 'e'
+                    && input.at(start + 2) == 'v') {
+                    int colon = skipWhitespace(input, i, length);
+                    if (colon < length && input.at(colon) == ':') {
+                        return parseNumber(input, skipWhitespace(input, colon + 1, length), length);
+                    }
+                }
+                continue;
+            }
+
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+            i++;
+        }
+        return UNKNOWN;
+    }
+
+    private static int skipWhitespace(final Input input, int i, final int length) {
+        while (i < length) {
+            int c = input.at(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static long parseNumber(final Input input, int i, final int length) {
+        long value = 0;
+        int digits = 0;
+        while (i < length) {
+            int c = input.at(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            if (++digits > MAX_DIGITS) {
+                return UNKNOWN;
+            }
+            value = value * 10 + (c - '0');
+            i++;
+        }
+        return digits == 0 ? UNKNOWN : value;
+    }
+
+    /**
+     * Character access over the different raw config representations. Since all the structural characters
+     * of JSON are ASCII, the bytes of a UTF-8 encoded document can be scanned directly.
+     */
+    private interface Input {
+        int length();
+        int at(int index);
+    }
+
+    private static final class ByteBufInput implements Input {
+        private final ByteBuf buf;
+        private final int offset;
+
+        ByteBufInput(final ByteBuf buf) {
+            this.buf = buf;
+            this.offset = buf.readerIndex();
+        }
+
+        @Override
+        public int length() {
+            return buf.readableBytes();
+        }
+
+        @Override
+        public int at(final int index) {
+            return buf.getByte(offset + index);
+        }
+    }
+
+    private static final class StringInput implements Input {
+        private final String string;
+
+        StringInput(final String string) {
+            this.string = string;
+        }
+
+        @Override
+        public int length() {
+            return string.length();
+        }
+
+        @Override
+        public int at(final int index) {
+            return string.charAt(index);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.couchbase.client.core.config.BucketConfig;
 import com.couchbase.client.core.config.ClusterConfig;
 import com.couchbase.client.core.config.ConfigurationException;
 import com.couchbase.client.core.config.NodeInfo;
+import com.couchbase.client.core.config.parser.BucketConfigParser;
 import com.couchbase.client.core.env.CoreEnvironment;
 import com.couchbase.client.core.logging.CouchbaseLogger;
 import com.couchbase.client.core.logging.CouchbaseLoggerFactory;
@@ -27,7 +28,7 @@ import com.couchbase.client.core.message.kv.GetBucketConfigRequest;
 import com.couchbase.client.core.message.kv.GetBucketConfigResponse;
 import com.couchbase.client.core.service.ServiceType;
 import com.couchbase.client.core.utils.Buffers;
-import io.netty.util.CharsetUtil;
+import io.netty.buffer.ByteBuf;
 import rx.Observable;
 import rx.Subscriber;
 import rx.functions.Action1;
@@ -103,7 +104,7 @@ public class CarrierRefresher extends AbstractRefresher {
             });
 
 
-        Observable<String> refreshSequence = null;
+        Observable<ByteBuf> refreshSequence = null;
         List<NodeInfo> nodeInfos = new ArrayList<NodeInfo>(config.nodes());
         Collections.shuffle(nodeInfos);
         for (final NodeInfo nodeInfo : nodeInfos) {
@@ -112,9 +113,9 @@ public class CarrierRefresher extends AbstractRefresher {
             }
 
             if (refreshSequence == null) {
-                refreshSequence = pollSequence.flatMap(new Func1<Long, Observable<String>>() {
+                refreshSequence = pollSequence.flatMap(new Func1<Long, Observable<ByteBuf>>() {
                     @Override
-                    public Observable<String> call(Long aLong) {
+                    public Observable<ByteBuf> call(Long aLong) {
                         return refreshAgainstNode(bucketName, nodeInfo.hostname());
                     }
                 });
@@ -130,7 +131,7 @@ public class CarrierRefresher extends AbstractRefresher {
             return;
         }
 
-        refreshSequence.subscribe(new Subscriber<String>() {
+        refreshSequence.subscribe(new Subscriber<ByteBuf>() {
             @Override
             public void onCompleted() {
                 LOGGER.debug("Completed polling for bucket \"{}\".", bucketName);
@@ -142,10 +143,8 @@ public class CarrierRefresher extends AbstractRefresher {
             }
 
             @Override
-            public void onNext(String rawConfig) {
-                if (rawConfig.startsWith("{")) {
-                    provider().proposeBucketConfig(bucketName, rawConfig);
-                }
+            public void onNext(ByteBuf rawConfig) {
+                proposeAndRelease(bucketName, rawConfig);
             }
         });
     }
@@ -173,7 +172,7 @@ public class CarrierRefresher extends AbstractRefresher {
                 @Override
                 public void call(final BucketConfig config) {
                     final String bucketName = config.name();
-                    Observable<String> refreshSequence = null;
+                    Observable<ByteBuf> refreshSequence = null;
 
                     List<NodeInfo> nodeInfos = new ArrayList<NodeInfo>(config.nodes());
                     Collections.shuffle(nodeInfos);
@@ -196,7 +195,7 @@ public class CarrierRefresher extends AbstractRefresher {
                         return;
                     }
 
-                    refreshSequence.subscribe(new Subscriber<String>() {
+                    refreshSequence.subscribe(new Subscriber<ByteBuf>() {
                         @Override
                         public void onCompleted() {
                             LOGGER.debug("Completed refreshing config for bucket \"{}\"", bucketName);
@@ -208,16 +207,32 @@ public class CarrierRefresher extends AbstractRefresher {
                         }
 
                         @Override
-                        public void onNext(String rawConfig) {
-                            if (rawConfig.startsWith("{")) {
-                                provider().proposeBucketConfig(config.name(), rawConfig);
-                            }
+                        public void onNext(ByteBuf rawConfig) {
+                            proposeAndRelease(config.name(), rawConfig);
                         }
                     });
                 }
             });
     }
 
+    /**
+     * Helper method to propose a fetched raw config if it is one, releasing it afterwards.
+     *
+     * @param bucketName the name of the bucket.
+     * @param rawConfig the raw config as fetched from the node.
+     */
+    private void proposeAndRelease(final String bucketName, final ByteBuf rawConfig) {
+        try {
+            if (BucketConfigParser.isConfig(rawConfig)) {
+                provider().proposeBucketConfig(bucketName, rawConfig);
+            }
+        } finally {
+            if (rawConfig.refCnt() > 0) {
+                rawConfig.release();
+            }
+        }
+    }
+
     /**
      * Helper method to detect if the given node can actually perform carrier refresh.
      *
@@ -239,9 +254,9 @@ public class CarrierRefresher extends AbstractRefresher {
      *
      * @param bucketName the name of the bucket.
      * @param hostname the hostname of the node to fetch from.
-     * @return a raw configuration or an error.
+     * @return a raw configuration, which needs to be released by the subscriber, or an error.
      */
-    private Observable<String> refreshAgainstNode(final String bucketName, final InetAddress hostname) {
+    private Observable<ByteBuf> refreshAgainstNode(final String bucketName, final InetAddress hostname) {
         return Buffers.wrapColdWithAutoRelease(Observable.defer(new Func0<Observable<GetBucketConfigResponse>>() {
             @Override
             public Observable<GetBucketConfigResponse> call() {
@@ -259,14 +274,11 @@ public class CarrierRefresher extends AbstractRefresher {
                 }
             }
         })
-        .map(new Func1<GetBucketConfigResponse, String>() {
+        .map(new Func1<GetBucketConfigResponse, ByteBuf>() {
             @Override
-            public String call(GetBucketConfigResponse response) {
-                String raw = response.content().toString(CharsetUtil.UTF_8).trim();
-                if (response.content().refCnt() > 0) {
-                    response.content().release();
-                }
-                return raw.replace("$HOST", response.hostname().getHostName());
+            public ByteBuf call(GetBucketConfigResponse response) {
+                return BucketConfigParser.replaceHostPlaceholder(response.content(),
+                    response.hostname().getHostName());
             }
         })
         .doOnError(new Action1<Throwable>() {
@@ -25,6 +25,7 @@ import com.couchbase.client.core.message.CouchbaseRequest;
 import com.couchbase.client.core.message.CouchbaseResponse;
 import com.couchbase.client.core.message.internal.SignalConfigReload;
 import com.couchbase.client.core.message.internal.SignalFlush;
+import com.couchbase.client.core.metrics.RuntimeMetricsCollector;
 import com.couchbase.client.core.state.AbstractStateMachine;
 import com.couchbase.client.core.state.LifecycleState;
 import com.couchbase.client.core.state.NotConnectedException;
@@ -68,6 +69,7 @@ import java.net.SocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.couchbase.client.core.utils.Observables.failSafe;
 
@@ -172,6 +174,11 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
 
     private volatile long lastResponse;
 
+    /**
+     * The number of written requests which timed out before their response arrived.
+     */
+    private final AtomicLong timedOutRequests = new AtomicLong();
+
     /**
      * Preset the stack trace for the static exceptions.
      */
@@ -235,7 +242,8 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
         LOGGER.debug("Using a connectCallbackGracePeriod of {} on Endpoint {}:{}", connectCallbackGracePeriod,
             hostname, port);
         if (environment.sslEnabled()) {
-            this.sslEngineFactory = new SSLEngineFactory(environment);
+            this.sslEngineFactory = environment.sslEngineFactory() == null
+                ? new SSLEngineFactory(environment) : environment.sslEngineFactory();
         }
 
         Class<? extends Channel> channelClass = NioSocketChannel.class;
@@ -260,8 +268,9 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
                 @Override
                 protected void initChannel(Channel channel) throws Exception {
                     ChannelPipeline pipeline = channel.pipeline();
+                    pipeline.addLast(new ConnectTimings(channel));
                     if (environment.sslEnabled()) {
-                        pipeline.addLast(new SslHandler(sslEngineFactory.get()));
+                        pipeline.addLast(new SslHandler(sslEngineFactory.get(hostname, port)));
                     }
                     if (LOGGER.isTraceEnabled()) {
                         pipeline.addLast(LOGGING_HANDLER_INSTANCE);
@@ -271,6 +280,21 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
             }));
     }
 
+    /**
+     * Reports the durations of the individual connect phases of the given channel to the runtime metrics.
+     *
+     * @param channel the freshly connected channel.
+     */
+    private void recordConnectTimings(final Channel channel) {
+        ConnectTimings timings = ConnectTimings.of(channel);
+        RuntimeMetricsCollector collector = RuntimeMetricsCollector.enabled(env);
+        if (timings == null || collector == null) {
+            return;
+        }
+        collector.recordConnect(timings.tcpConnect(), timings.tlsHandshake(),
+            timings.saslAuth(), timings.helloNegotiation());
+    }
+
     /**
      * Add custom endpoint handlers to the {@link ChannelPipeline}.
      *
@@ -354,6 +378,7 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
                     if (future.isSuccess()) {
                         channel = future.channel();
                         LOGGER.debug(logIdent(channel, AbstractEndpoint.this) + "Connected Endpoint.");
+                        recordConnectTimings(channel);
                         transitionState(LifecycleState.CONNECTED);
                     } else {
                         if (future.cause() instanceof AuthenticationException) {
@@ -491,8 +516,9 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
         if (state() == LifecycleState.CONNECTED) {
             if (request instanceof SignalFlush) {
                 if (hasWritten && channel.isActive()) {
-                    channel.flush();
+                    // cleared before flushing so a concurrent write from another dispatch thread is never lost
                     hasWritten = false;
+                    channel.flush();
                 }
             } else {
                 if (channel.isActive() && channel.isWritable()) {
@@ -500,7 +526,11 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
                         free = false;
                     }
                     channel.write(request, channel.voidPromise());
-                    hasWritten = true;
+                    // only the first write after a flush needs to be tracked, the flush covers all later ones
+                    if (!hasWritten) {
+                        hasWritten = true;
+                        DispatchBatch.markWritten(this);
+                    }
                 } else {
                     responseBuffer.publishEvent(ResponseHandler.RESPONSE_TRANSLATOR, request, request.observable());
                 }
@@ -570,6 +600,22 @@ public abstract class AbstractEndpoint extends AbstractStateMachine<LifecycleSta
         return lastResponse;
     }
 
+    /**
+     * Called by the underlying channel when a written request timed out before its response arrived.
+     */
+    public void notifyRequestTimedOut() {
+        timedOutRequests.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of written requests which timed out before their response arrived.
+     *
+     * @return the number of timed out requests since the endpoint has been created.
+     */
+    public long timedOutRequests() {
+        return timedOutRequests.get();
+    }
+
     /**
      * Signal a "config reload" event to the upper config layers.
      */
@@ -17,10 +17,12 @@ package com.couchbase.client.core.endpoint;
 
 import com.couchbase.client.core.CouchbaseException;
 import com.couchbase.client.core.RequestCancelledException;
+import com.couchbase.client.core.RequestTimeoutException;
 import com.couchbase.client.core.ResponseEvent;
 import com.couchbase.client.core.ResponseHandler;
 import com.couchbase.client.core.env.CoreEnvironment;
 import com.couchbase.client.core.env.CoreScheduler;
+import com.couchbase.client.core.env.ResponseCompletionPool;
 import com.couchbase.client.core.logging.CouchbaseLogger;
 import com.couchbase.client.core.logging.CouchbaseLoggerFactory;
 import com.couchbase.client.core.message.CouchbaseRequest;
@@ -28,6 +30,7 @@ import com.couchbase.client.core.message.CouchbaseResponse;
 import com.couchbase.client.core.message.KeepAlive;
 import com.couchbase.client.core.message.ResponseStatus;
 import com.couchbase.client.core.metrics.NetworkLatencyMetricsIdentifier;
+import com.couchbase.client.core.metrics.RuntimeMetricsCollector;
 import com.couchbase.client.core.retry.RetryHelper;
 import com.couchbase.client.core.service.ServiceType;
 import com.lmax.disruptor.EventSink;
@@ -42,6 +45,11 @@ import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import rx.Observable;
 import rx.Scheduler;
 import rx.Subscriber;
 import rx.functions.Action0;
@@ -53,10 +61,13 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.charset.Charset;
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static com.couchbase.client.core.utils.Observables.failSafe;
 
@@ -99,11 +110,6 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
      */
     private final Queue<REQUEST> sentRequestQueue;
 
-    /**
-     * This queue keeps all timings for each request when it was sent off to the event loop.
-     */
-    private final Queue<Long> sentRequestTimings;
-
     /**
      * If this handler is transient (will close after one request).
      */
@@ -120,9 +126,30 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
     private final boolean moveResponseOut;
 
     /**
-     * A cache to avoid consistent string conversions for the request simple names.
+     * The lane of the {@link ResponseCompletionPool} responses are moved out to, null if not enabled.
+     */
+    private final ResponseCompletionPool.Lane completionLane;
+
+    /**
+     * The interned latency metric identifiers of this channel, per request type and indexed by the ordinal of
+     * the response status, so recording a latency does not create a new identifier every time.
+     */
+    private final Map<Class<? extends CouchbaseRequest>, NetworkLatencyMetricsIdentifier[]> metricsIdentifiers;
+
+    /**
+     * The pending timeouts of written requests which have a deadline, until their response starts to arrive.
+     */
+    private final Map<REQUEST, Timeout> requestTimeouts;
+
+    /**
+     * Requests which timed out but are still in the sent request queue, their response is dropped once it arrives.
      */
-    private final Map<Class<? extends CouchbaseRequest>, String> classNameCache;
+    private final Set<REQUEST> expiredRequests;
+
+    /**
+     * The runtime metrics collector to record timeouts into, null if not enabled.
+     */
+    private final RuntimeMetricsCollector runtimeMetrics;
 
     /**
      * The request which is expected to return next.
@@ -131,6 +158,11 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
 
     private DecodingState currentDecodingState;
 
+    /**
+     * If the current request already timed out and its response needs to be dropped.
+     */
+    private boolean currentRequestExpired;
+
     /**
      * Contains the current round-trip-time for the last completed operation. Used for metrics.
      */
@@ -181,9 +213,14 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
         this.currentDecodingState = DecodingState.INITIAL;
         this.isTransient = isTransient;
         this.traceEnabled = LOGGER.isTraceEnabled();
-        this.sentRequestTimings = new ArrayDeque<Long>();
-        this.classNameCache = new IdentityHashMap<Class<? extends CouchbaseRequest>, String>();
+        this.metricsIdentifiers =
+            new IdentityHashMap<Class<? extends CouchbaseRequest>, NetworkLatencyMetricsIdentifier[]>();
+        this.requestTimeouts = new IdentityHashMap<REQUEST, Timeout>();
+        this.expiredRequests = Collections.newSetFromMap(new IdentityHashMap<REQUEST, Boolean>());
+        this.runtimeMetrics = RuntimeMetricsCollector.enabled(env());
         this.moveResponseOut = env() == null || !env().callbacksOnIoPool();
+        ResponseCompletionPool completionPool = env() == null ? null : env().responseCompletionPool();
+        this.completionLane = completionPool == null ? null : completionPool.lane();
         this.sentQueueLimit = Integer.parseInt(System.getProperty("com.couchbase.sentRequestQueueLimit", "5120"));
     }
 
@@ -230,31 +267,119 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
             return;
         }
 
-        if (sentRequestQueue.size() < sentQueueLimit) {
-            super.write(ctx, msg, promise);
-        } else {
+        if (sentRequestQueue.size() >= sentQueueLimit) {
             LOGGER.debug("Rescheduling {} because sentRequestQueueLimit reached.", msg);
             RetryHelper.retryOrCancel(env(), (CouchbaseRequest) msg, responseBuffer);
+            return;
+        }
+
+        if (!acceptOutboundMessage(msg)) {
+            super.write(ctx, msg, promise);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        REQUEST request = (REQUEST) msg;
+        // an opaque request queue rejects a request whose opaque is still in-flight, its response could not
+        // be told apart, so the request is failed instead of written.
+        if (!sentRequestQueue.offer(request)) {
+            LOGGER.debug("{}Failing {} because a request with the same identity is in-flight.",
+                logIdent(ctx, endpoint), request);
+            failSafe(env().scheduler(), moveResponseOut, request.observable(),
+                new CouchbaseException("A request with the same identity is already in-flight."));
+            return;
+        }
+
+        try {
+            super.write(ctx, msg, promise);
+        } catch (Exception ex) {
+            // the request could not be encoded, so no response will arrive for it.
+            sentRequestQueue.remove(request);
+            throw ex;
         }
     }
 
     @Override
     protected void encode(ChannelHandlerContext ctx, REQUEST msg, List<Object> out) throws Exception {
         ENCODED request = encodeRequest(ctx, msg);
-        sentRequestQueue.offer(msg);
         out.add(request);
-        sentRequestTimings.offer(System.nanoTime());
+        long sendTime = System.nanoTime();
+        msg.sendTime(sendTime);
+        if (msg.deadline() != 0) {
+            scheduleTimeout(ctx, msg, sendTime);
+        }
+    }
+
+    /**
+     * Starts tracking the deadline of a written request on the shared request timer.
+     *
+     * @param ctx the handler context.
+     * @param request the written request.
+     * @param sendTime the time the request has been written.
+     */
+    private void scheduleTimeout(final ChannelHandlerContext ctx, final REQUEST request, final long sendTime) {
+        Timer timer = env().requestTimer();
+        if (timer == null) {
+            return;
+        }
+
+        Timeout timeout;
+        try {
+            timeout = timer.newTimeout(new RequestTimeoutTask(ctx, request), request.deadline() - sendTime,
+                TimeUnit.NANOSECONDS);
+        } catch (IllegalStateException ex) {
+            LOGGER.debug("Not tracking deadline of {}, the request timer is stopped.", request);
+            return;
+        }
+
+        Timeout previous = requestTimeouts.put(request, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * Fails a written request whose deadline has passed, called on the event loop.
+     *
+     * If the handler can release the slot of the request (see {@link #removeSentRequest(CouchbaseRequest)}),
+     * the late response finds no request anymore. Otherwise the request stays in the sent request queue so that
+     * the following responses are still matched correctly, and its response is released instead of published.
+     *
+     * @param ctx the handler context.
+     * @param request the request which timed out.
+     */
+    private void expireRequest(final ChannelHandlerContext ctx, final REQUEST request) {
+        if (requestTimeouts.remove(request) == null) {
+            // the response started to arrive or the channel has been closed in the meantime
+            return;
+        }
+
+        if (!removeSentRequest(request)) {
+            expiredRequests.add(request);
+        }
+
+        if (traceEnabled) {
+            LOGGER.trace("{}Request {} timed out in-flight.", logIdent(ctx, endpoint), request);
+        }
+        endpoint.notifyRequestTimedOut();
+        if (runtimeMetrics != null) {
+            runtimeMetrics.recordRequestTimeout(remoteHostname + "/" + serviceType());
+        }
+        failSafe(env().scheduler(), moveResponseOut, request.observable(),
+            new RequestTimeoutException("Request timed out in-flight."));
     }
 
     @Override
     protected void decode(ChannelHandlerContext ctx, RESPONSE msg, List<Object> out) throws Exception {
         if (currentDecodingState == DecodingState.INITIAL) {
-            initialDecodeTasks(ctx);
+            initialDecodeTasks(ctx, msg);
         }
 
         try {
             CouchbaseResponse response = decodeResponse(ctx, msg);
-            if (response != null) {
+            if (response != null && currentRequestExpired) {
+                discardResponse(response);
+            } else if (response != null) {
                 publishResponse(response, currentRequest.observable());
                 if (currentDecodingState == DecodingState.FINISHED) {
                     writeMetrics(response);
@@ -272,6 +397,42 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
         }
     }
 
+    /**
+     * Discards the response of a request which has already been failed because it timed out in-flight.
+     *
+     * Reference counted responses are released. Handlers which stream the content of a response need to override
+     * this and drain it with {@link #discardContent(Observable)}, since otherwise it stays buffered (and a channel
+     * paused on its demand stays paused) until the content gets auto released.
+     *
+     * @param response the response to discard.
+     */
+    protected void discardResponse(final CouchbaseResponse response) {
+        ReferenceCountUtil.release(response);
+    }
+
+    /**
+     * Subscribes to the streamed content of a discarded response and releases every item as it arrives.
+     *
+     * @param content the content to drain.
+     */
+    protected static void discardContent(final Observable<?> content) {
+        content.subscribe(new Subscriber<Object>() {
+            @Override
+            public void onCompleted() {
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                LOGGER.trace("Error while discarding the content of a timed out response.", e);
+            }
+
+            @Override
+            public void onNext(Object item) {
+                ReferenceCountUtil.release(item);
+            }
+        });
+    }
+
     /**
      * Helper method which creates the metrics for the current response and publishes them if enabled.
      *
@@ -282,20 +443,7 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
             && env().networkLatencyMetricsCollector().isEnabled()) {
 
             try {
-                Class<? extends CouchbaseRequest> requestClass = currentRequest.getClass();
-                String simpleName = classNameCache.get(requestClass);
-                if (simpleName == null) {
-                    simpleName = requestClass.getSimpleName();
-                    classNameCache.put(requestClass, simpleName);
-                }
-
-                NetworkLatencyMetricsIdentifier identifier = new NetworkLatencyMetricsIdentifier(
-                        remoteHostname,
-                        serviceType().toString(),
-                        simpleName,
-                        response.status().toString()
-                );
-                env().networkLatencyMetricsCollector().record(identifier, currentOpTime);
+                env().networkLatencyMetricsCollector().record(metricsIdentifier(response.status()), currentOpTime);
             } catch (Throwable e) {
                 LOGGER.warn("Could not collect latency metric for request + "
                     + currentRequest + "(" + currentOpTime + ")", e);
@@ -303,6 +451,33 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
         }
     }
 
+    /**
+     * Returns the interned identifier for the current request and the given response status.
+     *
+     * @param status the status of the response.
+     * @return the identifier to record the latency with.
+     */
+    private NetworkLatencyMetricsIdentifier metricsIdentifier(final ResponseStatus status) {
+        Class<? extends CouchbaseRequest> requestClass = currentRequest.getClass();
+        NetworkLatencyMetricsIdentifier[] identifiers = metricsIdentifiers.get(requestClass);
+        if (identifiers == null) {
+            identifiers = new NetworkLatencyMetricsIdentifier[ResponseStatus.values().length];
+            metricsIdentifiers.put(requestClass, identifiers);
+        }
+
+        NetworkLatencyMetricsIdentifier identifier = identifiers[status.ordinal()];
+        if (identifier == null) {
+            identifier = new NetworkLatencyMetricsIdentifier(
+                remoteHostname,
+                serviceType().toString(),
+                requestClass.getSimpleName(),
+                status.toString()
+            );
+            identifiers[status.ordinal()] = identifier;
+        }
+        return identifier;
+    }
+
     /**
      * Helper method which performs the final tasks in the decoding process.
      *
@@ -313,6 +488,7 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
             LOGGER.trace("{}Finished decoding of {}", logIdent(ctx, endpoint), currentRequest);
         }
         currentRequest = null;
+        currentRequestExpired = false;
         currentDecodingState = DecodingState.INITIAL;
     }
 
@@ -320,14 +496,24 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
      * Helper method which performs the initial decoding process.
      *
      * @param ctx the channel handler context for logging purposes.
+     * @param msg the response which starts to be decoded.
      */
-    private void initialDecodeTasks(final ChannelHandlerContext ctx) {
-        currentRequest = sentRequestQueue.poll();
+    private void initialDecodeTasks(final ChannelHandlerContext ctx, final RESPONSE msg) {
+        currentRequest = pollSentRequest(msg);
         currentDecodingState = DecodingState.STARTED;
 
+        if (currentRequest != null && currentRequest.deadline() != 0) {
+            Timeout timeout = requestTimeouts.remove(currentRequest);
+            if (timeout != null) {
+                timeout.cancel();
+            } else {
+                currentRequestExpired = expiredRequests.remove(currentRequest);
+            }
+        }
+
         if (currentRequest != null) {
-            Long st = sentRequestTimings.poll();
-            if (st != null) {
+            long st = currentRequest.sendTime();
+            if (st != 0) {
                 currentOpTime = System.nanoTime() - st;
             } else {
                 currentOpTime = -1;
@@ -339,6 +525,37 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
         }
     }
 
+    /**
+     * Removes and returns the outstanding request the given response belongs to.
+     *
+     * The default implementation assumes responses arrive in the same order as their requests have been
+     * written and just polls the head of the sent request queue. Handlers for protocols which carry a
+     * correlation identifier can override this to match out-of-order responses instead, and return null
+     * if the response does not belong to any outstanding request.
+     *
+     * @param msg the response which starts to be decoded.
+     * @return the request for this response, or null if none is found.
+     */
+    protected REQUEST pollSentRequest(final RESPONSE msg) {
+        return sentRequestQueue.poll();
+    }
+
+    /**
+     * Removes the given request from the outstanding requests after it timed out.
+     *
+     * The default implementation returns false and keeps the request in the sent request queue, since responses
+     * are matched in order and removing it would pair the following responses with the wrong requests. Handlers
+     * which override {@link #pollSentRequest(Object)} to match responses by a correlation identifier can
+     * remove the request instead, which frees its slot right away. In this case they are also responsible to
+     * release what the request still holds, since no response will be decoded for it.
+     *
+     * @param request the request which timed out.
+     * @return true if the request has been removed, false if it is still outstanding.
+     */
+    protected boolean removeSentRequest(final REQUEST request) {
+        return false;
+    }
+
     /**
      * Publishes a response with the attached observable.
      *
@@ -348,7 +565,9 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
     protected void publishResponse(final CouchbaseResponse response,
         final Subject<CouchbaseResponse, CouchbaseResponse> observable) {
         if (response.status() != ResponseStatus.RETRY && observable != null) {
-            if (moveResponseOut) {
+            if (moveResponseOut && completionLane != null) {
+                completionLane.complete(response, observable);
+            } else if (moveResponseOut) {
                 Scheduler scheduler = env().scheduler();
                 if (scheduler instanceof CoreScheduler) {
                     scheduleDirect((CoreScheduler) scheduler, response, observable);
@@ -448,6 +667,7 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
             // Should not happen in production, but in testing it might be different
             remoteHostname = addr.toString();
         }
+        metricsIdentifiers.clear();
         ctx.fireChannelActive();
     }
 
@@ -501,6 +721,12 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
      * @param ctx the handler context.
      */
     private void handleOutstandingOperations(final ChannelHandlerContext ctx) {
+        for (Timeout timeout : requestTimeouts.values()) {
+            timeout.cancel();
+        }
+        requestTimeouts.clear();
+        expiredRequests.clear();
+
         if (sentRequestQueue.isEmpty()) {
             LOGGER.trace(logIdent(ctx, endpoint) + "Not cancelling operations - sent queue is empty.");
             return;
@@ -517,8 +743,6 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
                 LOGGER.info("Exception thrown while cancelling outstanding operation: " + req, ex);
             }
         }
-
-        sentRequestTimings.clear();
     }
 
 
@@ -662,6 +886,29 @@ public abstract class AbstractGenericHandler<RESPONSE, ENCODED, REQUEST extends
         return "[" + ctx.channel().remoteAddress() + "][" + endpoint.getClass().getSimpleName() + "]: ";
     }
 
+    /**
+     * Fails a request once its deadline passed, moving from the timer thread onto the event loop of the channel.
+     */
+    private class RequestTimeoutTask implements TimerTask, Runnable {
+        private final ChannelHandlerContext ctx;
+        private final REQUEST request;
+
+        RequestTimeoutTask(final ChannelHandlerContext ctx, final REQUEST request) {
+            this.ctx = ctx;
+            this.request = request;
+        }
+
+        @Override
+        public void run(final Timeout timeout) throws Exception {
+            ctx.executor().execute(this);
+        }
+
+        @Override
+        public void run() {
+            expireRequest(ctx, request);
+        }
+    }
+
     private class KeepAliveResponseAction extends Subscriber<CouchbaseResponse> {
         private final ChannelHandlerContext ctx;
         KeepAliveResponseAction(ChannelHandlerContext ctx) { this.ctx = ctx; }
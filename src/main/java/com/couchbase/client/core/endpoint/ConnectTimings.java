@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+
+/**
+ * Tracks how long the individual phases of a connect attempt take.
+ *
+ * The handler is added as the very first handler of the pipeline and records when the socket got connected as well
+ * as when the TLS handshake (if any) completed. Once the channel is active it removes itself, but stays attached to
+ * the channel so that the authentication and feature negotiation handlers can mark their completion through
+ * {@link #markAuthenticated(Channel)} and {@link #markNegotiated(Channel)}.
+ *
+ * All phases run one after the other, so the duration of each phase is the time since the previous phase completed.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class ConnectTimings extends ChannelInboundHandlerAdapter {
+
+    /**
+     * The channel attribute under which the timings are stored.
+     */
+    public static final AttributeKey<ConnectTimings> TIMINGS = AttributeKey.newInstance("CONNECT_TIMINGS");
+
+    private final long started;
+    private volatile long connected;
+    private volatile long handshaked;
+    private volatile long authenticated;
+    private volatile long negotiated;
+
+    /**
+     * Creates new timings and attaches them to the given channel.
+     *
+     * @param channel the channel which is about to connect.
+     */
+    public ConnectTimings(final Channel channel) {
+        this.started = System.nanoTime();
+        channel.attr(TIMINGS).set(this);
+    }
+
+    /**
+     * Returns the timings attached to the channel or null if none are present.
+     *
+     * @param channel the channel to check.
+     * @return the attached timings, or null.
+     */
+    public static ConnectTimings of(final Channel channel) {
+        return channel == null ? null : channel.attr(TIMINGS).get();
+    }
+
+    /**
+     * Marks the SASL authentication on the given channel as completed.
+     *
+     * @param channel the connecting channel.
+     */
+    public static void markAuthenticated(final Channel channel) {
+        ConnectTimings timings = of(channel);
+        if (timings != null) {
+            timings.authenticated = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marks the HELLO feature negotiation on the given channel as completed.
+     *
+     * @param channel the connecting channel.
+     */
+    public static void markNegotiated(final Channel channel) {
+        ConnectTimings timings = of(channel);
+        if (timings != null) {
+            timings.negotiated = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void channelActive(final ChannelHandlerContext ctx) throws Exception {
+        connected = System.nanoTime();
+        SslHandler sslHandler = ctx.pipeline().get(SslHandler.class);
+        if (sslHandler != null) {
+            sslHandler.handshakeFuture().addListener(new GenericFutureListener<Future<Channel>>() {
+                @Override
+                public void operationComplete(final Future<Channel> future) throws Exception {
+                    if (future.isSuccess()) {
+                        handshaked = System.nanoTime();
+                    }
+                }
+            });
+        }
+        ctx.pipeline().remove(this);
+        ctx.fireChannelActive();
+    }
+
+    /**
+     * @return the time in nanoseconds it took to connect the socket, or -1 if not connected.
+     */
+    public long tcpConnect() {
+        return connected == 0 ? -1 : connected - started;
+    }
+
+    /**
+     * @return the time in nanoseconds the TLS handshake took, or -1 if not performed.
+     */
+    public long tlsHandshake() {
+        return connected == 0 || handshaked == 0 ? -1 : handshaked - connected;
+    }
+
+    /**
+     * @return the time in nanoseconds the SASL authentication took, or -1 if not performed.
+     */
+    public long saslAuth() {
+        return authenticated == 0 ? -1 : authenticated - Math.max(connected, handshaked);
+    }
+
+    /**
+     * @return the time in nanoseconds the HELLO negotiation took, or -1 if not performed.
+     */
+    public long helloNegotiation() {
+        return negotiated == 0 ? -1 : negotiated - Math.max(Math.max(connected, handshaked), authenticated);
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint;
+
+import com.couchbase.client.core.message.internal.SignalFlush;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.Arrays;
+
+/**
+ * Tracks the {@link Endpoint}s written to by a request dispatch thread during one batch of requests.
+ *
+ * Every thread which dispatches requests out of a request RingBuffer owns one batch, retrieved through
+ * {@link #current()}. While it dispatches, each {@link AbstractEndpoint} which goes from having nothing pending
+ * to having a pending write marks itself on the batch of the current thread. At the end of the batch only
+ * those endpoints are flushed instead of signalling every endpoint of every node.
+ *
+ * Threads which never asked for a batch (like the event loops or the computation pool) are not tracked, all
+ * code paths writing from there flush explicitly.
+ *
+ * An instance is only ever accessed from its owning thread and therefore not thread safe.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public final class DispatchBatch {
+
+    private static final FastThreadLocal<DispatchBatch> BATCHES = new FastThreadLocal<DispatchBatch>();
+
+    private Endpoint[] written = new Endpoint[16];
+    private int writtenCount;
+    private int requestCount;
+
+    private DispatchBatch() {
+    }
+
+    /**
+     * Returns the batch of the current thread, creating it if needed.
+     *
+     * This should only be called from threads which dispatch requests and call {@link #flush()} regularly.
+     *
+     * @return the batch of the current thread.
+     */
+    public static DispatchBatch current() {
+        DispatchBatch batch = BATCHES.get();
+        if (batch == null) {
+            batch = new DispatchBatch();
+            BATCHES.set(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Marks the endpoint as written to on the batch of the current thread, if it has one.
+     *
+     * @param endpoint the endpoint which needs to be flushed.
+     */
+    static void markWritten(final Endpoint endpoint) {
+        DispatchBatch batch = BATCHES.get();
+        if (batch != null) {
+            batch.add(endpoint);
+        }
+    }
+
+    /**
+     * Counts one more request dispatched as part of this batch.
+     */
+    public void requestDispatched() {
+        requestCount++;
+    }
+
+    /**
+     * Returns the number of requests dispatched as part of this batch so far.
+     */
+    public int requestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Flushes all endpoints written to during this batch and starts a new one.
+     *
+     * @return the number of endpoints flushed.
+     */
+    public int flush() {
+        int flushed = writtenCount;
+        for (int i = 0; i < flushed; i++) {
+            written[i].send(SignalFlush.INSTANCE);
+            written[i] = null;
+        }
+        writtenCount = 0;
+        requestCount = 0;
+        return flushed;
+    }
+
+    private void add(final Endpoint endpoint) {
+        if (writtenCount == written.length) {
+            written = Arrays.copyOf(written, writtenCount << 1);
+        }
+        written[writtenCount++] = endpoint;
+    }
+
+}
@@ -28,6 +28,11 @@ import java.security.KeyStore;
 /**
  * Creates a {@link SSLEngine} which will be passed into the handler if SSL is enabled.
  *
+ * The underlying {@link SSLContext} is built once on first use and then shared by all engines created from this
+ * factory, so the keystore is not read from disk on every connect and the JDK client session cache can be used to
+ * resume sessions. If the keystore changes, {@link #reload()} drops the cached context so the next engine picks
+ * up the new material.
+ *
  * @author Michael Nitschinger
  * @since 1.0
  */
@@ -38,6 +43,11 @@ public class SSLEngineFactory {
      */
     private final SecureEnvironment env;
 
+    /**
+     * The cached context, lazily initialized on the first engine creation.
+     */
+    private volatile SSLContext sslContext;
+
     /**
      * Create a new engine factory.
      *
@@ -50,9 +60,83 @@ public class SSLEngineFactory {
     /**
      * Returns a new {@link SSLEngine} constructed from the config settings.
      *
+     * Note that engines without peer information can not take part in session resumption, so prefer
+     * {@link #get(String, int)} when the remote host is known.
+     *
      * @return a {@link SSLEngine} ready to be used.
      */
     public SSLEngine get() {
+        try {
+            SSLEngine engine = context().createSSLEngine();
+            engine.setUseClientMode(true);
+            return engine;
+        } catch (SSLException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new SSLException("Could not create SSLEngine.", ex);
+        }
+    }
+
+    /**
+     * Returns a new {@link SSLEngine} for the given peer, constructed from the config settings.
+     *
+     * Since the peer host and port are passed down to the engine, the JDK is able to look up a previously
+     * negotiated session for that peer and perform an abbreviated handshake.
+     *
+     * @param peerHost the hostname of the remote peer.
+     * @param peerPort the port of the remote peer.
+     * @return a {@link SSLEngine} ready to be used.
+     */
+    public SSLEngine get(String peerHost, int peerPort) {
+        try {
+            SSLEngine engine = context().createSSLEngine(peerHost, peerPort);
+            engine.setUseClientMode(true);
+            return engine;
+        } catch (SSLException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new SSLException("Could not create SSLEngine.", ex);
+        }
+    }
+
+    /**
+     * Drops the cached {@link SSLContext}, so that the keystore is loaded again on the next engine creation.
+     *
+     * Already established connections are not affected.
+     */
+    public void reload() {
+        synchronized (this) {
+            sslContext = null;
+        }
+    }
+
+    /**
+     * Returns the cached {@link SSLContext} or initializes it if not done already.
+     *
+     * If initialization fails nothing is cached, so the next attempt tries again.
+     *
+     * @return the initialized context.
+     */
+    private SSLContext context() {
+        SSLContext ctx = sslContext;
+        if (ctx == null) {
+            synchronized (this) {
+                ctx = sslContext;
+                if (ctx == null) {
+                    ctx = initContext();
+                    sslContext = ctx;
+                }
+            }
+        }
+        return ctx;
+    }
+
+    /**
+     * Loads the keystore and builds a new {@link SSLContext} out of it.
+     *
+     * @return the created context.
+     */
+    private SSLContext initContext() {
         try {
             String pass = env.sslKeystorePassword();
             char[] password = pass == null || pass.isEmpty() ? null : pass.toCharArray();
@@ -64,7 +148,12 @@ public class SSLEngineFactory {
                 if (ksFile == null || ksFile.isEmpty()) {
                     throw new IllegalArgumentException("Path to Keystore File must not be null or empty.");
                 }
-                ks.load(new FileInputStream(ksFile), password);
+                FileInputStream in = new FileInputStream(ksFile);
+                try {
+                    ks.load(in, password);
+                } finally {
+                    in.close();
+                }
             }
             String defaultAlgorithm = KeyManagerFactory.getDefaultAlgorithm();
             KeyManagerFactory kmf = KeyManagerFactory.getInstance(defaultAlgorithm);
@@ -74,10 +163,7 @@ public class SSLEngineFactory {
 
             SSLContext ctx = SSLContext.getInstance("TLS");
             ctx.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
-
-            SSLEngine engine = ctx.createSSLEngine();
-            engine.setUseClientMode(true);
-            return engine;
+            return ctx;
         } catch (Exception ex) {
             throw new SSLException("Could not create SSLEngine.", ex);
         }
@@ -48,6 +48,7 @@ import com.couchbase.client.core.service.ServiceType;
 import com.lmax.disruptor.EventSink;
 import com.lmax.disruptor.RingBuffer;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
@@ -86,6 +87,11 @@ public class ConfigHandler extends AbstractGenericHandler<HttpObject, HttpReques
      */
     private static final CouchbaseLogger LOGGER = CouchbaseLoggerFactory.getInstance(ConfigHandler.class);
 
+    /**
+     * The number of newlines separating two configs on the streaming connection.
+     */
+    private static final int CONFIG_SEPARATOR_LENGTH = 4;
+
     /**
      * Contains the current pending response header if set.
      */
@@ -101,6 +107,16 @@ public class ConfigHandler extends AbstractGenericHandler<HttpObject, HttpReques
      */
     private BehaviorSubject<String> streamingConfigObservable;
 
+    /**
+     * Finds the separator between two streamed configs, keeping its state across chunks.
+     */
+    private final ConfigSeparatorFinder separatorFinder = new ConfigSeparatorFinder();
+
+    /**
+     * The number of bytes after the reader index already inspected for the next config separator.
+     */
+    private int separatorScanned;
+
     /**
      * Creates a new {@link ConfigHandler} with the default queue for requests.
      *
@@ -196,6 +212,8 @@ public class ConfigHandler extends AbstractGenericHandler<HttpObject, HttpReques
             } else {
                 responseContent = ctx.alloc().buffer();
             }
+            separatorFinder.newlines = 0;
+            separatorScanned = 0;
         }
 
         if (msg instanceof HttpContent) {
@@ -274,17 +292,75 @@ public class ConfigHandler extends AbstractGenericHandler<HttpObject, HttpReques
     }
 
     /**
-     * Push a config chunk into the streaming observable.
+     * Push all complete config chunks into the streaming observable.
+     *
+     * Only the bytes which arrived since the last call are inspected for the separator, so a config split across
+     * many chunks is still found in linear time. Every config is decoded straight out of the content buffer.
      */
     private void maybePushConfigChunk() {
-        String currentChunk = responseContent.toString(CHARSET);
-
-        int separatorIndex = currentChunk.indexOf("\n\n\n\n");
-        if (separatorIndex > 0) {
-            String content = currentChunk.substring(0, separatorIndex);
-            streamingConfigObservable.onNext(content.trim());
-            responseContent.clear();
-            responseContent.writeBytes(currentChunk.substring(separatorIndex + 4).getBytes(CHARSET));
+        while (true) {
+            int from = responseContent.readerIndex() + separatorScanned;
+            int length = responseContent.writerIndex() - from;
+            int separatorEnd = separatorFinder.find(responseContent, from, length);
+            if (separatorEnd < 0) {
+                separatorScanned += length;
+                break;
+            }
+
+            int start = responseContent.readerIndex();
+            int end = separatorEnd - CONFIG_SEPARATOR_LENGTH + 1;
+            while (start < end && responseContent.getByte(start) <= ' ') {
+                start++;
+            }
+            while (end > start && responseContent.getByte(end - 1) <= ' ') {
+                end--;
+            }
+            if (end > start) {
+                streamingConfigObservable.onNext(responseContent.toString(start, end - start, CHARSET));
+            }
+
+            responseContent.readerIndex(separatorEnd + 1);
+            separatorFinder.newlines = 0;
+            separatorScanned = 0;
+        }
+        responseContent.discardSomeReadBytes();
+    }
+
+    /**
+     * Stops after the four newlines which separate two configs on the streaming connection.
+     */
+    private static class ConfigSeparatorFinder implements ByteBufProcessor {
+
+        private int newlines;
+
+        /**
+         * Returns the absolute index of the last newline of the separator in the given range, or -1 if not found.
+         */
+        int find(final ByteBuf buf, final int index, final int length) {
+            if (length <= 0) {
+                return -1;
+            }
+            if (!buf.hasArray()) {
+                return buf.forEachByte(index, length, this);
+            }
+
+            // scanning the backing array directly is a lot cheaper than a processor call for every byte
+            byte[] array = buf.array();
+            int offset = buf.arrayOffset();
+            for (int i = index; i < index + length; i++) {
+                if (array[offset + i] != '\n') {
+                    newlines = 0;
+                } else if (++newlines == CONFIG_SEPARATOR_LENGTH) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean process(byte value) throws Exception {
+            newlines = value == '\n' ? newlines + 1 : 0;
+            return newlines < CONFIG_SEPARATOR_LENGTH;
         }
     }
 
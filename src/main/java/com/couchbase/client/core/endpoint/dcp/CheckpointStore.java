@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.dcp;
+
+import com.couchbase.client.core.annotations.InterfaceAudience;
+import com.couchbase.client.core.annotations.InterfaceStability;
+
+import java.util.Map;
+
+/**
+ * Keeps the {@link PartitionCheckpoint}s of a {@link DCPConnection}, so that its streams can be resumed where the
+ * consumer left off.
+ *
+ * Implementations need to be thread safe, since the partitions of a connection may be consumed on different
+ * threads.
+ *
+ * @author Sergey Avseyev
+ * @since 1.4.2
+ */
+@InterfaceStability.Experimental
+@InterfaceAudience.Public
+public interface CheckpointStore {
+
+    /**
+     * Returns the checkpoint of the given partition.
+     *
+     * @param partition the partition.
+     * @return the checkpoint or null if none has been stored.
+     */
+    PartitionCheckpoint get(short partition);
+
+    /**
+     * Returns a copy of all stored checkpoints by partition.
+     *
+     * @return the stored checkpoints.
+     */
+    Map<Short, PartitionCheckpoint> checkpoints();
+
+    /**
+     * Stores the checkpoint, replacing the previous one of its partition.
+     *
+     * @param checkpoint the checkpoint to store.
+     */
+    void update(PartitionCheckpoint checkpoint);
+
+    /**
+     * Makes sure all stored checkpoints survive a crash of the machine, not just of the process.
+     */
+    void flush();
+
+    /**
+     * Flushes and releases all resources held by the store.
+     */
+    void close();
+}
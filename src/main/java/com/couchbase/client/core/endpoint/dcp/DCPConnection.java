@@ -29,9 +29,13 @@ import com.couchbase.client.core.message.cluster.GetClusterConfigRequest;
 import com.couchbase.client.core.message.cluster.GetClusterConfigResponse;
 import com.couchbase.client.core.message.dcp.DCPMessage;
 import com.couchbase.client.core.message.dcp.DCPRequest;
+import com.couchbase.client.core.message.dcp.ExpirationMessage;
 import com.couchbase.client.core.message.dcp.FailoverLogEntry;
 import com.couchbase.client.core.message.dcp.GetFailoverLogRequest;
 import com.couchbase.client.core.message.dcp.GetFailoverLogResponse;
+import com.couchbase.client.core.message.dcp.MutationMessage;
+import com.couchbase.client.core.message.dcp.RemoveMessage;
+import com.couchbase.client.core.message.dcp.SnapshotMarkerMessage;
 import com.couchbase.client.core.message.dcp.StreamCloseRequest;
 import com.couchbase.client.core.message.dcp.StreamCloseResponse;
 import com.couchbase.client.core.message.dcp.StreamEndMessage;
@@ -56,12 +60,15 @@ import rx.functions.Func1;
 import rx.subjects.SerializedSubject;
 import rx.subjects.Subject;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * DCP connection used to subscribe to DCP streams.
@@ -74,7 +81,7 @@ import java.util.concurrent.TimeUnit;
 public class DCPConnection {
     private static final CouchbaseLogger LOGGER = CouchbaseLoggerFactory.getInstance(DCPConnection.class);
 
-    private static final AttributeKey<Integer> CONSUMED_BYTES = AttributeKey.newInstance("CONSUMED_BYTES");
+    private static final AttributeKey<AtomicInteger> CONSUMED_BYTES = AttributeKey.newInstance("CONSUMED_BYTES");
     private static final int MINIMUM_HEADER_SIZE = 24;
 
     private final SerializedSubject<DCPRequest, DCPRequest> subject;
@@ -84,6 +91,8 @@ public class DCPConnection {
     private final String password;
     private final CoreEnvironment env;
     private final ConcurrentMap<Short, ChannelHandlerContext> contexts;
+    private final ConcurrentMap<Short, Subject<DCPRequest, DCPRequest>> partitionSubjects;
+    private volatile CheckpointStore checkpointStore;
 
     public DCPConnection(final CoreEnvironment env, final ClusterFacade core, final String bucket, final String password) {
         this(env, core, bucket, password, UnicastAutoReleaseSubject.<DCPRequest>create(env.autoreleaseAfter(),
@@ -101,6 +110,7 @@ public class DCPConnection {
         this.password = password;
         this.streams = new ConcurrentSet<Short>();
         this.contexts = new ConcurrentHashMap<Short, ChannelHandlerContext>();
+        this.partitionSubjects = new ConcurrentHashMap<Short, Subject<DCPRequest, DCPRequest>>();
     }
 
     public String bucket() {
@@ -111,6 +121,57 @@ public class DCPConnection {
         return subject;
     }
 
+    /**
+     * Returns a dedicated subject for the messages of the given partition, creating it if needed.
+     *
+     * Once created, all messages of the partition are emitted on this subject instead of the shared
+     * {@link #subject()}, so it needs to be requested before the stream is added to not miss any message.
+     * Partitions with their own subject do not contend with each other, so each of them (or a group of them) can
+     * be observed on a different thread and a slow consumer only holds back the partitions it is consuming. Every
+     * message still needs to be acknowledged through {@link #consumed(DCPMessage)} once processed.
+     *
+     * The subject completes once the stream of the partition ends or is removed, so a stream added again for the
+     * same partition later needs to request a new subject through this method.
+     *
+     * @param partition the partition to stream.
+     * @return the subject emitting the messages of the partition.
+     */
+    public Subject<DCPRequest, DCPRequest> subject(final short partition) {
+        Subject<DCPRequest, DCPRequest> partitionSubject = partitionSubjects.get(partition);
+        if (partitionSubject == null) {
+            Subject<DCPRequest, DCPRequest> created = UnicastAutoReleaseSubject.<DCPRequest>create(
+                env.autoreleaseAfter(), TimeUnit.MILLISECONDS, env.scheduler())
+                .withTraceIdentifier("DCPConnection." + env.dcpConnectionName() + "." + partition)
+                .toSerialized();
+            partitionSubject = partitionSubjects.putIfAbsent(partition, created);
+            if (partitionSubject == null) {
+                partitionSubject = created;
+            }
+        }
+        return partitionSubject;
+    }
+
+    /**
+     * Sets the store which records the position of every stream as its messages are consumed.
+     *
+     * Once set, every successfully added stream stores its starting point, and every snapshot marker, mutation,
+     * deletion and expiration passed to {@link #consumed(DCPMessage)} advances the checkpoint of its partition.
+     * The streams can then be picked up where they left off with {@link #resumeStreams()}, also from a new
+     * connection or after a restart when the store is durable.
+     *
+     * @param checkpointStore the store to use, or null to stop recording.
+     */
+    public void checkpointStore(final CheckpointStore checkpointStore) {
+        this.checkpointStore = checkpointStore;
+    }
+
+    /**
+     * @return the store recording the position of the streams, or null if none is set.
+     */
+    public CheckpointStore checkpointStore() {
+        return checkpointStore;
+    }
+
     public Observable<ResponseStatus> addStream(short partition) {
         return addStream(partition, 0, 0, 0xffffffff, 0, 0);
     }
@@ -155,12 +216,58 @@ public class DCPConnection {
             public ResponseStatus call(StreamRequestResponse response) {
                 if (response.status() == ResponseStatus.SUCCESS) {
                     streams.add(partition);
+                    startCheckpoint(response);
                 }
                 return response.status();
             }
         });
     }
 
+    /**
+     * Adds a stream for every partition of the bucket, continuing from the checkpoints in the store.
+     *
+     * Partitions which have a checkpoint restart from its sequence number within its snapshot, so that the server
+     * can tell whether the history is still valid or request a rollback, which is handled as in
+     * {@link #addStream(short, long, long, long, long, long)}. If the checkpoint has been taken after a snapshot
+     * marker but before any mutation of that snapshot, the previous snapshot has been consumed completely and the
+     * stream restarts with an empty snapshot at the sequence number. Partitions without a checkpoint start from the
+     * beginning.
+     *
+     * @return the status of every stream request.
+     */
+    public Observable<ResponseStatus> resumeStreams() {
+        final CheckpointStore store = checkpointStore;
+        if (store == null) {
+            return Observable.error(new IllegalStateException("No checkpoint store set to resume the streams from."));
+        }
+        return partitionSize()
+                .flatMap(new Func1<Integer, Observable<ResponseStatus>>() {
+                    @Override
+                    public Observable<ResponseStatus> call(Integer numPartitions) {
+                        List<Observable<ResponseStatus>> requests =
+                                new ArrayList<Observable<ResponseStatus>>(numPartitions);
+                        for (short partition = 0; partition < numPartitions; partition++) {
+                            PartitionCheckpoint checkpoint = store.get(partition);
+                            if (checkpoint == null) {
+                                requests.add(addStream(partition));
+                            } else {
+                                long seqno = checkpoint.sequenceNumber();
+                                long snapshotStart = checkpoint.snapshotStartSequenceNumber();
+                                long snapshotEnd = checkpoint.snapshotEndSequenceNumber();
+                                // the server requires snapshotStart <= seqno <= snapshotEnd
+                                if (seqno < snapshotStart || seqno > snapshotEnd) {
+                                    snapshotStart = seqno;
+                                    snapshotEnd = seqno;
+                                }
+                                requests.add(addStream(partition, checkpoint.vbucketUUID(), seqno, 0xffffffff,
+                                        snapshotStart, snapshotEnd));
+                            }
+                        }
+                        return Observable.merge(requests);
+                    }
+                });
+    }
+
 
     public Observable<ResponseStatus> removeStream(final short partition) {
         if (!streams.contains(partition)) {
@@ -176,6 +283,7 @@ public class DCPConnection {
             public ResponseStatus call(StreamCloseResponse response) {
                 if (response.status() == ResponseStatus.SUCCESS) {
                     streams.remove(partition);
+                    completeSubject(partition);
                 }
                 return response.status();
             }
@@ -254,6 +362,7 @@ public class DCPConnection {
 
     public void consumed(final DCPMessage event) {
         consumed(event.partition(), event.totalBodyLength());
+        checkpoint(event);
     }
 
     /*package*/ void consumed(short partition, int delta) {
@@ -262,24 +371,118 @@ public class DCPConnection {
             if (ctx == null) {
                 return;
             }
-            synchronized (ctx) {
-                Attribute<Integer> attr = ctx.attr(CONSUMED_BYTES);
-                Integer consumedBytes = attr.get();
-                if (consumedBytes == null) {
-                    consumedBytes = 0;
-                }
-                consumedBytes += MINIMUM_HEADER_SIZE + delta;
-                if (consumedBytes >= env.dcpConnectionBufferSize() * env.dcpConnectionBufferAckThreshold()) {
-                    ctx.writeAndFlush(createBufferAcknowledgmentRequest(ctx, consumedBytes));
-                    consumedBytes = 0;
+
+            Attribute<AtomicInteger> attr = ctx.attr(CONSUMED_BYTES);
+            AtomicInteger counter = attr.get();
+            if (counter == null) {
+                AtomicInteger created = new AtomicInteger();
+                counter = attr.setIfAbsent(created);
+                if (counter == null) {
+                    counter = created;
                 }
-                attr.set(consumedBytes);
+            }
+
+            int consumedBytes = counter.addAndGet(MINIMUM_HEADER_SIZE + delta);
+            // only the consumer which added last acknowledges, others which raced past the threshold back off
+            if (consumedBytes >= env.dcpConnectionBufferSize() * env.dcpConnectionBufferAckThreshold()
+                && counter.compareAndSet(consumedBytes, 0)) {
+                ctx.writeAndFlush(createBufferAcknowledgmentRequest(ctx, consumedBytes));
             }
         }
     }
 
+    /**
+     * Emits the message on the subject of its partition if one has been requested, or on the shared subject.
+     *
+     * @param message the message received.
+     */
+    /*package*/ void dispatch(final DCPRequest message) {
+        Subject<DCPRequest, DCPRequest> partitionSubject = partitionSubjects.get(message.partition());
+        if (partitionSubject == null) {
+            subject.onNext(message);
+        } else {
+            partitionSubject.onNext(message);
+        }
+    }
+
+    /**
+     * Fails the shared subject and all partition subjects.
+     *
+     * @param error the cause.
+     */
+    /*package*/ void fail(final Throwable error) {
+        subject.onError(error);
+        for (Subject<DCPRequest, DCPRequest> partitionSubject : partitionSubjects.values()) {
+            partitionSubject.onError(error);
+        }
+    }
+
+    /**
+     * Stores the position a stream starts from, using the current branch of the failover log.
+     */
+    private void startCheckpoint(final StreamRequestResponse response) {
+        CheckpointStore store = checkpointStore;
+        if (store == null) {
+            return;
+        }
+        StreamRequestRequest request = (StreamRequestRequest) response.request();
+        long vbucketUUID = request.vbucketUUID();
+        if (response.failoverLog() != null && !response.failoverLog().isEmpty()) {
+            vbucketUUID = response.failoverLog().get(0).vbucketUUID();
+        }
+        store.update(new PartitionCheckpoint(request.partition(), vbucketUUID, request.startSequenceNumber(),
+                request.snapshotStartSequenceNumber(), request.snapshotEndSequenceNumber()));
+    }
+
+    /**
+     * Advances the checkpoint of the partition of a consumed message.
+     *
+     * A failing store is only logged, so that it never breaks consuming the stream.
+     */
+    private void checkpoint(final DCPMessage event) {
+        CheckpointStore store = checkpointStore;
+        if (store == null) {
+            return;
+        }
+        try {
+            advanceCheckpoint(store, event);
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Could not store checkpoint of partition {}", event.partition(), ex);
+        }
+    }
+
+    private void advanceCheckpoint(final CheckpointStore store, final DCPMessage event) {
+        PartitionCheckpoint checkpoint = store.get(event.partition());
+        if (checkpoint == null) {
+            return;
+        }
+        if (event instanceof SnapshotMarkerMessage) {
+            SnapshotMarkerMessage marker = (SnapshotMarkerMessage) event;
+            store.update(checkpoint.withSnapshot(marker.startSequenceNumber(), marker.endSequenceNumber()));
+        } else if (event instanceof MutationMessage) {
+            store.update(checkpoint.withSequenceNumber(((MutationMessage) event).bySequenceNumber()));
+        } else if (event instanceof RemoveMessage) {
+            store.update(checkpoint.withSequenceNumber(((RemoveMessage) event).bySequenceNumber()));
+        } else if (event instanceof ExpirationMessage) {
+            store.update(checkpoint.withSequenceNumber(((ExpirationMessage) event).bySequenceNumber()));
+        }
+    }
+
     /*package*/ void streamClosed(final short partition, final StreamEndMessage.Reason reason) {
         streams.remove(partition);
+        completeSubject(partition);
+    }
+
+    /**
+     * Removes and completes the subject of the partition, if any, so the next stream gets a fresh one.
+     *
+     * @param partition the partition whose stream ended.
+     */
+    private void completeSubject(final short partition) {
+        Subject<DCPRequest, DCPRequest> partitionSubject = partitionSubjects.remove(partition);
+        if (partitionSubject != null) {
+            partitionSubject.onCompleted();
+        }
     }
 
     /**
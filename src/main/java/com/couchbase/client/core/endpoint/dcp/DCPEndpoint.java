@@ -43,7 +43,7 @@ public class DCPEndpoint extends AbstractEndpoint {
         pipeline
             .addLast(new BinaryMemcacheClientCodec())
             .addLast(new BinaryMemcacheObjectAggregator(Integer.MAX_VALUE))
-            .addLast(new KeyValueAuthHandler(bucket(), password()))
+            .addLast(new KeyValueAuthHandler(bucket(), password(), environment()))
             .addLast(new DCPConnectionHandler(environment()))
             .addLast(new DCPHandler(this, responseBuffer(), false, true));
     }
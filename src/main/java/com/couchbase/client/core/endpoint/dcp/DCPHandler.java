@@ -195,7 +195,7 @@ public class DCPHandler extends AbstractGenericHandler<FullBinaryMemcacheRespons
             }, new Action1<Throwable>() {
                 @Override
                 public void call(Throwable throwable) {
-                    connection.subject().onError(throwable);
+                    connection.fail(throwable);
                 }
             });
             try {
@@ -280,14 +280,17 @@ public class DCPHandler extends AbstractGenericHandler<FullBinaryMemcacheRespons
                 StreamEndMessage.Reason reason = StreamEndMessage.Reason.valueOf(extras.readInt());
                 request = new StreamEndMessage(msg.getTotalBodyLength(), msg.getStatus(),
                         reason, connection.bucket());
-                connection.streamClosed(request.partition(), reason);
                 break;
 
             default:
                 LOGGER.info("Unhandled DCP message: {}, {}", msg.getOpcode(), msg);
         }
         if (request != null) {
-            connection.subject().onNext(request);
+            connection.dispatch(request);
+            // closed after dispatching, so the end message still reaches the subject of its partition
+            if (request instanceof StreamEndMessage) {
+                connection.streamClosed(request.partition(), ((StreamEndMessage) request).reason());
+            }
         }
     }
 
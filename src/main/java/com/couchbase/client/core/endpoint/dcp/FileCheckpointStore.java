@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.dcp;
+
+import com.couchbase.client.core.CouchbaseException;
+import com.couchbase.client.core.annotations.InterfaceAudience;
+import com.couchbase.client.core.annotations.InterfaceStability;
+import com.couchbase.client.core.logging.CouchbaseLogger;
+import com.couchbase.client.core.logging.CouchbaseLoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link CheckpointStore} backed by a memory-mapped append log in a local file.
+ *
+ * Every update appends a small fixed-size record to the mapped region, so storing a checkpoint per consumed
+ * message is as cheap as a memory write and survives a crash of the process without any explicit sync. Call
+ * {@link #flush()} periodically to also survive a crash of the machine. On open the log is replayed and the last
+ * record of every partition wins. Once the region is full the latest checkpoints are written to a fresh log which
+ * then atomically replaces the old one, or the log grows in place where files in use cannot be replaced.
+ *
+ * @author Sergey Avseyev
+ * @since 1.4.2
+ */
+@InterfaceStability.Experimental
+@InterfaceAudience.Public
+public class FileCheckpointStore implements CheckpointStore {
+
+    private static final CouchbaseLogger LOGGER = CouchbaseLoggerFactory.getInstance(FileCheckpointStore.class);
+
+    /**
+     * The default size of the mapped region, enough for about 30000 updates between two compactions.
+     */
+    public static final int DEFAULT_CAPACITY = 1024 * 1024;
+
+    /**
+     * Written last, marks a record as complete.
+     */
+    private static final byte RECORD_MARKER = (byte) 0xCB;
+
+    /**
+     * Marker, partition and four longs.
+     */
+    private static final int RECORD_SIZE = 1 + 2 + 4 * 8;
+
+    /**
+     * The number of updates kept only in memory after a failed compaction before it is tried again.
+     */
+    private static final int COMPACTION_RETRY_UPDATES = 10000;
+
+    private final File file;
+    private final Map<Short, PartitionCheckpoint> checkpoints = new HashMap<Short, PartitionCheckpoint>();
+    private int capacity;
+    private RandomAccessFile raf;
+    private MappedByteBuffer log;
+    private int position;
+    private boolean compactionFailed;
+    private int updatesUntilRetry;
+
+    /**
+     * Opens the store with the {@link #DEFAULT_CAPACITY}, restoring the checkpoints found in the file.
+     *
+     * @param file the log file, created if it does not exist.
+     */
+    public FileCheckpointStore(final File file) {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Opens the store, restoring the checkpoints found in the file.
+     *
+     * @param file the log file, created if it does not exist.
+     * @param capacity the size of the mapped region in bytes.
+     */
+    public FileCheckpointStore(final File file, final int capacity) {
+        if (capacity < RECORD_SIZE) {
+            throw new IllegalArgumentException("Capacity must hold at least one record of " + RECORD_SIZE + " bytes.");
+        }
+        this.file = file;
+        this.capacity = capacity;
+        try {
+            map(file);
+            replay();
+        } catch (IOException ex) {
+            throw new CouchbaseException("Could not open checkpoint log " + file, ex);
+        }
+    }
+
+    @Override
+    public synchronized PartitionCheckpoint get(final short partition) {
+        return checkpoints.get(partition);
+    }
+
+    @Override
+    public synchronized Map<Short, PartitionCheckpoint> checkpoints() {
+        return new HashMap<Short, PartitionCheckpoint>(checkpoints);
+    }
+
+    @Override
+    public synchronized void update(final PartitionCheckpoint checkpoint) {
+        checkpoints.put(checkpoint.partition(), checkpoint);
+        if (position + RECORD_SIZE <= capacity) {
+            position = write(log, position, checkpoint);
+        } else if (!compactionFailed || --updatesUntilRetry <= 0) {
+            compact();
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (compactionFailed) {
+            compact();
+        }
+        log.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (compactionFailed) {
+            compact();
+        }
+        log.force();
+        try {
+            raf.close();
+        } catch (IOException ex) {
+            LOGGER.debug("Could not close checkpoint log {}", file, ex);
+        }
+    }
+
+    /**
+     * Maps the region of the given file, growing the file if needed.
+     */
+    private void map(final File target) throws IOException {
+        raf = new RandomAccessFile(target, "rw");
+        if (raf.length() < capacity) {
+            raf.setLength(capacity);
+        } else {
+            capacity = (int) Math.min(raf.length(), Integer.MAX_VALUE);
+        }
+        log = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    /**
+     * Reads all complete records, the last one of every partition wins.
+     */
+    private void replay() {
+        position = 0;
+        while (position + RECORD_SIZE <= capacity && log.get(position) == RECORD_MARKER) {
+            PartitionCheckpoint checkpoint = new PartitionCheckpoint(
+                log.getShort(position + 1),
+                log.getLong(position + 3),
+                log.getLong(position + 11),
+                log.getLong(position + 19),
+                log.getLong(position + 27)
+            );
+            checkpoints.put(checkpoint.partition(), checkpoint);
+            position += RECORD_SIZE;
+        }
+        LOGGER.debug("Restored {} checkpoints from {}", checkpoints.size(), file);
+    }
+
+    /**
+     * Makes room in the full log and writes the latest checkpoints, which include the one just updated.
+     *
+     * The latest checkpoints are written into a fresh log which then atomically replaces the current one, growing
+     * the region if the checkpoints alone fill more than half of it. The current mapping stays in use until the
+     * swap succeeded. Where open or mapped files cannot be replaced, like on Windows, the current log is grown in
+     * place instead. A failure is only logged, the checkpoints are then kept in memory. To not hit the disk on every
+     * update while it keeps failing, the compaction is only tried again after {@link #COMPACTION_RETRY_UPDATES}
+     * updates or on {@link #flush()}.
+     */
+    private void compact() {
+        try {
+            swap();
+            compactionFailed = false;
+            return;
+        } catch (IOException ex) {
+            LOGGER.debug("Could not compact checkpoint log {}, growing it instead", file, ex);
+        }
+
+        try {
+            grow();
+            compactionFailed = false;
+        } catch (IOException ex) {
+            if (compactionFailed) {
+                LOGGER.debug("Could still not grow checkpoint log {}", file, ex);
+            } else {
+                LOGGER.warn("Could not grow checkpoint log {}, checkpoints are only kept in memory", file, ex);
+            }
+            compactionFailed = true;
+            updatesUntilRetry = COMPACTION_RETRY_UPDATES;
+        }
+    }
+
+    /**
+     * Writes the latest checkpoints into a fresh log and renames it over the current one.
+     */
+    private void swap() throws IOException {
+        int compactedCapacity = Math.max(capacity, 2 * checkpoints.size() * RECORD_SIZE);
+        File compacted = new File(file.getPath() + ".compact");
+        if (compacted.exists() && !compacted.delete()) {
+            throw new IOException("Could not remove stale " + compacted);
+        }
+
+        RandomAccessFile compactedRaf = new RandomAccessFile(compacted, "rw");
+        boolean swapped = false;
+        try {
+            compactedRaf.setLength(compactedCapacity);
+            MappedByteBuffer compactedLog = compactedRaf.getChannel()
+                .map(FileChannel.MapMode.READ_WRITE, 0, compactedCapacity);
+            int compactedPosition = 0;
+            for (PartitionCheckpoint checkpoint : checkpoints.values()) {
+                compactedPosition = write(compactedLog, compactedPosition, checkpoint);
+            }
+            compactedLog.force();
+            if (!compacted.renameTo(file)) {
+                throw new IOException("Could not replace " + file + " with " + compacted);
+            }
+            swapped = true;
+
+            RandomAccessFile old = raf;
+            raf = compactedRaf;
+            log = compactedLog;
+            capacity = compactedCapacity;
+            position = compactedPosition;
+            try {
+                old.close();
+            } catch (IOException ex) {
+                LOGGER.debug("Could not close replaced checkpoint log {}", file, ex);
+            }
+        } finally {
+            if (!swapped) {
+                compactedRaf.close();
+                if (!compacted.delete()) {
+                    LOGGER.debug("Could not remove {}", compacted);
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps a larger region of the current log and appends the latest checkpoints to it.
+     */
+    private void grow() throws IOException {
+        long grownCapacity = Math.max((long) capacity * 2, (long) position + 2 * checkpoints.size() * RECORD_SIZE);
+        if (grownCapacity > Integer.MAX_VALUE) {
+            throw new IOException("Checkpoint log " + file + " cannot grow beyond " + capacity + " bytes");
+        }
+        // mapping beyond the end extends the file, which also works while the old region is still mapped
+        MappedByteBuffer grownLog = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, grownCapacity);
+        int grownPosition = position;
+        for (PartitionCheckpoint checkpoint : checkpoints.values()) {
+            grownPosition = write(grownLog, grownPosition, checkpoint);
+        }
+        log = grownLog;
+        capacity = (int) grownCapacity;
+        position = grownPosition;
+    }
+
+    /**
+     * Writes one record at the given position, the marker last so that a partially written record is ignored.
+     *
+     * @return the position after the record.
+     */
+    private static int write(final MappedByteBuffer target, final int position, final PartitionCheckpoint checkpoint) {
+        target.putShort(position + 1, checkpoint.partition());
+        target.putLong(position + 3, checkpoint.vbucketUUID());
+        target.putLong(position + 11, checkpoint.sequenceNumber());
+        target.putLong(position + 19, checkpoint.snapshotStartSequenceNumber());
+        target.putLong(position + 27, checkpoint.snapshotEndSequenceNumber());
+        target.put(position, RECORD_MARKER);
+        return position + RECORD_SIZE;
+    }
+}
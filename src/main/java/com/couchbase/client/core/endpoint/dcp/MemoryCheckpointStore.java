@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.dcp;
+
+import com.couchbase.client.core.annotations.InterfaceAudience;
+import com.couchbase.client.core.annotations.InterfaceStability;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link CheckpointStore} which only keeps the checkpoints in memory, so streams can be resumed after a reconnect
+ * but not after the process restarted.
+ *
+ * @author Sergey Avseyev
+ * @since 1.4.2
+ */
+@InterfaceStability.Experimental
+@InterfaceAudience.Public
+public class MemoryCheckpointStore implements CheckpointStore {
+
+    private final ConcurrentMap<Short, PartitionCheckpoint> checkpoints =
+        new ConcurrentHashMap<Short, PartitionCheckpoint>();
+
+    @Override
+    public PartitionCheckpoint get(final short partition) {
+        return checkpoints.get(partition);
+    }
+
+    @Override
+    public Map<Short, PartitionCheckpoint> checkpoints() {
+        return new HashMap<Short, PartitionCheckpoint>(checkpoints);
+    }
+
+    @Override
+    public void update(final PartitionCheckpoint checkpoint) {
+        checkpoints.put(checkpoint.partition(), checkpoint);
+    }
+
+    @Override
+    public void flush() {
+        // nothing to flush
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+}
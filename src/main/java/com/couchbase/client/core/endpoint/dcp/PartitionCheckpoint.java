@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.dcp;
+
+import com.couchbase.client.core.annotations.InterfaceAudience;
+import com.couchbase.client.core.annotations.InterfaceStability;
+
+/**
+ * The progress of a consumer on one DCP partition, enough to resume its stream after a restart.
+ *
+ * @author Sergey Avseyev
+ * @since 1.4.2
+ */
+@InterfaceStability.Experimental
+@InterfaceAudience.Public
+public class PartitionCheckpoint {
+
+    private final short partition;
+    private final long vbucketUUID;
+    private final long sequenceNumber;
+    private final long snapshotStartSequenceNumber;
+    private final long snapshotEndSequenceNumber;
+
+    public PartitionCheckpoint(final short partition, final long vbucketUUID, final long sequenceNumber,
+        final long snapshotStartSequenceNumber, final long snapshotEndSequenceNumber) {
+        this.partition = partition;
+        this.vbucketUUID = vbucketUUID;
+        this.sequenceNumber = sequenceNumber;
+        this.snapshotStartSequenceNumber = snapshotStartSequenceNumber;
+        this.snapshotEndSequenceNumber = snapshotEndSequenceNumber;
+    }
+
+    public short partition() {
+        return partition;
+    }
+
+    public long vbucketUUID() {
+        return vbucketUUID;
+    }
+
+    /**
+     * Returns the sequence number of the last consumed mutation.
+     *
+     * @return the sequence number.
+     */
+    public long sequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public long snapshotStartSequenceNumber() {
+        return snapshotStartSequenceNumber;
+    }
+
+    public long snapshotEndSequenceNumber() {
+        return snapshotEndSequenceNumber;
+    }
+
+    /**
+     * Returns a copy of this checkpoint which moved to the given sequence number.
+     *
+     * @param sequenceNumber the sequence number of the consumed mutation.
+     * @return the new checkpoint.
+     */
+    public PartitionCheckpoint withSequenceNumber(final long sequenceNumber) {
+        return new PartitionCheckpoint(partition, vbucketUUID, sequenceNumber, snapshotStartSequenceNumber,
+            snapshotEndSequenceNumber);
+    }
+
+    /**
+     * Returns a copy of this checkpoint which entered the given snapshot.
+     *
+     * @param start the start sequence number of the snapshot.
+     * @param end the end sequence number of the snapshot.
+     * @return the new checkpoint.
+     */
+    public PartitionCheckpoint withSnapshot(final long start, final long end) {
+        return new PartitionCheckpoint(partition, vbucketUUID, sequenceNumber, start, end);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        PartitionCheckpoint that = (PartitionCheckpoint) o;
+        return partition == that.partition
+            && vbucketUUID == that.vbucketUUID
+            && sequenceNumber == that.sequenceNumber
+            && snapshotStartSequenceNumber == that.snapshotStartSequenceNumber
+            && snapshotEndSequenceNumber == that.snapshotEndSequenceNumber;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) partition;
+        result = 31 * result + (int) (vbucketUUID ^ (vbucketUUID >>> 32));
+        result = 31 * result + (int) (sequenceNumber ^ (sequenceNumber >>> 32));
+        result = 31 * result + (int) (snapshotStartSequenceNumber ^ (snapshotStartSequenceNumber >>> 32));
+        result = 31 * result + (int) (snapshotEndSequenceNumber ^ (snapshotEndSequenceNumber >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionCheckpoint{"
+            + "partition=" + partition
+            + ", vbucketUUID=" + vbucketUUID
+            + ", sequenceNumber=" + sequenceNumber
+            + ", snapshotStartSequenceNumber=" + snapshotStartSequenceNumber
+            + ", snapshotEndSequenceNumber=" + snapshotEndSequenceNumber
+            + '}';
+    }
+}
@@ -15,9 +15,13 @@
  */
 package com.couchbase.client.core.endpoint.kv;
 
+import com.couchbase.client.core.endpoint.ConnectTimings;
+import com.couchbase.client.core.env.CoreEnvironment;
 import com.couchbase.client.core.logging.CouchbaseLogger;
 import com.couchbase.client.core.logging.CouchbaseLoggerFactory;
+import com.couchbase.client.core.metrics.RuntimeMetricsCollector;
 import com.couchbase.client.core.security.sasl.Sasl;
+import com.couchbase.client.core.security.sasl.SaltedPasswordCache;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.BinaryMemcacheResponseStatus;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.DefaultBinaryMemcacheRequest;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.DefaultFullBinaryMemcacheRequest;
@@ -42,6 +46,8 @@ import javax.security.auth.callback.UnsupportedCallbackException;
 import javax.security.sasl.SaslClient;
 import java.io.IOException;
 import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * A SASL Client which communicates through the memcache binary protocol.
@@ -93,6 +99,21 @@ public class KeyValueAuthHandler
      */
     private final String password;
 
+    /**
+     * The properties passed to the {@link SaslClient}, carrying the shared salted password cache if any.
+     */
+    private final Map<String, Object> saslProperties;
+
+    /**
+     * The runtime metrics to report the client side handshake cost to, or null if disabled.
+     */
+    private final RuntimeMetricsCollector runtimeMetrics;
+
+    /**
+     * The time in nanoseconds spent evaluating the server challenges so far.
+     */
+    private long evaluationTime;
+
     /**
      * The handler context.
      */
@@ -120,8 +141,25 @@ public class KeyValueAuthHandler
      * @param password the password associated with the user/bucket.
      */
     public KeyValueAuthHandler(String username, String password) {
+        this(username, password, null);
+    }
+
+    /**
+     * Creates a new {@link KeyValueAuthHandler} which uses the salted password cache of the environment.
+     *
+     * @param username the name of the user/bucket.
+     * @param password the password associated with the user/bucket.
+     * @param environment the environment, may be null.
+     */
+    public KeyValueAuthHandler(String username, String password, CoreEnvironment environment) {
         this.username = username;
         this.password = password == null ? "" : password;
+
+        SaltedPasswordCache cache = environment == null ? null : environment.saltedPasswordCache();
+        this.saslProperties = cache == null ? null : Collections.<String, Object>singletonMap(
+            Sasl.SALTED_PASSWORD_CACHE, cache
+        );
+        this.runtimeMetrics = RuntimeMetricsCollector.enabled(environment);
     }
 
     /**
@@ -188,10 +226,12 @@ public class KeyValueAuthHandler
             throw new AuthenticationException("Received empty SASL mechanisms list from server: " + remote);
         }
 
-        saslClient = Sasl.createSaslClient(supportedMechanisms, null, "couchbase", remote, null, this);
+        long start = System.nanoTime();
+        saslClient = Sasl.createSaslClient(supportedMechanisms, null, "couchbase", remote, saslProperties, this);
         selectedMechanism = saslClient.getMechanismName();
         int mechanismLength = selectedMechanism.length();
         byte[] bytePayload = saslClient.hasInitialResponse() ? saslClient.evaluateChallenge(new byte[]{}) : null;
+        evaluationTime += System.nanoTime() - start;
         ByteBuf payload = bytePayload != null ? ctx.alloc().buffer().writeBytes(bytePayload) : Unpooled.EMPTY_BUFFER;
 
         FullBinaryMemcacheRequest initialRequest = new DefaultFullBinaryMemcacheRequest(
@@ -230,7 +270,9 @@ public class KeyValueAuthHandler
 
         byte[] response = new byte[msg.content().readableBytes()];
         msg.content().readBytes(response);
+        long start = System.nanoTime();
         byte[] evaluatedBytes = saslClient.evaluateChallenge(response);
+        evaluationTime += System.nanoTime() - start;
 
         if (evaluatedBytes != null) {
             ByteBuf content;
@@ -280,6 +322,10 @@ public class KeyValueAuthHandler
     private void checkIsAuthed(final FullBinaryMemcacheResponse msg) {
         switch (msg.getStatus()) {
             case SASL_AUTH_SUCCESS:
+                ConnectTimings.markAuthenticated(ctx.channel());
+                if (runtimeMetrics != null) {
+                    runtimeMetrics.recordSaslAuth(evaluationTime);
+                }
                 originalPromise.setSuccess();
                 ctx.pipeline().remove(this);
                 ctx.fireChannelActive();
@@ -55,7 +55,7 @@ public class KeyValueEndpoint extends AbstractEndpoint {
         pipeline
             .addLast(new BinaryMemcacheClientCodec())
             .addLast(new BinaryMemcacheObjectAggregator(Integer.MAX_VALUE))
-            .addLast(new KeyValueAuthHandler(bucket(), password()))
+            .addLast(new KeyValueAuthHandler(bucket(), password(), environment()))
             .addLast(new KeyValueFeatureHandler(environment()))
             .addLast(new KeyValueHandler(this, responseBuffer(), false, true));
     }
@@ -15,6 +15,7 @@
  */
 package com.couchbase.client.core.endpoint.kv;
 
+import com.couchbase.client.core.endpoint.ConnectTimings;
 import com.couchbase.client.core.endpoint.ResponseStatusConverter;
 import com.couchbase.client.core.endpoint.ServerFeatures;
 import com.couchbase.client.core.endpoint.ServerFeaturesEvent;
@@ -73,6 +74,9 @@ public class KeyValueFeatureHandler extends SimpleChannelInboundHandler<FullBina
         }
         features.add(tcpNodelay ? ServerFeatures.TCPNODELAY : ServerFeatures.TCPDELAY);
         features.add(ServerFeatures.XATTR);
+        if (environment.compressionEnabled()) {
+            features.add(ServerFeatures.SNAPPY);
+        }
     }
 
     @Override
@@ -90,6 +94,7 @@ public class KeyValueFeatureHandler extends SimpleChannelInboundHandler<FullBina
 
         LOGGER.debug("Negotiated supported features: {}", supported);
         ctx.fireUserEventTriggered(new ServerFeaturesEvent(supported));
+        ConnectTimings.markNegotiated(ctx.channel());
         originalPromise.setSuccess();
         ctx.pipeline().remove(this);
         ctx.fireChannelActive();
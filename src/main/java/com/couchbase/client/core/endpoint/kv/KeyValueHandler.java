@@ -80,11 +80,14 @@ import com.couchbase.client.core.message.kv.subdoc.multi.MutationCommandBuilder;
 import com.couchbase.client.core.message.kv.subdoc.simple.SimpleSubdocResponse;
 import com.couchbase.client.core.message.kv.subdoc.simple.SubExistRequest;
 import com.couchbase.client.core.message.kv.subdoc.simple.SubGetRequest;
+import com.couchbase.client.core.metrics.RuntimeMetricsCollector;
 import com.couchbase.client.core.service.ServiceType;
+import com.couchbase.client.core.utils.Snappy;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.BinaryMemcacheOpcodes;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.BinaryMemcacheRequest;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.DefaultBinaryMemcacheRequest;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.DefaultFullBinaryMemcacheRequest;
+import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.DefaultFullBinaryMemcacheResponse;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.FullBinaryMemcacheRequest;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.FullBinaryMemcacheResponse;
 import com.lmax.disruptor.EventSink;
@@ -163,8 +166,27 @@ public class KeyValueHandler
      */
     public static final byte SUBDOC_FLAG_XATTR_PATH = (byte) 0x04;
 
+    /**
+     * The datatype bit which marks the value of a request or response as snappy compressed.
+     */
+    public static final byte DATATYPE_SNAPPY = (byte) 0x02;
+
     boolean seqOnMutation = false;
 
+    /**
+     * If store request values are compressed, only true once SNAPPY has been negotiated with the server.
+     */
+    boolean compressValues = false;
+
+    private int compressionMinSize;
+    private double compressionMinRatio;
+    private final RuntimeMetricsCollector runtimeMetrics;
+
+    /**
+     * The outstanding requests indexed by their opaque, null if a plain queue is used and responses
+     * are matched in order.
+     */
+    private final OpaqueRequestQueue inFlightRequests;
 
     /**
      * Creates a new {@link KeyValueHandler} with the default queue for requests.
@@ -174,18 +196,23 @@ public class KeyValueHandler
      */
     public KeyValueHandler(AbstractEndpoint endpoint, EventSink<ResponseEvent> responseBuffer, boolean isTransient,
                            final boolean pipeline) {
-        super(endpoint, responseBuffer, isTransient, pipeline);
+        this(endpoint, responseBuffer, new OpaqueRequestQueue(), isTransient, pipeline);
     }
 
     /**
      * Creates a new {@link KeyValueHandler} with a custom queue for requests (suitable for tests).
      *
+     * If the queue is an {@link OpaqueRequestQueue}, responses are matched to their requests by opaque,
+     * otherwise they are expected to arrive in the same order the requests have been written.
+     *
      * @param endpoint the {@link AbstractEndpoint} to coordinate with.
      * @param responseBuffer the {@link RingBuffer} to push responses into.
      * @param queue the queue which holds all outstanding open requests.
      */
     KeyValueHandler(AbstractEndpoint endpoint, EventSink<ResponseEvent> responseBuffer, Queue<BinaryRequest> queue, boolean isTransient, final boolean pipeline) {
         super(endpoint, responseBuffer, queue, isTransient, pipeline);
+        this.inFlightRequests = queue instanceof OpaqueRequestQueue ? (OpaqueRequestQueue) queue : null;
+        this.runtimeMetrics = RuntimeMetricsCollector.enabled(env());
     }
 
     @Override
@@ -206,9 +233,11 @@ public class KeyValueHandler
         // Retain just the content, since a response could be "Not my Vbucket".
         // The response handler checks the status and then releases if needed.
         // Observe has content, but not external, so it should not be retained.
+        // A compressed value is a copy only referenced by the lower level request, so it must not be retained.
         if (!(msg instanceof ObserveRequest)
             && !(msg instanceof ObserveSeqnoRequest)
-            && (request instanceof FullBinaryMemcacheRequest)) {
+            && (request instanceof FullBinaryMemcacheRequest)
+            && (request.getDataType() & DATATYPE_SNAPPY) == 0) {
             ((FullBinaryMemcacheRequest) request).content().retain();
         }
 
@@ -219,7 +248,8 @@ public class KeyValueHandler
         if (msg instanceof GetRequest) {
             return handleGetRequest(ctx, (GetRequest) msg);
         } else if (msg instanceof BinaryStoreRequest) {
-            return handleStoreRequest(ctx, (BinaryStoreRequest) msg);
+            BinaryStoreRequest storeRequest = (BinaryStoreRequest) msg;
+            return handleStoreRequest(ctx, storeRequest, maybeCompress(ctx, storeRequest.content()));
         } else if (msg instanceof ReplicaGetRequest) {
             return handleReplicaGetRequest((ReplicaGetRequest) msg);
         } else if (msg instanceof RemoveRequest) {
@@ -337,10 +367,11 @@ public class KeyValueHandler
      *
      * Currently, the content is loaded and sent down in one batch, streaming for requests is not supported.
      *
+     * @param compressed the snappy compressed content to send instead of the original, or null.
      * @return a ready {@link BinaryMemcacheRequest}.
      */
     private static BinaryMemcacheRequest handleStoreRequest(final ChannelHandlerContext ctx,
-        final BinaryStoreRequest msg) {
+        final BinaryStoreRequest msg, final ByteBuf compressed) {
         ByteBuf extras = ctx.alloc().buffer(8);
         extras.writeInt(msg.flags());
         extras.writeInt(msg.expiration());
@@ -348,7 +379,11 @@ public class KeyValueHandler
         byte[] key = msg.keyBytes();
         short keyLength = (short) key.length;
         byte extrasLength = (byte) extras.readableBytes();
-        FullBinaryMemcacheRequest request = new DefaultFullBinaryMemcacheRequest(key, extras, msg.content());
+        ByteBuf content = compressed == null ? msg.content() : compressed;
+        FullBinaryMemcacheRequest request = new DefaultFullBinaryMemcacheRequest(key, extras, content);
+        if (compressed != null) {
+            request.setDataType(DATATYPE_SNAPPY);
+        }
 
         if (msg instanceof InsertRequest) {
             request.setOpcode(OP_INSERT);
@@ -358,16 +393,48 @@ public class KeyValueHandler
             request.setOpcode(OP_REPLACE);
             request.setCAS(((ReplaceRequest) msg).cas());
         } else {
+            if (compressed != null) {
+                compressed.release();
+            }
             throw new IllegalArgumentException("Unknown incoming BinaryStoreRequest type "
                 + msg.getClass());
         }
 
         request.setKeyLength(keyLength);
-        request.setTotalBodyLength(keyLength + msg.content().readableBytes() + extrasLength);
+        request.setTotalBodyLength(keyLength + content.readableBytes() + extrasLength);
         request.setExtrasLength(extrasLength);
         return request;
     }
 
+    /**
+     * Compresses the given value if compression has been negotiated and the value is large enough.
+     *
+     * The compressed copy is only used if it is smaller than the configured ratio of the original size, otherwise
+     * it is released right away and the original value is sent.
+     *
+     * @param ctx the {@link ChannelHandlerContext} to use for allocation.
+     * @param content the value to compress.
+     * @return the compressed value or null if the original value should be sent.
+     */
+    private ByteBuf maybeCompress(final ChannelHandlerContext ctx, final ByteBuf content) {
+        int length = content.readableBytes();
+        if (!compressValues || length < compressionMinSize) {
+            return null;
+        }
+
+        ByteBuf compressed = Snappy.compress(ctx.alloc(), content);
+        int compressedLength = compressed.readableBytes();
+        boolean sent = compressedLength < length * compressionMinRatio;
+        if (runtimeMetrics != null) {
+            runtimeMetrics.recordCompression(length, compressedLength, sent);
+        }
+        if (!sent) {
+            compressed.release();
+            return null;
+        }
+        return compressed;
+    }
+
     /**
      * Encodes a {@link RemoveRequest} into its lower level representation.
      *
@@ -649,20 +716,60 @@ public class KeyValueHandler
     }
 
     @Override
-    protected CouchbaseResponse decodeResponse(final ChannelHandlerContext ctx, final FullBinaryMemcacheResponse msg)
+    protected BinaryRequest pollSentRequest(final FullBinaryMemcacheResponse msg) {
+        if (inFlightRequests == null) {
+            return super.pollSentRequest(msg);
+        }
+        return inFlightRequests.remove(msg.getOpaque());
+    }
+
+    @Override
+    protected boolean removeSentRequest(final BinaryRequest request) {
+        if (inFlightRequests == null || inFlightRequests.get(request.opaque()) != request) {
+            return false;
+        }
+        inFlightRequests.remove(request.opaque());
+        maybeFreeContent(request);
+        return true;
+    }
+
+    @Override
+    protected CouchbaseResponse decodeResponse(final ChannelHandlerContext ctx, final FullBinaryMemcacheResponse raw)
         throws Exception {
         BinaryRequest request = currentRequest();
 
-        if (request.opaque() != msg.getOpaque()) {
-            throw new IllegalStateException("Opaque values for " + msg.getClass() + " do not match.");
+        if (request == null) {
+            // No outstanding request for this opaque (unsolicited, or the request has been cancelled or timed
+            // out already). Drop the response instead of failing an unrelated request or the channel.
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(logIdent(ctx, endpoint()) + "Dropping response with opaque {} (opcode 0x{}), "
+                    + "no matching request in-flight.", raw.getOpaque(), Integer.toHexString(raw.getOpcode()));
+            }
+            finishedDecoding();
+            return null;
+        }
+
+        if (request.opaque() != raw.getOpaque()) {
+            throw new IllegalStateException("Opaque values for " + raw.getClass() + " do not match.");
         }
 
-        ResponseStatus status = ResponseStatusConverter.fromBinary(msg.getStatus());
+        ResponseStatus status = ResponseStatusConverter.fromBinary(raw.getStatus());
         if (!status.equals(ResponseStatus.RETRY)) {
            maybeFreeContent(request);
         }
 
-        msg.content().retain();
+        FullBinaryMemcacheResponse msg;
+        if ((raw.getDataType() & DATATYPE_SNAPPY) != 0) {
+            try {
+                msg = decompress(ctx, raw);
+            } catch (RuntimeException ex) {
+                finishedDecoding();
+                throw ex;
+            }
+        } else {
+            msg = raw;
+            msg.content().retain();
+        }
         CouchbaseResponse response = handleCommonResponseMessages(request, msg, status, seqOnMutation);
 
         if (response == null) {
@@ -702,6 +809,37 @@ public class KeyValueHandler
         return response;
     }
 
+    /**
+     * Creates a copy of the given response with its snappy compressed value decompressed.
+     *
+     * The copy shares key and extras with the original, which stays owned by the caller, and owns the new content.
+     *
+     * @param ctx the {@link ChannelHandlerContext} to use for allocation.
+     * @param msg the response with the compressed value.
+     * @return the response with the uncompressed value.
+     */
+    private FullBinaryMemcacheResponse decompress(final ChannelHandlerContext ctx,
+        final FullBinaryMemcacheResponse msg) {
+        ByteBuf compressed = msg.content();
+        ByteBuf content = Snappy.decompress(ctx.alloc(), compressed);
+        if (runtimeMetrics != null) {
+            runtimeMetrics.recordDecompression(compressed.readableBytes(), content.readableBytes());
+        }
+
+        FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse(msg.getKey(), msg.getExtras(),
+            content);
+        response
+            .setStatus(msg.getStatus())
+            .setOpcode(msg.getOpcode())
+            .setKeyLength(msg.getKeyLength())
+            .setExtrasLength(msg.getExtrasLength())
+            .setDataType((byte) (msg.getDataType() & ~DATATYPE_SNAPPY))
+            .setTotalBodyLength(msg.getKeyLength() + msg.getExtrasLength() + content.readableBytes())
+            .setOpaque(msg.getOpaque())
+            .setCAS(msg.getCAS());
+        return response;
+    }
+
     /**
      * Helper method to decode all common response messages.
      *
@@ -1097,6 +1235,10 @@ public class KeyValueHandler
         if (evt instanceof ServerFeaturesEvent) {
             seqOnMutation = env().mutationTokensEnabled() &&
                 ((ServerFeaturesEvent) evt).supportedFeatures().contains(ServerFeatures.MUTATION_SEQNO);
+            compressValues = env().compressionEnabled() &&
+                ((ServerFeaturesEvent) evt).supportedFeatures().contains(ServerFeatures.SNAPPY);
+            compressionMinSize = env().compressionMinSize();
+            compressionMinRatio = env().compressionMinRatio();
         }
 
         super.userEventTriggered(ctx, evt);
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.kv;
+
+import com.couchbase.client.core.message.kv.BinaryRequest;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link java.util.Queue} of in-flight {@link BinaryRequest}s which is additionally indexed by their opaque.
+ *
+ * The table uses open addressing over primitive int keys, so looking up or removing a request by the opaque
+ * of its response is O(1) and does not box or allocate. On top of the index, insertion order is kept as an
+ * intrusive doubly linked list of slot indices, so the regular {@link #poll()} and {@link #iterator()} still
+ * behave like a FIFO queue (which is what cancelling all outstanding requests on channel close relies on).
+ *
+ * Removed slots are marked with a tombstone instead of being shifted, so slot indices stay stable for the
+ * linked list. Once too many slots are used up the table is rebuilt (and grown if needed).
+ *
+ * This class is not thread safe, it is expected to be only accessed from the event loop of its channel.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class OpaqueRequestQueue extends AbstractQueue<BinaryRequest> {
+
+    /**
+     * The initial number of slots, needs to be a power of two.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Marks a slot which held a request that has since been removed.
+     */
+    private static final Object TOMBSTONE = new Object();
+
+    /**
+     * Marks the absence of a slot in the linked list.
+     */
+    private static final int NONE = -1;
+
+    private int[] keys;
+    private Object[] values;
+    private int[] prev;
+    private int[] next;
+    private int mask;
+
+    private int head = NONE;
+    private int tail = NONE;
+
+    /**
+     * Number of live requests in the table.
+     */
+    private int size;
+
+    /**
+     * Number of live requests plus tombstones, used to determine when to rebuild.
+     */
+    private int used;
+
+    /**
+     * Creates a new {@link OpaqueRequestQueue} with the default capacity.
+     */
+    public OpaqueRequestQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@link OpaqueRequestQueue} with the given initial capacity.
+     *
+     * @param initialCapacity the initial capacity, rounded up to the next power of two.
+     */
+    public OpaqueRequestQueue(final int initialCapacity) {
+        allocate(capacityFor(initialCapacity));
+    }
+
+    /**
+     * Adds the request to the tail of the queue and indexes it by its opaque.
+     *
+     * @param request the request to add.
+     * @return true if added, false if a request with the same opaque is already in-flight.
+     */
+    @Override
+    public boolean offer(final BinaryRequest request) {
+        if (request == null) {
+            throw new NullPointerException("Request cannot be null");
+        }
+
+        int opaque = request.opaque();
+        int slot = opaque & mask;
+        int firstTombstone = NONE;
+        Object current;
+        while ((current = values[slot]) != null) {
+            if (current == TOMBSTONE) {
+                if (firstTombstone == NONE) {
+                    firstTombstone = slot;
+                }
+            } else if (keys[slot] == opaque) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (firstTombstone != NONE) {
+            slot = firstTombstone;
+        } else {
+            used++;
+        }
+
+        keys[slot] = opaque;
+        values[slot] = request;
+        linkLast(slot);
+        size++;
+
+        if (used > (values.length >> 1)) {
+            rebuild();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the in-flight request with the given opaque without removing it.
+     *
+     * @param opaque the opaque of the request.
+     * @return the request or null if none is in-flight with this opaque.
+     */
+    public BinaryRequest get(final int opaque) {
+        int slot = slotOf(opaque);
+        return slot == NONE ? null : (BinaryRequest) values[slot];
+    }
+
+    /**
+     * Removes and returns the in-flight request with the given opaque.
+     *
+     * @param opaque the opaque of the request.
+     * @return the removed request or null if none is in-flight with this opaque.
+     */
+    public BinaryRequest remove(final int opaque) {
+        int slot = slotOf(opaque);
+        return slot == NONE ? null : removeSlot(slot);
+    }
+
+    @Override
+    public BinaryRequest poll() {
+        return head == NONE ? null : removeSlot(head);
+    }
+
+    @Override
+    public BinaryRequest peek() {
+        return head == NONE ? null : (BinaryRequest) values[head];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        allocate(capacityFor(DEFAULT_CAPACITY));
+    }
+
+    @Override
+    public Iterator<BinaryRequest> iterator() {
+        return new Iterator<BinaryRequest>() {
+            private int nextSlot = head;
+            private int lastSlot = NONE;
+
+            @Override
+            public boolean hasNext() {
+                return nextSlot != NONE;
+            }
+
+            @Override
+            public BinaryRequest next() {
+                if (nextSlot == NONE) {
+                    throw new NoSuchElementException();
+                }
+                lastSlot = nextSlot;
+                nextSlot = next[nextSlot];
+                return (BinaryRequest) values[lastSlot];
+            }
+
+            @Override
+            public void remove() {
+                if (lastSlot == NONE) {
+                    throw new IllegalStateException();
+                }
+                removeSlot(lastSlot);
+                lastSlot = NONE;
+            }
+        };
+    }
+
+    /**
+     * Finds the slot of the live request with the given opaque.
+     *
+     * @param opaque the opaque to look for.
+     * @return the slot or {@link #NONE} if not found.
+     */
+    private int slotOf(final int opaque) {
+        int slot = opaque & mask;
+        Object current;
+        while ((current = values[slot]) != null) {
+            if (current != TOMBSTONE && keys[slot] == opaque) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private BinaryRequest removeSlot(final int slot) {
+        BinaryRequest request = (BinaryRequest) values[slot];
+        unlink(slot);
+        values[slot] = TOMBSTONE;
+        size--;
+        return request;
+    }
+
+    private void linkLast(final int slot) {
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(final int slot) {
+        int p = prev[slot];
+        int n = next[slot];
+        if (p == NONE) {
+            head = n;
+        } else {
+            next[p] = n;
+        }
+        if (n == NONE) {
+            tail = p;
+        } else {
+            prev[n] = p;
+        }
+    }
+
+    /**
+     * Rebuilds the table without tombstones, growing it if the live requests need more room.
+     */
+    private void rebuild() {
+        int[] oldNext = next;
+        Object[] oldValues = values;
+        int oldHead = head;
+
+        allocate(capacityFor(size << 2));
+        for (int slot = oldHead; slot != NONE; slot = oldNext[slot]) {
+            offer((BinaryRequest) oldValues[slot]);
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        mask = capacity - 1;
+        head = NONE;
+        tail = NONE;
+        size = 0;
+        used = 0;
+    }
+
+    private static int capacityFor(final int expected) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expected) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+}
@@ -20,6 +20,9 @@ import com.couchbase.client.core.endpoint.AbstractEndpoint;
 import com.couchbase.client.core.endpoint.AbstractGenericHandler;
 import com.couchbase.client.core.endpoint.ResponseStatusConverter;
 import com.couchbase.client.core.endpoint.util.ClosingPositionBufProcessor;
+import com.couchbase.client.core.endpoint.util.AutoReadDemand;
+import com.couchbase.client.core.endpoint.util.ClosingPositionScanner;
+import com.couchbase.client.core.endpoint.util.ResponseContents;
 import com.couchbase.client.core.endpoint.util.StringClosingPositionBufProcessor;
 import com.couchbase.client.core.endpoint.util.WhitespaceSkipper;
 import com.couchbase.client.core.logging.CouchbaseLogger;
@@ -51,6 +54,7 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
+import rx.Observable;
 import rx.Scheduler;
 import rx.subjects.AsyncSubject;
 
@@ -59,7 +63,6 @@ import java.util.concurrent.TimeUnit;
 
 import static com.couchbase.client.core.endpoint.util.ByteBufJsonHelper.findNextChar;
 import static com.couchbase.client.core.endpoint.util.ByteBufJsonHelper.findNextCharNotPrefixedBy;
-import static com.couchbase.client.core.endpoint.util.ByteBufJsonHelper.findSectionClosingPosition;
 import static com.couchbase.client.core.endpoint.util.ByteBufJsonHelper.findSplitPosition;
 
 /**
@@ -145,6 +148,21 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
      */
     private boolean sectionDone = false;
 
+    /**
+     * Finds the end of rows, errors and metrics across chunks without rescanning what has already been received.
+     */
+    private final ClosingPositionScanner sectionScanner = new ClosingPositionScanner('{', '}');
+
+    /**
+     * If rows and sections are emitted as retained slices of the received chunks instead of copies.
+     */
+    private final boolean zeroCopyRows;
+
+    /**
+     * The number of rows buffered for the subscriber before reading is paused, 0 if never paused.
+     */
+    private final int rowBufferSize;
+
     /**
      * Creates a new {@link QueryHandler} with the default queue for requests.
      *
@@ -154,6 +172,8 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
     public QueryHandler(AbstractEndpoint endpoint, RingBuffer<ResponseEvent> responseBuffer, boolean isTransient,
                         final boolean pipeline) {
         super(endpoint, responseBuffer, isTransient, pipeline);
+        zeroCopyRows = env() != null && env().zeroCopyRowsEnabled();
+        rowBufferSize = env() == null ? 0 : env().streamingRowBufferSize();
     }
 
     /**
@@ -166,6 +186,8 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
     QueryHandler(AbstractEndpoint endpoint, RingBuffer<ResponseEvent> responseBuffer, Queue<QueryRequest> queue,
                  boolean isTransient, final boolean pipeline) {
         super(endpoint, responseBuffer, queue, isTransient, pipeline);
+        zeroCopyRows = env() != null && env().zeroCopyRowsEnabled();
+        rowBufferSize = env() == null ? 0 : env().streamingRowBufferSize();
     }
 
     @Override
@@ -205,11 +227,8 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
 
         if (msg instanceof HttpResponse) {
             responseHeader = (HttpResponse) msg;
-            if (responseContent != null) {
-                responseContent.clear();
-            } else {
-                responseContent = ctx.alloc().buffer();
-            }
+            sectionScanner.reset();
+            responseContent = ResponseContents.prepare(responseContent, ctx.alloc(), zeroCopyRows);
         }
 
         if (currentRequest() instanceof KeepAliveRequest) {
@@ -220,7 +239,7 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
                 finishedDecoding();
             }
         } else if (msg instanceof HttpContent) {
-            responseContent.writeBytes(((HttpContent) msg).content());
+            ResponseContents.append(responseContent, ((HttpContent) msg).content());
             boolean lastChunk = msg instanceof LastHttpContent;
 
             //important to place the RawQueryRequest test before, as it extends GenericQueryRequest
@@ -229,7 +248,7 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
             } else if (currentRequest() instanceof GenericQueryRequest) {
                 if (queryRowObservable == null) {
                     //still in initial parsing
-                    response = handleGenericQueryResponse(lastChunk);
+                    response = handleGenericQueryResponse(lastChunk, ctx);
                     //null response indicates need for more data before continuing parsing
                     if (response != null) {
                         parseQueryResponse(lastChunk);
@@ -279,7 +298,7 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
      *
      * @return a {@link CouchbaseResponse} if eligible.
      */
-    private CouchbaseResponse handleGenericQueryResponse(boolean lastChunk) {
+    private CouchbaseResponse handleGenericQueryResponse(boolean lastChunk, ChannelHandlerContext ctx) {
         String requestId;
         String clientId = "";
 
@@ -356,6 +375,14 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
         Scheduler scheduler = env().scheduler();
         long ttl = env().autoreleaseAfter();
         queryRowObservable = UnicastAutoReleaseSubject.create(ttl, TimeUnit.MILLISECONDS, scheduler);
+        Observable<ByteBuf> rows;
+        if (rowBufferSize > 0) {
+            // the subject buffers on its own and counts what reached the subscriber
+            rows = queryRowObservable.withDemandTracking(rowBufferSize, new AutoReadDemand(ctx.channel()))
+                .observeOnTrackingDemand(scheduler);
+        } else {
+            rows = queryRowObservable.onBackpressureBuffer().observeOn(scheduler);
+        }
         queryErrorObservable = UnicastAutoReleaseSubject.create(ttl, TimeUnit.MILLISECONDS, scheduler);
         queryStatusObservable = AsyncSubject.create();
         queryInfoObservable = UnicastAutoReleaseSubject.create(ttl, TimeUnit.MILLISECONDS, scheduler);
@@ -371,7 +398,7 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
 
         return new GenericQueryResponse(
                 queryErrorObservable.onBackpressureBuffer().observeOn(scheduler),
-                queryRowObservable.onBackpressureBuffer().observeOn(scheduler),
+                rows,
                 querySignatureObservable.onBackpressureBuffer().observeOn(scheduler),
                 queryStatusObservable.onBackpressureBuffer().observeOn(scheduler),
                 queryInfoObservable.onBackpressureBuffer().observeOn(scheduler),
@@ -524,8 +551,22 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
         }
     }
 
+    /**
+     * Reads the given number of bytes from the response content into a buffer which needs to be released by the
+     * consumer.
+     *
+     * @param length the number of bytes to read.
+     * @return the read bytes.
+     */
+    private ByteBuf readContent(final int length) {
+        ByteBuf content = ResponseContents.extract(responseContent, responseContent.readerIndex(), length);
+        responseContent.skipBytes(length);
+        return content;
+    }
+
     private void sectionDone() {
         this.sectionDone = true;
+        sectionScanner.reset();
         responseContent.discardReadBytes();
     }
 
@@ -559,8 +600,7 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
         if (closePos > 0) {
             responseContent.skipBytes(openPos);
             int length = closePos - openPos + 1;
-            ByteBuf signature = responseContent.readSlice(length);
-            querySignatureObservable.onNext(signature.copy());
+            querySignatureObservable.onNext(readContent(length));
         } else {
             //wait for more data
             return;
@@ -583,15 +623,20 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
                 break;
             }
 
-            int closeBracketPos = findSectionClosingPosition(responseContent, '{', '}');
+            int closeBracketPos = sectionScanner.find(responseContent);
             if (closeBracketPos == -1) {
                 break;
             }
 
             int length = closeBracketPos - openBracketPos - responseContent.readerIndex() + 1;
             responseContent.skipBytes(openBracketPos);
-            ByteBuf resultSlice = responseContent.readSlice(length);
-            queryRowObservable.onNext(resultSlice.copy());
+            queryRowObservable.onNext(readContent(length));
+            if (!zeroCopyRows) {
+                responseContent.discardSomeReadBytes();
+            }
+        }
+        if (zeroCopyRows) {
+            // dropping read components rebuilds the component offsets, so only do it once per chunk
             responseContent.discardSomeReadBytes();
         }
     }
@@ -615,8 +660,7 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
             }
 
             int length = splitPos - responseContent.readerIndex();
-            ByteBuf resultSlice = responseContent.readSlice(length);
-            queryRowObservable.onNext(resultSlice.copy());
+            queryRowObservable.onNext(readContent(length));
             responseContent.skipBytes(1);
             responseContent.discardReadBytes();
 
@@ -640,15 +684,14 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
                 break;
             }
 
-            int closeBracketPos = findSectionClosingPosition(responseContent, '{', '}');
+            int closeBracketPos = sectionScanner.find(responseContent);
             if (closeBracketPos == -1) {
                 break;
             }
 
             int length = closeBracketPos - openBracketPos - responseContent.readerIndex() + 1;
             responseContent.skipBytes(openBracketPos);
-            ByteBuf resultSlice = responseContent.readSlice(length);
-            queryErrorObservable.onNext(resultSlice.copy());
+            queryErrorObservable.onNext(readContent(length));
         }
     }
 
@@ -687,7 +730,7 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
      */
     private void parseQueryInfo(boolean last) {
         int openBracketPos = findNextChar(responseContent, '{');
-        int closeBracketPos = findSectionClosingPosition(responseContent, '{', '}');
+        int closeBracketPos = sectionScanner.find(responseContent);
         if (closeBracketPos == -1) {
             if (last) {
                 throw new IllegalStateException("Could not find metrics closing in last chunk");
@@ -698,7 +741,7 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
 
         int from = responseContent.readerIndex() + openBracketPos;
         int to = closeBracketPos - openBracketPos - responseContent.readerIndex() + 1;
-        queryInfoObservable.onNext(responseContent.slice(from, to).copy());
+        queryInfoObservable.onNext(ResponseContents.extract(responseContent, from, to));
         responseContent.readerIndex(to + openBracketPos);
 
         //has to be here rather than in parseQueryResponse, as when there is a split
@@ -712,11 +755,26 @@ public class QueryHandler extends AbstractGenericHandler<HttpObject, HttpRequest
         queryParsingState = QUERY_STATE_DONE;
     }
 
+    @Override
+    protected void discardResponse(final CouchbaseResponse response) {
+        if (response instanceof GenericQueryResponse) {
+            GenericQueryResponse queryResponse = (GenericQueryResponse) response;
+            discardContent(queryResponse.rows());
+            discardContent(queryResponse.errors());
+            discardContent(queryResponse.signature());
+            discardContent(queryResponse.info());
+            discardContent(queryResponse.queryStatus());
+        } else {
+            super.discardResponse(response);
+        }
+    }
+
     /**
      * Clean up the query states after all rows have been consumed.
      */
     private void cleanupQueryStates() {
         finishedDecoding();
+        sectionScanner.reset();
         queryInfoObservable = null;
         queryRowObservable = null;
         queryErrorObservable = null;
@@ -19,6 +19,10 @@ import com.couchbase.client.core.ResponseEvent;
 import com.couchbase.client.core.endpoint.AbstractEndpoint;
 import com.couchbase.client.core.endpoint.AbstractGenericHandler;
 import com.couchbase.client.core.endpoint.ResponseStatusConverter;
+import com.couchbase.client.core.endpoint.util.AutoReadDemand;
+import com.couchbase.client.core.endpoint.util.ClosingPositionScanner;
+import com.couchbase.client.core.endpoint.util.ResponseContents;
+import com.couchbase.client.core.endpoint.util.WhitespaceSkipper;
 import com.couchbase.client.core.logging.CouchbaseLogger;
 import com.couchbase.client.core.logging.CouchbaseLoggerFactory;
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
@@ -35,10 +39,14 @@ import com.couchbase.client.core.message.search.RemoveSearchIndexResponse;
 import com.couchbase.client.core.message.search.SearchQueryRequest;
 import com.couchbase.client.core.message.search.SearchQueryResponse;
 import com.couchbase.client.core.message.search.SearchRequest;
+import com.couchbase.client.core.message.search.StreamingSearchQueryRequest;
+import com.couchbase.client.core.message.search.StreamingSearchQueryResponse;
+import com.couchbase.client.core.utils.UnicastAutoReleaseSubject;
 import com.couchbase.client.core.service.ServiceType;
 import com.lmax.disruptor.EventSink;
 import com.lmax.disruptor.RingBuffer;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
@@ -52,8 +60,11 @@ import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.util.CharsetUtil;
+import rx.Observable;
+import rx.Scheduler;
 
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The {@link SearchHandler} is responsible for encoding {@link SearchRequest}s into lower level
@@ -66,6 +77,35 @@ import java.util.Queue;
 public class SearchHandler extends AbstractGenericHandler<HttpObject, HttpRequest, SearchRequest> {
 
     private static final CouchbaseLogger LOGGER = CouchbaseLoggerFactory.getInstance(SearchHandler.class);
+
+    private static final byte SEARCH_STATE_INITIAL = 0;
+    private static final byte SEARCH_STATE_FIELD = 1;
+    private static final byte SEARCH_STATE_VALUE = 2;
+    private static final byte SEARCH_STATE_HITS = 3;
+    private static final byte SEARCH_STATE_RAW = 4;
+    private static final byte SEARCH_STATE_DONE = 5;
+
+    private static final ByteBufProcessor SKIP_WHITESPACE = new WhitespaceSkipper();
+
+    /**
+     * Stops at the first byte which is neither whitespace nor a comma.
+     */
+    private static final ByteBufProcessor SKIP_SEPARATORS = new ByteBufProcessor() {
+        @Override
+        public boolean process(byte value) throws Exception {
+            return value == ' ' || value == '\t' || value == '\r' || value == '\n' || value == ',';
+        }
+    };
+
+    /**
+     * Stops at the first byte after a number, boolean or null value.
+     */
+    private static final ByteBufProcessor FIND_SCALAR_END = new ByteBufProcessor() {
+        @Override
+        public boolean process(byte value) throws Exception {
+            return value != ',' && value != '}' && value != ' ' && value != '\t' && value != '\r' && value != '\n';
+        }
+    };
     /**
      * Contains the current pending response header if set.
      */
@@ -76,9 +116,84 @@ public class SearchHandler extends AbstractGenericHandler<HttpObject, HttpReques
      */
     private ByteBuf responseContent;
 
+    /**
+     * Represents the hits of a streaming search response, created when the first chunk arrives.
+     */
+    private UnicastAutoReleaseSubject<ByteBuf> searchHitObservable;
+
+    /**
+     * Represents the meta object of a streaming search response, emitted once the response is complete.
+     */
+    private UnicastAutoReleaseSubject<ByteBuf> searchMetaObservable;
+
+    /**
+     * Collects all top level fields but the hits of a streaming search response.
+     */
+    private ByteBuf searchMeta;
+
+    /**
+     * The name of the top level field whose value is currently parsed.
+     */
+    private String searchField;
+
+    /**
+     * Represents the current state of the streaming search parser.
+     */
+    private byte searchParsingState = SEARCH_STATE_INITIAL;
+
+    /**
+     * Finds the end of hits and object values across chunks without rescanning what has already been received.
+     */
+    private final ClosingPositionScanner objectScanner = new ClosingPositionScanner('{', '}');
+
+    /**
+     * Finds the end of array values across chunks without rescanning what has already been received.
+     */
+    private final ClosingPositionScanner arrayScanner = new ClosingPositionScanner('[', ']');
+
+    /**
+     * The number of bytes of a string value already scanned for its closing quote, after the opening quote at
+     * the reader index.
+     */
+    private int stringScanned;
+
+    /**
+     * If the last scanned byte of a string value is an (unescaped) backslash.
+     */
+    private boolean stringEscaped;
+
+    /**
+     * Stops at the closing quote of a string value, keeping the escape state across chunks.
+     */
+    private final ByteBufProcessor stringEndProcessor = new ByteBufProcessor() {
+        @Override
+        public boolean process(byte value) throws Exception {
+            if (stringEscaped) {
+                stringEscaped = false;
+                return true;
+            } else if (value == '\\') {
+                stringEscaped = true;
+                return true;
+            }
+            return value != '"';
+        }
+    };
+
+    /**
+     * If hits are emitted as retained slices of the received chunks instead of copies.
+     */
+    private final boolean zeroCopyRows;
+
+    /**
+     * The number of hits buffered for the subscriber before reading is paused, 0 if never paused.
+     */
+    private final int rowBufferSize;
+
     public SearchHandler(AbstractEndpoint endpoint, EventSink<ResponseEvent> responseBuffer, boolean isTransient,
                          final boolean pipeline) {
         super(endpoint, responseBuffer, isTransient, pipeline);
+        zeroCopyRows = env() != null && env().zeroCopyRowsEnabled();
+        rowBufferSize = env() == null ? 0 : env().streamingRowBufferSize();
     }
 
     /**
@@ -91,6 +206,8 @@ public class SearchHandler extends AbstractGenericHandler<HttpObject, HttpReques
     SearchHandler(AbstractEndpoint endpoint, RingBuffer<ResponseEvent> responseBuffer, Queue<SearchRequest> queue,
                   boolean isTransient, final boolean pipeline) {
         super(endpoint, responseBuffer, queue, isTransient, pipeline);
+        zeroCopyRows = env() != null && env().zeroCopyRowsEnabled();
+        rowBufferSize = env() == null ? 0 : env().streamingRowBufferSize();
     }
 
     @Override
@@ -141,21 +258,24 @@ public class SearchHandler extends AbstractGenericHandler<HttpObject, HttpReques
 
         if (msg instanceof HttpResponse) {
             responseHeader = (HttpResponse) msg;
-
-            if (responseContent != null) {
-                responseContent.clear();
-            } else {
-                responseContent = ctx.alloc().buffer();
-            }
+            objectScanner.reset();
+            arrayScanner.reset();
+            resetStringScan();
+            responseContent = ResponseContents.prepare(responseContent, ctx.alloc(), zeroCopyRows);
         }
 
-
-
         if (msg instanceof HttpContent) {
-            responseContent.writeBytes(((HttpContent) msg).content());
+            ResponseContents.append(responseContent, ((HttpContent) msg).content());
         }
 
-        if (currentRequest() instanceof KeepAliveRequest) {
+        if (request instanceof StreamingSearchQueryRequest) {
+            if (msg instanceof HttpContent) {
+                if (searchHitObservable == null) {
+                    response = handleStreamingSearchQueryResponse(ctx);
+                }
+                parseSearchResponse(msg instanceof LastHttpContent);
+            }
+        } else if (currentRequest() instanceof KeepAliveRequest) {
             if (msg instanceof LastHttpContent) {
                 response = new KeepAliveResponse(ResponseStatusConverter.fromHttp(responseHeader.getStatus().code()), currentRequest());
                 responseContent.clear();
@@ -183,6 +303,280 @@ public class SearchHandler extends AbstractGenericHandler<HttpObject, HttpReques
         return response;
     }
 
+    /**
+     * Creates a {@link StreamingSearchQueryResponse} whose streams are fed while the rest of the response arrives.
+     */
+    private CouchbaseResponse handleStreamingSearchQueryResponse(final ChannelHandlerContext ctx) {
+        ResponseStatus status = ResponseStatusConverter.fromHttp(responseHeader.getStatus().code());
+        Scheduler scheduler = env().scheduler();
+        long ttl = env().autoreleaseAfter();
+        searchHitObservable = UnicastAutoReleaseSubject.create(ttl, TimeUnit.MILLISECONDS, scheduler);
+        Observable<ByteBuf> hits;
+        if (rowBufferSize > 0) {
+            // the subject buffers on its own and counts what reached the subscriber
+            hits = searchHitObservable.withDemandTracking(rowBufferSize, new AutoReadDemand(ctx.channel()))
+                .observeOnTrackingDemand(scheduler);
+        } else {
+            hits = searchHitObservable.onBackpressureBuffer().observeOn(scheduler);
+        }
+        searchMetaObservable = UnicastAutoReleaseSubject.create(ttl, TimeUnit.MILLISECONDS, scheduler);
+        searchHitObservable.withTraceIdentifier("searchHit");
+        searchMetaObservable.withTraceIdentifier("searchMeta");
+        searchParsingState = SEARCH_STATE_INITIAL;
+
+        return new StreamingSearchQueryResponse(
+            hits,
+            searchMetaObservable.onBackpressureBuffer().observeOn(scheduler),
+            currentRequest(),
+            status
+        );
+    }
+
+    /**
+     * Parses as much of a streaming search response as possible.
+     *
+     * The top level fields are walked one by one: the elements of the hits array are emitted as they complete,
+     * every other field is copied into the meta object (so the order of the fields does not matter).
+     */
+    private void parseSearchResponse(final boolean lastChunk) {
+        boolean progress = true;
+        while (progress) {
+            switch (searchParsingState) {
+                case SEARCH_STATE_INITIAL:
+                    progress = parseSearchStart();
+                    break;
+                case SEARCH_STATE_FIELD:
+                    progress = parseSearchField();
+                    break;
+                case SEARCH_STATE_VALUE:
+                    progress = parseSearchValue();
+                    break;
+                case SEARCH_STATE_HITS:
+                    progress = parseSearchHits();
+                    break;
+                default:
+                    progress = false;
+            }
+        }
+
+        if (lastChunk) {
+            finishSearch();
+        } else if (searchParsingState != SEARCH_STATE_RAW) {
+            responseContent.discardSomeReadBytes();
+        }
+    }
+
+    private boolean parseSearchStart() {
+        int start = skipSearchSeparators();
+        if (start < 0) {
+            return false;
+        }
+        if (responseContent.getByte(start) == '{') {
+            responseContent.readerIndex(start + 1);
+            searchMeta = responseContent.alloc().buffer();
+            searchMeta.writeByte('{');
+            searchParsingState = SEARCH_STATE_FIELD;
+        } else {
+            // not a JSON object (like some errors), so it is passed through as a whole
+            searchParsingState = SEARCH_STATE_RAW;
+        }
+        return true;
+    }
+
+    private boolean parseSearchField() {
+        int start = skipSearchSeparators();
+        if (start < 0) {
+            return false;
+        }
+        byte first = responseContent.getByte(start);
+        if (first == '}') {
+            responseContent.readerIndex(start + 1);
+            searchParsingState = SEARCH_STATE_DONE;
+            return false;
+        } else if (first != '"') {
+            throw new IllegalStateException("Expected a field name in search response at "
+                + responseContent.toString(start, responseContent.writerIndex() - start, CHARSET));
+        }
+
+        int nameEnd = responseContent.indexOf(start + 1, responseContent.writerIndex(), (byte) '"');
+        if (nameEnd < 0) {
+            return false;
+        }
+        int colon = responseContent.indexOf(nameEnd, responseContent.writerIndex(), (byte) ':');
+        if (colon < 0) {
+            return false;
+        }
+        int valueStart = responseContent.forEachByte(colon + 1, responseContent.writerIndex() - colon - 1,
+            SKIP_WHITESPACE);
+        if (valueStart < 0) {
+            return false;
+        }
+
+        searchField = responseContent.toString(start + 1, nameEnd - start - 1, CHARSET);
+        responseContent.readerIndex(valueStart);
+        if ("hits".equals(searchField) && responseContent.getByte(valueStart) == '[') {
+            responseContent.skipBytes(1);
+            searchParsingState = SEARCH_STATE_HITS;
+        } else {
+            searchParsingState = SEARCH_STATE_VALUE;
+        }
+        return true;
+    }
+
+    private boolean parseSearchValue() {
+        int start = responseContent.readerIndex();
+        byte first = responseContent.getByte(start);
+        int end;
+        if (first == '{') {
+            end = objectScanner.find(responseContent);
+        } else if (first == '[') {
+            end = arrayScanner.find(responseContent);
+        } else if (first == '"') {
+            end = findStringEnd();
+        } else {
+            end = responseContent.forEachByte(FIND_SCALAR_END) - 1;
+        }
+        if (end < 0) {
+            return false;
+        }
+
+        if (searchMeta.writerIndex() > 1) {
+            searchMeta.writeByte(',');
+        }
+        searchMeta.writeByte('"');
+        searchMeta.writeBytes(searchField.getBytes(CHARSET));
+        searchMeta.writeByte('"');
+        searchMeta.writeByte(':');
+        searchMeta.writeBytes(responseContent, start, end - start + 1);
+        responseContent.readerIndex(end + 1);
+        searchParsingState = SEARCH_STATE_FIELD;
+        return true;
+    }
+
+    private boolean parseSearchHits() {
+        int start = skipSearchSeparators();
+        if (start < 0) {
+            return false;
+        }
+        byte first = responseContent.getByte(start);
+        if (first == ']') {
+            responseContent.readerIndex(start + 1);
+            searchParsingState = SEARCH_STATE_FIELD;
+            return true;
+        } else if (first != '{') {
+            throw new IllegalStateException("Expected a hit in search response at "
+                + responseContent.toString(start, responseContent.writerIndex() - start, CHARSET));
+        }
+
+        responseContent.readerIndex(start);
+        int end = objectScanner.find(responseContent);
+        if (end < 0) {
+            return false;
+        }
+        searchHitObservable.onNext(ResponseContents.extract(responseContent, start, end - start + 1));
+        responseContent.readerIndex(end + 1);
+        return true;
+    }
+
+    /**
+     * Emits the meta object and completes the streams once the last chunk has been parsed.
+     */
+    private void finishSearch() {
+        if (searchParsingState == SEARCH_STATE_RAW || searchParsingState == SEARCH_STATE_INITIAL) {
+            ByteBuf body = responseContent.isReadable()
+                ? ResponseContents.extract(responseContent, responseContent.readerIndex(),
+                    responseContent.readableBytes())
+                : Unpooled.copiedBuffer(responseHeader.getStatus().reasonPhrase(), CHARSET);
+            searchMetaObservable.onNext(body);
+        } else {
+            searchMeta.writeByte('}');
+            searchMetaObservable.onNext(searchMeta);
+            searchMeta = null;
+        }
+        searchHitObservable.onCompleted();
+        searchMetaObservable.onCompleted();
+        cleanupSearchStates();
+    }
+
+    /**
+     * Skips whitespace and commas from the reader index on.
+     *
+     * @return the absolute index of the next other byte, or -1 if more data is needed.
+     */
+    private int skipSearchSeparators() {
+        int next = responseContent.forEachByte(SKIP_SEPARATORS);
+        if (next < 0) {
+            responseContent.readerIndex(responseContent.writerIndex());
+        }
+        return next;
+    }
+
+    /**
+     * Finds the closing quote of the string value whose opening quote is at the reader index.
+     *
+     * Like the {@link ClosingPositionScanner}, it continues where the last call stopped, so a long string split
+     * across many chunks is only scanned once.
+     *
+     * @return the absolute index of the closing quote or -1 if more data is needed.
+     */
+    private int findStringEnd() {
+        int remaining = responseContent.readableBytes() - 1;
+        int end = ResponseContents.forEachByte(responseContent, responseContent.readerIndex() + 1 + stringScanned,
+            remaining - stringScanned, stringEndProcessor);
+        if (end < 0) {
+            stringScanned = remaining;
+        } else {
+            resetStringScan();
+        }
+        return end;
+    }
+
+    private void resetStringScan() {
+        stringScanned = 0;
+        stringEscaped = false;
+    }
+
+    @Override
+    protected void discardResponse(final CouchbaseResponse response) {
+        if (response instanceof StreamingSearchQueryResponse) {
+            StreamingSearchQueryResponse searchResponse = (StreamingSearchQueryResponse) response;
+            discardContent(searchResponse.hits());
+            discardContent(searchResponse.meta());
+        } else {
+            super.discardResponse(response);
+        }
+    }
+
+    private void cleanupSearchStates() {
+        finishedDecoding();
+        objectScanner.reset();
+        arrayScanner.reset();
+        resetStringScan();
+        searchHitObservable = null;
+        searchMetaObservable = null;
+        if (searchMeta != null) {
+            searchMeta.release();
+            searchMeta = null;
+        }
+        searchField = null;
+        searchParsingState = SEARCH_STATE_INITIAL;
+    }
+
+    @Override
+    public void handlerRemoved(final ChannelHandlerContext ctx) throws Exception {
+        if (searchHitObservable != null) {
+            searchHitObservable.onCompleted();
+        }
+        if (searchMetaObservable != null) {
+            searchMetaObservable.onCompleted();
+        }
+        cleanupSearchStates();
+        if (responseContent != null && responseContent.refCnt() > 0) {
+            responseContent.release();
+        }
+        super.handlerRemoved(ctx);
+    }
+
     @Override
     protected ServiceType serviceType() {
         return ServiceType.SEARCH;
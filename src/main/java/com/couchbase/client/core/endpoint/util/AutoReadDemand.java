@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.util;
+
+import io.netty.channel.Channel;
+import rx.functions.Action1;
+
+/**
+ * Pauses and resumes reading from a {@link Channel} depending on the demand signalled by the consumer of a
+ * streamed response, see
+ * {@link com.couchbase.client.core.utils.UnicastAutoReleaseSubject#withDemandTracking(int, Action1)}.
+ *
+ * Once auto read is turned off, no more data is read from the socket (and as a result the server eventually
+ * stops sending because the TCP window fills up) until it is turned on again. This is safe to call from any
+ * thread, resuming triggers a read on the event loop of the channel.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class AutoReadDemand implements Action1<Boolean> {
+
+    private final Channel channel;
+
+    /**
+     * Creates a new {@link AutoReadDemand} for the given channel.
+     *
+     * @param channel the channel to pause and resume.
+     */
+    public AutoReadDemand(final Channel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void call(final Boolean demand) {
+        channel.config().setAutoRead(demand);
+    }
+}
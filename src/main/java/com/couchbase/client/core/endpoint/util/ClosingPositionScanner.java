@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
+
+/**
+ * A resumable variant of the {@link ClosingPositionBufProcessor} which finds the closing position of a JSON section
+ * in a buffer that is filled chunk by chunk.
+ *
+ * The {@link ClosingPositionBufProcessor} needs to be recreated and applied from the reader index every time new
+ * data arrives, so a section which is split across many chunks is scanned over and over again. This scanner instead
+ * keeps its state (nesting depth, being inside a string or after an escape character) and the number of bytes it
+ * has already inspected between calls to {@link #find(ByteBuf)}, so every byte is only inspected once.
+ *
+ * The scan position is kept relative to the reader index, so it survives discarding read bytes, but not moving the
+ * reader index itself. Once a closing position has been found the scanner starts over for the next section; if the
+ * caller moves the reader index before that (for example because it moves on to another part of the response)
+ * it needs to {@link #reset()} the scanner.
+ *
+ * Bytes which are part of a JSON string are ignored once the section has been opened. An instance is meant to be
+ * owned by a single handler and is not thread safe.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class ClosingPositionScanner implements ByteBufProcessor {
+
+    /**
+     * The open character to search for.
+     */
+    private final byte openingChar;
+
+    /**
+     * The close character to search for.
+     */
+    private final byte closingChar;
+
+    /**
+     * The number of open characters found so far.
+     */
+    private int openCount;
+
+    /**
+     * If the last inspected byte is inside of a JSON string.
+     */
+    private boolean inString;
+
+    /**
+     * If the last inspected byte is an (unescaped) backslash inside of a JSON string.
+     */
+    private boolean escaped;
+
+    /**
+     * The number of bytes already inspected, relative to the reader index.
+     */
+    private int scanned;
+
+    /**
+     * @param openingChar the opening section character (used to detect a sub-section).
+     * @param closingChar the closing section character to search for.
+     */
+    public ClosingPositionScanner(char openingChar, char closingChar) {
+        if (openingChar == closingChar) {
+            throw new IllegalArgumentException("only asymmetric section enclosing characters are supported");
+        }
+        this.openingChar = (byte) openingChar;
+        this.closingChar = (byte) closingChar;
+    }
+
+    /**
+     * Continues the search for the closing position of the section starting at (or after) the reader index
+     * of the buffer, only inspecting bytes which have been added since the last call.
+     *
+     * @param buf the buffer to search in.
+     * @return the absolute position of the closing character or -1 if not found (yet).
+     */
+    public int find(final ByteBuf buf) {
+        int readable = buf.readableBytes();
+        if (scanned > readable) {
+            reset();
+        }
+
+        int from = buf.readerIndex() + scanned;
+        int closingPos = ResponseContents.forEachByte(buf, from, readable - scanned, this);
+        if (closingPos < 0) {
+            scanned = readable;
+        } else {
+            reset();
+        }
+        return closingPos;
+    }
+
+    /**
+     * Forgets all state, the next call to {@link #find(ByteBuf)} starts from the reader index again.
+     */
+    public void reset() {
+        openCount = 0;
+        inString = false;
+        escaped = false;
+        scanned = 0;
+    }
+
+    @Override
+    public boolean process(final byte current) throws Exception {
+        if (openCount > 0) {
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (current == '\\') {
+                    escaped = true;
+                } else if (current == '"') {
+                    inString = false;
+                }
+                return true;
+            } else if (current == '"') {
+                inString = true;
+                return true;
+            }
+        }
+
+        if (current == openingChar) {
+            openCount++;
+        } else if (current == closingChar && openCount > 0) {
+            openCount--;
+            if (openCount == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufProcessor;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper methods to accumulate streamed HTTP response content and to extract parts (like rows) out of it.
+ *
+ * Depending on the configuration the content is either copied into one contiguous buffer and every extracted part
+ * is copied again, or the received chunks are kept as components of a {@link CompositeByteBuf} and parts are
+ * extracted as retained slices of those chunks. In the latter case no result byte is ever copied, but an extracted
+ * part keeps the chunk(s) it has been read from allocated until it is released. Since the slices only reference the
+ * chunks and not the composite buffer itself, the composite can be compacted (through discarding its read bytes)
+ * and reused independently of the extracted parts.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public final class ResponseContents {
+
+    private ResponseContents() {
+    }
+
+    /**
+     * Prepares the content buffer for a new response, reusing the current one if possible.
+     *
+     * @param content the current content buffer, may be null.
+     * @param alloc the allocator to use for a new buffer.
+     * @param zeroCopy if chunks should be kept as components instead of being copied.
+     * @return the empty content buffer to use.
+     */
+    public static ByteBuf prepare(final ByteBuf content, final ByteBufAllocator alloc, final boolean zeroCopy) {
+        if (content != null) {
+            if (!(content instanceof CompositeByteBuf)) {
+                content.clear();
+                return content;
+            }
+            content.release();
+        }
+        return zeroCopy ? alloc.compositeBuffer(Integer.MAX_VALUE) : alloc.buffer();
+    }
+
+    /**
+     * Appends a received chunk to the content.
+     *
+     * The chunk itself is not released, it is either copied or retained as a component.
+     *
+     * @param content the content buffer.
+     * @param chunk the chunk to append.
+     */
+    public static void append(final ByteBuf content, final ByteBuf chunk) {
+        if (content instanceof CompositeByteBuf) {
+            if (chunk.isReadable()) {
+                ((CompositeByteBuf) content).addComponent(true, chunk.retain());
+            }
+        } else {
+            content.writeBytes(chunk);
+        }
+    }
+
+    /**
+     * Extracts a part of the content into a buffer which is independent of subsequent modifications of the content
+     * and which needs to be released by its consumer.
+     *
+     * @param content the content buffer.
+     * @param index the absolute index where the part starts.
+     * @param length the length of the part.
+     * @return either a copy or a retained slice of the underlying chunks.
+     */
+    public static ByteBuf extract(final ByteBuf content, final int index, final int length) {
+        if (!(content instanceof CompositeByteBuf)) {
+            return content.copy(index, length);
+        }
+
+        if (length == 0) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        // CompositeByteBuf#decompose is not used on purpose, it returns wrong slices once the first component
+        // has been replaced by discarding some of its read bytes.
+        CompositeByteBuf composite = (CompositeByteBuf) content;
+        int componentIndex = composite.toComponentIndex(index);
+        int offset = index - composite.toByteIndex(componentIndex);
+        ByteBuf component = composite.internalComponent(componentIndex);
+        if (offset + length <= component.capacity()) {
+            return component.slice(offset, length).retain();
+        }
+
+        List<ByteBuf> slices = new ArrayList<ByteBuf>();
+        int remaining = length;
+        while (remaining > 0) {
+            component = composite.internalComponent(componentIndex++);
+            int sliceLength = Math.min(remaining, component.capacity() - offset);
+            slices.add(component.slice(offset, sliceLength).retain());
+            remaining -= sliceLength;
+            offset = 0;
+        }
+        return Unpooled.wrappedBuffer(slices.size(), slices.toArray(new ByteBuf[slices.size()]));
+    }
+
+    /**
+     * Applies the processor to the given range of the content like {@link ByteBuf#forEachByte(int, int,
+     * ByteBufProcessor)}, but iterates the components of a {@link CompositeByteBuf} directly instead of looking up
+     * the component for every single byte.
+     *
+     * @param content the content buffer.
+     * @param index the absolute index to start at.
+     * @param length the number of bytes to process.
+     * @param processor the processor to apply.
+     * @return the absolute index where the processor stopped or -1 if it processed all bytes.
+     */
+    public static int forEachByte(final ByteBuf content, final int index, final int length,
+        final ByteBufProcessor processor) {
+        if (!(content instanceof CompositeByteBuf)) {
+            return content.forEachByte(index, length, processor);
+        }
+        if (length == 0) {
+            return -1;
+        }
+
+        CompositeByteBuf composite = (CompositeByteBuf) content;
+        int end = index + length;
+        int from = index;
+        int componentIndex = composite.toComponentIndex(from);
+        while (from < end) {
+            int offset = composite.toByteIndex(componentIndex);
+            ByteBuf component = composite.internalComponent(componentIndex++);
+            int componentEnd = Math.min(end, offset + component.capacity());
+            int found = component.forEachByte(from - offset, componentEnd - from, processor);
+            if (found >= 0) {
+                return offset + found;
+            }
+            from = componentEnd;
+        }
+        return -1;
+    }
+}
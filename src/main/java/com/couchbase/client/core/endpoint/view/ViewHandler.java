@@ -20,6 +20,9 @@ import com.couchbase.client.core.endpoint.AbstractEndpoint;
 import com.couchbase.client.core.endpoint.AbstractGenericHandler;
 import com.couchbase.client.core.endpoint.ResponseStatusConverter;
 import com.couchbase.client.core.endpoint.util.ClosingPositionBufProcessor;
+import com.couchbase.client.core.endpoint.util.AutoReadDemand;
+import com.couchbase.client.core.endpoint.util.ClosingPositionScanner;
+import com.couchbase.client.core.endpoint.util.ResponseContents;
 import com.couchbase.client.core.message.AbstractCouchbaseRequest;
 import com.couchbase.client.core.message.AbstractCouchbaseResponse;
 import com.couchbase.client.core.message.CouchbaseRequest;
@@ -53,6 +56,7 @@ import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.util.CharsetUtil;
+import rx.Observable;
 import rx.Scheduler;
 import rx.subjects.AsyncSubject;
 
@@ -108,6 +112,21 @@ public class ViewHandler extends AbstractGenericHandler<HttpObject, HttpRequest,
      */
     private byte viewParsingState = QUERY_STATE_INITIAL;
 
+    /**
+     * Finds the end of rows across chunks without rescanning what has already been received.
+     */
+    private final ClosingPositionScanner rowScanner = new ClosingPositionScanner('{', '}');
+
+    /**
+     * If rows are emitted as retained slices of the received chunks instead of copies.
+     */
+    private final boolean zeroCopyRows;
+
+    /**
+     * The number of rows buffered for the subscriber before reading is paused, 0 if never paused.
+     */
+    private final int rowBufferSize;
+
     /**
      * Creates a new {@link ViewHandler} with the default queue for requests.
      *
@@ -117,6 +136,8 @@ public class ViewHandler extends AbstractGenericHandler<HttpObject, HttpRequest,
     public ViewHandler(AbstractEndpoint endpoint, RingBuffer<ResponseEvent> responseBuffer, boolean isTransient,
                        final boolean pipeline) {
         super(endpoint, responseBuffer, isTransient, pipeline);
+        zeroCopyRows = env() != null && env().zeroCopyRowsEnabled();
+        rowBufferSize = env() == null ? 0 : env().streamingRowBufferSize();
     }
 
     /**
@@ -129,6 +150,8 @@ public class ViewHandler extends AbstractGenericHandler<HttpObject, HttpRequest,
     ViewHandler(AbstractEndpoint endpoint, RingBuffer<ResponseEvent> responseBuffer, Queue<ViewRequest> queue,
                 boolean isTransient, final boolean pipeline) {
         super(endpoint, responseBuffer, queue, isTransient, pipeline);
+        zeroCopyRows = env() != null && env().zeroCopyRowsEnabled();
+        rowBufferSize = env() == null ? 0 : env().streamingRowBufferSize();
     }
 
     @Override
@@ -246,12 +269,8 @@ public class ViewHandler extends AbstractGenericHandler<HttpObject, HttpRequest,
 
         if (msg instanceof HttpResponse) {
             responseHeader = (HttpResponse) msg;
-
-            if (responseContent != null) {
-                responseContent.clear();
-            } else {
-                responseContent = ctx.alloc().buffer();
-            }
+            rowScanner.reset();
+            responseContent = ResponseContents.prepare(responseContent, ctx.alloc(), zeroCopyRows);
         }
 
         if (request instanceof KeepAliveRequest) {
@@ -259,11 +278,11 @@ public class ViewHandler extends AbstractGenericHandler<HttpObject, HttpRequest,
             responseContent.clear();
             responseContent.discardReadBytes();
         } else if (msg instanceof HttpContent) {
-            responseContent.writeBytes(((HttpContent) msg).content());
+            ResponseContents.append(responseContent, ((HttpContent) msg).content());
 
             if (currentRequest() instanceof ViewQueryRequest) {
                 if (viewRowObservable == null) {
-                    response = handleViewQueryResponse();
+                    response = handleViewQueryResponse(ctx);
                 }
 
                 parseQueryResponse(msg instanceof LastHttpContent);
@@ -317,13 +336,21 @@ public class ViewHandler extends AbstractGenericHandler<HttpObject, HttpRequest,
      *
      * @return the initial response.
      */
-    private CouchbaseResponse handleViewQueryResponse() {
+    private CouchbaseResponse handleViewQueryResponse(ChannelHandlerContext ctx) {
         int code = responseHeader.getStatus().code();
         String phrase = responseHeader.getStatus().reasonPhrase();
         ResponseStatus status = ResponseStatusConverter.fromHttp(responseHeader.getStatus().code());
         Scheduler scheduler = env().scheduler();
         long ttl = env().autoreleaseAfter();
         viewRowObservable = UnicastAutoReleaseSubject.create(ttl, TimeUnit.MILLISECONDS, scheduler);
+        Observable<ByteBuf> rows;
+        if (rowBufferSize > 0) {
+            // the subject buffers on its own and counts what reached the subscriber
+            rows = viewRowObservable.withDemandTracking(rowBufferSize, new AutoReadDemand(ctx.channel()))
+                .observeOnTrackingDemand(scheduler);
+        } else {
+            rows = viewRowObservable.onBackpressureBuffer().observeOn(scheduler);
+        }
         viewInfoObservable = UnicastAutoReleaseSubject.create(ttl, TimeUnit.MILLISECONDS, scheduler);
         viewErrorObservable = AsyncSubject.create();
 
@@ -333,7 +360,7 @@ public class ViewHandler extends AbstractGenericHandler<HttpObject, HttpRequest,
         viewInfoObservable.withTraceIdentifier("viewInfo");
 
         return new ViewQueryResponse(
-            viewRowObservable.onBackpressureBuffer().observeOn(scheduler),
+            rows,
             viewInfoObservable.onBackpressureBuffer().observeOn(scheduler),
             viewErrorObservable.observeOn(scheduler),
             code,
@@ -370,11 +397,24 @@ public class ViewHandler extends AbstractGenericHandler<HttpObject, HttpRequest,
         }
     }
 
+    @Override
+    protected void discardResponse(final CouchbaseResponse response) {
+        if (response instanceof ViewQueryResponse) {
+            ViewQueryResponse viewResponse = (ViewQueryResponse) response;
+            discardContent(viewResponse.rows());
+            discardContent(viewResponse.info());
+            discardContent(viewResponse.error());
+        } else {
+            super.discardResponse(response);
+        }
+    }
+
     /**
      * Clean up the query states after all rows have been consumed.
      */
     private void cleanupViewStates() {
         finishedDecoding();
+        rowScanner.reset();
         viewInfoObservable = null;
         viewRowObservable = null;
         viewErrorObservable = null;
@@ -474,23 +514,24 @@ public class ViewHandler extends AbstractGenericHandler<HttpObject, HttpRequest,
 
             if (errorBlockPosition > 0 && errorBlockPosition < openBracketPos) {
                 responseContent.readerIndex(errorBlockPosition + responseContent.readerIndex());
+                rowScanner.reset();
                 viewRowObservable.onCompleted();
                 viewParsingState = QUERY_STATE_ERROR;
                 return;
             }
 
-            int closeBracketPos = findSectionClosingPosition(responseContent, '{', '}');
+            int closeBracketPos = rowScanner.find(responseContent);
             if (closeBracketPos == -1) {
                 break;
             }
 
             int from = responseContent.readerIndex() + openBracketPos;
             int to = closeBracketPos - openBracketPos - responseContent.readerIndex() + 1;
-            viewRowObservable.onNext(responseContent.slice(from, to).copy());
+            viewRowObservable.onNext(ResponseContents.extract(responseContent, from, to));
             responseContent.readerIndex(closeBracketPos);
-            responseContent.discardReadBytes();
         }
-
+        // dropping read components rebuilds the component offsets, so only do it once per chunk
+        responseContent.discardSomeReadBytes();
 
         if (last) {
             viewRowObservable.onCompleted();
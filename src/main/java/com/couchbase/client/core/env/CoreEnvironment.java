@@ -17,13 +17,17 @@ package com.couchbase.client.core.env;
 
 import com.couchbase.client.core.annotations.InterfaceAudience;
 import com.couchbase.client.core.annotations.InterfaceStability;
+import com.couchbase.client.core.endpoint.SSLEngineFactory;
 import com.couchbase.client.core.event.EventBus;
+import com.couchbase.client.core.message.CouchbaseRequest;
 import com.couchbase.client.core.message.observe.Observe;
 import com.couchbase.client.core.metrics.MetricsCollector;
 import com.couchbase.client.core.metrics.NetworkLatencyMetricsCollector;
 import com.couchbase.client.core.retry.RetryStrategy;
+import com.couchbase.client.core.security.sasl.SaltedPasswordCache;
 import com.couchbase.client.core.time.Delay;
 import io.netty.channel.EventLoopGroup;
+import io.netty.util.Timer;
 import rx.Observable;
 import rx.Scheduler;
 
@@ -241,6 +245,15 @@ public interface CoreEnvironment extends SecureEnvironment, ConfigParserEnvironm
      */
     int requestBufferSize();
 
+    /**
+     * Returns the number of request ringbuffers, each drained by its own dispatch thread.
+     *
+     * @return the number of request ringbuffers.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    int requestBufferCount();
+
     /**
      * Returns the size of the response ringbuffer.
      *
@@ -425,6 +438,133 @@ public interface CoreEnvironment extends SecureEnvironment, ConfigParserEnvironm
      */
     boolean callbacksOnIoPool();
 
+    /**
+     * Returns the number of threads completing response {@link Observable}s through a {@link ResponseCompletionPool}.
+     *
+     * If 0 (the default), responses are completed on the {@link #scheduler()} instead.
+     *
+     * @return the number of completion threads, 0 if disabled.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    int completionPoolSize();
+
+    /**
+     * Returns true if streamed query and view rows (and search hits) are emitted as retained slices of the received
+     * HTTP chunks instead of copies.
+     *
+     * @return true if zero copy rows are enabled.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    boolean zeroCopyRowsEnabled();
+
+    /**
+     * Returns the number of streamed query and view rows (and search hits) buffered for a subscriber before the
+     * endpoint stops reading from its socket, or 0 if reading is never paused.
+     *
+     * @return the streaming row buffer size.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    int streamingRowBufferSize();
+
+    /**
+     * Returns true if document values are compressed with snappy when the server supports it.
+     *
+     * @return true if compression is enabled.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    boolean compressionEnabled();
+
+    /**
+     * Returns the minimum size in bytes a document value needs to have before compression is attempted.
+     *
+     * @return the minimum size for compression.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    int compressionMinSize();
+
+    /**
+     * Returns the ratio of compressed to original size below which a compressed document value is sent.
+     *
+     * @return the minimum compression ratio.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    double compressionMinRatio();
+
+    /**
+     * Returns the percentile of recent get latencies after which a hedged get also asks the replicas.
+     *
+     * @return the hedged get percentile.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    double hedgedGetPercentile();
+
+    /**
+     * Returns the minimum delay in milliseconds before a hedged get also asks the replicas, which is also used as
+     * long as no get latencies have been recorded yet.
+     *
+     * @return the minimum hedged get delay.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    long hedgedGetMinDelay();
+
+    /**
+     * Returns the number of SCRAM salted passwords kept by the {@link #saltedPasswordCache()}.
+     *
+     * @return the salted password cache size, 0 if disabled.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    int saltedPasswordCacheSize();
+
+    /**
+     * Returns the {@link ResponseCompletionPool} if {@link #completionPoolSize()} is greater than 0.
+     *
+     * @return the completion pool or null if disabled.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    ResponseCompletionPool responseCompletionPool();
+
+    /**
+     * Returns the shared {@link Timer} which fails written requests once their
+     * {@link CouchbaseRequest#deadline()} has passed without a response.
+     *
+     * @return the request timer.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    Timer requestTimer();
+
+    /**
+     * Returns the {@link SSLEngineFactory} shared by all endpoints if {@link #sslEnabled()} is set.
+     *
+     * Sharing the factory means the keystore is only loaded once per environment and TLS sessions can be resumed
+     * on reconnect. Call {@link SSLEngineFactory#reload()} to pick up a changed keystore.
+     *
+     * @return the shared engine factory or null if SSL is disabled.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    SSLEngineFactory sslEngineFactory();
+
+    /**
+     * Returns the {@link SaltedPasswordCache} shared by all endpoints if {@link #saltedPasswordCacheSize()} is
+     * greater than 0.
+     *
+     * @return the salted password cache or null if disabled.
+     */
+    @InterfaceStability.Experimental
+    @InterfaceAudience.Public
+    SaltedPasswordCache saltedPasswordCache();
+
     /**
      * @return Default DCP connection name.
      */
@@ -18,6 +18,7 @@ package com.couchbase.client.core.env;
 import com.couchbase.client.core.ClusterFacade;
 import com.couchbase.client.core.annotations.InterfaceAudience;
 import com.couchbase.client.core.annotations.InterfaceStability;
+import com.couchbase.client.core.endpoint.SSLEngineFactory;
 import com.couchbase.client.core.env.resources.IoPoolShutdownHook;
 import com.couchbase.client.core.env.resources.NettyShutdownHook;
 import com.couchbase.client.core.env.resources.NoOpShutdownHook;
@@ -43,11 +44,14 @@ import com.couchbase.client.core.node.DefaultMemcachedHashingStrategy;
 import com.couchbase.client.core.node.MemcachedHashingStrategy;
 import com.couchbase.client.core.retry.BestEffortRetryStrategy;
 import com.couchbase.client.core.retry.RetryStrategy;
+import com.couchbase.client.core.security.sasl.SaltedPasswordCache;
 import com.couchbase.client.core.time.Delay;
 import com.lmax.disruptor.BlockingWaitStrategy;
 import com.lmax.disruptor.WaitStrategy;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import rx.Observable;
 import rx.Scheduler;
@@ -59,6 +63,7 @@ import rx.functions.Func2;
 import com.couchbase.client.core.utils.Blocking;
 
 import java.security.KeyStore;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
@@ -104,6 +109,17 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
     public static final int SOCKET_CONNECT_TIMEOUT = 1000;
     public static final boolean CALLBACKS_ON_IO_POOL = false;
     public static final long DISCONNECT_TIMEOUT = TimeUnit.SECONDS.toMillis(25);
+    public static final double COMPRESSION_MIN_RATIO = 0.83;
+    public static final int COMPRESSION_MIN_SIZE = 32;
+    public static final double HEDGED_GET_PERCENTILE = 99.0;
+    public static final long HEDGED_GET_MIN_DELAY = 10;
+    public static final int SALTED_PASSWORD_CACHE_SIZE = 64;
+    public static final boolean COMPRESSION_ENABLED = false;
+    public static final int STREAMING_ROW_BUFFER_SIZE = 0;
+    public static final boolean ZERO_COPY_ROWS_ENABLED = false;
+    public static final int COMPLETION_POOL_SIZE = 0;
+    public static final long REQUEST_TIMER_TICK_DURATION = 10;
+    public static final int REQUEST_BUFFER_COUNT = 1;
     public static final MemcachedHashingStrategy MEMCACHED_HASHING_STRATEGY =
         DefaultMemcachedHashingStrategy.INSTANCE;
 
@@ -191,6 +207,7 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
     private final int computationPoolSize;
     private final int responseBufferSize;
     private final int requestBufferSize;
+    private final int requestBufferCount;
     private final int dcpConnectionBufferSize;
     private final double dcpConnectionBufferAckThreshold;
     private final String dcpConnectionName;
@@ -212,6 +229,15 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
     private final boolean mutationTokensEnabled;
     private final int socketConnectTimeout;
     private final boolean callbacksOnIoPool;
+    private final int completionPoolSize;
+    private final boolean zeroCopyRowsEnabled;
+    private final int streamingRowBufferSize;
+    private final boolean compressionEnabled;
+    private final int compressionMinSize;
+    private final double compressionMinRatio;
+    private final double hedgedGetPercentile;
+    private final long hedgedGetMinDelay;
+    private final int saltedPasswordCacheSize;
     private final long disconnectTimeout;
     private final WaitStrategyFactory requestBufferWaitStrategy;
     private final MemcachedHashingStrategy memcachedHashingStrategy;
@@ -240,6 +266,10 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
 
     private final ShutdownHook nettyShutdownHook;
     private final ShutdownHook coreSchedulerShutdownHook;
+    private final ResponseCompletionPool responseCompletionPool;
+    private final HashedWheelTimer requestTimer;
+    private final SSLEngineFactory sslEngineFactory;
+    private final SaltedPasswordCache saltedPasswordCache;
 
     private final MetricsCollector runtimeMetricsCollector;
     private final NetworkLatencyMetricsCollector networkLatencyMetricsCollector;
@@ -267,6 +297,7 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
         int computationPoolSize = intPropertyOr("computationPoolSize", builder.computationPoolSize);
         responseBufferSize = intPropertyOr("responseBufferSize", builder.responseBufferSize);
         requestBufferSize = intPropertyOr("requestBufferSize", builder.requestBufferSize);
+        int requestBufferCount = intPropertyOr("requestBufferCount", builder.requestBufferCount);
         dcpConnectionBufferSize = intPropertyOr("dcpConnectionBufferSize", builder.dcpConnectionBufferSize);
         dcpConnectionBufferAckThreshold = doublePropertyOr("dcpConnectionBufferAckThreshold", builder.dcpConnectionBufferAckThreshold);
         dcpConnectionName = stringPropertyOr("dcpConnectionName", builder.dcpConnectionName);
@@ -288,6 +319,15 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
         mutationTokensEnabled = booleanPropertyOr("mutationTokensEnabled", builder.mutationTokensEnabled);
         socketConnectTimeout = intPropertyOr("socketConnectTimeout", builder.socketConnectTimeout);
         callbacksOnIoPool = booleanPropertyOr("callbacksOnIoPool", builder.callbacksOnIoPool);
+        completionPoolSize = intPropertyOr("completionPoolSize", builder.completionPoolSize);
+        zeroCopyRowsEnabled = booleanPropertyOr("zeroCopyRowsEnabled", builder.zeroCopyRowsEnabled);
+        streamingRowBufferSize = intPropertyOr("streamingRowBufferSize", builder.streamingRowBufferSize);
+        compressionEnabled = booleanPropertyOr("compressionEnabled", builder.compressionEnabled);
+        compressionMinSize = intPropertyOr("compressionMinSize", builder.compressionMinSize);
+        compressionMinRatio = doublePropertyOr("compressionMinRatio", builder.compressionMinRatio);
+        hedgedGetPercentile = doublePropertyOr("hedgedGetPercentile", builder.hedgedGetPercentile);
+        hedgedGetMinDelay = longPropertyOr("hedgedGetMinDelay", builder.hedgedGetMinDelay);
+        saltedPasswordCacheSize = intPropertyOr("saltedPasswordCacheSize", builder.saltedPasswordCacheSize);
         disconnectTimeout = longPropertyOr("disconnectTimeout", builder.disconnectTimeout);
         sslKeystore = builder.sslKeystore;
         memcachedHashingStrategy = builder.memcachedHashingStrategy;
@@ -299,6 +339,13 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
             this.ioPoolSize = ioPoolSize;
         }
 
+        if (requestBufferCount < 1) {
+            LOGGER.info("requestBufferCount is less than 1 ({}), setting to: 1", requestBufferCount);
+            this.requestBufferCount = 1;
+        } else {
+            this.requestBufferCount = requestBufferCount;
+        }
+
         if (computationPoolSize < MIN_POOL_SIZE) {
             LOGGER.info("computationPoolSize is less than {} ({}), setting to: {}", MIN_POOL_SIZE, computationPoolSize,
                 MIN_POOL_SIZE);
@@ -370,6 +417,13 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
                     ? new NoOpShutdownHook()
                     : builder.schedulerShutdownHook;
         }
+        this.responseCompletionPool = completionPoolSize > 0 ? new ResponseCompletionPool(completionPoolSize) : null;
+        // the worker thread of the timer is only started once the first request with a deadline is written
+        this.requestTimer = new HashedWheelTimer(new DefaultThreadFactory("cb-timer", true),
+            REQUEST_TIMER_TICK_DURATION, TimeUnit.MILLISECONDS);
+        // the keystore is only loaded once the first endpoint connects
+        this.sslEngineFactory = sslEnabled ? new SSLEngineFactory(this) : null;
+        this.saltedPasswordCache = saltedPasswordCacheSize > 0 ? new SaltedPasswordCache(saltedPasswordCacheSize) : null;
         this.eventBus = builder.eventBus == null ? new DefaultEventBus(coreScheduler) : builder.eventBus;
         this.runtimeMetricsCollector = new RuntimeMetricsCollector(
             eventBus,
@@ -510,7 +564,7 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
             metricsCollectorSubscription.unsubscribe();
         }
 
-        Observable<Boolean> result = Observable.merge(
+        Observable<Boolean> result = Observable.merge(Arrays.asList(
                 wrapShutdown(ioPoolShutdownHook.shutdown(), "IoPool"),
                 wrapBestEffortShutdown(nettyShutdownHook.shutdown(), "Netty"),
                 wrapShutdown(kvIoPoolShutdownHook.shutdown(), "kvIoPool"),
@@ -518,8 +572,11 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
                 wrapShutdown(queryIoPoolShutdownHook.shutdown(), "queryIoPool"),
                 wrapShutdown(searchIoPoolShutdownHook.shutdown(), "searchIoPool"),
                 wrapShutdown(coreSchedulerShutdownHook.shutdown(), "Core Scheduler"),
+                wrapShutdown(responseCompletionPool == null
+                    ? Observable.just(true) : responseCompletionPool.shutdown(), "Response Completion Pool"),
+                wrapShutdown(Observable.just(stopRequestTimer()), "Request Timer"),
                 wrapShutdown(Observable.just(runtimeMetricsCollector.shutdown()), "Runtime Metrics Collector"),
-                wrapShutdown(Observable.just(networkLatencyMetricsCollector.shutdown()), "Latency Metrics Collector"))
+                wrapShutdown(Observable.just(networkLatencyMetricsCollector.shutdown()), "Latency Metrics Collector")))
                 .reduce(true,
                         new Func2<Boolean, ShutdownStatus, Boolean>() {
                             @Override
@@ -665,6 +722,11 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
         return requestBufferSize;
     }
 
+    @Override
+    public int requestBufferCount() {
+        return requestBufferCount;
+    }
+
     @Override
     public int responseBufferSize() {
         return responseBufferSize;
@@ -801,6 +863,81 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
         return callbacksOnIoPool;
     }
 
+    @Override
+    public int completionPoolSize() {
+        return completionPoolSize;
+    }
+
+    @Override
+    public boolean zeroCopyRowsEnabled() {
+        return zeroCopyRowsEnabled;
+    }
+
+    @Override
+    public int streamingRowBufferSize() {
+        return streamingRowBufferSize;
+    }
+
+    @Override
+    public boolean compressionEnabled() {
+        return compressionEnabled;
+    }
+
+    @Override
+    public int compressionMinSize() {
+        return compressionMinSize;
+    }
+
+    @Override
+    public double compressionMinRatio() {
+        return compressionMinRatio;
+    }
+
+    @Override
+    public double hedgedGetPercentile() {
+        return hedgedGetPercentile;
+    }
+
+    @Override
+    public long hedgedGetMinDelay() {
+        return hedgedGetMinDelay;
+    }
+
+    @Override
+    public int saltedPasswordCacheSize() {
+        return saltedPasswordCacheSize;
+    }
+
+    @Override
+    public ResponseCompletionPool responseCompletionPool() {
+        return responseCompletionPool;
+    }
+
+    @Override
+    public Timer requestTimer() {
+        return requestTimer;
+    }
+
+    @Override
+    public SSLEngineFactory sslEngineFactory() {
+        return sslEngineFactory;
+    }
+
+    @Override
+    public SaltedPasswordCache saltedPasswordCache() {
+        return saltedPasswordCache;
+    }
+
+    /**
+     * Stops the request timer, requests which are still waiting for their deadline are not failed by it anymore.
+     *
+     * @return true once stopped.
+     */
+    private boolean stopRequestTimer() {
+        requestTimer.stop();
+        return true;
+    }
+
     @Override
     public long disconnectTimeout() {
         return disconnectTimeout;
@@ -879,6 +1016,7 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
         private int computationPoolSize = COMPUTATION_POOL_SIZE;
         private int responseBufferSize = RESPONSE_BUFFER_SIZE;
         private int requestBufferSize = REQUEST_BUFFER_SIZE;
+        private int requestBufferCount = REQUEST_BUFFER_COUNT;
         private int dcpConnectionBufferSize = DCP_CONNECTION_BUFFER_SIZE;
         private double dcpConnectionBufferAckThreshold = DCP_CONNECTION_BUFFER_ACK_THRESHOLD;
         private String dcpConnectionName = DCP_CONNECTION_NAME;
@@ -911,6 +1049,15 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
         private boolean mutationTokensEnabled = MUTATION_TOKENS_ENABLED;
         private int socketConnectTimeout = SOCKET_CONNECT_TIMEOUT;
         private boolean callbacksOnIoPool = CALLBACKS_ON_IO_POOL;
+        private int completionPoolSize = COMPLETION_POOL_SIZE;
+        private boolean zeroCopyRowsEnabled = ZERO_COPY_ROWS_ENABLED;
+        private int streamingRowBufferSize = STREAMING_ROW_BUFFER_SIZE;
+        private boolean compressionEnabled = COMPRESSION_ENABLED;
+        private int compressionMinSize = COMPRESSION_MIN_SIZE;
+        private double compressionMinRatio = COMPRESSION_MIN_RATIO;
+        private double hedgedGetPercentile = HEDGED_GET_PERCENTILE;
+        private long hedgedGetMinDelay = HEDGED_GET_MIN_DELAY;
+        private int saltedPasswordCacheSize = SALTED_PASSWORD_CACHE_SIZE;
         private long disconnectTimeout = DISCONNECT_TIMEOUT;
         private WaitStrategyFactory requestBufferWaitStrategy;
         private MemcachedHashingStrategy memcachedHashingStrategy = MEMCACHED_HASHING_STRATEGY;
@@ -1063,6 +1210,24 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
             return this;
         }
 
+        /**
+         * Sets the number of request RingBuffers and their dispatching threads
+         * (default value {@value #REQUEST_BUFFER_COUNT}).
+         *
+         * By default all requests are located and written to the network from a single thread. If this thread
+         * turns out to be the bottleneck, more RingBuffers can be configured. Requests for the same document key
+         * always go through the same RingBuffer, so their ordering is preserved. Each RingBuffer has the size
+         * configured through {@link #requestBufferSize(int)}.
+         *
+         * This is an advanced parameter that usually shouldn't need to be changed.
+         */
+        @InterfaceStability.Experimental
+        @InterfaceAudience.Public
+        public Builder requestBufferCount(final int requestBufferCount) {
+            this.requestBufferCount = requestBufferCount;
+            return this;
+        }
+
         /**
          * Sets the size of the RingBuffer structure that queues responses
          * (default value {@value #RESPONSE_BUFFER_SIZE}).
@@ -1437,6 +1602,120 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
             return this;
         }
 
+        /**
+         * Sets the number of threads completing response {@link Observable}s through a {@link ResponseCompletionPool}
+         * instead of scheduling every completion on the {@link #scheduler(Scheduler)} (default value 0, disabled).
+         *
+         * Responses of one endpoint are always completed on the same thread, in order. Note that this does not apply
+         * if {@link #callbacksOnIoPool(boolean)} is enabled.
+         */
+        @InterfaceStability.Experimental
+        @InterfaceAudience.Public
+        public Builder completionPoolSize(final int completionPoolSize) {
+            this.completionPoolSize = completionPoolSize;
+            return this;
+        }
+
+        /**
+         * Sets if streamed query and view rows (and search hits) should be emitted as retained slices of the received
+         * HTTP chunks instead of being copied out of the response content (default value false).
+         *
+         * This saves copying every result byte twice, but a row keeps the whole chunk (or chunks) it has been read from
+         * allocated until it is released.
+         */
+        @InterfaceStability.Experimental
+        @InterfaceAudience.Public
+        public Builder zeroCopyRowsEnabled(final boolean zeroCopyRowsEnabled) {
+            this.zeroCopyRowsEnabled = zeroCopyRowsEnabled;
+            return this;
+        }
+
+        /**
+         * Sets the number of streamed query and view rows (and search hits) which are buffered for a subscriber which
+         * did not request them yet before the endpoint stops reading from its socket (default value 0, never pause).
+         *
+         * Rows count as buffered until they reached the subscriber, including the ones prefetched on the way to it.
+         * The buffer can only exceed this size by the rows of the network chunk being decoded when reading pauses.
+         * Reading resumes once the subscriber requested enough rows to drain half of the buffer, so a result of any size
+         * is streamed through a bounded amount of memory. Note that a subscriber which never subscribes to the rows
+         * stalls the endpoint until the rows are auto released.
+         */
+        @InterfaceStability.Experimental
+        @InterfaceAudience.Public
+        public Builder streamingRowBufferSize(final int streamingRowBufferSize) {
+            this.streamingRowBufferSize = streamingRowBufferSize;
+            return this;
+        }
+
+        /**
+         * Sets if snappy compression of document values should be negotiated with the server (default value false).
+         *
+         * If the server supports it, stored values above {@link #compressionMinSize(int)} are sent compressed if they
+         * shrink below {@link #compressionMinRatio(double)} of their original size, and compressed values returned from
+         * the server are decompressed transparently.
+         */
+        @InterfaceStability.Experimental
+        @InterfaceAudience.Public
+        public Builder compressionEnabled(final boolean compressionEnabled) {
+            this.compressionEnabled = compressionEnabled;
+            return this;
+        }
+
+        /**
+         * Sets the minimum size in bytes a document value needs to have before compression is attempted
+         * (default value 32).
+         */
+        @InterfaceStability.Experimental
+        @InterfaceAudience.Public
+        public Builder compressionMinSize(final int compressionMinSize) {
+            this.compressionMinSize = compressionMinSize;
+            return this;
+        }
+
+        /**
+         * Sets the ratio of compressed to original size a document value needs to reach for it to be sent compressed
+         * (default value 0.83). Values which do not compress well enough are sent as-is.
+         */
+        @InterfaceStability.Experimental
+        @InterfaceAudience.Public
+        public Builder compressionMinRatio(final double compressionMinRatio) {
+            this.compressionMinRatio = compressionMinRatio;
+            return this;
+        }
+
+        /**
+         * Sets the percentile of the get latencies recorded by the {@link #networkLatencyMetricsCollectorConfig}
+         * during its last interval after which a hedged get also asks the replicas (default value 99.0).
+         */
+        @InterfaceStability.Experimental
+        @InterfaceAudience.Public
+        public Builder hedgedGetPercentile(final double hedgedGetPercentile) {
+            this.hedgedGetPercentile = hedgedGetPercentile;
+            return this;
+        }
+
+        /**
+         * Sets the minimum delay in milliseconds before a hedged get also asks the replicas (default value 10). It
+         * is used as the delay as long as no get latencies have been recorded.
+         */
+        @InterfaceStability.Experimental
+        @InterfaceAudience.Public
+        public Builder hedgedGetMinDelay(final long hedgedGetMinDelay) {
+            this.hedgedGetMinDelay = hedgedGetMinDelay;
+            return this;
+        }
+
+        /**
+         * Sets the number of SCRAM salted passwords kept, so that reconnects to nodes with the same salt can skip
+         * the costly password derivation (default value 64). Set to 0 to disable the cache.
+         */
+        @InterfaceStability.Experimental
+        @InterfaceAudience.Public
+        public Builder saltedPasswordCacheSize(final int saltedPasswordCacheSize) {
+            this.saltedPasswordCacheSize = saltedPasswordCacheSize;
+            return this;
+        }
+
         /**
          * Sets a custom disconnect timeout.
          *
@@ -1536,6 +1815,7 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
         sb.append(", computationPoolSize=").append(computationPoolSize);
         sb.append(", responseBufferSize=").append(responseBufferSize);
         sb.append(", requestBufferSize=").append(requestBufferSize);
+        sb.append(", requestBufferCount=").append(requestBufferCount);
         sb.append(", kvServiceEndpoints=").append(kvServiceEndpoints);
         sb.append(", viewServiceEndpoints=").append(viewServiceEndpoints);
         sb.append(", queryServiceEndpoints=").append(queryServiceEndpoints);
@@ -1600,6 +1880,15 @@ public class DefaultCoreEnvironment implements CoreEnvironment {
         sb.append(", dcpConnectionBufferAckThreshold=").append(dcpConnectionBufferAckThreshold);
         sb.append(", dcpConnectionName=").append(dcpConnectionName);
         sb.append(", callbacksOnIoPool=").append(callbacksOnIoPool);
+        sb.append(", completionPoolSize=").append(completionPoolSize);
+        sb.append(", zeroCopyRowsEnabled=").append(zeroCopyRowsEnabled);
+        sb.append(", streamingRowBufferSize=").append(streamingRowBufferSize);
+        sb.append(", compressionEnabled=").append(compressionEnabled);
+        sb.append(", compressionMinSize=").append(compressionMinSize);
+        sb.append(", compressionMinRatio=").append(compressionMinRatio);
+        sb.append(", hedgedGetPercentile=").append(hedgedGetPercentile);
+        sb.append(", hedgedGetMinDelay=").append(hedgedGetMinDelay);
+        sb.append(", saltedPasswordCacheSize=").append(saltedPasswordCacheSize);
         sb.append(", disconnectTimeout=").append(disconnectTimeout);
         sb.append(", requestBufferWaitStrategy=").append(requestBufferWaitStrategy);
 
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.env;
+
+import com.couchbase.client.core.env.resources.ShutdownHook;
+import com.couchbase.client.core.logging.CouchbaseLogger;
+import com.couchbase.client.core.logging.CouchbaseLoggerFactory;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import io.netty.util.Recycler;
+import io.netty.util.internal.PlatformDependent;
+import rx.Observable;
+import rx.subjects.Subject;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A fixed pool of threads which complete response {@link Observable}s off the IO event loops.
+ *
+ * Every thread owns a {@link Lane} with a lock-free multi-producer, single-consumer queue. Producers hand over
+ * the response together with its observable and the thread drains its queue in batches, parking only once
+ * it runs empty. Compared to scheduling every completion on a {@link rx.Scheduler}, no Worker, ScheduledAction
+ * or Subscription is created per response and the holder passing through the queue is recycled.
+ *
+ * Handlers pick a lane once through {@link #lane()} and keep it, so all responses of one endpoint are
+ * completed on the same thread in the order they have been decoded.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class ResponseCompletionPool implements ShutdownHook {
+
+    private static final CouchbaseLogger LOGGER = CouchbaseLoggerFactory.getInstance(ResponseCompletionPool.class);
+
+    private static final String THREAD_NAME_PREFIX = "cb-completion-";
+
+    private static final Recycler<Completion> RECYCLER = new Recycler<Completion>() {
+        @Override
+        protected Completion newObject(final Handle handle) {
+            return new Completion(handle);
+        }
+    };
+
+    private final Lane[] lanes;
+    private final AtomicInteger nextLane = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    /**
+     * Creates a new pool and starts its threads.
+     *
+     * @param poolSize the number of completion threads.
+     */
+    public ResponseCompletionPool(final int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("The pool size must be at least 1, got: " + poolSize);
+        }
+        lanes = new Lane[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            lanes[i] = new Lane(this, THREAD_NAME_PREFIX + (i + 1));
+        }
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
+    }
+
+    /**
+     * Returns the next {@link Lane} in round-robin fashion.
+     *
+     * @return the lane to complete responses on.
+     */
+    public Lane lane() {
+        return lanes[(nextLane.getAndIncrement() & Integer.MAX_VALUE) % lanes.length];
+    }
+
+    /**
+     * Returns the number of completion threads.
+     */
+    public int size() {
+        return lanes.length;
+    }
+
+    @Override
+    public Observable<Boolean> shutdown() {
+        if (!shutdown) {
+            shutdown = true;
+            for (Lane lane : lanes) {
+                LockSupport.unpark(lane.thread);
+            }
+        }
+        return Observable.just(true);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Fulfills and completes the observable with the response.
+     */
+    static void complete(final CouchbaseResponse response,
+        final Subject<CouchbaseResponse, CouchbaseResponse> observable) {
+        try {
+            observable.onNext(response);
+            observable.onCompleted();
+        } catch (Exception ex) {
+            LOGGER.warn("Caught exception while onNext on observable", ex);
+            observable.onError(ex);
+        }
+    }
+
+    /**
+     * One completion thread and the queue it drains.
+     */
+    public static final class Lane implements Runnable {
+
+        private final ResponseCompletionPool pool;
+        private final Thread thread;
+        private final Queue<Completion> queue = PlatformDependent.newMpscQueue();
+        private final AtomicBoolean parked = new AtomicBoolean();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        /**
+         * Set once the thread stopped draining, from then on callers drain the queue themselves.
+         */
+        private volatile boolean terminated;
+
+        Lane(final ResponseCompletionPool pool, final String name) {
+            this.pool = pool;
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Hands the response over to the completion thread of this lane.
+         *
+         * Once the thread of this lane stopped after the pool has been shut down, the observable is completed on
+         * the calling thread instead, after anything still queued.
+         *
+         * @param response the response to complete with.
+         * @param observable the observable to complete.
+         */
+        public void complete(final CouchbaseResponse response,
+            final Subject<CouchbaseResponse, CouchbaseResponse> observable) {
+            queue.offer(RECYCLER.get().init(response, observable));
+            if (terminated) {
+                drainTerminated();
+            } else if (parked.get() && parked.compareAndSet(true, false)) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!pool.shutdown) {
+                if (drain() == 0) {
+                    parked.set(true);
+                    if (queue.isEmpty() && !pool.shutdown) {
+                        LockSupport.park(this);
+                    }
+                    parked.set(false);
+                }
+            }
+            terminated = true;
+            drainTerminated();
+        }
+
+        /**
+         * Completes everything currently in the queue, only called by one thread at a time.
+         *
+         * A failing completion is logged and skipped, so it never stops the lane.
+         *
+         * @return the number of responses completed.
+         */
+        private int drain() {
+            int completed = 0;
+            Completion completion;
+            while ((completion = queue.poll()) != null) {
+                try {
+                    completion.run();
+                } catch (Throwable t) {
+                    LOGGER.warn("Caught exception while completing response observable", t);
+                }
+                completed++;
+            }
+            return completed;
+        }
+
+        /**
+         * Drains the queue once the thread of the lane stopped, from whichever thread gets there first.
+         *
+         * The queue only supports a single consumer, so draining is guarded. A caller which loses the race leaves
+         * its response to the current drainer, which checks the queue again after letting go.
+         */
+        private void drainTerminated() {
+            do {
+                if (!draining.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    drain();
+                } finally {
+                    draining.set(false);
+                }
+            } while (!queue.isEmpty());
+        }
+    }
+
+    /**
+     * The recycled holder of a response and its observable while it sits in a {@link Lane}.
+     */
+    private static final class Completion {
+
+        private final Recycler.Handle handle;
+        private CouchbaseResponse response;
+        private Subject<CouchbaseResponse, CouchbaseResponse> observable;
+
+        Completion(final Recycler.Handle handle) {
+            this.handle = handle;
+        }
+
+        Completion init(final CouchbaseResponse response,
+            final Subject<CouchbaseResponse, CouchbaseResponse> observable) {
+            this.response = response;
+            this.observable = observable;
+            return this;
+        }
+
+        void run() {
+            CouchbaseResponse response = this.response;
+            Subject<CouchbaseResponse, CouchbaseResponse> observable = this.observable;
+            this.response = null;
+            this.observable = null;
+            RECYCLER.recycle(this, handle);
+            complete(response, observable);
+        }
+    }
+
+}
@@ -48,6 +48,18 @@ public abstract class AbstractCouchbaseRequest implements CouchbaseRequest {
 
     private volatile int retryCount;
 
+    /**
+     * The time when the request was last written to the network.
+     *
+     * Not volatile on purpose, it is only written and read from the event loop the request is written to.
+     */
+    private long sendTime;
+
+    /**
+     * The deadline of this request, 0 if none.
+     */
+    private volatile long deadline;
+
     /**
      * Create a new {@link AbstractCouchbaseRequest}.
      *
@@ -113,6 +125,26 @@ public abstract class AbstractCouchbaseRequest implements CouchbaseRequest {
         return retryCount;
     }
 
+    @Override
+    public long sendTime() {
+        return sendTime;
+    }
+
+    @Override
+    public void sendTime(long sendTime) {
+        this.sendTime = sendTime;
+    }
+
+    @Override
+    public long deadline() {
+        return deadline;
+    }
+
+    @Override
+    public void deadline(long deadline) {
+        this.deadline = deadline;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder(this.getClass().getSimpleName() + "{");
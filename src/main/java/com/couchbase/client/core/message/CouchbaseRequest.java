@@ -63,4 +63,39 @@ public interface CouchbaseRequest extends CouchbaseMessage {
      */
     int retryCount();
 
+    /**
+     * Returns the time in nanoseconds when the request was last written to the network.
+     *
+     * @return the send time in nanoseconds, or 0 if it has not been written yet.
+     */
+    long sendTime();
+
+    /**
+     * Sets the time in nanoseconds when the request was written to the network.
+     *
+     * This is set by the endpoint handlers on every write (including retries) and used to compute the
+     * network latency once the matching response arrives.
+     *
+     * @param sendTime the send time in nanoseconds.
+     */
+    void sendTime(long sendTime);
+
+    /**
+     * Returns the deadline of this request, based on {@link System#nanoTime()}.
+     *
+     * @return the deadline in nanoseconds, or 0 if the request has no deadline.
+     */
+    long deadline();
+
+    /**
+     * Sets the deadline of this request, based on {@link System#nanoTime()}.
+     *
+     * If the request has been written to the network but no response has started to arrive by its deadline,
+     * the endpoint fails it with a {@link com.couchbase.client.core.RequestTimeoutException} and drops the
+     * late response once it arrives. A deadline of 0 (the default) disables this.
+     *
+     * @param deadline the deadline in nanoseconds, or 0 to disable.
+     */
+    void deadline(long deadline);
+
 }
@@ -21,6 +21,8 @@ import io.netty.util.CharsetUtil;
 import rx.subjects.AsyncSubject;
 import rx.subjects.Subject;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Default implementation of a {@link BinaryRequest}.
  *
@@ -32,9 +34,11 @@ public abstract class AbstractKeyValueRequest extends AbstractCouchbaseRequest i
     /**
      * The opaque identifier used in the binary protocol to track requests/responses.
      *
-     * No overflow control is applied, since once it overflows it starts with negative values again.
+     * No overflow control is applied, since once it overflows it starts with negative values again. The
+     * increment needs to be atomic since responses are matched to their requests by opaque, so two requests
+     * created concurrently must never share the same value.
      */
-    private static volatile int GLOBAL_OPAQUE = 0;
+    private static final AtomicInteger GLOBAL_OPAQUE = new AtomicInteger();
 
     protected static final short DEFAULT_PARTITION = -1;
 
@@ -75,7 +79,7 @@ public abstract class AbstractKeyValueRequest extends AbstractCouchbaseRequest i
         super(bucket, password, observable);
         this.key = key;
         this.keyBytes = key == null || key.isEmpty() ? new byte[] {} : key.getBytes(CharsetUtil.UTF_8);
-        opaque = GLOBAL_OPAQUE++;
+        opaque = GLOBAL_OPAQUE.getAndIncrement();
     }
 
     @Override
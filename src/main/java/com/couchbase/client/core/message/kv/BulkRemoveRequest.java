@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.message.kv;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Remove many documents in one dispatch, emitting a {@link RemoveResponse} per document.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class BulkRemoveRequest extends BulkRequest<RemoveRequest> {
+
+    public BulkRemoveRequest(final Collection<String> keys, final String bucket) {
+        super(requests(keys, bucket), bucket);
+    }
+
+    public BulkRemoveRequest(final List<RemoveRequest> requests, final String bucket) {
+        super(requests, bucket);
+    }
+
+    private static List<RemoveRequest> requests(final Collection<String> keys, final String bucket) {
+        List<RemoveRequest> requests = new ArrayList<RemoveRequest>(keys.size());
+        for (String key : keys) {
+            requests.add(new RemoveRequest(key, bucket));
+        }
+        return requests;
+    }
+}
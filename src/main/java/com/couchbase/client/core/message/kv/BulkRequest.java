@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.message.kv;
+
+import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import rx.Observer;
+import rx.exceptions.CompositeException;
+import rx.subjects.ReplaySubject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bundles many key-value requests against the same bucket so they are dispatched together.
+ *
+ * The bulk request goes through the request RingBuffer only once. The locator then finds the target node of every
+ * contained request and hands them over grouped by node, so each endpoint receives its share as one burst which is
+ * flushed once at the end of the dispatch batch.
+ *
+ * The contained requests complete independently, including retries on their own. Their responses are emitted on
+ * the {@link #observable()} of the bulk request as they arrive, which completes once all of them are done. Errors
+ * of individual requests are delayed until all others completed.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public abstract class BulkRequest<R extends BinaryRequest> extends AbstractCouchbaseRequest {
+
+    private final List<R> requests;
+    private final AtomicInteger remaining;
+    private final List<Throwable> errors;
+
+    protected BulkRequest(final List<R> requests, final String bucket) {
+        super(bucket, null, ReplaySubject.<CouchbaseResponse>create());
+
+        for (R request : requests) {
+            if (!bucket.equals(request.bucket())) {
+                throw new IllegalArgumentException("All requests of a bulk request must target bucket " + bucket
+                    + ", but got " + request);
+            }
+        }
+        this.requests = Collections.unmodifiableList(new ArrayList<R>(requests));
+        this.remaining = new AtomicInteger(this.requests.size());
+        this.errors = new ArrayList<Throwable>();
+
+        if (this.requests.isEmpty()) {
+            observable().onCompleted();
+            return;
+        }
+
+        // a single observer counting completions is used instead of merge, whose cost grows quadratically
+        // with the number of inner observables.
+        Observer<CouchbaseResponse> collector = new ResponseCollector();
+        for (R request : this.requests) {
+            request.observable().subscribe(collector);
+        }
+    }
+
+    /**
+     * Returns the contained requests.
+     *
+     * @return the contained requests.
+     */
+    public List<R> requests() {
+        return requests;
+    }
+
+    /**
+     * Forwards the responses of all contained requests and terminates the bulk once the last one is done.
+     */
+    private class ResponseCollector implements Observer<CouchbaseResponse> {
+
+        @Override
+        public void onNext(final CouchbaseResponse response) {
+            synchronized (this) {
+                observable().onNext(response);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            requestDone();
+        }
+
+        @Override
+        public void onError(final Throwable e) {
+            synchronized (this) {
+                errors.add(e);
+            }
+            requestDone();
+        }
+
+        private void requestDone() {
+            if (remaining.decrementAndGet() > 0) {
+                return;
+            }
+            synchronized (this) {
+                if (errors.isEmpty()) {
+                    observable().onCompleted();
+                } else if (errors.size() == 1) {
+                    observable().onError(errors.get(0));
+                } else {
+                    observable().onError(new CompositeException(errors));
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(this.getClass().getSimpleName() + "{");
+        sb.append("bucket='").append(bucket()).append('\'');
+        sb.append(", requests=").append(requests.size());
+        sb.append('}');
+        return sb.toString();
+    }
+}
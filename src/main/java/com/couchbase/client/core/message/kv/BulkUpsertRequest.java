@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.message.kv;
+
+import java.util.List;
+
+/**
+ * Insert or overwrite many documents in one dispatch, emitting an {@link UpsertResponse} per document.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class BulkUpsertRequest extends BulkRequest<UpsertRequest> {
+
+    public BulkUpsertRequest(final List<UpsertRequest> requests, final String bucket) {
+        super(requests, bucket);
+    }
+}
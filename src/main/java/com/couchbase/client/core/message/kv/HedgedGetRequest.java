@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.message.kv;
+
+import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+
+/**
+ * Fetch a document from its active node, and additionally from the replicas if the active node is slow to answer.
+ *
+ * The contained {@link GetRequest} is dispatched right away. If it has not completed after a delay derived from
+ * the recent get latencies (see {@link com.couchbase.client.core.env.CoreEnvironment#hedgedGetPercentile()}),
+ * a {@link ReplicaGetRequest} is sent to every configured replica. The {@link #observable()} completes with
+ * the first response of the active node, or the first successful one of a replica, whichever arrives first. All
+ * other responses are dropped and released.
+ *
+ * Note that a response from a replica might not reflect the latest mutation of the document yet.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class HedgedGetRequest extends AbstractCouchbaseRequest {
+
+    private final GetRequest request;
+
+    public HedgedGetRequest(final String key, final String bucket) {
+        super(bucket, null);
+        this.request = new GetRequest(key, bucket);
+    }
+
+    /**
+     * Returns the get request sent to the active node.
+     *
+     * @return the get request.
+     */
+    public GetRequest request() {
+        return request;
+    }
+
+    /**
+     * Returns the key of the document.
+     *
+     * @return the key.
+     */
+    public String key() {
+        return request.key();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(this.getClass().getSimpleName() + "{");
+        sb.append("bucket='").append(bucket()).append('\'');
+        sb.append(", key='").append(key()).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.message.observe;
+
+import com.couchbase.client.core.annotations.InterfaceAudience;
+import com.couchbase.client.core.annotations.InterfaceStability;
+import com.couchbase.client.core.message.AbstractCouchbaseRequest;
+import com.couchbase.client.core.message.kv.MutationToken;
+
+/**
+ * Waits until the mutation identified by its {@link MutationToken} fulfills the given durability constraints.
+ *
+ * Instead of polling on its own, the request is handed to the shared {@link DurabilityCoordinator}, which polls
+ * all outstanding tokens of the same vbucket together. The {@link #observable()} completes with a successful
+ * {@link BatchedObserveResponse} once the constraints are met.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@InterfaceStability.Experimental
+@InterfaceAudience.Private
+public class BatchedObserveRequest extends AbstractCouchbaseRequest {
+
+    private final String key;
+    private final MutationToken token;
+    private final Observe.PersistTo persistTo;
+    private final Observe.ReplicateTo replicateTo;
+
+    public BatchedObserveRequest(final String key, final MutationToken token, final Observe.PersistTo persistTo,
+        final Observe.ReplicateTo replicateTo, final String bucket) {
+        super(bucket, null);
+        this.key = key;
+        this.token = token;
+        this.persistTo = persistTo;
+        this.replicateTo = replicateTo;
+    }
+
+    /**
+     * Returns the key of the mutated document.
+     *
+     * @return the key.
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Returns the token of the mutation to observe.
+     *
+     * @return the mutation token.
+     */
+    public MutationToken token() {
+        return token;
+    }
+
+    public Observe.PersistTo persistTo() {
+        return persistTo;
+    }
+
+    public Observe.ReplicateTo replicateTo() {
+        return replicateTo;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(this.getClass().getSimpleName() + "{");
+        sb.append("bucket='").append(bucket()).append('\'');
+        sb.append(", key='").append(key).append('\'');
+        sb.append(", token=").append(token);
+        sb.append(", persistTo=").append(persistTo);
+        sb.append(", replicateTo=").append(replicateTo);
+        sb.append('}');
+        return sb.toString();
+    }
+}
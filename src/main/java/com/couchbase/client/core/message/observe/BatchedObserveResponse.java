@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.message.observe;
+
+import com.couchbase.client.core.annotations.InterfaceAudience;
+import com.couchbase.client.core.annotations.InterfaceStability;
+import com.couchbase.client.core.message.AbstractCouchbaseResponse;
+import com.couchbase.client.core.message.ResponseStatus;
+
+/**
+ * Signals that the mutation of a {@link BatchedObserveRequest} fulfills its durability constraints.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@InterfaceStability.Experimental
+@InterfaceAudience.Private
+public class BatchedObserveResponse extends AbstractCouchbaseResponse {
+
+    public BatchedObserveResponse(final ResponseStatus status, final BatchedObserveRequest request) {
+        super(status, request);
+    }
+
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.message.observe;
+
+import com.couchbase.client.core.ClusterFacade;
+import com.couchbase.client.core.DocumentMutationLostException;
+import com.couchbase.client.core.ReplicaNotConfiguredException;
+import com.couchbase.client.core.RequestCancelledException;
+import com.couchbase.client.core.annotations.InterfaceAudience;
+import com.couchbase.client.core.annotations.InterfaceStability;
+import com.couchbase.client.core.config.BucketConfig;
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.config.ConfigurationException;
+import com.couchbase.client.core.config.ConfigurationProvider;
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.logging.CouchbaseLogger;
+import com.couchbase.client.core.logging.CouchbaseLoggerFactory;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.kv.FailoverObserveSeqnoResponse;
+import com.couchbase.client.core.message.kv.MutationToken;
+import com.couchbase.client.core.message.kv.NoFailoverObserveSeqnoResponse;
+import com.couchbase.client.core.message.kv.ObserveSeqnoRequest;
+import com.couchbase.client.core.message.observe.ObserveViaMutationToken.ObserveItem;
+import com.couchbase.client.core.time.Delay;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import rx.Observer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls the durability of many mutations together, coalesced by vbucket.
+ *
+ * {@link ObserveViaMutationToken} sends one {@link ObserveSeqnoRequest} per node and token in every round, so
+ * waiting for the durability of thousands of mutations results in tens of thousands of tiny requests. The
+ * coordinator instead collects the outstanding {@link BatchedObserveRequest}s per vbucket and sends a single
+ * {@link ObserveSeqnoRequest} to the active node and the replicas of that vbucket per round. Since the response
+ * carries the current and persisted sequence numbers of the whole vbucket, it answers every waiting token with a
+ * sequence number lower or equal to the reported one. Each waiter is completed on its own as soon as its constraints
+ * are met, the others are polled again after the {@link CoreEnvironment#observeIntervalDelay()}.
+ *
+ * Waiters are failed once their {@link BatchedObserveRequest#deadline()} passed and dropped once their caller
+ * unsubscribed. Errors swallowed because the retry strategy retries observe are only tolerated for
+ * {@link #MAX_FAILED_ROUNDS} rounds in a row, after that all waiters of the vbucket are failed with the last error
+ * and polling stops.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+@InterfaceStability.Experimental
+@InterfaceAudience.Private
+public class DurabilityCoordinator {
+
+    /**
+     * The logger used.
+     */
+    private static final CouchbaseLogger LOGGER = CouchbaseLoggerFactory.getInstance(DurabilityCoordinator.class);
+
+    /**
+     * The number of rounds in a row with swallowed errors after which the waiters of a vbucket are failed.
+     */
+    static final int MAX_FAILED_ROUNDS = 10;
+
+    private final CoreEnvironment environment;
+    private final ClusterFacade core;
+    private final ConfigurationProvider configProvider;
+
+    /**
+     * The vbuckets with outstanding tokens, also guards the waiters of each of them.
+     */
+    private final Map<String, Partition> partitions = new HashMap<String, Partition>();
+
+    public DurabilityCoordinator(final CoreEnvironment environment, final ClusterFacade core,
+        final ConfigurationProvider configProvider) {
+        this.environment = environment;
+        this.core = core;
+        this.configProvider = configProvider;
+    }
+
+    /**
+     * Adds the request to the waiters of its vbucket and starts polling the vbucket if not done already.
+     *
+     * @param request the request to complete once durable.
+     */
+    public void send(final BatchedObserveRequest request) {
+        MutationToken token = request.token();
+        String id = request.bucket() + "/" + token.vbucketID() + "/" + token.vbucketUUID();
+
+        Partition partition;
+        boolean start = false;
+        synchronized (partitions) {
+            partition = partitions.get(id);
+            if (partition == null) {
+                partition = new Partition(id, request.bucket(), token.vbucketUUID());
+                partitions.put(id, partition);
+                start = true;
+            }
+            partition.waiters.add(request);
+            // new mutations are likely to become durable soon, so back off from the start again
+            partition.attempt = 0;
+        }
+
+        if (start) {
+            partition.poll();
+        }
+    }
+
+    /**
+     * Returns the number of vbuckets which currently have outstanding tokens.
+     *
+     * @return the number of polled vbuckets.
+     */
+    int polledPartitions() {
+        synchronized (partitions) {
+            return partitions.size();
+        }
+    }
+
+    /**
+     * Returns the number of replicas configured for the given bucket.
+     *
+     * @param bucket the name of the bucket.
+     * @return the number of replicas, -1 if unknown or not a couchbase bucket.
+     */
+    private int numberOfReplicas(final String bucket) {
+        ClusterConfig config = configProvider.config();
+        BucketConfig bucketConfig = config == null ? null : config.bucketConfig(bucket);
+        if (bucketConfig instanceof CouchbaseBucketConfig) {
+            return ((CouchbaseBucketConfig) bucketConfig).numberOfReplicas();
+        }
+        return -1;
+    }
+
+    /**
+     * The outstanding tokens of one vbucket, polled in rounds until all of them completed.
+     */
+    private class Partition implements TimerTask {
+
+        private final String id;
+        private final String bucket;
+        private final long vbucketUUID;
+        private final List<BatchedObserveRequest> waiters = new ArrayList<BatchedObserveRequest>();
+        private final Set<BatchedObserveRequest> subscribed = new HashSet<BatchedObserveRequest>();
+        private int attempt;
+        private int failedRounds;
+
+        Partition(final String id, final String bucket, final long vbucketUUID) {
+            this.id = id;
+            this.bucket = bucket;
+            this.vbucketUUID = vbucketUUID;
+        }
+
+        /**
+         * Called by the timer once the observe interval passed.
+         */
+        @Override
+        public void run(final Timeout timeout) throws Exception {
+            poll();
+        }
+
+        /**
+         * Sends one observe request to the active node, and to the replicas if needed by any waiter.
+         */
+        void poll() {
+            List<BatchedObserveRequest> round;
+            synchronized (partitions) {
+                round = new ArrayList<BatchedObserveRequest>(waiters);
+            }
+
+            int replicas = numberOfReplicas(bucket);
+            boolean touchesReplica = false;
+            long now = System.nanoTime();
+            List<BatchedObserveRequest> polled = new ArrayList<BatchedObserveRequest>(round.size());
+            for (BatchedObserveRequest request : round) {
+                Observe.PersistTo persistTo = request.persistTo();
+                Observe.ReplicateTo replicateTo = request.replicateTo();
+                if (request.deadline() != 0 && now - request.deadline() >= 0) {
+                    finish(request, new RequestCancelledException("Durability not reached before the deadline."));
+                } else if (abandoned(request)) {
+                    finish(request, new RequestCancelledException("Durability polling stopped, no subscriber left."));
+                } else if (replicas < 0) {
+                    finish(request, new ConfigurationException("Bucket " + bucket
+                        + " is not open or not a couchbase bucket."));
+                } else if ((replicateTo.touchesReplica() && replicateTo.value() > replicas)
+                    || (persistTo.touchesReplica() && persistTo.value() - 1 > replicas)) {
+                    finish(request, new ReplicaNotConfiguredException("Not enough replicas configured on "
+                        + "the bucket."));
+                } else {
+                    touchesReplica = touchesReplica || persistTo.touchesReplica() || replicateTo.touchesReplica();
+                    polled.add(request);
+                }
+            }
+
+            if (polled.isEmpty()) {
+                next();
+                return;
+            }
+
+            // all waiting keys map to this vbucket, so any of them routes the request to the right nodes
+            String key = polled.get(0).key();
+            int nodes = touchesReplica ? replicas + 1 : 1;
+            Round observer = new Round(polled, nodes);
+            for (short replica = 0; replica < nodes; replica++) {
+                ObserveSeqnoRequest request = new ObserveSeqnoRequest(vbucketUUID, replica == 0, replica, key, bucket);
+                request.observable().subscribe(observer);
+                core.send(request);
+            }
+        }
+
+        /**
+         * Checks if the caller went away, which is the case once a waiter that had a subscriber has none anymore.
+         *
+         * Waiters which never had a subscriber are kept, since the caller may still subscribe to the result.
+         */
+        private boolean abandoned(final BatchedObserveRequest request) {
+            boolean hasObservers = request.observable().hasObservers();
+            synchronized (partitions) {
+                if (hasObservers) {
+                    subscribed.add(request);
+                    return false;
+                }
+                return subscribed.contains(request);
+            }
+        }
+
+        /**
+         * Counts the rounds in a row which had swallowed errors.
+         *
+         * @param swallowed the last error swallowed in the round, or null if there was none.
+         * @return the error to fail all waiters with once the limit is reached, null otherwise.
+         */
+        private Throwable failedRound(final Throwable swallowed) {
+            synchronized (partitions) {
+                if (swallowed == null) {
+                    failedRounds = 0;
+                    return null;
+                }
+                if (++failedRounds < MAX_FAILED_ROUNDS) {
+                    return null;
+                }
+                failedRounds = 0;
+                return swallowed;
+            }
+        }
+
+        /**
+         * Polls again after the observe interval if there are still waiters, or stops polling the vbucket.
+         */
+        void next() {
+            long delay;
+            Delay intervalDelay = environment.observeIntervalDelay();
+            synchronized (partitions) {
+                if (waiters.isEmpty()) {
+                    partitions.remove(id);
+                    return;
+                }
+                delay = intervalDelay.calculate(++attempt);
+            }
+
+            try {
+                environment.requestTimer().newTimeout(this, delay, intervalDelay.unit());
+            } catch (IllegalStateException ex) {
+                List<BatchedObserveRequest> remaining;
+                synchronized (partitions) {
+                    remaining = new ArrayList<BatchedObserveRequest>(waiters);
+                }
+                for (BatchedObserveRequest request : remaining) {
+                    finish(request, new RequestCancelledException("Durability polling stopped, the request timer is "
+                        + "stopped."));
+                }
+                synchronized (partitions) {
+                    if (waiters.isEmpty()) {
+                        partitions.remove(id);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Removes the waiter and completes it, successfully if no error is given.
+         */
+        void finish(final BatchedObserveRequest request, final Throwable error) {
+            synchronized (partitions) {
+                if (!waiters.remove(request)) {
+                    return;
+                }
+                subscribed.remove(request);
+            }
+
+            if (error == null) {
+                request.observable().onNext(new BatchedObserveResponse(ResponseStatus.SUCCESS, request));
+                request.observable().onCompleted();
+            } else {
+                request.observable().onError(error);
+            }
+        }
+
+        /**
+         * Collects the responses of one round and checks every waiter against them once all nodes answered.
+         *
+         * The waiters polled when the round started only decide which nodes are asked. Once the responses are in,
+         * every current waiter of the vbucket is checked, including the ones which joined in the meantime.
+         */
+        private class Round implements Observer<CouchbaseResponse> {
+
+            private final List<BatchedObserveRequest> polled;
+            private final List<CouchbaseResponse> responses;
+            private final AtomicInteger remaining;
+            private final boolean swallowErrors;
+            private volatile Throwable error;
+            private volatile Throwable swallowed;
+
+            Round(final List<BatchedObserveRequest> polled, final int nodes) {
+                this.polled = polled;
+                this.responses = new ArrayList<CouchbaseResponse>(nodes);
+                this.remaining = new AtomicInteger(nodes);
+                this.swallowErrors = environment.retryStrategy().shouldRetryObserve();
+            }
+
+            @Override
+            public void onNext(final CouchbaseResponse response) {
+                synchronized (responses) {
+                    responses.add(response);
+                }
+            }
+
+            @Override
+            public void onError(final Throwable e) {
+                if (swallowErrors) {
+                    LOGGER.trace("Ignoring observe error for vbucket {}", id, e);
+                    swallowed = e;
+                } else {
+                    error = e;
+                }
+                done();
+            }
+
+            @Override
+            public void onCompleted() {
+                done();
+            }
+
+            private void done() {
+                if (remaining.decrementAndGet() > 0) {
+                    return;
+                }
+
+                Throwable exhausted = failedRound(swallowed);
+                if (exhausted != null) {
+                    LOGGER.debug("Giving up on vbucket {} after {} failed observe rounds", id, MAX_FAILED_ROUNDS);
+                    List<BatchedObserveRequest> remaining;
+                    synchronized (partitions) {
+                        remaining = new ArrayList<BatchedObserveRequest>(waiters);
+                    }
+                    for (BatchedObserveRequest request : remaining) {
+                        finish(request, exhausted);
+                    }
+                    next();
+                    return;
+                }
+
+                if (error != null) {
+                    for (BatchedObserveRequest request : polled) {
+                        finish(request, error);
+                    }
+                    next();
+                    return;
+                }
+
+                List<CouchbaseResponse> received;
+                synchronized (responses) {
+                    received = new ArrayList<CouchbaseResponse>(responses);
+                }
+                // the responses cover the whole vbucket, so they also answer tokens which joined during the round
+                List<BatchedObserveRequest> current;
+                synchronized (partitions) {
+                    current = new ArrayList<BatchedObserveRequest>(waiters);
+                }
+                for (BatchedObserveRequest request : current) {
+                    check(request, received);
+                }
+                next();
+            }
+
+            /**
+             * Completes the waiter if the received responses fulfill its constraints or show its mutation is lost.
+             */
+            private void check(final BatchedObserveRequest request, final List<CouchbaseResponse> received) {
+                MutationToken token = request.token();
+                ObserveItem status = ObserveItem.empty();
+                for (CouchbaseResponse response : received) {
+                    if (response instanceof FailoverObserveSeqnoResponse) {
+                        FailoverObserveSeqnoResponse fr = (FailoverObserveSeqnoResponse) response;
+                        if (fr.lastSeqNoReceived() < token.sequenceNumber()) {
+                            finish(request, new DocumentMutationLostException("Document Mutation lost during a "
+                                + "hard failover."));
+                            return;
+                        }
+                        status = status.add(ObserveItem.from(token, fr));
+                    } else if (response instanceof NoFailoverObserveSeqnoResponse) {
+                        status = status.add(ObserveItem.from(token, (NoFailoverObserveSeqnoResponse) response));
+                    } else {
+                        finish(request, new IllegalStateException("Unknown failover observe response: "
+                            + response));
+                        return;
+                    }
+                }
+
+                if (status.check(request.persistTo(), request.replicateTo())) {
+                    finish(request, null);
+                }
+            }
+        }
+    }
+
+}
@@ -23,6 +23,7 @@ import com.couchbase.client.core.message.kv.MutationToken;
 import com.couchbase.client.core.retry.RetryStrategy;
 import com.couchbase.client.core.time.Delay;
 import rx.Observable;
+import rx.functions.Func1;
 
 import java.util.concurrent.TimeUnit;
 
@@ -194,5 +195,32 @@ public class Observe {
         }
     }
 
+    /**
+     * Observes the mutation identified by the token through the shared {@link DurabilityCoordinator}.
+     *
+     * Unlike {@link #call(ClusterFacade, String, String, long, boolean, MutationToken, PersistTo, ReplicateTo,
+     * Delay, RetryStrategy)}, the outstanding tokens of a vbucket are polled together with one request per node
+     * and round, which greatly reduces the number of requests when waiting for the durability of many mutations.
+     * The poll interval is the observe interval delay of the environment.
+     *
+     * @param core the core to send the request through.
+     * @param bucket the name of the bucket.
+     * @param id the key of the mutated document.
+     * @param token the token of the mutation.
+     * @param persistTo the persistence constraint.
+     * @param replicateTo the replication constraint.
+     * @return an observable emitting true once the constraints are met.
+     */
+    public static Observable<Boolean> callBatched(final ClusterFacade core, final String bucket, final String id,
+        final MutationToken token, final PersistTo persistTo, final ReplicateTo replicateTo) {
+        return core
+            .<BatchedObserveResponse>send(new BatchedObserveRequest(id, token, persistTo, replicateTo, bucket))
+            .map(new Func1<BatchedObserveResponse, Boolean>() {
+                @Override
+                public Boolean call(BatchedObserveResponse response) {
+                    return response.status().isSuccess();
+                }
+            });
+    }
 
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.message.search;
+
+import com.couchbase.client.core.message.AbstractCouchbaseResponse;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.utils.Buffers;
+import io.netty.buffer.ByteBuf;
+import rx.Observable;
+
+/**
+ * The response to a {@link StreamingSearchQueryRequest}. The hits are emitted one by one as they are parsed out
+ * of the response, everything else is collected into a single meta object. Note that it is important that both
+ * streams are consumed and their ByteBuf released.
+ *
+ * If one isn't interested in a particular stream, it should still be released by subscribing a
+ * {@link Buffers#BYTE_BUF_RELEASER} to it.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class StreamingSearchQueryResponse extends AbstractCouchbaseResponse {
+
+    private final Observable<ByteBuf> hits;
+    private final Observable<ByteBuf> meta;
+
+    public StreamingSearchQueryResponse(Observable<ByteBuf> hits, Observable<ByteBuf> meta,
+        CouchbaseRequest request, ResponseStatus status) {
+        super(status, request);
+        this.hits = hits;
+        this.meta = meta;
+    }
+
+    /**
+     * Contains one {@link ByteBuf} for each hit returned by the server. Each hit is a JSON object.
+     */
+    public Observable<ByteBuf> hits() {
+        return hits;
+    }
+
+    /**
+     * Contains a single {@link ByteBuf} with a JSON object of all top level fields of the response except the hits
+     * (like status, total_hits, max_score, took and facets). It is always emitted AFTER all {@link #hits()}.
+     *
+     * If the server did not respond with a JSON object (which happens for some errors), the raw body is emitted
+     * instead.
+     */
+    public Observable<ByteBuf> meta() {
+        return meta;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamingSearchQueryResponse{"
+            + "status=" + status()
+            + ", request=" + request()
+            + '}';
+    }
+}
@@ -18,6 +18,8 @@ package com.couchbase.client.core.metrics;
 import com.couchbase.client.core.event.CouchbaseEvent;
 import com.couchbase.client.core.event.EventBus;
 import com.couchbase.client.core.event.metrics.LatencyMetricsEvent;
+import io.netty.util.concurrent.FastThreadLocal;
+import org.HdrHistogram.Histogram;
 import org.LatencyUtils.LatencyStats;
 import org.LatencyUtils.PauseDetector;
 import org.LatencyUtils.SimplePauseDetector;
@@ -26,12 +28,22 @@ import rx.Scheduler;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * The default abstract implementation for a latency metrics collector.
  *
+ * Every identifier holds a fixed number of stripes, each with its own {@link LatencyStats}. A thread always
+ * records into the same stripe, which is assigned round-robin on its first record, so the event loops do not
+ * contend on one recorder and the number of recorders stays bounded no matter how many threads come and go.
+ * Stripes are created with a compare-and-set when they record for the first time, so no latency is lost when
+ * several threads record a new identifier at the same time. Once a stripe exists, the record path neither locks
+ * nor allocates. At emit time the interval histograms of all stripes are swapped out and merged.
+ *
  * @author Michael Nitschinger
  * @since 1.2.0
  */
@@ -39,6 +51,25 @@ public abstract class AbstractLatencyMetricsCollector<I extends LatencyMetricsId
     extends AbstractMetricsCollector
     implements LatencyMetricsCollector<I> {
 
+    /**
+     * The highest latency tracked, in nanoseconds. Higher latencies are recorded as this value.
+     */
+    static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.HOURS.toNanos(1);
+
+    /**
+     * The number of stripes per identifier, one per event loop with the default IO pool size.
+     */
+    static final int STRIPES = Runtime.getRuntime().availableProcessors();
+
+    private static final AtomicInteger NEXT_STRIPE = new AtomicInteger();
+
+    private static final FastThreadLocal<Integer> STRIPE = new FastThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() throws Exception {
+            return (NEXT_STRIPE.getAndIncrement() & Integer.MAX_VALUE) % STRIPES;
+        }
+    };
+
     private final static Object PAUSE_DETECTOR_LOCK = new Object();
     private static int pauseDetectorCount = 0;
     private static PauseDetector staticPauseDetector;
@@ -68,22 +99,58 @@ public abstract class AbstractLatencyMetricsCollector<I extends LatencyMetricsId
     private final PauseDetector pauseDetector;
     private final AtomicBoolean pauseDetectorHeld;
 
-    private final Map<I, LatencyStats> latencyMetrics;
+    private final ConcurrentMap<I, AtomicReferenceArray<LatencyStats>> latencyMetrics;
     private final LatencyMetricsCollectorConfig config;
 
     protected AbstractLatencyMetricsCollector(EventBus eventBus, Scheduler scheduler, LatencyMetricsCollectorConfig config) {
         super(eventBus, scheduler, config);
         this.config = config;
-        latencyMetrics = new ConcurrentHashMap<I, LatencyStats>();
+        latencyMetrics = new ConcurrentHashMap<I, AtomicReferenceArray<LatencyStats>>();
         pauseDetector = acquirePauseDetector();
         pauseDetectorHeld = new AtomicBoolean(true);
     }
 
-    protected abstract E generateLatencyMetricsEvent(Map<I, LatencyStats> latencyMetrics);
+    /**
+     * Generates the event out of the latencies recorded since the last emit.
+     *
+     * @param latencyMetrics the merged interval histogram per identifier, identifiers without latencies during the
+     *                       last interval are already removed.
+     */
+    protected abstract E generateLatencyMetricsEvent(Map<I, Histogram> latencyMetrics);
 
     @Override
     protected CouchbaseEvent generateCouchbaseEvent() {
-        return generateLatencyMetricsEvent(new HashMap<I, LatencyStats>(latencyMetrics));
+        Map<I, Histogram> intervalHistograms = new HashMap<I, Histogram>();
+        for (Map.Entry<I, AtomicReferenceArray<LatencyStats>> entry : latencyMetrics.entrySet()) {
+            Histogram histogram = intervalHistogram(entry.getValue());
+            if (histogram == null || histogram.getTotalCount() == 0) {
+                // no events have been found on this identifier in the last interval, so remove it and
+                // do not include it in the output.
+                remove(entry.getKey());
+            } else {
+                intervalHistograms.put(entry.getKey(), histogram);
+            }
+        }
+        return generateLatencyMetricsEvent(intervalHistograms);
+    }
+
+    /**
+     * Swaps out the interval histograms of all stripes and merges them into the first one.
+     */
+    private static Histogram intervalHistogram(final AtomicReferenceArray<LatencyStats> stripes) {
+        Histogram merged = null;
+        for (int i = 0; i < stripes.length(); i++) {
+            LatencyStats stats = stripes.get(i);
+            if (stats == null) {
+                continue;
+            }
+            if (merged == null) {
+                merged = stats.getIntervalHistogram();
+            } else {
+                stats.addIntervalHistogramTo(merged);
+            }
+        }
+        return merged;
     }
 
     @Override
@@ -92,12 +159,34 @@ public abstract class AbstractLatencyMetricsCollector<I extends LatencyMetricsId
             return;
         }
 
-        LatencyStats metric = latencyMetrics.get(identifier);
+        AtomicReferenceArray<LatencyStats> stripes = latencyMetrics.get(identifier);
+        if (stripes == null) {
+            AtomicReferenceArray<LatencyStats> created = new AtomicReferenceArray<LatencyStats>(STRIPES);
+            stripes = latencyMetrics.putIfAbsent(identifier, created);
+            if (stripes == null) {
+                stripes = created;
+            }
+        }
+
+        int stripe = STRIPES == 1 ? 0 : STRIPE.get();
+        LatencyStats metric = stripes.get(stripe);
         if (metric == null) {
-            metric = LatencyStats.Builder.create().pauseDetector(pauseDetector).build();
-            latencyMetrics.put(identifier, metric);
+            LatencyStats created = LatencyStats.Builder.create()
+                .pauseDetector(pauseDetector)
+                .highestTrackableLatency(HIGHEST_TRACKABLE_LATENCY)
+                .build();
+            if (stripes.compareAndSet(stripe, null, created)) {
+                metric = created;
+                if (latencyMetrics.get(identifier) != stripes) {
+                    // removed in the meantime, so nobody else would stop it
+                    created.stop();
+                }
+            } else {
+                created.stop();
+                metric = stripes.get(stripe);
+            }
         }
-        metric.recordLatency(latency);
+        metric.recordLatency(Math.min(latency, HIGHEST_TRACKABLE_LATENCY));
     }
 
     @Override
@@ -113,11 +202,35 @@ public abstract class AbstractLatencyMetricsCollector<I extends LatencyMetricsId
         return config;
     }
 
+    /**
+     * Returns the number of stripes which recorded latencies for the given identifier.
+     */
+    int recorders(I identifier) {
+        AtomicReferenceArray<LatencyStats> stripes = latencyMetrics.get(identifier);
+        int recorders = 0;
+        for (int i = 0; stripes != null && i < stripes.length(); i++) {
+            if (stripes.get(i) != null) {
+                recorders++;
+            }
+        }
+        return recorders;
+    }
+
     /**
      * Helper method to remove an item out of the stored metrics.
+     *
+     * The stats of all stripes are detached from the pause detector, so they can be garbage collected.
      */
     protected void remove(I identifier) {
-        latencyMetrics.remove(identifier);
+        AtomicReferenceArray<LatencyStats> removed = latencyMetrics.remove(identifier);
+        if (removed != null) {
+            for (int i = 0; i < removed.length(); i++) {
+                LatencyStats stats = removed.get(i);
+                if (stats != null) {
+                    stats.stop();
+                }
+            }
+        }
     }
 
 }
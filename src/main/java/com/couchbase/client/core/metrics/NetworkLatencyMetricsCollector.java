@@ -18,12 +18,15 @@ package com.couchbase.client.core.metrics;
 import com.couchbase.client.core.event.EventBus;
 import com.couchbase.client.core.event.metrics.LatencyMetric;
 import com.couchbase.client.core.event.metrics.NetworkLatencyMetricsEvent;
+import com.couchbase.client.core.message.ResponseStatus;
 import org.HdrHistogram.Histogram;
-import org.LatencyUtils.LatencyStats;
+import org.HdrHistogram.Recorder;
 import rx.Scheduler;
 
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -35,33 +38,57 @@ import java.util.concurrent.TimeUnit;
 public class NetworkLatencyMetricsCollector
     extends AbstractLatencyMetricsCollector<NetworkLatencyMetricsIdentifier, NetworkLatencyMetricsEvent> {
 
+    /**
+     * The length of the rolling window used by {@link #latencyAtPercentile(String, double)}, in nanoseconds.
+     */
+    static final long ROLLING_WINDOW = TimeUnit.SECONDS.toNanos(1);
+
     private final TimeUnit targetUnit;
     private final Double[] targetPercentiles;
+    private final long rollingWindow;
+
+    /**
+     * The rolling windows of successful requests, per request type across all nodes.
+     *
+     * A window is only created once its request type is looked up, so other requests do not pay for it.
+     */
+    private final ConcurrentMap<String, RollingWindow> rollingWindows;
 
     public NetworkLatencyMetricsCollector(EventBus eventBus, Scheduler scheduler, LatencyMetricsCollectorConfig config) {
+        this(eventBus, scheduler, config, ROLLING_WINDOW);
+    }
+
+    NetworkLatencyMetricsCollector(EventBus eventBus, Scheduler scheduler, LatencyMetricsCollectorConfig config,
+        long rollingWindow) {
         super(eventBus, scheduler, config);
 
         targetUnit = config.targetUnit();
         targetPercentiles = config.targetPercentiles();
+        this.rollingWindow = rollingWindow;
+        rollingWindows = new ConcurrentHashMap<String, RollingWindow>();
+    }
+
+    @Override
+    public void record(NetworkLatencyMetricsIdentifier identifier, long latency) {
+        super.record(identifier, latency);
+
+        if (!rollingWindows.isEmpty() && ResponseStatus.SUCCESS.toString().equals(identifier.status())) {
+            RollingWindow window = rollingWindows.get(identifier.request());
+            if (window != null) {
+                window.record(latency);
+            }
+        }
     }
 
     @Override
     protected NetworkLatencyMetricsEvent generateLatencyMetricsEvent(
-        final Map<NetworkLatencyMetricsIdentifier, LatencyStats> latencyMetrics) {
+        final Map<NetworkLatencyMetricsIdentifier, Histogram> latencyMetrics) {
 
         Map<NetworkLatencyMetricsIdentifier, LatencyMetric> sortedMetrics =
             new TreeMap<NetworkLatencyMetricsIdentifier, LatencyMetric>();
 
-
-        for (Map.Entry<NetworkLatencyMetricsIdentifier, LatencyStats> entry : latencyMetrics.entrySet()) {
-            Histogram histogram = entry.getValue().getIntervalHistogram();
-
-            if (histogram.getTotalCount() == 0) {
-                // no events have been found on this identifier in the last interval, so remove it and
-                // do not include it in the output.
-                remove(entry.getKey());
-                continue;
-            }
+        for (Map.Entry<NetworkLatencyMetricsIdentifier, Histogram> entry : latencyMetrics.entrySet()) {
+            Histogram histogram = entry.getValue();
 
             Map<Double, Long> percentiles = new TreeMap<Double, Long>();
             for (double targetPercentile : targetPercentiles) {
@@ -81,4 +108,67 @@ public class NetworkLatencyMetricsCollector
 
         return new NetworkLatencyMetricsEvent(sortedMetrics);
     }
+
+    /**
+     * Returns the latency of successful requests of the given type at the given percentile, across all nodes and
+     * as of the last completed rolling window.
+     *
+     * The window is short and independent of the emit interval. Latencies of a request type are only tracked
+     * once it has been looked up for the first time.
+     *
+     * @param request the simple class name of the request, for example "GetRequest".
+     * @param percentile the percentile to look up.
+     * @return the latency in nanoseconds, or -1 if no such request completed during the last window.
+     */
+    public long latencyAtPercentile(final String request, final double percentile) {
+        RollingWindow window = rollingWindows.get(request);
+        if (window == null) {
+            RollingWindow created = new RollingWindow(rollingWindow);
+            window = rollingWindows.putIfAbsent(request, created);
+            if (window == null) {
+                window = created;
+            }
+        }
+        return window.valueAtPercentile(percentile);
+    }
+
+    /**
+     * Records latencies into a {@link Recorder} whose interval histogram is swapped out once the window passed.
+     *
+     * The swap happens lazily on lookup, so no timer is needed. Readers share the histogram of the last completed
+     * window, which is never written to again.
+     */
+    private static final class RollingWindow {
+
+        private final Recorder recorder = new Recorder(TimeUnit.MICROSECONDS.toNanos(1), HIGHEST_TRACKABLE_LATENCY, 2);
+        private final long length;
+        private volatile Histogram completed;
+        private volatile long nextSwap;
+
+        RollingWindow(final long length) {
+            this.length = length;
+            this.nextSwap = System.nanoTime() + length;
+        }
+
+        void record(final long latency) {
+            recorder.recordValue(Math.min(latency, HIGHEST_TRACKABLE_LATENCY));
+        }
+
+        long valueAtPercentile(final double percentile) {
+            if (System.nanoTime() - nextSwap >= 0) {
+                swap();
+            }
+            Histogram histogram = completed;
+            return histogram == null || histogram.getTotalCount() == 0
+                ? -1 : histogram.getValueAtPercentile(percentile);
+        }
+
+        private synchronized void swap() {
+            long now = System.nanoTime();
+            if (now - nextSwap >= 0) {
+                completed = recorder.getIntervalHistogram();
+                nextSwap = now + length;
+            }
+        }
+    }
 }
@@ -31,12 +31,14 @@ public class NetworkLatencyMetricsIdentifier implements LatencyMetricsIdentifier
     private final String service;
     private final String request;
     private final String status;
+    private final int hashCode;
 
     public NetworkLatencyMetricsIdentifier(String host, String service, String request, String status) {
         this.host = host;
         this.service = service;
         this.request = request;
         this.status = status;
+        this.hashCode = computeHashCode();
     }
 
     public String host() {
@@ -72,6 +74,8 @@ public class NetworkLatencyMetricsIdentifier implements LatencyMetricsIdentifier
 
         NetworkLatencyMetricsIdentifier that = (NetworkLatencyMetricsIdentifier) o;
 
+        if (hashCode != that.hashCode) return false;
+
         if (host != null ? !host.equals(that.host) : that.host != null) return false;
         if (service != null ? !service.equals(that.service) : that.service != null) return false;
         if (request != null ? !request.equals(that.request) : that.request != null) return false;
@@ -79,8 +83,16 @@ public class NetworkLatencyMetricsIdentifier implements LatencyMetricsIdentifier
 
     }
 
+    /**
+     * The identifier is the key of the latency histograms and looked up for every recorded latency, so its
+     * hash code is computed only once.
+     */
     @Override
     public int hashCode() {
+        return hashCode;
+    }
+
+    private int computeHashCode() {
         int result = host != null ? host.hashCode() : 0;
         result = 31 * result + (service != null ? service.hashCode() : 0);
         result = 31 * result + (request != null ? request.hashCode() : 0);
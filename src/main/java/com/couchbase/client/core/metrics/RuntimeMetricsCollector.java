@@ -15,6 +15,7 @@
  */
 package com.couchbase.client.core.metrics;
 
+import com.couchbase.client.core.env.CoreEnvironment;
 import com.couchbase.client.core.env.Diagnostics;
 import com.couchbase.client.core.event.CouchbaseEvent;
 import com.couchbase.client.core.event.EventBus;
@@ -23,6 +24,10 @@ import rx.Scheduler;
 
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A {@link MetricsCollector} which collects and emits system information like gc, memory or thread usage.
@@ -32,10 +37,162 @@ import java.util.TreeMap;
  */
 public class RuntimeMetricsCollector extends AbstractMetricsCollector {
 
+    /**
+     * The names of the connect phases, in the order they are passed to {@link #recordConnect(long...)}.
+     */
+    private static final String[] CONNECT_PHASES = new String[] { "tcp", "tls", "sasl", "hello" };
+
+    private final AtomicLong dispatchBatches = new AtomicLong();
+    private final AtomicLong dispatchBatchRequests = new AtomicLong();
+    private final AtomicLong dispatchBatchFlushes = new AtomicLong();
+    private final AtomicLong configsProposed = new AtomicLong();
+    private final AtomicLong configsSkipped = new AtomicLong();
+    private final AtomicLong valuesCompressed = new AtomicLong();
+    private final AtomicLong valuesCompressedSent = new AtomicLong();
+    private final AtomicLong compressedBytesSaved = new AtomicLong();
+    private final AtomicLong valuesDecompressed = new AtomicLong();
+    private final AtomicLong decompressedBytesSaved = new AtomicLong();
+    private final AtomicLong hedgedGetsFired = new AtomicLong();
+    private final AtomicLong hedgedGetReplicas = new AtomicLong();
+    private final AtomicLong hedgedGetsWon = new AtomicLong();
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong[] connectPhaseCounts = newCounters(CONNECT_PHASES.length);
+    private final AtomicLong[] connectPhaseNanos = newCounters(CONNECT_PHASES.length);
+    private final AtomicLong saslAuths = new AtomicLong();
+    private final AtomicLong saslClientNanos = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> requestTimeouts = new ConcurrentHashMap<String, AtomicLong>();
+
     public RuntimeMetricsCollector(final EventBus eventBus, Scheduler scheduler, MetricsCollectorConfig config) {
         super(eventBus, scheduler, config);
     }
 
+    /**
+     * Returns the runtime metrics collector of the given environment, if it is one of this type and enabled.
+     *
+     * Components resolve it once and skip recording if null, so a disabled collector costs nothing per call.
+     *
+     * @param environment the environment, may be null.
+     * @return the enabled collector or null if not available or disabled.
+     */
+    public static RuntimeMetricsCollector enabled(final CoreEnvironment environment) {
+        MetricsCollector collector = environment == null ? null : environment.runtimeMetricsCollector();
+        return collector instanceof RuntimeMetricsCollector && collector.isEnabled()
+            ? (RuntimeMetricsCollector) collector : null;
+    }
+
+    /**
+     * Records a completed batch of the request dispatch threads, reported with the next emitted event.
+     *
+     * @param requests the number of requests dispatched in the batch.
+     * @param flushes the number of endpoints flushed at the end of the batch.
+     */
+    public void recordDispatchBatch(final int requests, final int flushes) {
+        dispatchBatches.incrementAndGet();
+        dispatchBatchRequests.addAndGet(requests);
+        dispatchBatchFlushes.addAndGet(flushes);
+    }
+
+    /**
+     * Records a proposed bucket config, reported with the next emitted event.
+     *
+     * @param skipped true if the config has not been parsed because its revision was already known.
+     */
+    public void recordConfigProposal(final boolean skipped) {
+        configsProposed.incrementAndGet();
+        if (skipped) {
+            configsSkipped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records a compressed document value, reported with the next emitted event.
+     *
+     * @param uncompressed the original size of the value.
+     * @param compressed the compressed size of the value.
+     * @param sent true if the compressed value has been sent, false if it did not compress well enough.
+     */
+    public void recordCompression(final int uncompressed, final int compressed, final boolean sent) {
+        valuesCompressed.incrementAndGet();
+        if (sent) {
+            valuesCompressedSent.incrementAndGet();
+            compressedBytesSaved.addAndGet(uncompressed - compressed);
+        }
+    }
+
+    /**
+     * Records a decompressed document value received from the server, reported with the next emitted event.
+     *
+     * @param compressed the received size of the value.
+     * @param uncompressed the decompressed size of the value.
+     */
+    public void recordDecompression(final int compressed, final int uncompressed) {
+        valuesDecompressed.incrementAndGet();
+        decompressedBytesSaved.addAndGet(uncompressed - compressed);
+    }
+
+    /**
+     * Records a request which timed out in-flight on the given endpoint, reported with the next emitted event.
+     *
+     * @param endpoint the identifier of the endpoint, for example the remote host and service.
+     */
+    public void recordRequestTimeout(final String endpoint) {
+        AtomicLong counter = requestTimeouts.get(endpoint);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = requestTimeouts.putIfAbsent(endpoint, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * Records a hedged get which asked the replicas since the active copy did not answer in time, reported with
+     * the next emitted event.
+     *
+     * @param replicas the number of replicas asked.
+     */
+    public void recordHedgedGetFired(final int replicas) {
+        hedgedGetsFired.incrementAndGet();
+        hedgedGetReplicas.addAndGet(replicas);
+    }
+
+    /**
+     * Records a hedged get which completed with the response of a replica, reported with the next emitted event.
+     */
+    public void recordHedgedGetWon() {
+        hedgedGetsWon.incrementAndGet();
+    }
+
+    /**
+     * Records a completed endpoint connect, reported with the next emitted event.
+     *
+     * The durations are passed in nanoseconds in the order tcp connect, tls handshake, sasl auth and hello
+     * negotiation. A negative duration marks a phase which has not been performed.
+     *
+     * @param phaseNanos the durations of the individual phases.
+     */
+    public void recordConnect(final long... phaseNanos) {
+        connects.incrementAndGet();
+        for (int i = 0; i < phaseNanos.length && i < CONNECT_PHASES.length; i++) {
+            if (phaseNanos[i] >= 0) {
+                connectPhaseCounts[i].incrementAndGet();
+                connectPhaseNanos[i].addAndGet(phaseNanos[i]);
+            }
+        }
+    }
+
+    /**
+     * Records a successful SASL authentication, reported with the next emitted event.
+     *
+     * @param clientNanos the time in nanoseconds spent on the client side to evaluate the server challenges.
+     */
+    public void recordSaslAuth(final long clientNanos) {
+        saslAuths.incrementAndGet();
+        saslClientNanos.addAndGet(clientNanos);
+    }
+
     @Override
     protected CouchbaseEvent generateCouchbaseEvent() {
         Map<String, Object> metrics = new TreeMap<String, Object>();
@@ -43,8 +200,123 @@ public class RuntimeMetricsCollector extends AbstractMetricsCollector {
         Diagnostics.gcInfo(metrics);
         Diagnostics.memInfo(metrics);
         Diagnostics.threadInfo(metrics);
+        dispatchInfo(metrics);
+        configInfo(metrics);
+        compressionInfo(metrics);
+        timeoutInfo(metrics);
+        hedgeInfo(metrics);
+        connectInfo(metrics);
+        saslInfo(metrics);
 
         return new RuntimeMetricsEvent(metrics);
     }
 
+    /**
+     * Adds the dispatch batch statistics since the last emit and resets them.
+     *
+     * @param metrics a map where the infos are passed in.
+     */
+    private void dispatchInfo(final Map<String, Object> metrics) {
+        long batches = dispatchBatches.getAndSet(0);
+        long requests = dispatchBatchRequests.getAndSet(0);
+        long flushes = dispatchBatchFlushes.getAndSet(0);
+
+        metrics.put("dispatch.batchCount", batches);
+        metrics.put("dispatch.batchSize.avg", batches == 0 ? 0.0 : (double) requests / batches);
+        metrics.put("dispatch.flushesPerBatch.avg", batches == 0 ? 0.0 : (double) flushes / batches);
+    }
+
+    /**
+     * Adds the bucket config proposal statistics since the last emit and resets them.
+     *
+     * @param metrics a map where the infos are passed in.
+     */
+    private void configInfo(final Map<String, Object> metrics) {
+        long proposed = configsProposed.getAndSet(0);
+        long skipped = configsSkipped.getAndSet(0);
+
+        metrics.put("config.proposedCount", proposed);
+        metrics.put("config.skippedCount", skipped);
+    }
+
+    /**
+     * Adds the document value compression statistics since the last emit and resets them.
+     *
+     * @param metrics a map where the infos are passed in.
+     */
+    private void compressionInfo(final Map<String, Object> metrics) {
+        metrics.put("compression.compressedCount", valuesCompressed.getAndSet(0));
+        metrics.put("compression.sentCount", valuesCompressedSent.getAndSet(0));
+        metrics.put("compression.sentBytesSaved", compressedBytesSaved.getAndSet(0));
+        metrics.put("compression.decompressedCount", valuesDecompressed.getAndSet(0));
+        metrics.put("compression.receivedBytesSaved", decompressedBytesSaved.getAndSet(0));
+    }
+
+    /**
+     * Adds the in-flight request timeouts per endpoint since the last emit and resets them.
+     *
+     * @param metrics a map where the infos are passed in.
+     */
+    private void timeoutInfo(final Map<String, Object> metrics) {
+        for (Map.Entry<String, AtomicLong> entry : requestTimeouts.entrySet()) {
+            long timeouts = entry.getValue().getAndSet(0);
+            if (timeouts > 0) {
+                metrics.put("timeout." + entry.getKey(), timeouts);
+            }
+        }
+    }
+
+    /**
+     * Adds the hedged get statistics since the last emit and resets them.
+     *
+     * @param metrics a map where the infos are passed in.
+     */
+    private void hedgeInfo(final Map<String, Object> metrics) {
+        metrics.put("hedge.firedCount", hedgedGetsFired.getAndSet(0));
+        metrics.put("hedge.replicaCount", hedgedGetReplicas.getAndSet(0));
+        metrics.put("hedge.wonCount", hedgedGetsWon.getAndSet(0));
+    }
+
+    /**
+     * Adds the average connect phase durations in microseconds since the last emit and resets them.
+     *
+     * @param metrics a map where the infos are passed in.
+     */
+    private void connectInfo(final Map<String, Object> metrics) {
+        metrics.put("connect.count", connects.getAndSet(0));
+        for (int i = 0; i < CONNECT_PHASES.length; i++) {
+            long count = connectPhaseCounts[i].getAndSet(0);
+            long nanos = connectPhaseNanos[i].getAndSet(0);
+            metrics.put("connect." + CONNECT_PHASES[i] + ".avg",
+                count == 0 ? 0.0 : TimeUnit.NANOSECONDS.toMicros(nanos) / (double) count);
+        }
+    }
+
+    /**
+     * Adds the SASL authentication statistics since the last emit and resets them.
+     *
+     * @param metrics a map where the infos are passed in.
+     */
+    private void saslInfo(final Map<String, Object> metrics) {
+        long auths = saslAuths.getAndSet(0);
+        long nanos = saslClientNanos.getAndSet(0);
+
+        metrics.put("sasl.authCount", auths);
+        metrics.put("sasl.clientTime.avg", auths == 0 ? 0.0 : TimeUnit.NANOSECONDS.toMicros(nanos) / (double) auths);
+    }
+
+    /**
+     * Creates an array of zeroed counters.
+     *
+     * @param size the number of counters.
+     * @return the created counters.
+     */
+    private static AtomicLong[] newCounters(final int size) {
+        AtomicLong[] counters = new AtomicLong[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new AtomicLong();
+        }
+        return counters;
+    }
+
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.config.DefaultMemcachedBucketConfig;
+import com.couchbase.client.core.config.MemcachedBucketConfig;
+import com.couchbase.client.core.config.NodeInfo;
+import com.couchbase.client.core.node.Node;
+
+import java.net.InetAddress;
+import java.util.List;
+
+/**
+ * Maps the node indexes of one {@link MemcachedBucketConfig} to the currently managed {@link Node}s.
+ *
+ * Together with {@link DefaultMemcachedBucketConfig#nodeIndexForId(byte[])} this turns finding the target of a
+ * request into a lookup on the ketama continuum and one array load, instead of comparing the address of
+ * every node.
+ *
+ * Instances are immutable and only valid for the exact config and node list snapshot they have been built from,
+ * see {@link #isValidFor(MemcachedBucketConfig, List)}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+final class KetamaNodeTable {
+
+    private final MemcachedBucketConfig config;
+    private final List<Node> nodes;
+    private final Node[] nodesByIndex;
+
+    private KetamaNodeTable(final MemcachedBucketConfig config, final List<Node> nodes) {
+        this.config = config;
+        this.nodes = nodes;
+
+        Node[] managedNodes = nodes.toArray(new Node[nodes.size()]);
+        List<NodeInfo> configNodes = config.nodes();
+        nodesByIndex = new Node[configNodes.size()];
+        for (int i = 0; i < nodesByIndex.length; i++) {
+            nodesByIndex[i] = findNode(configNodes.get(i), managedNodes);
+        }
+    }
+
+    /**
+     * Builds the table for the given config and node list.
+     *
+     * @param config the bucket config.
+     * @param nodes the currently managed nodes.
+     * @return the new table.
+     */
+    static KetamaNodeTable create(final MemcachedBucketConfig config, final List<Node> nodes) {
+        return new KetamaNodeTable(config, nodes);
+    }
+
+    /**
+     * Checks if this table still reflects the given config and node list.
+     *
+     * @param config the current bucket config.
+     * @param nodes the snapshot of the currently managed nodes.
+     * @return true if the table can be used, false if it needs to be rebuilt.
+     * @see PartitionTable#isValidFor(com.couchbase.client.core.config.CouchbaseBucketConfig, List)
+     */
+    boolean isValidFor(final MemcachedBucketConfig config, final List<Node> nodes) {
+        return this.config == config && this.nodes == nodes;
+    }
+
+    /**
+     * Returns the managed {@link Node} for the given node index.
+     *
+     * @param nodeIndex the node index as returned from {@link DefaultMemcachedBucketConfig#nodeIndexForId(byte[])}.
+     * @return the node or null if it is not (yet) part of the managed nodes.
+     */
+    Node nodeForIndex(final int nodeIndex) {
+        return nodeIndex >= 0 && nodeIndex < nodesByIndex.length ? nodesByIndex[nodeIndex] : null;
+    }
+
+    private static Node findNode(final NodeInfo nodeInfo, final Node[] nodes) {
+        InetAddress hostname = nodeInfo == null ? null : nodeInfo.hostname();
+        if (hostname == null) {
+            return null;
+        }
+
+        for (Node node : nodes) {
+            if (hostname.equals(node.hostname())) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+}
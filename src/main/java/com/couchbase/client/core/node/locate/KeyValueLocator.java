@@ -22,13 +22,14 @@ import com.couchbase.client.core.config.BucketConfig;
 import com.couchbase.client.core.config.ClusterConfig;
 import com.couchbase.client.core.config.CouchbaseBucketConfig;
 import com.couchbase.client.core.config.DefaultCouchbaseBucketConfig;
+import com.couchbase.client.core.config.DefaultMemcachedBucketConfig;
 import com.couchbase.client.core.config.MemcachedBucketConfig;
-import com.couchbase.client.core.config.NodeInfo;
 import com.couchbase.client.core.env.CoreEnvironment;
 import com.couchbase.client.core.logging.CouchbaseLogger;
 import com.couchbase.client.core.logging.CouchbaseLoggerFactory;
 import com.couchbase.client.core.message.CouchbaseRequest;
 import com.couchbase.client.core.message.kv.BinaryRequest;
+import com.couchbase.client.core.message.kv.BulkRequest;
 import com.couchbase.client.core.message.kv.GetAllMutationTokensRequest;
 import com.couchbase.client.core.message.kv.GetBucketConfigRequest;
 import com.couchbase.client.core.message.kv.ObserveRequest;
@@ -42,7 +43,8 @@ import com.lmax.disruptor.RingBuffer;
 
 import java.net.InetAddress;
 import java.util.List;
-import java.util.zip.CRC32;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This {@link Locator} finds the proper {@link Node}s for every incoming {@link BinaryRequest}.
@@ -64,6 +66,52 @@ public class KeyValueLocator implements Locator {
     private static final int MIN_KEY_BYTES = 1;
     private static final int MAX_KEY_BYTES = 250;
 
+    /**
+     * Lookup table for the (reflected) CRC32 polynomial, same as used by {@link java.util.zip.CRC32}.
+     */
+    private static final int[] CRC32_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < CRC32_TABLE.length; i++) {
+            int crc = i;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0xEDB88320 : crc >>> 1;
+            }
+            CRC32_TABLE[i] = crc;
+        }
+    }
+
+    /**
+     * The precomputed partition tables, one per couchbase bucket.
+     */
+    private final ConcurrentMap<String, PartitionTable> partitionTables =
+        new ConcurrentHashMap<String, PartitionTable>();
+
+    /**
+     * The precomputed ketama node tables, one per memcached bucket.
+     */
+    private final ConcurrentMap<String, KetamaNodeTable> ketamaNodeTables =
+        new ConcurrentHashMap<String, KetamaNodeTable>();
+
+    /**
+     * Drops the precomputed tables of all buckets which are not part of the given configuration anymore, for
+     * example because they have been closed.
+     *
+     * @param config the new cluster configuration.
+     */
+    public void pruneTables(final ClusterConfig config) {
+        for (String bucket : partitionTables.keySet()) {
+            if (!config.hasBucket(bucket)) {
+                partitionTables.remove(bucket);
+            }
+        }
+        for (String bucket : ketamaNodeTables.keySet()) {
+            if (!config.hasBucket(bucket)) {
+                ketamaNodeTables.remove(bucket);
+            }
+        }
+    }
+
     @Override
     public void locateAndDispatch(final CouchbaseRequest request, final List<Node> nodes, final ClusterConfig cluster,
         CoreEnvironment env, RingBuffer<ResponseEvent> responseBuffer) {
@@ -81,15 +129,73 @@ public class KeyValueLocator implements Locator {
         }
 
         BucketConfig bucket = cluster.bucketConfig(request.bucket());
+        if (request instanceof BulkRequest) {
+            locateBulk((BulkRequest<?>) request, nodes, bucket, env, responseBuffer);
+            return;
+        }
+
+        Node node = locate((BinaryRequest) request, nodes, bucket, env, responseBuffer);
+        if (node != null) {
+            node.send(request);
+        }
+    }
+
+    /**
+     * Locates the {@link Node} for a single request.
+     *
+     * @return the node to send the request to, or null if the request has already been failed or rescheduled.
+     */
+    private Node locate(final BinaryRequest request, final List<Node> nodes, final BucketConfig bucket,
+        final CoreEnvironment env, final RingBuffer<ResponseEvent> responseBuffer) {
         if (bucket instanceof CouchbaseBucketConfig) {
-            locateForCouchbaseBucket((BinaryRequest) request, nodes, (CouchbaseBucketConfig) bucket, env, responseBuffer);
+            return locateForCouchbaseBucket(request, nodes, (CouchbaseBucketConfig) bucket, env, responseBuffer);
         } else if (bucket instanceof MemcachedBucketConfig) {
-            locateForMemcacheBucket((BinaryRequest) request, nodes, (MemcachedBucketConfig) bucket, env, responseBuffer);
+            return locateForMemcacheBucket(request, nodes, (MemcachedBucketConfig) bucket, env, responseBuffer);
         } else {
             throw new IllegalStateException("Unsupported Bucket Type: " + bucket + " for request " + request);
         }
     }
 
+    /**
+     * Locates every request contained in a {@link BulkRequest} and sends them grouped by their target node.
+     *
+     * All requests for one node are handed over back to back, so they end up as one contiguous burst on the
+     * endpoints of the node. Requests which cannot be located are failed or rescheduled on their own, also if
+     * locating them throws, so the other requests are still sent.
+     *
+     * @param bulk the bulk request.
+     * @param nodes the managed nodes.
+     * @param bucket the bucket configuration.
+     */
+    private void locateBulk(final BulkRequest<?> bulk, final List<Node> nodes, final BucketConfig bucket,
+        final CoreEnvironment env, final RingBuffer<ResponseEvent> responseBuffer) {
+        List<? extends BinaryRequest> requests = bulk.requests();
+        int size = requests.size();
+        Node[] targets = new Node[size];
+        for (int i = 0; i < size; i++) {
+            BinaryRequest request = requests.get(i);
+            try {
+                targets[i] = locate(request, nodes, bucket, env, responseBuffer);
+            } catch (RuntimeException ex) {
+                // fail only this child, the others are still located and sent
+                request.observable().onError(ex);
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            Node node = targets[i];
+            if (node == null) {
+                continue;
+            }
+            for (int j = i; j < size; j++) {
+                if (targets[j] == node) {
+                    node.send(requests.get(j));
+                    targets[j] = null;
+                }
+            }
+        }
+    }
+
 
     private static void locateByHostname(final CouchbaseRequest request, final InetAddress hostname, List<Node> nodes,
         CoreEnvironment env, RingBuffer<ResponseEvent> responseBuffer) {
@@ -111,49 +217,83 @@ public class KeyValueLocator implements Locator {
      * @param request the request.
      * @param nodes the managed nodes.
      * @param config the bucket configuration.
+     * @return the node to send the request to, or null if the request has already been failed or rescheduled.
      */
-    private static void locateForCouchbaseBucket(final BinaryRequest request, final List<Node> nodes,
+    private Node locateForCouchbaseBucket(final BinaryRequest request, final List<Node> nodes,
         final CouchbaseBucketConfig config, CoreEnvironment env, RingBuffer<ResponseEvent> responseBuffer) {
 
         if (!keyIsValid(request)) {
-            return;
+            return null;
         }
 
-        int partitionId = partitionForKey(request.keyBytes(), config.numberOfPartitions());
+        PartitionTable table = partitionTable(request.bucket(), config, nodes);
+        int partitionId = partitionForKey(request.keyBytes(), table.numberOfPartitions());
         request.partition((short) partitionId);
 
-        int nodeId = calculateNodeId(partitionId, request, config);
+        int nodeId = calculateNodeId(partitionId, request, table);
         if (nodeId < 0) {
             errorObservables(nodeId, request, config.name(), env, responseBuffer);
-            return;
+            return null;
         }
 
-        NodeInfo nodeInfo = config.nodeAtIndex(nodeId);
-
-        for (Node node : nodes) {
-            if (node.hostname().equals(nodeInfo.hostname())) {
-                node.send(request);
-                return;
-            }
+        Node node = table.nodeForIndex(nodeId);
+        if (node != null) {
+            return node;
         }
 
         if(handleNotEqualNodeSizes(config.nodes().size(), nodes.size())) {
             RetryHelper.retryOrCancel(env, request, responseBuffer);
-            return;
+            return null;
         }
 
         throw new IllegalStateException("Node not found for request" + request);
     }
 
+    /**
+     * Returns the partition table for the given config and nodes, rebuilding it if either of them changed.
+     *
+     * @param bucket the name of the bucket.
+     * @param config the current bucket configuration.
+     * @param nodes the managed nodes.
+     * @return the partition table to use.
+     */
+    private PartitionTable partitionTable(final String bucket, final CouchbaseBucketConfig config,
+        final List<Node> nodes) {
+        PartitionTable table = partitionTables.get(bucket);
+        if (table == null || !table.isValidFor(config, nodes)) {
+            table = PartitionTable.create(config, nodes);
+            partitionTables.put(bucket, table);
+        }
+        return table;
+    }
+
+    /**
+     * Returns the ketama node table for the given config and nodes, rebuilding it if either of them changed.
+     *
+     * @param bucket the name of the bucket.
+     * @param config the current bucket configuration.
+     * @param nodes the managed nodes.
+     * @return the ketama node table to use.
+     */
+    private KetamaNodeTable ketamaNodeTable(final String bucket, final DefaultMemcachedBucketConfig config,
+        final List<Node> nodes) {
+        KetamaNodeTable table = ketamaNodeTables.get(bucket);
+        if (table == null || !table.isValidFor(config, nodes)) {
+            table = KetamaNodeTable.create(config, nodes);
+            ketamaNodeTables.put(bucket, table);
+        }
+        return table;
+    }
+
     /**
      * Helper method to calculate the node if for the given partition and request type.
      *
      * @param partitionId the partition id.
      * @param request the request used.
-     * @param config the current bucket configuration.
+     * @param config the partition table of the current bucket configuration.
      * @return the calculated node id.
      */
-    private static int calculateNodeId(int partitionId, BinaryRequest request, CouchbaseBucketConfig config) {
+    private static int calculateNodeId(int partitionId, BinaryRequest request, PartitionTable config) {
         boolean useFastForward = request.retryCount() > 0 && config.hasFastForwardMap();
 
         if (request instanceof ReplicaGetRequest) {
@@ -226,14 +366,18 @@ public class KeyValueLocator implements Locator {
     /**
      * Calculate the vbucket for the given key.
      *
+     * The CRC32 is computed through a lookup table straight from the key, so this does not allocate.
+     *
      * @param key the key to calculate from.
      * @param numPartitions the number of partitions in the bucket.
      * @return the calculated partition.
      */
-    private static int partitionForKey(byte[] key, int numPartitions) {
-        CRC32 crc32 = new CRC32();
-        crc32.update(key);
-        long rv = (crc32.getValue() >> 16) & 0x7fff;
+    static int partitionForKey(byte[] key, int numPartitions) {
+        int crc = 0xFFFFFFFF;
+        for (byte b : key) {
+            crc = (crc >>> 8) ^ CRC32_TABLE[(crc ^ b) & 0xFF];
+        }
+        long rv = ((~crc & 0xFFFFFFFFL) >> 16) & 0x7fff;
         return (int) rv &numPartitions - 1;
     }
 
@@ -243,27 +387,39 @@ public class KeyValueLocator implements Locator {
      * @param request the request.
      * @param nodes the managed nodes.
      * @param config the bucket configuration.
+     * @return the node to send the request to, or null if the request has already been failed or rescheduled.
      */
-    private static void locateForMemcacheBucket(final BinaryRequest request, final List<Node> nodes,
+    private Node locateForMemcacheBucket(final BinaryRequest request, final List<Node> nodes,
         final MemcachedBucketConfig config, CoreEnvironment env, RingBuffer<ResponseEvent> responseBuffer) {
 
         if (!keyIsValid(request)) {
-            return;
+            return null;
         }
 
-        InetAddress hostname = config.nodeForId(request.keyBytes());
         request.partition((short) 0);
 
-        for (Node node : nodes) {
-            if (node.hostname().equals(hostname)) {
-                node.send(request);
-                return;
+        // the flattened continuum is an implementation detail, other configs are asked for the address
+        if (config instanceof DefaultMemcachedBucketConfig) {
+            DefaultMemcachedBucketConfig defaultConfig = (DefaultMemcachedBucketConfig) config;
+            KetamaNodeTable table = ketamaNodeTable(request.bucket(), defaultConfig, nodes);
+            Node node = table.nodeForIndex(defaultConfig.nodeIndexForId(request.keyBytes()));
+            if (node != null) {
+                return node;
+            }
+        } else {
+            InetAddress hostname = config.nodeForId(request.keyBytes());
+            if (hostname != null) {
+                for (Node node : nodes) {
+                    if (hostname.equals(node.hostname())) {
+                        return node;
+                    }
+                }
             }
         }
 
         if(handleNotEqualNodeSizes(config.nodes().size(), nodes.size())) {
             RetryHelper.retryOrCancel(env, request, responseBuffer);
-            return;
+            return null;
         }
 
         throw new IllegalStateException("Node not found for request" + request);
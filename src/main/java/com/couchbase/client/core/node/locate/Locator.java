@@ -31,7 +31,8 @@ public interface Locator {
      * dispatches the request into them.
      *
      * @param request the request to dispatch.
-     * @param nodes the current list of active nodes.
+     * @param nodes the current list of active nodes, an immutable snapshot which is replaced by a new instance
+     *              whenever a node is added or removed.
      * @param config the current cluster configuration.
      * @param env the core environment.
      * @param responseBuffer the response buffer for potential redistribution.
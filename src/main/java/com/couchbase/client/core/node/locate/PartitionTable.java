@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.node.locate;
+
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.config.DefaultCouchbaseBucketConfig;
+import com.couchbase.client.core.config.NodeInfo;
+import com.couchbase.client.core.node.Node;
+
+import java.net.InetAddress;
+import java.util.List;
+
+/**
+ * A dense, precomputed view of the partition map of one {@link CouchbaseBucketConfig} against the list of
+ * currently managed {@link Node}s.
+ *
+ * For every partition the node index of the master and each replica (and the same for the fast forward map,
+ * if present) is kept in primitive arrays, and every node index points directly to its {@link Node}. Finding
+ * the target of a request is then two array loads instead of walking the partition list and comparing the
+ * address of every node.
+ *
+ * Instances are immutable and only valid for the exact config and node list snapshot they have been built from,
+ * see {@link #isValidFor(CouchbaseBucketConfig, List)}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+final class PartitionTable {
+
+    private final CouchbaseBucketConfig config;
+    private final List<Node> nodes;
+
+    private final int numberOfPartitions;
+    private final short[] master;
+    private final short[][] replicas;
+    private final short[] forwardMaster;
+    private final short[][] forwardReplicas;
+    private final Node[] nodesByIndex;
+
+    private PartitionTable(final CouchbaseBucketConfig config, final List<Node> nodes) {
+        this.config = config;
+        this.nodes = nodes;
+        this.numberOfPartitions = config.numberOfPartitions();
+
+        int numberOfReplicas = Math.max(config.numberOfReplicas(), 0);
+        master = new short[numberOfPartitions];
+        replicas = new short[numberOfReplicas][numberOfPartitions];
+        fill(config, false, master, replicas);
+
+        if (config.hasFastForwardMap()) {
+            forwardMaster = new short[numberOfPartitions];
+            forwardReplicas = new short[numberOfReplicas][numberOfPartitions];
+            fill(config, true, forwardMaster, forwardReplicas);
+        } else {
+            forwardMaster = null;
+            forwardReplicas = null;
+        }
+
+        int maxIndex = max(master, replicas);
+        if (forwardMaster != null) {
+            maxIndex = Math.max(maxIndex, max(forwardMaster, forwardReplicas));
+        }
+        Node[] managedNodes = nodes.toArray(new Node[nodes.size()]);
+        nodesByIndex = new Node[maxIndex + 1];
+        for (int i = 0; i < nodesByIndex.length; i++) {
+            nodesByIndex[i] = findNode(config, i, managedNodes);
+        }
+    }
+
+    /**
+     * Builds the table for the given config and node list.
+     *
+     * @param config the bucket config.
+     * @param nodes the currently managed nodes.
+     * @return the new table.
+     */
+    static PartitionTable create(final CouchbaseBucketConfig config, final List<Node> nodes) {
+        return new PartitionTable(config, nodes);
+    }
+
+    /**
+     * Checks if this table still reflects the given config and node list.
+     *
+     * Both are compared by identity: every new config revision is a new instance, and the request handler
+     * publishes a new immutable snapshot of the node list whenever a node is added or removed, which also covers
+     * a node being replaced by another one.
+     *
+     * @param config the current bucket config.
+     * @param nodes the snapshot of the currently managed nodes.
+     * @return true if the table can be used, false if it needs to be rebuilt.
+     */
+    boolean isValidFor(final CouchbaseBucketConfig config, final List<Node> nodes) {
+        return this.config == config && this.nodes == nodes;
+    }
+
+    int numberOfPartitions() {
+        return numberOfPartitions;
+    }
+
+    boolean hasFastForwardMap() {
+        return forwardMaster != null;
+    }
+
+    /**
+     * Returns the node index of the master for the given partition.
+     *
+     * @return the node index, a negative value as returned from the config if not available.
+     */
+    short nodeIndexForMaster(final int partition, final boolean useFastForward) {
+        short[] map = useFastForward ? forwardMaster : master;
+        if (partition < 0 || partition >= numberOfPartitions) {
+            return DefaultCouchbaseBucketConfig.PARTITION_NOT_EXISTENT;
+        }
+        return map[partition];
+    }
+
+    /**
+     * Returns the node index of the given replica (starting at 0) for the given partition.
+     *
+     * @return the node index, a negative value as returned from the config if not available.
+     */
+    short nodeIndexForReplica(final int partition, final int replica, final boolean useFastForward) {
+        short[][] map = useFastForward ? forwardReplicas : replicas;
+        if (partition < 0 || partition >= numberOfPartitions || replica < 0 || replica >= map.length) {
+            return DefaultCouchbaseBucketConfig.PARTITION_NOT_EXISTENT;
+        }
+        return map[replica][partition];
+    }
+
+    /**
+     * Returns the managed {@link Node} for the given node index.
+     *
+     * @param nodeIndex the node index as returned from the partition map.
+     * @return the node or null if it is not (yet) part of the managed nodes.
+     */
+    Node nodeForIndex(final int nodeIndex) {
+        return nodeIndex < nodesByIndex.length ? nodesByIndex[nodeIndex] : null;
+    }
+
+    private static void fill(final CouchbaseBucketConfig config, final boolean useFastForward,
+        final short[] master, final short[][] replicas) {
+        for (int partition = 0; partition < master.length; partition++) {
+            master[partition] = config.nodeIndexForMaster(partition, useFastForward);
+            for (int replica = 0; replica < replicas.length; replica++) {
+                replicas[replica][partition] = config.nodeIndexForReplica(partition, replica, useFastForward);
+            }
+        }
+    }
+
+    private static int max(final short[] master, final short[][] replicas) {
+        int max = -1;
+        for (short index : master) {
+            max = Math.max(max, index);
+        }
+        for (short[] replica : replicas) {
+            for (short index : replica) {
+                max = Math.max(max, index);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Looks up the managed {@link Node} for the given node index by comparing its address.
+     *
+     * @param config the bucket config.
+     * @param nodeIndex the node index as returned from the partition map.
+     * @param nodes the managed nodes.
+     * @return the node or null if it is not (yet) part of the managed nodes.
+     */
+    private static Node findNode(final CouchbaseBucketConfig config, final int nodeIndex, final Node[] nodes) {
+        NodeInfo nodeInfo;
+        try {
+            nodeInfo = config.nodeAtIndex(nodeIndex);
+        } catch (IndexOutOfBoundsException ex) {
+            return null;
+        }
+        InetAddress hostname = nodeInfo == null ? null : nodeInfo.hostname();
+        if (hostname == null) {
+            return null;
+        }
+
+        for (Node node : nodes) {
+            if (hostname.equals(node.hostname())) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.security.sasl;
+
+import com.couchbase.client.core.utils.Base64;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of SCRAM salted passwords, shared by all connections of an environment.
+ *
+ * Deriving the salted password runs thousands of HMAC rounds, which is the by far most expensive part of a SCRAM
+ * handshake. Since the server hands out the same salt and iteration count for a user until the password changes,
+ * the result can be reused for every further connection. Entries are keyed by mechanism, user, salt and iteration
+ * count; a digest of the password is kept alongside so that a changed password is never answered from the cache.
+ * Once full, the least recently used entry is evicted.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class SaltedPasswordCache {
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize the maximum number of salted passwords kept.
+     */
+    public SaltedPasswordCache(final int maxSize) {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached salted password, or null if not cached for this password.
+     *
+     * @param mechanism the SCRAM mechanism.
+     * @param username the name of the user.
+     * @param password the password of the user.
+     * @param salt the salt sent by the server.
+     * @param iterations the iteration count sent by the server.
+     * @return a copy of the salted password or null.
+     */
+    public byte[] get(final String mechanism, final String username, final String password, final byte[] salt,
+        final int iterations) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key(mechanism, username, salt, iterations));
+        }
+        if (entry == null || !MessageDigest.isEqual(entry.passwordDigest, digest(password))) {
+            return null;
+        }
+        return entry.saltedPassword.clone();
+    }
+
+    /**
+     * Stores the salted password derived for the given parameters.
+     *
+     * @param mechanism the SCRAM mechanism.
+     * @param username the name of the user.
+     * @param password the password of the user.
+     * @param salt the salt sent by the server.
+     * @param iterations the iteration count sent by the server.
+     * @param saltedPassword the derived salted password.
+     */
+    public void put(final String mechanism, final String username, final String password, final byte[] salt,
+        final int iterations, final byte[] saltedPassword) {
+        Entry entry = new Entry(digest(password), saltedPassword.clone());
+        synchronized (entries) {
+            entries.put(key(mechanism, username, salt, iterations), entry);
+        }
+    }
+
+    /**
+     * Returns the number of cached salted passwords.
+     *
+     * @return the cache size.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Builds the lookup key out of the parameters the derivation depends on, apart from the password.
+     */
+    private static String key(final String mechanism, final String username, final byte[] salt,
+        final int iterations) {
+        return mechanism + '\0' + username + '\0' + Base64.encode(salt) + '\0' + iterations;
+    }
+
+    /**
+     * Digests the password, so that the cache does not need to keep the password itself.
+     */
+    private static byte[] digest(final String password) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(password.getBytes());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+
+    /**
+     * A cached salted password together with the digest of the password it has been derived from.
+     */
+    private static class Entry {
+
+        private final byte[] passwordDigest;
+        private final byte[] saltedPassword;
+
+        Entry(final byte[] passwordDigest, final byte[] saltedPassword) {
+            this.passwordDigest = passwordDigest;
+            this.saltedPassword = saltedPassword;
+        }
+    }
+
+}
@@ -29,6 +29,11 @@ import java.util.Map;
  */
 public class Sasl {
 
+    /**
+     * The property under which a {@link SaltedPasswordCache} can be passed to the SCRAM clients.
+     */
+    public static final String SALTED_PASSWORD_CACHE = "com.couchbase.saltedPasswordCache";
+
     /**
      * Our custom client factory which supports the additional mechanisms.
      */
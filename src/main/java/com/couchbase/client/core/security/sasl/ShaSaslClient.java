@@ -16,6 +16,7 @@
 package com.couchbase.client.core.security.sasl;
 
 import com.couchbase.client.core.utils.Base64;
+import io.netty.util.concurrent.FastThreadLocal;
 
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
@@ -47,10 +48,28 @@ public class ShaSaslClient implements SaslClient {
     private static final byte[] CLIENT_KEY = "Client Key".getBytes();
     private static final byte[] SERVER_KEY = "Server Key".getBytes();
 
+    /**
+     * The {@link Mac} instances of the current thread per algorithm, since looking them up is costly.
+     *
+     * They are initialized for every use and scrubbed afterwards, see {@link #scrub(Mac)}.
+     */
+    private static final FastThreadLocal<Map<String, Mac>> MACS = new FastThreadLocal<Map<String, Mac>>() {
+        @Override
+        protected Map<String, Mac> initialValue() throws Exception {
+            return new HashMap<String, Mac>();
+        }
+    };
+
+    /**
+     * The key a cached {@link Mac} is left with after use, in place of the key derived from the password.
+     */
+    private static final byte[] SCRUB_KEY = new byte[] { 0 };
+
     private final String name;
     private final String hmacAlgorithm;
     private final CallbackHandler callbacks;
     private final MessageDigest digest;
+    private final SaltedPasswordCache saltedPasswordCache;
 
     private String clientNonce;
     private byte[] salt;
@@ -64,7 +83,13 @@ public class ShaSaslClient implements SaslClient {
     private String nonce;
 
     public ShaSaslClient(CallbackHandler cbh, int sha) throws NoSuchAlgorithmException {
+        this(cbh, sha, null);
+    }
+
+    public ShaSaslClient(CallbackHandler cbh, int sha, SaltedPasswordCache saltedPasswordCache)
+        throws NoSuchAlgorithmException {
         callbacks = cbh;
+        this.saltedPasswordCache = saltedPasswordCache;
         switch (sha) {
             case 512:
                 digest = MessageDigest.getInstance("SHA-512");
@@ -217,9 +242,13 @@ public class ShaSaslClient implements SaslClient {
      */
     private byte[] hmac(byte[] key, byte[] data) {
         try {
-            final Mac mac = Mac.getInstance(hmacAlgorithm);
-            mac.init(new SecretKeySpec(key, mac.getAlgorithm()));
-            return mac.doFinal(data);
+            final Mac mac = mac();
+            try {
+                mac.init(new SecretKeySpec(key, mac.getAlgorithm()));
+                return mac.doFinal(data);
+            } finally {
+                scrub(mac);
+            }
         } catch (InvalidKeyException e) {
             if (key.length == 0) {
                 throw new UnsupportedOperationException("This JVM does not support empty HMAC keys (empty passwords). "
@@ -245,29 +274,33 @@ public class ShaSaslClient implements SaslClient {
      */
     private byte[] pbkdf2(final String password, final byte[] salt, int iterations) {
         try {
-            Mac mac = Mac.getInstance(hmacAlgorithm);
+            Mac mac = mac();
             Key key;
             if (password == null || password.isEmpty()) {
                 key = new EmptySecretKey(hmacAlgorithm);
             } else {
                 key = new SecretKeySpec(password.getBytes(), hmacAlgorithm);
             }
-            mac.init(key);
-            mac.update(salt);
-            mac.update("\00\00\00\01".getBytes()); // Append INT(1)
-
-            byte[] un = mac.doFinal();
-            mac.update(un);
-            byte[] uprev = mac.doFinal();
-            xor(un, uprev);
-
-            for (int i = 2; i < iterations; ++i) {
-                mac.update(uprev);
-                uprev = mac.doFinal();
+            try {
+                mac.init(key);
+                mac.update(salt);
+                mac.update("\00\00\00\01".getBytes()); // Append INT(1)
+
+                byte[] un = mac.doFinal();
+                mac.update(un);
+                byte[] uprev = mac.doFinal();
                 xor(un, uprev);
-            }
 
-            return un;
+                for (int i = 2; i < iterations; ++i) {
+                    mac.update(uprev);
+                    uprev = mac.doFinal();
+                    xor(un, uprev);
+                }
+
+                return un;
+            } finally {
+                scrub(mac);
+            }
         } catch (InvalidKeyException e) {
             if (password == null || password.isEmpty()) {
                 throw new UnsupportedOperationException("This JVM does not support empty HMAC keys (empty passwords). "
@@ -280,6 +313,31 @@ public class ShaSaslClient implements SaslClient {
         }
     }
 
+    /**
+     * Returns the {@link Mac} of the current thread for the HMAC algorithm, it needs to be initialized before use.
+     */
+    private Mac mac() throws NoSuchAlgorithmException {
+        Map<String, Mac> macs = MACS.get();
+        Mac mac = macs.get(hmacAlgorithm);
+        if (mac == null) {
+            mac = Mac.getInstance(hmacAlgorithm);
+            macs.put(hmacAlgorithm, mac);
+        }
+        return mac;
+    }
+
+    /**
+     * Re-initializes the cached {@link Mac} with a dummy key, so the IO thread does not keep the password or salted
+     * password around after the handshake. If that fails, the {@link Mac} is dropped from the cache instead.
+     */
+    private void scrub(final Mac mac) {
+        try {
+            mac.init(new SecretKeySpec(SCRUB_KEY, hmacAlgorithm));
+        } catch (InvalidKeyException e) {
+            MACS.get().remove(hmacAlgorithm);
+        }
+    }
+
     /**
      * XOR the two arrays and store the result in the first one.
      *
@@ -308,8 +366,18 @@ public class ShaSaslClient implements SaslClient {
         }
 
         String password = new String(pw);
-        saltedPassword = pbkdf2(password, salt, iterationCount);
         passwordCallback.clearPassword();
+        if (saltedPasswordCache == null) {
+            saltedPassword = pbkdf2(password, salt, iterationCount);
+            return;
+        }
+
+        String username = getUserName();
+        saltedPassword = saltedPasswordCache.get(name, username, password, salt, iterationCount);
+        if (saltedPassword == null) {
+            saltedPassword = pbkdf2(password, salt, iterationCount);
+            saltedPasswordCache.put(name, username, password, salt, iterationCount, saltedPassword);
+        }
     }
 
     /**
@@ -68,7 +68,9 @@ public class ShaSaslClientFactory implements SaslClientFactory {
         }
 
         try {
-            return new ShaSaslClient(cbh, sha);
+            Object cache = props == null ? null : props.get(Sasl.SALTED_PASSWORD_CACHE);
+            return new ShaSaslClient(cbh, sha,
+                cache instanceof SaltedPasswordCache ? (SaltedPasswordCache) cache : null);
         } catch (NoSuchAlgorithmException e) {
             return null;
         }
@@ -38,6 +38,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A generic implementation of a service pool.
@@ -68,8 +70,10 @@ public abstract class PooledService extends AbstractStateMachine<LifecycleState>
 
     /**
      * Pending requests to account for requests waiting for a socket to be connected.
+     *
+     * Updated from all request dispatch threads, so slots are reserved and released atomically.
      */
-    private volatile int pendingRequests;
+    private final AtomicInteger pendingRequests = new AtomicInteger();
 
     /**
      * Full disconnect has been initiated.
@@ -96,7 +100,6 @@ public abstract class PooledService extends AbstractStateMachine<LifecycleState>
         this.endpoints = new CopyOnWriteArrayList<Endpoint>();
         this.fixedEndpoints = minEndpoints == maxEndpoints;
         this.selectionStrategy = selectionStrategy;
-        this.pendingRequests = 0;
         this.disconnect = false;
         endpointStates = new EndpointStateZipper(initialState);
         endpointStates.states().subscribe(new Action1<LifecycleState>() {
@@ -319,7 +322,7 @@ public abstract class PooledService extends AbstractStateMachine<LifecycleState>
         Endpoint endpoint = endpoints.size() > 0 ? selectionStrategy.select(request, endpoints) : null;
 
         if (endpoint == null) {
-            if (fixedEndpoints || ((endpoints.size() + pendingRequests) >= maxEndpoints)) {
+            if (fixedEndpoints || !reservePending()) {
                 RetryHelper.retryOrCancel(env, request, responseBuffer);
             } else {
                 maybeOpenAndSend(request);
@@ -329,14 +332,35 @@ public abstract class PooledService extends AbstractStateMachine<LifecycleState>
         }
     }
 
+    /**
+     * Helper method to reserve a pending slot if opening one more endpoint stays within the maximum.
+     *
+     * @return true if a slot has been reserved, false if the service is already at its maximum.
+     */
+    private boolean reservePending() {
+        while (true) {
+            int pending = pendingRequests.get();
+            if (endpoints.size() + pending >= maxEndpoints) {
+                return false;
+            }
+            if (pendingRequests.compareAndSet(pending, pending + 1)) {
+                return true;
+            }
+        }
+    }
+
     /**
      * Helper method to try and open new endpoints as needed and correctly integrate
      * them into the state of the service.
+     *
+     * The caller needs to have reserved a pending slot through {@link #reservePending()}, which is released
+     * exactly once when the endpoint connected or failed to connect.
      */
     private void maybeOpenAndSend(final CouchbaseRequest request) {
-        pendingRequests++;
         LOGGER.debug(logIdent(hostname, PooledService.this)
-                + "Need to open a new Endpoint (size {}), pending requests {}", endpoints.size(), pendingRequests);
+                + "Need to open a new Endpoint (size {}), pending requests {}", endpoints.size(),
+                pendingRequests.get());
+        final AtomicBoolean pending = new AtomicBoolean(true);
 
         final Endpoint endpoint = endpointFactory.create(
             hostname, bucket, password, port, env, responseBuffer
@@ -361,7 +385,7 @@ public abstract class PooledService extends AbstractStateMachine<LifecycleState>
                             }
                         }
                     } finally {
-                        pendingRequests--;
+                        releasePending(pending);
                     }
                 }
             }
@@ -375,13 +399,13 @@ public abstract class PooledService extends AbstractStateMachine<LifecycleState>
 
             @Override
             public void onError(Throwable e) {
-                unsubscribeAndRetry(subscription, request);
+                unsubscribeAndRetry(subscription, request, pending);
             }
 
             @Override
             public void onNext(LifecycleState state) {
                 if (state == LifecycleState.DISCONNECTING || state == LifecycleState.DISCONNECTED) {
-                    unsubscribeAndRetry(subscription, request);
+                    unsubscribeAndRetry(subscription, request, pending);
                 }
             }
         });
@@ -390,12 +414,27 @@ public abstract class PooledService extends AbstractStateMachine<LifecycleState>
     /**
      * Helper method to unsubscribe from the subscription and send the request into retry.
      */
-    private void unsubscribeAndRetry(final Subscription subscription, final CouchbaseRequest request) {
+    private void unsubscribeAndRetry(final Subscription subscription, final CouchbaseRequest request,
+        final AtomicBoolean pending) {
         if (subscription != null && !subscription.isUnsubscribed()) {
             subscription.unsubscribe();
         }
-        pendingRequests--;
-        RetryHelper.retryOrCancel(env, request, responseBuffer);
+        if (releasePending(pending)) {
+            RetryHelper.retryOrCancel(env, request, responseBuffer);
+        }
+    }
+
+    /**
+     * Helper method to release a reserved pending slot, only the first call per reservation counts.
+     *
+     * @return true if this call released the slot, false if it has been released already.
+     */
+    private boolean releasePending(final AtomicBoolean pending) {
+        if (pending.compareAndSet(true, false)) {
+            pendingRequests.decrementAndGet();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.utils;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.Arrays;
+
+/**
+ * Compresses and decompresses buffers in the raw snappy block format, as used for document values by the server.
+ *
+ * The format is a varint with the uncompressed length followed by a sequence of literals and back references
+ * (copies) into the already uncompressed data. The compressor follows the reference implementation: the input is
+ * split into 64KB fragments, for each of which a hash table of 4 byte sequences finds match candidates and
+ * incompressible sections are skipped over at increasing steps. The hash table is sized to the fragment.
+ *
+ * Fragments are compressed into a per-thread scratch array, along with the hash table, and then appended to the
+ * output buffer, so the output is only as large as the compressed data and compressing does not allocate anything
+ * else. Decompression works on the backing array of a heap buffer, direct buffers are copied first.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public final class Snappy {
+
+    private static final int TAG_LITERAL = 0x00;
+    private static final int TAG_COPY_1 = 0x01;
+    private static final int TAG_COPY_2 = 0x02;
+    private static final int TAG_COPY_4 = 0x03;
+
+    private static final int FRAGMENT_SIZE = 1 << 16;
+    private static final int MIN_HASH_TABLE_BITS = 8;
+    private static final int MAX_HASH_TABLE_BITS = 14;
+    private static final int INPUT_MARGIN = 15;
+    private static final int MAX_LENGTH_BYTES = 5;
+
+    private static final FastThreadLocal<Scratch> SCRATCH = new FastThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() throws Exception {
+            return new Scratch();
+        }
+    };
+
+    private Snappy() {
+    }
+
+    /**
+     * Returns the worst case size of the compressed representation of the given number of bytes.
+     *
+     * @param length the uncompressed length.
+     * @return the maximum compressed length.
+     */
+    public static int maxCompressedLength(final int length) {
+        return 32 + length + length / 6;
+    }
+
+    /**
+     * Compresses the readable bytes of the given buffer without modifying its indexes.
+     *
+     * @param alloc the allocator for the compressed buffer.
+     * @param input the buffer to compress.
+     * @return a new buffer with the compressed representation.
+     */
+    public static ByteBuf compress(final ByteBufAllocator alloc, final ByteBuf input) {
+        int length = input.readableBytes();
+        Scratch scratch = SCRATCH.get();
+        byte[] dst = scratch.output;
+        int op = writeLength(length, dst, 0);
+
+        ByteBuf output = null;
+        int start = 0;
+        do {
+            int fragmentLength = Math.min(FRAGMENT_SIZE, length - start);
+            byte[] src;
+            int srcOffset;
+            if (input.hasArray()) {
+                src = input.array();
+                srcOffset = input.arrayOffset() + input.readerIndex() + start;
+            } else {
+                src = scratch.input();
+                input.getBytes(input.readerIndex() + start, src, 0, fragmentLength);
+                srcOffset = 0;
+            }
+            op = compressFragment(src, srcOffset, fragmentLength, dst, op, scratch.table);
+
+            if (output == null) {
+                // most values are a single fragment, the output of larger ones is estimated from the first one
+                int fragments = Math.max(1, (length + FRAGMENT_SIZE - 1) / FRAGMENT_SIZE);
+                output = alloc.buffer((int) Math.min((long) op * fragments, maxCompressedLength(length)));
+            }
+            output.writeBytes(dst, 0, op);
+            op = 0;
+            start += fragmentLength;
+        } while (start < length);
+        return output;
+    }
+
+    /**
+     * Decompresses the readable bytes of the given buffer without modifying its indexes.
+     *
+     * @param alloc the allocator for the decompressed buffer.
+     * @param input the buffer to decompress.
+     * @return a new heap buffer with the uncompressed data.
+     * @throws DecompressionException if the input is not valid snappy.
+     */
+    public static ByteBuf decompress(final ByteBufAllocator alloc, final ByteBuf input) {
+        int length = input.readableBytes();
+        byte[] src;
+        int srcOffset;
+        if (input.hasArray()) {
+            src = input.array();
+            srcOffset = input.arrayOffset() + input.readerIndex();
+        } else {
+            src = new byte[length];
+            input.getBytes(input.readerIndex(), src);
+            srcOffset = 0;
+        }
+
+        int end = srcOffset + length;
+        long uncompressed = 0;
+        int shift = 0;
+        int ip = srcOffset;
+        while (true) {
+            if (ip == end || shift > 28) {
+                throw new DecompressionException("Invalid snappy length preamble.");
+            }
+            int b = src[ip++] & 0xff;
+            uncompressed |= (long) (b & 0x7f) << shift;
+            if (b < 0x80) {
+                break;
+            }
+            shift += 7;
+        }
+        if (uncompressed > Integer.MAX_VALUE) {
+            throw new DecompressionException("Snappy uncompressed length too large: " + uncompressed);
+        }
+
+        ByteBuf output = alloc.heapBuffer((int) uncompressed, (int) uncompressed);
+        try {
+            int dstOffset = output.arrayOffset() + output.writerIndex();
+            decompress(src, ip, end, output.array(), dstOffset, dstOffset + (int) uncompressed);
+        } catch (RuntimeException ex) {
+            output.release();
+            throw ex;
+        }
+        output.writerIndex(output.writerIndex() + (int) uncompressed);
+        return output;
+    }
+
+    /**
+     * Writes the uncompressed length as a varint.
+     *
+     * @return the offset in the output after the last byte written.
+     */
+    private static int writeLength(final int length, final byte[] dst, final int dstOffset) {
+        int op = dstOffset;
+        int value = length;
+        while ((value & ~0x7f) != 0) {
+            dst[op++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        dst[op++] = (byte) value;
+        return op;
+    }
+
+    /**
+     * Compresses a fragment of at most 64KB, so that all offsets fit into the hash table and into copies with
+     * two byte offsets.
+     *
+     * Like in the reference implementation, only as much of the hash table is used as the fragment needs (at
+     * least 256 and at most 16K entries), so small values do not pay for clearing all of it.
+     */
+    private static int compressFragment(final byte[] src, final int base, final int length, final byte[] dst,
+        final int dstOffset, final short[] table) {
+        int op = dstOffset;
+        int end = base + length;
+        int nextEmit = base;
+
+        if (length >= INPUT_MARGIN) {
+            int tableBits = MIN_HASH_TABLE_BITS;
+            while (tableBits < MAX_HASH_TABLE_BITS && (1 << tableBits) < length) {
+                tableBits++;
+            }
+            int shift = 32 - tableBits;
+            Arrays.fill(table, 0, 1 << tableBits, (short) 0);
+            int ipLimit = end - INPUT_MARGIN;
+            int ip = base + 1;
+
+            scan:
+            while (true) {
+                int candidate;
+                int skip = 32;
+                int nextIp = ip;
+                do {
+                    ip = nextIp;
+                    nextIp = ip + (skip++ >> 5);
+                    if (nextIp > ipLimit) {
+                        break scan;
+                    }
+                    int hash = hash(src, ip, shift);
+                    candidate = base + (table[hash] & 0xffff);
+                    table[hash] = (short) (ip - base);
+                } while (readInt(src, ip) != readInt(src, candidate));
+
+                op = emitLiteral(src, nextEmit, ip - nextEmit, dst, op);
+
+                do {
+                    int matched = 4;
+                    while (ip + matched < end && src[candidate + matched] == src[ip + matched]) {
+                        matched++;
+                    }
+                    op = emitCopy(ip - candidate, matched, dst, op);
+                    ip += matched;
+                    nextEmit = ip;
+                    if (ip >= ipLimit) {
+                        break scan;
+                    }
+
+                    table[hash(src, ip - 1, shift)] = (short) (ip - 1 - base);
+                    int hash = hash(src, ip, shift);
+                    candidate = base + (table[hash] & 0xffff);
+                    table[hash] = (short) (ip - base);
+                } while (readInt(src, ip) == readInt(src, candidate));
+
+                ip++;
+            }
+        }
+
+        if (nextEmit < end) {
+            op = emitLiteral(src, nextEmit, end - nextEmit, dst, op);
+        }
+        return op;
+    }
+
+    /**
+     * Decompresses the elements between ip and end into the output, which must end up exactly full.
+     */
+    static void decompress(final byte[] src, final int srcOffset, final int end, final byte[] dst,
+        final int dstOffset, final int dstLimit) {
+        int ip = srcOffset;
+        int op = dstOffset;
+
+        while (ip < end) {
+            int tag = src[ip++] & 0xff;
+            int length;
+            int offset;
+            switch (tag & 0x03) {
+                case TAG_LITERAL:
+                    length = (tag >>> 2) + 1;
+                    if (length > 60) {
+                        int bytes = length - 60;
+                        if (ip + bytes > end) {
+                            throw new DecompressionException("Truncated snappy literal length.");
+                        }
+                        length = readLittleEndian(src, ip, bytes) + 1;
+                        ip += bytes;
+                    }
+                    if (length <= 0 || ip + length > end || op + length > dstLimit) {
+                        throw new DecompressionException("Invalid snappy literal of length " + length + ".");
+                    }
+                    System.arraycopy(src, ip, dst, op, length);
+                    ip += length;
+                    op += length;
+                    continue;
+                case TAG_COPY_1:
+                    if (ip + 1 > end) {
+                        throw new DecompressionException("Truncated snappy copy.");
+                    }
+                    length = ((tag >>> 2) & 0x07) + 4;
+                    offset = ((tag >>> 5) << 8) | (src[ip++] & 0xff);
+                    break;
+                case TAG_COPY_2:
+                    if (ip + 2 > end) {
+                        throw new DecompressionException("Truncated snappy copy.");
+                    }
+                    length = (tag >>> 2) + 1;
+                    offset = readLittleEndian(src, ip, 2);
+                    ip += 2;
+                    break;
+                default:
+                    if (ip + 4 > end) {
+                        throw new DecompressionException("Truncated snappy copy.");
+                    }
+                    length = (tag >>> 2) + 1;
+                    offset = readLittleEndian(src, ip, 4);
+                    ip += 4;
+                    break;
+            }
+
+            if (offset <= 0 || offset > op - dstOffset || op + length > dstLimit) {
+                throw new DecompressionException("Invalid snappy copy with offset " + offset + " and length "
+                    + length + ".");
+            }
+            int from = op - offset;
+            if (offset >= length) {
+                System.arraycopy(dst, from, dst, op, length);
+                op += length;
+            } else {
+                for (int i = 0; i < length; i++) {
+                    dst[op++] = dst[from + i];
+                }
+            }
+        }
+
+        if (op != dstLimit) {
+            throw new DecompressionException("Snappy data decompressed to " + (op - dstOffset)
+                + " bytes, expected " + (dstLimit - dstOffset) + ".");
+        }
+    }
+
+    private static int emitLiteral(final byte[] src, final int from, final int length, final byte[] dst,
+        final int dstOffset) {
+        int op = dstOffset;
+        int n = length - 1;
+        if (n < 60) {
+            dst[op++] = (byte) (TAG_LITERAL | (n << 2));
+        } else {
+            int bytes = n < (1 << 8) ? 1 : n < (1 << 16) ? 2 : n < (1 << 24) ? 3 : 4;
+            dst[op++] = (byte) (TAG_LITERAL | ((59 + bytes) << 2));
+            for (int i = 0; i < bytes; i++) {
+                dst[op++] = (byte) (n >>> (i << 3));
+            }
+        }
+        System.arraycopy(src, from, dst, op, length);
+        return op + length;
+    }
+
+    private static int emitCopy(final int offset, final int length, final byte[] dst, final int dstOffset) {
+        int op = dstOffset;
+        int remaining = length;
+        while (remaining >= 68) {
+            op = emitCopyAtMost64(offset, 64, dst, op);
+            remaining -= 64;
+        }
+        if (remaining > 64) {
+            op = emitCopyAtMost64(offset, 60, dst, op);
+            remaining -= 60;
+        }
+        return emitCopyAtMost64(offset, remaining, dst, op);
+    }
+
+    private static int emitCopyAtMost64(final int offset, final int length, final byte[] dst, final int dstOffset) {
+        int op = dstOffset;
+        if (length < 12 && offset < 2048) {
+            dst[op++] = (byte) (TAG_COPY_1 | ((length - 4) << 2) | ((offset >>> 8) << 5));
+            dst[op++] = (byte) offset;
+        } else {
+            dst[op++] = (byte) (TAG_COPY_2 | ((length - 1) << 2));
+            dst[op++] = (byte) offset;
+            dst[op++] = (byte) (offset >>> 8);
+        }
+        return op;
+    }
+
+    private static int hash(final byte[] src, final int index, final int shift) {
+        return (readInt(src, index) * 0x1e35a7bd) >>> shift;
+    }
+
+    private static int readInt(final byte[] src, final int index) {
+        return (src[index] & 0xff)
+            | (src[index + 1] & 0xff) << 8
+            | (src[index + 2] & 0xff) << 16
+            | (src[index + 3] & 0xff) << 24;
+    }
+
+    private static int readLittleEndian(final byte[] src, final int index, final int bytes) {
+        int value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value |= (src[index + i] & 0xff) << (i << 3);
+        }
+        return value;
+    }
+
+    /**
+     * The arrays a thread reuses across compressions, all bounded by the fragment size.
+     */
+    private static final class Scratch {
+
+        private final short[] table = new short[1 << MAX_HASH_TABLE_BITS];
+        private final byte[] output = new byte[MAX_LENGTH_BYTES + maxCompressedLength(FRAGMENT_SIZE)];
+        private byte[] input;
+
+        /**
+         * Returns the array to copy fragments of direct buffers into, only created once one is compressed.
+         */
+        byte[] input() {
+            if (input == null) {
+                input = new byte[FRAGMENT_SIZE];
+            }
+            return input;
+        }
+    }
+
+}
@@ -131,6 +131,50 @@ public final class UnicastAutoReleaseSubject<T> extends Subject<T, T> {
         return this;
     }
 
+    /**
+     * Tracks the demand of the subscriber and signals when the producer should pause and resume emitting.
+     *
+     * Once set, the subscriber only gets as many items as it requested and the rest is buffered. Every time the
+     * number of items not yet delivered (including the ones emitted before anyone subscribed) reaches the high
+     * watermark, the demand action is called with false, and once it drained to half of it the action is called
+     * with true. This allows the producer to stop reading from its source and keep the buffer bounded.
+     *
+     * Items only count as delivered once they reach the subscriber of the observable returned by
+     * {@link #observeOnTrackingDemand(Scheduler)}, which must be used to consume this subject. Items prefetched by
+     * its observeOn (and by any other operator in between) therefore still count against the high watermark.
+     *
+     * The tracking is lifted (and the action called with true) once this subject is terminated, disposed or the
+     * subscriber unsubscribes, since from then on nothing is buffered on behalf of the subscriber anymore.
+     *
+     * Must be called before any item is emitted.
+     *
+     * @param highWatermark the number of buffered items at which the producer should pause.
+     * @param demand the action to call with false to pause and true to resume the producer.
+     * @return this subject for chaining purposes.
+     */
+    public UnicastAutoReleaseSubject<T> withDemandTracking(int highWatermark, Action1<Boolean> demand) {
+        if (highWatermark <= 0) {
+            throw new IllegalArgumentException("The high watermark must be greater than 0");
+        }
+        this.state.demand = new Demand(highWatermark, demand);
+        return this;
+    }
+
+    /**
+     * Observes this subject on the given scheduler and counts items as delivered once they reach the subscriber.
+     *
+     * @param scheduler the scheduler to observe on.
+     * @return the observable to hand out to the subscriber.
+     * @throws IllegalStateException if {@link #withDemandTracking(int, Action1)} has not been called before.
+     */
+    public Observable<T> observeOnTrackingDemand(Scheduler scheduler) {
+        Demand demand = state.demand;
+        if (demand == null) {
+            throw new IllegalStateException("Demand tracking is not enabled on this subject");
+        }
+        return observeOn(scheduler).lift(new DemandTrackingOperator<T>(demand));
+    }
+
     /**
      * This will eagerly dispose this {@link Subject} without waiting for the no subscription timeout period,
      * if configured.
@@ -142,6 +186,9 @@ public final class UnicastAutoReleaseSubject<T> extends Subject<T, T> {
      */
     public boolean disposeIfNotSubscribed() {
         if (state.casState(State.STATES.UNSUBSCRIBED, State.STATES.DISPOSED)) {
+            if (state.demand != null) {
+                state.demand.lift();
+            }
             state.bufferedSubject.lift(new AutoReleaseByteBufOperator<T>()).subscribe(Subscribers.empty()); // Drain all items so that ByteBuf gets released.
             return true;
         }
@@ -175,6 +222,7 @@ public final class UnicastAutoReleaseSubject<T> extends Subject<T, T> {
 
         private final Action0 onUnsubscribe;
         private final Subject<T, T> bufferedSubject;
+        private volatile Demand demand;
 
         private volatile Subscription timeoutSubscription;
         @SuppressWarnings("unused") private volatile int timeoutScheduled; // Boolean
@@ -216,16 +264,24 @@ public final class UnicastAutoReleaseSubject<T> extends Subject<T, T> {
         public void call(final Subscriber<? super T> subscriber) {
             if (state.casState(State.STATES.UNSUBSCRIBED, State.STATES.SUBSCRIBED)) {
 
+                final Demand demand = state.demand;
                 subscriber.add(Subscriptions.create(new Action0() {
                     @Override
                     public void call() {
+                        if (demand != null) {
+                            demand.lift();
+                        }
                         if (null != state.onUnsubscribe) {
                             state.onUnsubscribe.call();
                         }
                     }
                 }));
 
-                state.bufferedSubject.subscribe(subscriber);
+                if (demand == null) {
+                    state.bufferedSubject.subscribe(subscriber);
+                } else {
+                    state.bufferedSubject.onBackpressureBuffer().subscribe(subscriber);
+                }
                 state.unsubscribeTimeoutSubscription();
 
             } else if(State.STATES.SUBSCRIBED.ordinal() == state.state) {
@@ -272,18 +328,117 @@ public final class UnicastAutoReleaseSubject<T> extends Subject<T, T> {
         }
     }
 
+    /**
+     * Counts the items handed to the subscriber as delivered.
+     */
+    private static class DemandTrackingOperator<I> implements Operator<I, I> {
+
+        private final Demand demand;
+
+        DemandTrackingOperator(Demand demand) {
+            this.demand = demand;
+        }
+
+        @Override
+        public Subscriber<? super I> call(final Subscriber<? super I> subscriber) {
+            return new Subscriber<I>(subscriber) {
+                @Override
+                public void onCompleted() {
+                    subscriber.onCompleted();
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    subscriber.onError(e);
+                }
+
+                @Override
+                public void onNext(I t) {
+                    demand.delivered();
+                    subscriber.onNext(t);
+                }
+            };
+        }
+    }
+
+    /**
+     * Keeps track of the buffered items and calls the demand action when crossing the watermarks.
+     *
+     * The counter is updated without locking, only the (rare) transitions between paused and resumed are
+     * serialized so that the demand action is always called in the right order.
+     */
+    private static final class Demand {
+
+        /** Field updater for buffered. */
+        private static final AtomicIntegerFieldUpdater<Demand> BUFFERED_UPDATER
+            = AtomicIntegerFieldUpdater.newUpdater(Demand.class, "buffered");
+
+        private final int highWatermark;
+        private final int lowWatermark;
+        private final Action1<Boolean> action;
+
+        private volatile int buffered;
+        private volatile boolean paused;
+        private volatile boolean lifted;
+
+        Demand(int highWatermark, Action1<Boolean> action) {
+            this.highWatermark = highWatermark;
+            this.lowWatermark = highWatermark / 2;
+            this.action = action;
+        }
+
+        void buffered() {
+            if (BUFFERED_UPDATER.incrementAndGet(this) >= highWatermark && !paused && !lifted) {
+                update();
+            }
+        }
+
+        void delivered() {
+            if (BUFFERED_UPDATER.decrementAndGet(this) <= lowWatermark && paused) {
+                update();
+            }
+        }
+
+        void lift() {
+            lifted = true;
+            update();
+        }
+
+        private synchronized void update() {
+            if (!paused && !lifted && buffered >= highWatermark) {
+                paused = true;
+                action.call(false);
+            }
+            // checked again since items might have been delivered while pausing
+            if (paused && (lifted || buffered <= lowWatermark)) {
+                paused = false;
+                action.call(true);
+            }
+        }
+    }
+
     @Override
     public void onCompleted() {
         state.bufferedSubject.onCompleted();
+        if (state.demand != null) {
+            state.demand.lift();
+        }
     }
 
     @Override
     public void onError(Throwable e) {
         state.bufferedSubject.onError(e);
+        if (state.demand != null) {
+            state.demand.lift();
+        }
     }
 
     @Override
     public void onNext(T t) {
+        Demand demand = state.demand;
+        if (demand != null) {
+            demand.buffered();
+        }
         state.bufferedSubject.onNext(t);
 
         // Schedule timeout once and when not subscribed yet.
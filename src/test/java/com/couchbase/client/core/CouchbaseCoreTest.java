@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.kv.GetRequest;
+import com.couchbase.client.core.message.kv.UpsertRequest;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Verifies the functionality of the {@link CouchbaseCore}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class CouchbaseCoreTest {
+
+    @Test
+    public void shouldSelectSameRequestBufferForSameKey() {
+        for (int i = 0; i < 100; i++) {
+            String key = "key-" + i;
+            int index = CouchbaseCore.requestBufferIndex(new GetRequest(key, "bucket"), 4);
+            UpsertRequest upsert = new UpsertRequest(key, Unpooled.EMPTY_BUFFER, "bucket");
+            assertEquals(index, CouchbaseCore.requestBufferIndex(upsert, 4));
+            assertTrue(index >= 0 && index < 4);
+        }
+    }
+
+    @Test
+    public void shouldSpreadKeysAcrossRequestBuffers() {
+        Set<Integer> indexes = new HashSet<Integer>();
+        for (int i = 0; i < 100; i++) {
+            indexes.add(CouchbaseCore.requestBufferIndex(new GetRequest("key-" + i, "bucket"), 4));
+        }
+        assertEquals(4, indexes.size());
+    }
+
+    @Test
+    public void shouldSelectSameRequestBufferPerThreadWithoutKey() {
+        CouchbaseRequest request = mock(CouchbaseRequest.class);
+        int index = CouchbaseCore.requestBufferIndex(request, 3);
+        assertEquals(Thread.currentThread().getId() % 3, index);
+        assertEquals(index, CouchbaseCore.requestBufferIndex(request, 3));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core;
+
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.config.ConfigurationProvider;
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.kv.GetRequest;
+import com.couchbase.client.core.message.kv.GetResponse;
+import com.couchbase.client.core.message.kv.HedgedGetRequest;
+import com.couchbase.client.core.message.kv.ReplicaGetRequest;
+import com.couchbase.client.core.metrics.NetworkLatencyMetricsCollector;
+import com.couchbase.client.core.metrics.RuntimeMetricsCollector;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import rx.Observable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of the {@link HedgedGetHandler}.
+ */
+public class HedgedGetHandlerTest {
+
+    private static final String BUCKET = "bucket";
+
+    private List<CouchbaseRequest> sent;
+    private ArgumentCaptor<TimerTask> task;
+    private Timeout timeout;
+    private RuntimeMetricsCollector runtimeMetrics;
+    private NetworkLatencyMetricsCollector latencyMetrics;
+    private HedgedGetHandler handler;
+
+    @Before
+    public void setup() {
+        sent = new CopyOnWriteArrayList<CouchbaseRequest>();
+        ClusterFacade core = mock(ClusterFacade.class);
+        when(core.send(any(CouchbaseRequest.class))).thenAnswer(new Answer<Observable<?>>() {
+            @Override
+            public Observable<?> answer(InvocationOnMock invocation) throws Throwable {
+                CouchbaseRequest request = (CouchbaseRequest) invocation.getArguments()[0];
+                sent.add(request);
+                return request.observable();
+            }
+        });
+
+        Timer timer = mock(Timer.class);
+        timeout = mock(Timeout.class);
+        task = ArgumentCaptor.forClass(TimerTask.class);
+        when(timer.newTimeout(task.capture(), anyLong(), any(TimeUnit.class))).thenReturn(timeout);
+
+        runtimeMetrics = mock(RuntimeMetricsCollector.class);
+        when(runtimeMetrics.isEnabled()).thenReturn(true);
+        latencyMetrics = mock(NetworkLatencyMetricsCollector.class);
+        when(latencyMetrics.isEnabled()).thenReturn(true);
+        when(latencyMetrics.latencyAtPercentile("GetRequest", 99.0)).thenReturn(-1L);
+
+        CoreEnvironment environment = mock(CoreEnvironment.class);
+        when(environment.requestTimer()).thenReturn(timer);
+        when(environment.runtimeMetricsCollector()).thenReturn(runtimeMetrics);
+        when(environment.networkLatencyMetricsCollector()).thenReturn(latencyMetrics);
+        when(environment.hedgedGetPercentile()).thenReturn(99.0);
+        when(environment.hedgedGetMinDelay()).thenReturn(10L);
+
+        CouchbaseBucketConfig bucketConfig = mock(CouchbaseBucketConfig.class);
+        when(bucketConfig.numberOfReplicas()).thenReturn(2);
+        ClusterConfig clusterConfig = mock(ClusterConfig.class);
+        when(clusterConfig.bucketConfig(BUCKET)).thenReturn(bucketConfig);
+        ConfigurationProvider configProvider = mock(ConfigurationProvider.class);
+        when(configProvider.config()).thenReturn(clusterConfig);
+
+        handler = new HedgedGetHandler(environment, core, configProvider);
+    }
+
+    @Test
+    public void shouldDeriveDelayFromGetLatencies() {
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), handler.hedgeDelay());
+
+        when(latencyMetrics.latencyAtPercentile("GetRequest", 99.0)).thenReturn(TimeUnit.MILLISECONDS.toNanos(25));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(25), handler.hedgeDelay());
+    }
+
+    @Test
+    public void shouldCompleteWithActiveBeforeDelay() throws Exception {
+        HedgedGetRequest request = new HedgedGetRequest("key", BUCKET);
+        handler.send(request);
+        verify(timeout, never()).cancel();
+        assertEquals(1, sent.size());
+
+        GetRequest active = (GetRequest) sent.get(0);
+        active.observable().onNext(response(ResponseStatus.SUCCESS, "active", active));
+        active.observable().onCompleted();
+        verify(timeout).cancel();
+
+        task.getValue().run(timeout);
+        assertEquals(1, sent.size());
+        GetResponse result = (GetResponse) request.observable().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        assertEquals("active", result.content().toString(CharsetUtil.UTF_8));
+        result.release();
+        verify(runtimeMetrics, never()).recordHedgedGetFired(2);
+    }
+
+    @Test
+    public void shouldCompleteWithReplicaAndReleaseLateActive() throws Exception {
+        HedgedGetRequest request = new HedgedGetRequest("key", BUCKET);
+        handler.send(request);
+        task.getValue().run(timeout);
+        verify(runtimeMetrics).recordHedgedGetFired(2);
+        assertEquals(3, sent.size());
+
+        ReplicaGetRequest first = (ReplicaGetRequest) sent.get(1);
+        ReplicaGetRequest second = (ReplicaGetRequest) sent.get(2);
+        assertEquals(1, first.replica());
+        assertEquals(2, second.replica());
+
+        GetResponse notFound = response(ResponseStatus.NOT_EXISTS, "", first);
+        first.observable().onNext(notFound);
+        first.observable().onCompleted();
+        assertEquals(0, notFound.refCnt());
+
+        second.observable().onNext(response(ResponseStatus.SUCCESS, "replica", second));
+        second.observable().onCompleted();
+        verify(runtimeMetrics).recordHedgedGetWon();
+
+        GetRequest active = (GetRequest) sent.get(0);
+        GetResponse late = response(ResponseStatus.SUCCESS, "active", active);
+        active.observable().onNext(late);
+        active.observable().onCompleted();
+        assertEquals(0, late.refCnt());
+
+        GetResponse result = (GetResponse) request.observable().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        assertEquals("replica", result.content().toString(CharsetUtil.UTF_8));
+        assertTrue(result.release());
+    }
+
+    @Test(expected = RequestCancelledException.class)
+    public void shouldFailWithActiveErrorEvenIfReplicasFailed() throws Exception {
+        HedgedGetRequest request = new HedgedGetRequest("key", BUCKET);
+        handler.send(request);
+        task.getValue().run(timeout);
+
+        sent.get(1).observable().onError(new ReplicaNotAvailableException("replica down"));
+        sent.get(2).observable().onError(new ReplicaNotAvailableException("replica down"));
+        sent.get(0).observable().onError(new RequestCancelledException("cancelled"));
+
+        request.observable().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+    }
+
+    private static GetResponse response(final ResponseStatus status, final String content,
+        final CouchbaseRequest request) {
+        ByteBuf buffer = Unpooled.copiedBuffer(content, CharsetUtil.UTF_8);
+        return new GetResponse(status, (short) 0, 0, 0, BUCKET, buffer, request);
+    }
+}
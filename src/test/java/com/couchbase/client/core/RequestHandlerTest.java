@@ -52,7 +52,6 @@ import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -156,7 +155,7 @@ public class RequestHandlerTest {
         when(mockEvent.getRequest()).thenReturn(mockRequest);
         handler.onEvent(mockEvent, 0, true);
         verify(mockNode).send(mockRequest);
-        verify(mockNode).send(SignalFlush.INSTANCE);
+        verify(mockNode, never()).send(SignalFlush.INSTANCE);
         verify(mockEvent).setRequest(null);
     }
 
@@ -241,7 +240,7 @@ public class RequestHandlerTest {
         when(mockRequest.observable()).thenReturn(response);
         handler.onEvent(mockEvent, 0, true);
 
-        verify(mockNode, times(1)).send(SignalFlush.INSTANCE);
+        verify(mockNode, never()).send(SignalFlush.INSTANCE);
         verify(mockNode, never()).send(mockRequest);
         verify(mockEvent).setRequest(null);
 
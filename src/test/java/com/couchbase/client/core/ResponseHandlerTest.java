@@ -39,12 +39,16 @@ import rx.subjects.Subject;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -65,8 +69,16 @@ public class ResponseHandlerTest {
     public void shouldSendProposedConfigToProvider() throws Exception {
         ClusterFacade clusterMock = mock(ClusterFacade.class);
         ConfigurationProvider providerMock = mock(ConfigurationProvider.class);
+        final AtomicReference<String> proposed = new AtomicReference<String>();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                proposed.set(((ByteBuf) invocation.getArguments()[1]).toString(CharsetUtil.UTF_8));
+                return null;
+            }
+        }).when(providerMock).proposeBucketConfig(eq("bucket"), any(ByteBuf.class));
         ResponseHandler handler = new ResponseHandler(ENVIRONMENT, clusterMock, providerMock);
-        ByteBuf config = Unpooled.copiedBuffer("{\"json\": true}", CharsetUtil.UTF_8);
+        ByteBuf config = Unpooled.copiedBuffer(" {\"json\": true}", CharsetUtil.UTF_8);
 
         ResponseEvent retryEvent = new ResponseEvent();
         retryEvent.setMessage(new InsertResponse(ResponseStatus.RETRY, KeyValueStatus.ERR_TEMP_FAIL.code(),
@@ -74,7 +86,8 @@ public class ResponseHandlerTest {
         retryEvent.setObservable(mock(Subject.class));
         handler.onEvent(retryEvent, 1, true);
 
-        verify(providerMock, times(1)).proposeBucketConfig("bucket", "{\"json\": true}");
+        verify(providerMock, times(1)).proposeBucketConfig(eq("bucket"), any(ByteBuf.class));
+        assertEquals(" {\"json\": true}", proposed.get());
         assertEquals(0, config.refCnt());
         assertNull(retryEvent.getMessage());
         assertNull(retryEvent.getObservable());
@@ -93,7 +106,8 @@ public class ResponseHandlerTest {
         retryEvent.setObservable(mock(Subject.class));
         handler.onEvent(retryEvent, 1, true);
 
-        verify(providerMock, never()).proposeBucketConfig("bucket", "Not my Vbucket");
+        verify(providerMock, never()).proposeBucketConfig(anyString(), any(ByteBuf.class));
+        verify(providerMock, never()).proposeBucketConfig(anyString(), anyString());
         assertEquals(0, config.refCnt());
         assertNull(retryEvent.getMessage());
         assertNull(retryEvent.getObservable());
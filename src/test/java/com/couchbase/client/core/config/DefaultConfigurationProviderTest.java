@@ -16,12 +16,17 @@
 package com.couchbase.client.core.config;
 
 import com.couchbase.client.core.ClusterFacade;
+import com.couchbase.client.core.CouchbaseException;
 import com.couchbase.client.core.config.loader.Loader;
 import com.couchbase.client.core.config.refresher.Refresher;
 import com.couchbase.client.core.env.CoreEnvironment;
 import com.couchbase.client.core.env.DefaultCoreEnvironment;
 import com.couchbase.client.core.lang.Tuple;
 import com.couchbase.client.core.lang.Tuple2;
+import com.couchbase.client.core.util.Resources;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.mockito.internal.util.collections.Sets;
@@ -42,6 +47,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -396,6 +402,45 @@ public class DefaultConfigurationProviderTest {
         }
     }
 
+    @Test
+    public void shouldSkipProposedConfigWithKnownRevision() throws Exception {
+        ClusterFacade cluster = mock(ClusterFacade.class);
+        final Refresher refresher = mock(Refresher.class);
+        when(refresher.configs()).thenReturn(Observable.<BucketConfig>empty());
+
+        ConfigurationProvider provider = new DefaultConfigurationProvider(
+            cluster,
+            environment,
+            Arrays.asList(mock(Loader.class)),
+            new HashMap<LoaderType, Refresher>() {{
+                put(LoaderType.Carrier, refresher);
+            }}
+        );
+
+        String raw = Resources.read("config_with_no_partitions.json", getClass());
+        ByteBuf config = Unpooled.copiedBuffer(raw, CharsetUtil.UTF_8);
+        provider.proposeBucketConfig("gbook_users_3", config);
+        assertEquals(1, config.refCnt());
+        assertEquals(11761, provider.config().bucketConfig("gbook_users_3").rev());
+
+        // neither of those would parse, so they must have been skipped by their revision
+        provider.proposeBucketConfig("gbook_users_3", "{\"rev\": 11761, \"name\": ");
+        provider.proposeBucketConfig("gbook_users_3",
+            Unpooled.copiedBuffer("{\"rev\":11000,\"name\":", CharsetUtil.UTF_8));
+
+        try {
+            provider.proposeBucketConfig("gbook_users_3", "{\"rev\": 11762, \"name\": ");
+            fail("Expected the config with a new revision to be parsed");
+        } catch (CouchbaseException ex) {
+            // expected
+        }
+        assertEquals(11761, provider.config().bucketConfig("gbook_users_3").rev());
+
+        // the revision which failed to parse must not be considered known
+        provider.proposeBucketConfig("gbook_users_3", raw.replace("\"rev\": 11761", "\"rev\": 11762"));
+        assertEquals(11762, provider.config().bucketConfig("gbook_users_3").rev());
+    }
+
     @Test
     @Ignore
     public void shouldCloseBucket() {
@@ -21,11 +21,15 @@ import com.couchbase.client.core.service.ServiceType;
 import com.couchbase.client.core.util.Resources;
 import com.fasterxml.jackson.databind.InjectableValues;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.util.CharsetUtil;
 import org.junit.Test;
 
+import java.security.MessageDigest;
 import java.util.Map;
+import java.util.SortedMap;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class DefaultMemcachedBucketConfigTest {
@@ -53,4 +57,35 @@ public class DefaultMemcachedBucketConfigTest {
         }
     }
 
+    /**
+     * The binary search over the precomputed continuum needs to pick the same node as walking the ketama
+     * nodes map, including the wrap around to the first node.
+     */
+    @Test
+    public void shouldLocateSameNodeAsKetamaNodesMap() throws Exception {
+        String raw = Resources.read("memcached_mixed_sherlock.json", getClass());
+        InjectableValues inject = new InjectableValues.Std()
+            .addValue("env", environment);
+        DefaultMemcachedBucketConfig config = JSON_MAPPER.readerFor(MemcachedBucketConfig.class).with(inject)
+            .readValue(raw);
+
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        for (int i = 0; i < 10000; i++) {
+            byte[] id = ("key-" + i).getBytes(CharsetUtil.UTF_8);
+            byte[] digest = md5.digest(id);
+            long hash = (((long) (digest[3] & 0xFF) << 24)
+                | ((long) (digest[2] & 0xFF) << 16)
+                | ((long) (digest[1] & 0xFF) << 8)
+                | (digest[0] & 0xFF)) & 0xffffffffL;
+            SortedMap<Long, NodeInfo> tailMap = config.ketamaNodes().tailMap(hash);
+            NodeInfo expected = tailMap.isEmpty()
+                ? config.ketamaNodes().get(config.ketamaNodes().firstKey())
+                : tailMap.get(tailMap.firstKey());
+
+            int nodeIndex = config.nodeIndexForId(id);
+            assertSame(expected, config.nodes().get(nodeIndex));
+            assertEquals(expected.hostname(), config.nodeForId(id));
+        }
+    }
+
 }
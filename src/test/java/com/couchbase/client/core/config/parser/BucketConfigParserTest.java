@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.config.parser;
+
+import com.couchbase.client.core.config.BucketConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.env.DefaultCoreEnvironment;
+import com.couchbase.client.core.util.Resources;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the functionality of the {@link BucketConfigParser}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class BucketConfigParserTest {
+
+    private static final CoreEnvironment ENVIRONMENT = DefaultCoreEnvironment.create();
+
+    @AfterClass
+    public static void cleanup() {
+        ENVIRONMENT.shutdown();
+    }
+
+    @Test
+    public void shouldParseFromBuffersAndStreams() throws Exception {
+        String raw = Resources.read("config_with_no_partitions.json", BucketConfig.class);
+        BucketConfig expected = BucketConfigParser.parse(raw, ENVIRONMENT);
+
+        ByteBuf heap = Unpooled.copiedBuffer("  " + raw, CharsetUtil.UTF_8);
+        heap.readerIndex(2);
+        ByteBuf direct = Unpooled.directBuffer().writeBytes(heap, heap.readerIndex(), heap.readableBytes());
+        try {
+            assertConfig(expected, BucketConfigParser.parse(heap, ENVIRONMENT));
+            assertConfig(expected, BucketConfigParser.parse(direct, ENVIRONMENT));
+            assertConfig(expected, BucketConfigParser.parse(new ByteBufInputStream(direct.duplicate()), ENVIRONMENT));
+            assertEquals(2, heap.readerIndex());
+            assertEquals(0, direct.readerIndex());
+        } finally {
+            heap.release();
+            direct.release();
+        }
+    }
+
+    @Test
+    public void shouldDetectConfigs() {
+        assertTrue(BucketConfigParser.isConfig(Unpooled.copiedBuffer(" \n{}", CharsetUtil.UTF_8)));
+        assertFalse(BucketConfigParser.isConfig(Unpooled.copiedBuffer("Not my Vbucket", CharsetUtil.UTF_8)));
+        assertFalse(BucketConfigParser.isConfig(Unpooled.copiedBuffer("  ", CharsetUtil.UTF_8)));
+    }
+
+    @Test
+    public void shouldReplaceHostPlaceholder() {
+        ByteBuf input = Unpooled.copiedBuffer("{\"a\":\"$HOST:8091\",\"b\":[\"$HOST\"],\"c\":\"$HOS\"}",
+            CharsetUtil.UTF_8);
+        ByteBuf replaced = BucketConfigParser.replaceHostPlaceholder(input, "10.0.0.1");
+        assertEquals("{\"a\":\"10.0.0.1:8091\",\"b\":[\"10.0.0.1\"],\"c\":\"$HOS\"}",
+            replaced.toString(CharsetUtil.UTF_8));
+        assertTrue(input.refCnt() > 0);
+        replaced.release();
+        assertEquals(0, input.refCnt());
+    }
+
+    @Test
+    public void shouldReturnInputWithoutHostPlaceholder() {
+        ByteBuf input = Unpooled.copiedBuffer("{\"a\":\"$HOS\"}", CharsetUtil.UTF_8);
+        assertSame(input, BucketConfigParser.replaceHostPlaceholder(input, "10.0.0.1"));
+        assertEquals(1, input.refCnt());
+        input.release();
+    }
+
+    private static void assertConfig(final BucketConfig expected, final BucketConfig actual) {
+        assertEquals(expected.name(), actual.name());
+        assertEquals(expected.rev(), actual.rev());
+        assertEquals(expected.nodes().size(), actual.nodes().size());
+    }
+}
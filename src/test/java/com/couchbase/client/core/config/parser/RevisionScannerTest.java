@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.config.parser;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies the functionality of the {@link RevisionScanner}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class RevisionScannerTest {
+
+    @Test
+    public void shouldFindTopLevelRevision() {
+        assertEquals(1234, RevisionScanner.scan("{\"rev\":1234,\"name\":\"default\"}"));
+        assertEquals(1234, RevisionScanner.scan("{\n  \"name\": \"default\",\n  \"rev\" :\t1234\n}"));
+    }
+
+    @Test
+    public void shouldIgnoreNestedAndQuotedRevisions() {
+        String config = "{\"name\":\"rev\",\"nodes\":[{\"rev\":1}],\"ext\":{\"rev\":2},"
+            + "\"uri\":\"\\\"rev\\\":3\",\"rev\":4}";
+        assertEquals(4, RevisionScanner.scan(config));
+        assertEquals(RevisionScanner.UNKNOWN, RevisionScanner.scan("{\"nodes\":[{\"rev\":1}]}"));
+    }
+
+    @Test
+    public void shouldReturnUnknownIfNotFound() {
+        assertEquals(RevisionScanner.UNKNOWN, RevisionScanner.scan(""));
+        assertEquals(RevisionScanner.UNKNOWN, RevisionScanner.scan("Not my Vbucket"));
+        assertEquals(RevisionScanner.UNKNOWN, RevisionScanner.scan("{\"rev\":\"abc\"}"));
+        assertEquals(RevisionScanner.UNKNOWN, RevisionScanner.scan("{\"rev\":1234567890123456789012}"));
+        assertEquals(RevisionScanner.UNKNOWN, RevisionScanner.scan("{\"name\":\"unterminated"));
+    }
+
+    @Test
+    public void shouldScanReadableBytesWithoutModifyingBuffer() {
+        ByteBuf config = Unpooled.copiedBuffer("xx{\"name\":\"bücket\",\"rev\":42}", CharsetUtil.UTF_8);
+        config.readerIndex(2);
+        assertEquals(42, RevisionScanner.scan(config));
+        assertEquals(2, config.readerIndex());
+        assertEquals(1, config.refCnt());
+        config.release();
+    }
+}
@@ -39,6 +39,7 @@ import rx.Observable;
 
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,9 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -66,6 +70,7 @@ public class CarrierRefresherTest {
     public void shouldProposeConfigFromTaintedPoller() throws Exception {
         ClusterFacade cluster = mock(ClusterFacade.class);
         ConfigurationProvider provider = mock(ConfigurationProvider.class);
+        final List<String> proposed = recordProposals(provider);
         BucketConfig config = mock(BucketConfig.class);
 
         CarrierRefresher refresher = new CarrierRefresher(ENVIRONMENT, cluster);
@@ -101,7 +106,8 @@ public class CarrierRefresherTest {
 
         Thread.sleep(1500);
 
-        verify(provider, times(1)).proposeBucketConfig("bucket", "{\"config\": true}");
+        verify(provider, times(1)).proposeBucketConfig(eq("bucket"), any(ByteBuf.class));
+        assertEquals(Collections.singletonList("{\"config\": true}"), proposed);
         assertEquals(0, bufRef.get().refCnt());
     }
 
@@ -135,7 +141,7 @@ public class CarrierRefresherTest {
 
         Thread.sleep(1500);
 
-        verify(provider, never()).proposeBucketConfig("bucket", "");
+        verify(provider, never()).proposeBucketConfig(anyString(), any(ByteBuf.class));
         assertEquals(0, content.refCnt());
     }
 
@@ -145,6 +151,7 @@ public class CarrierRefresherTest {
         CarrierRefresher refresher = new CarrierRefresher(ENVIRONMENT, cluster);
         refresher.registerBucket("bucket", "");
         ConfigurationProvider provider = mock(ConfigurationProvider.class);
+        final List<String> proposed = recordProposals(provider);
         refresher.provider(provider);
 
         ClusterConfig clusterConfig = mock(ClusterConfig.class);
@@ -174,7 +181,49 @@ public class CarrierRefresherTest {
 
         Thread.sleep(200);
 
-        verify(provider, times(1)).proposeBucketConfig("bucket", "{\"config\": true}");
+        verify(provider, times(1)).proposeBucketConfig(eq("bucket"), any(ByteBuf.class));
+        assertEquals(Collections.singletonList("{\"config\": true}"), proposed);
+        assertEquals(0, content.refCnt());
+    }
+
+    @Test
+    public void shouldReplaceHostPlaceholderOnRefresh() throws Exception {
+        ClusterFacade cluster = mock(ClusterFacade.class);
+        CarrierRefresher refresher = new CarrierRefresher(ENVIRONMENT, cluster);
+        refresher.registerBucket("bucket", "");
+        ConfigurationProvider provider = mock(ConfigurationProvider.class);
+        final List<String> proposed = recordProposals(provider);
+        refresher.provider(provider);
+
+        ClusterConfig clusterConfig = mock(ClusterConfig.class);
+        BucketConfig bucketConfig = mock(BucketConfig.class);
+        when(bucketConfig.name()).thenReturn("bucket");
+        List<NodeInfo> nodeInfos = new ArrayList<NodeInfo>();
+        Map<String, Integer> ports = new HashMap<String, Integer>();
+        ports.put("direct", 11210);
+        nodeInfos.add(new DefaultNodeInfo(null, "localhost:8091", ports));
+        when(bucketConfig.nodes()).thenReturn(nodeInfos);
+        Map<String, BucketConfig> bucketConfigs = new HashMap<String, BucketConfig>();
+        bucketConfigs.put("bucket", bucketConfig);
+
+        when(clusterConfig.bucketConfigs()).thenReturn(bucketConfigs);
+
+        ByteBuf content = Unpooled.copiedBuffer("{\"hostname\": \"$HOST:8091\"}", CharsetUtil.UTF_8);
+        when(cluster.send(any(GetBucketConfigRequest.class))).thenReturn(Observable.just(
+            (CouchbaseResponse) new GetBucketConfigResponse(
+                ResponseStatus.SUCCESS, KeyValueStatus.SUCCESS.code(),
+                "bucket",
+                content,
+                InetAddress.getByName("localhost")
+            )
+        ));
+
+        refresher.refresh(clusterConfig);
+
+        Thread.sleep(200);
+
+        verify(provider, times(1)).proposeBucketConfig(eq("bucket"), any(ByteBuf.class));
+        assertEquals(Collections.singletonList("{\"hostname\": \"localhost:8091\"}"), proposed);
         assertEquals(0, content.refCnt());
     }
 
@@ -214,7 +263,7 @@ public class CarrierRefresherTest {
 
         Thread.sleep(200);
 
-        verify(provider, never()).proposeBucketConfig("bucket", "");
+        verify(provider, never()).proposeBucketConfig(anyString(), any(ByteBuf.class));
         assertEquals(0, content.refCnt());
     }
 
@@ -224,6 +273,7 @@ public class CarrierRefresherTest {
         CarrierRefresher refresher = new CarrierRefresher(ENVIRONMENT, cluster);
         refresher.registerBucket("bucket", "");
         ConfigurationProvider provider = mock(ConfigurationProvider.class);
+        final List<String> proposed = recordProposals(provider);
         refresher.provider(provider);
 
         ClusterConfig clusterConfig = mock(ClusterConfig.class);
@@ -257,7 +307,8 @@ public class CarrierRefresherTest {
 
         Thread.sleep(1500);
 
-        verify(provider, times(1)).proposeBucketConfig("bucket", "{\"config\": true}");
+        verify(provider, times(1)).proposeBucketConfig(eq("bucket"), any(ByteBuf.class));
+        assertEquals(Collections.singletonList("{\"config\": true}"), proposed);
         assertEquals(0, content.refCnt());
     }
 
@@ -265,6 +316,7 @@ public class CarrierRefresherTest {
     public void shouldFallbackToNextOnPollWhenFirstFails() throws Exception {
         ClusterFacade cluster = mock(ClusterFacade.class);
         ConfigurationProvider provider = mock(ConfigurationProvider.class);
+        final List<String> proposed = recordProposals(provider);
         BucketConfig config = mock(BucketConfig.class);
 
         CarrierRefresher refresher = new CarrierRefresher(ENVIRONMENT, cluster);
@@ -292,7 +344,8 @@ public class CarrierRefresherTest {
 
         Thread.sleep(1500);
 
-        verify(provider, times(1)).proposeBucketConfig("bucket", "{\"config\": true}");
+        verify(provider, times(1)).proposeBucketConfig(eq("bucket"), any(ByteBuf.class));
+        assertEquals(Collections.singletonList("{\"config\": true}"), proposed);
         assertEquals(0, content.refCnt());
     }
 
@@ -300,6 +353,7 @@ public class CarrierRefresherTest {
     public void shouldIgnoreNodeWithoutKVServiceEnabled() throws Exception {
         ClusterFacade cluster = mock(ClusterFacade.class);
         ConfigurationProvider provider = mock(ConfigurationProvider.class);
+        final List<String> proposed = recordProposals(provider);
         BucketConfig config = mock(BucketConfig.class);
 
         CarrierRefresher refresher = new CarrierRefresher(ENVIRONMENT, cluster);
@@ -328,8 +382,23 @@ public class CarrierRefresherTest {
 
         Thread.sleep(1500);
 
-        verify(provider, times(1)).proposeBucketConfig("bucket", "{\"config\": true}");
+        verify(provider, times(1)).proposeBucketConfig(eq("bucket"), any(ByteBuf.class));
+        assertEquals(Collections.singletonList("{\"config\": true}"), proposed);
         assertEquals(0, content.refCnt());
     }
 
+    /**
+     * Records the content of every proposed config, since the buffer is released right after the proposal.
+     */
+    private static List<String> recordProposals(final ConfigurationProvider provider) {
+        final List<String> proposed = Collections.synchronizedList(new ArrayList<String>());
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                proposed.add(((ByteBuf) invocation.getArguments()[1]).toString(CharsetUtil.UTF_8));
+                return null;
+            }
+        }).when(provider).proposeBucketConfig(anyString(), any(ByteBuf.class));
+        return proposed;
+    }
 }
@@ -37,6 +37,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -231,6 +232,33 @@ public class AbstractEndpointTest {
         assertTrue(endpoint.isFree());
     }
 
+    @Test
+    public void shouldOnlyTrackFirstWriteOnDispatchBatch() throws Exception {
+        BootstrapAdapter bootstrap = mock(BootstrapAdapter.class);
+        when(bootstrap.connect()).thenReturn(channel.newSucceededFuture());
+        final Endpoint endpoint = new DummyEndpoint(bootstrap, environment);
+        assertEquals(LifecycleState.CONNECTED, endpoint.connect().toBlocking().single());
+
+        final AtomicInteger pendingBeforeFlush = new AtomicInteger();
+        final AtomicInteger flushed = new AtomicInteger();
+        Thread dispatcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                DispatchBatch batch = DispatchBatch.current();
+                endpoint.send(mock(CouchbaseRequest.class));
+                endpoint.send(mock(CouchbaseRequest.class));
+                pendingBeforeFlush.set(channel.outboundMessages().size());
+                flushed.set(batch.flush());
+            }
+        });
+        dispatcher.start();
+        dispatcher.join();
+
+        assertEquals(0, pendingBeforeFlush.get());
+        assertEquals(1, flushed.get());
+        assertEquals(2, channel.outboundMessages().size());
+    }
+
     static class DummyEndpoint extends AbstractEndpoint {
         DummyEndpoint(BootstrapAdapter adapter, CoreEnvironment environment) {
             super("default", null, adapter, false, environment, true);
@@ -22,8 +22,12 @@ import javax.net.ssl.SSLEngine;
 
 import java.util.Arrays;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -60,4 +64,52 @@ public class SSLEngineFactoryTest {
         SSLEngine engine = factory.get();
         assertTrue(engine.getUseClientMode());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReuseContextAndSetPeer() {
+        CoreEnvironment environment = mock(CoreEnvironment.class);
+        when(environment.sslKeystoreFile()).thenReturn(this.getClass().getResource("keystore.jks").getPath());
+        when(environment.sslKeystorePassword()).thenReturn("keystore");
+
+        SSLEngineFactory factory = new SSLEngineFactory(environment);
+        SSLEngine first = factory.get("node1", 11207);
+        SSLEngine second = factory.get("node2", 11207);
+
+        assertTrue(first.getUseClientMode());
+        assertEquals("node1", first.getPeerHost());
+        assertEquals(11207, first.getPeerPort());
+        assertEquals("node2", second.getPeerHost());
+        verify(environment, times(1)).sslKeystoreFile();
+    }
+
+    @Test
+    public void shouldLoadKeystoreAgainAfterReload() {
+        CoreEnvironment environment = mock(CoreEnvironment.class);
+        when(environment.sslKeystoreFile()).thenReturn(this.getClass().getResource("keystore.jks").getPath());
+        when(environment.sslKeystorePassword()).thenReturn("keystore");
+
+        SSLEngineFactory factory = new SSLEngineFactory(environment);
+        factory.get();
+        factory.get();
+        factory.reload();
+        factory.get();
+
+        verify(environment, times(2)).sslKeystoreFile();
+    }
+
+    @Test
+    public void shouldNotCacheFailedContext() {
+        CoreEnvironment environment = mock(CoreEnvironment.class);
+        SSLEngineFactory factory = new SSLEngineFactory(environment);
+        try {
+            factory.get();
+            fail("Expected SSLException");
+        } catch (SSLException ex) {
+            // expected, no keystore configured yet
+        }
+
+        when(environment.sslKeystoreFile()).thenReturn(this.getClass().getResource("keystore.jks").getPath());
+        when(environment.sslKeystorePassword()).thenReturn("keystore");
+        assertTrue(factory.get().getUseClientMode());
+    }
+}
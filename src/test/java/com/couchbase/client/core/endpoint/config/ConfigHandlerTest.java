@@ -60,6 +60,7 @@ import rx.subjects.Subject;
 import java.net.InetAddress;
 import java.nio.charset.Charset;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -423,6 +424,32 @@ public class ConfigHandlerTest {
         assertTrue(latch.await(1, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void shouldSplitStreamedConfigsAtEveryPosition() throws Exception {
+        String stream = "{\"rev\":1}\n\n\n\n  {\"rev\":2,\"name\":\"a\\nb\"}\n\n\n\n\n\n\n\n\n{\"rev\":3}\n\n\n\n";
+        for (int i = 1; i < stream.length(); i++) {
+            HttpResponse responseHeader = new DefaultHttpResponse(HttpVersion.HTTP_1_1,
+                new HttpResponseStatus(200, "OK"));
+            HttpContent responseChunk1 = new DefaultHttpContent(Unpooled.copiedBuffer(stream.substring(0, i),
+                CharsetUtil.UTF_8));
+            HttpContent responseChunk2 = new DefaultHttpContent(Unpooled.copiedBuffer(stream.substring(i),
+                CharsetUtil.UTF_8));
+
+            BucketStreamingRequest requestMock = mock(BucketStreamingRequest.class);
+            requestQueue.add(requestMock);
+            channel.writeInbound(responseHeader);
+            BucketStreamingResponse event = (BucketStreamingResponse) eventSink.responseEvents().get(i - 1)
+                .getMessage();
+            TestSubscriber<String> configs = new TestSubscriber<String>();
+            event.configs().subscribe(configs);
+
+            channel.writeInbound(responseChunk1, responseChunk2, LastHttpContent.EMPTY_LAST_CONTENT);
+            configs.awaitTerminalEvent(1, TimeUnit.SECONDS);
+            assertEquals("Split at " + i, Arrays.asList("{\"rev\":1}", "{\"rev\":2,\"name\":\"a\\nb\"}",
+                "{\"rev\":3}"), configs.getOnNextEvents());
+        }
+    }
+
     @Test
     public void shouldCloseStreamIfChannelDies() throws Exception {
         HttpResponse responseHeader = new DefaultHttpResponse(HttpVersion.HTTP_1_1, new HttpResponseStatus(200, "OK"));
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.dcp;
+
+import com.couchbase.client.core.ClusterFacade;
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.cluster.GetClusterConfigRequest;
+import com.couchbase.client.core.message.cluster.GetClusterConfigResponse;
+import com.couchbase.client.core.message.dcp.DCPRequest;
+import com.couchbase.client.core.message.dcp.FailoverLogEntry;
+import com.couchbase.client.core.message.dcp.RemoveMessage;
+import com.couchbase.client.core.message.dcp.SnapshotMarkerMessage;
+import com.couchbase.client.core.message.dcp.StreamEndMessage;
+import com.couchbase.client.core.message.dcp.StreamRequestRequest;
+import com.couchbase.client.core.message.dcp.StreamRequestResponse;
+import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.BinaryMemcacheRequest;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies functionality of {@link DCPConnection}.
+ */
+public class DCPConnectionTest {
+
+    private static final String BUCKET = "bucket";
+
+    private CoreEnvironment environment;
+    private ClusterFacade core;
+    private DCPConnection connection;
+    private TestSubscriber<DCPRequest> shared;
+
+    @Before
+    public void setup() {
+        environment = mock(CoreEnvironment.class);
+        when(environment.autoreleaseAfter()).thenReturn(2000L);
+        when(environment.scheduler()).thenReturn(Schedulers.computation());
+        when(environment.dcpConnectionName()).thenReturn("test");
+        when(environment.dcpConnectionBufferSize()).thenReturn(100);
+        when(environment.dcpConnectionBufferAckThreshold()).thenReturn(0.5);
+
+        core = mock(ClusterFacade.class);
+        connection = new DCPConnection(environment, core, BUCKET, null,
+            PublishSubject.<DCPRequest>create().toSerialized());
+        shared = new TestSubscriber<DCPRequest>();
+        connection.subject().subscribe(shared);
+    }
+
+    @Test
+    public void shouldDispatchToPartitionSubject() {
+        TestSubscriber<DCPRequest> partition = new TestSubscriber<DCPRequest>();
+        connection.subject((short) 1).subscribe(partition);
+
+        SnapshotMarkerMessage own = new SnapshotMarkerMessage(0, (short) 1, 0, 10, 0, BUCKET);
+        RemoveMessage other = new RemoveMessage(0, (short) 2, "key", 0, 5, 1, BUCKET);
+        connection.dispatch(own);
+        connection.dispatch(other);
+
+        partition.assertValue(own);
+        shared.assertValue(other);
+        assertEquals(connection.subject((short) 1), connection.subject((short) 1));
+    }
+
+    @Test
+    public void shouldReplacePartitionSubjectOnceStreamClosed() {
+        TestSubscriber<DCPRequest> first = new TestSubscriber<DCPRequest>();
+        connection.subject((short) 1).subscribe(first);
+        StreamEndMessage end = new StreamEndMessage(0, (short) 1, StreamEndMessage.Reason.OK, BUCKET);
+        connection.dispatch(end);
+        connection.streamClosed((short) 1, StreamEndMessage.Reason.OK);
+        first.assertValue(end);
+        first.assertCompleted();
+
+        TestSubscriber<DCPRequest> second = new TestSubscriber<DCPRequest>();
+        connection.subject((short) 1).subscribe(second);
+        SnapshotMarkerMessage marker = new SnapshotMarkerMessage(0, (short) 1, 0, 10, 0, BUCKET);
+        connection.dispatch(marker);
+        second.assertValue(marker);
+        shared.assertNoValues();
+    }
+
+    @Test
+    public void shouldFailAllSubjects() {
+        TestSubscriber<DCPRequest> partition = new TestSubscriber<DCPRequest>();
+        connection.subject((short) 1).subscribe(partition);
+
+        connection.fail(new IllegalStateException());
+        partition.assertError(IllegalStateException.class);
+        shared.assertError(IllegalStateException.class);
+    }
+
+    @Test
+    public void shouldAcknowledgeOnceThresholdReached() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        connection.registerContext((short) 1, ctx);
+        connection.registerContext((short) 2, ctx);
+
+        connection.consumed((short) 1, 10);
+        assertNull(channel.readOutbound());
+
+        connection.consumed((short) 2, 4);
+        BinaryMemcacheRequest ack = (BinaryMemcacheRequest) channel.readOutbound();
+        assertEquals(DCPHandler.OP_BUFFER_ACK, ack.getOpcode());
+        assertEquals(62, ack.getExtras().readInt());
+        ReferenceCountUtil.release(ack);
+
+        connection.consumed((short) 1, 1);
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void shouldAdvanceCheckpointOnConsumedMessages() {
+        CheckpointStore store = new MemoryCheckpointStore();
+        store.update(new PartitionCheckpoint((short) 1, 1234, 0, 0, 0));
+        connection.checkpointStore(store);
+
+        connection.consumed(new SnapshotMarkerMessage(0, (short) 1, 0, 10, 0, BUCKET));
+        connection.consumed(new RemoveMessage(0, (short) 1, "key", 0, 5, 1, BUCKET));
+        connection.consumed(new RemoveMessage(0, (short) 2, "key", 0, 7, 1, BUCKET));
+
+        assertEquals(new PartitionCheckpoint((short) 1, 1234, 5, 0, 10), store.get((short) 1));
+        assertNull(store.get((short) 2));
+    }
+
+    @Test
+    public void shouldResumeRightAfterSnapshotMarker() {
+        CouchbaseBucketConfig bucketConfig = mock(CouchbaseBucketConfig.class);
+        when(bucketConfig.numberOfPartitions()).thenReturn(1);
+        final ClusterConfig clusterConfig = mock(ClusterConfig.class);
+        when(clusterConfig.bucketConfig(BUCKET)).thenReturn(bucketConfig);
+        final List<StreamRequestRequest> streamRequests = new ArrayList<StreamRequestRequest>();
+        when(core.send(any(CouchbaseRequest.class))).thenAnswer(new Answer<Observable<?>>() {
+            @Override
+            public Observable<?> answer(InvocationOnMock invocation) throws Throwable {
+                Object request = invocation.getArguments()[0];
+                if (request instanceof GetClusterConfigRequest) {
+                    return Observable.just(new GetClusterConfigResponse(clusterConfig, ResponseStatus.SUCCESS));
+                }
+                StreamRequestRequest streamRequest = (StreamRequestRequest) request;
+                streamRequests.add(streamRequest);
+                return Observable.just(new StreamRequestResponse(ResponseStatus.SUCCESS,
+                    Collections.<FailoverLogEntry>emptyList(), 0, streamRequest));
+            }
+        });
+
+        CheckpointStore store = new MemoryCheckpointStore();
+        store.update(new PartitionCheckpoint((short) 0, 1234, 10, 0, 10));
+        connection.checkpointStore(store);
+        connection.consumed(new SnapshotMarkerMessage(0, (short) 0, 11, 20, 0, BUCKET));
+
+        TestSubscriber<ResponseStatus> subscriber = new TestSubscriber<ResponseStatus>();
+        connection.resumeStreams().subscribe(subscriber);
+        subscriber.assertValue(ResponseStatus.SUCCESS);
+
+        StreamRequestRequest request = streamRequests.get(0);
+        assertEquals(1234, request.vbucketUUID());
+        assertEquals(10, request.startSequenceNumber());
+        assertEquals(10, request.snapshotStartSequenceNumber());
+        assertEquals(10, request.snapshotEndSequenceNumber());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.dcp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies functionality of {@link FileCheckpointStore}.
+ */
+public class FileCheckpointStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldRestoreLatestCheckpoints() throws IOException {
+        File file = folder.newFile();
+        FileCheckpointStore store = new FileCheckpointStore(file, 4096);
+        store.update(new PartitionCheckpoint((short) 1, 11, 0, 0, 0));
+        store.update(new PartitionCheckpoint((short) 2, 22, 0, 0, 0));
+        store.update(new PartitionCheckpoint((short) 1, 11, 0, 0, 0).withSnapshot(0, 10));
+        store.update(store.get((short) 1).withSequenceNumber(5));
+        store.close();
+
+        FileCheckpointStore restored = new FileCheckpointStore(file, 4096);
+        assertEquals(2, restored.checkpoints().size());
+        assertEquals(new PartitionCheckpoint((short) 1, 11, 5, 0, 10), restored.get((short) 1));
+        assertEquals(new PartitionCheckpoint((short) 2, 22, 0, 0, 0), restored.get((short) 2));
+        restored.close();
+    }
+
+    @Test
+    public void shouldCompactWhenFull() throws IOException {
+        File file = folder.newFile();
+        FileCheckpointStore store = new FileCheckpointStore(file, 100);
+        for (long seqno = 1; seqno <= 50; seqno++) {
+            store.update(new PartitionCheckpoint((short) (seqno % 3), 42, seqno, 0, 100));
+        }
+        store.close();
+
+        FileCheckpointStore restored = new FileCheckpointStore(file, 100);
+        assertEquals(3, restored.checkpoints().size());
+        assertEquals(48, restored.get((short) 0).sequenceNumber());
+        assertEquals(49, restored.get((short) 1).sequenceNumber());
+        assertEquals(50, restored.get((short) 2).sequenceNumber());
+        restored.close();
+        assertTrue(file.length() >= 100);
+    }
+
+    @Test
+    public void shouldGrowInPlaceWhenLogCannotBeReplaced() throws IOException {
+        File file = folder.newFile();
+        FileCheckpointStore store = new FileCheckpointStore(file, 100);
+        // a directory in the way of the compacted log makes the swap fail
+        assertTrue(new File(file.getPath() + ".compact").mkdir());
+        assertTrue(new File(file.getPath() + ".compact", "blocker").createNewFile());
+        for (long seqno = 1; seqno <= 50; seqno++) {
+            store.update(new PartitionCheckpoint((short) (seqno % 3), 42, seqno, 0, 100));
+        }
+        store.close();
+
+        FileCheckpointStore restored = new FileCheckpointStore(file, 100);
+        assertEquals(48, restored.get((short) 0).sequenceNumber());
+        assertEquals(49, restored.get((short) 1).sequenceNumber());
+        assertEquals(50, restored.get((short) 2).sequenceNumber());
+        restored.close();
+    }
+}
@@ -17,7 +17,10 @@ package com.couchbase.client.core.endpoint.kv;
 
 import com.couchbase.client.core.CouchbaseException;
 import com.couchbase.client.core.RequestCancelledException;
+import com.couchbase.client.core.RequestTimeoutException;
 import com.couchbase.client.core.endpoint.AbstractEndpoint;
+import com.couchbase.client.core.endpoint.ServerFeatures;
+import com.couchbase.client.core.endpoint.ServerFeaturesEvent;
 import com.couchbase.client.core.env.CoreEnvironment;
 import com.couchbase.client.core.env.DefaultCoreEnvironment;
 import com.couchbase.client.core.message.CouchbaseRequest;
@@ -41,7 +44,13 @@ import com.couchbase.client.core.message.kv.ReplicaGetRequest;
 import com.couchbase.client.core.message.kv.TouchRequest;
 import com.couchbase.client.core.message.kv.UnlockRequest;
 import com.couchbase.client.core.message.kv.UpsertRequest;
+import com.couchbase.client.core.message.kv.subdoc.simple.SimpleSubdocResponse;
+import com.couchbase.client.core.message.kv.subdoc.simple.SubGetRequest;
+import com.couchbase.client.core.metrics.NetworkLatencyMetricsCollector;
+import com.couchbase.client.core.metrics.NetworkLatencyMetricsIdentifier;
+import com.couchbase.client.core.metrics.RuntimeMetricsCollector;
 import com.couchbase.client.core.util.CollectingResponseEventSink;
+import com.couchbase.client.core.utils.Snappy;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.BinaryMemcacheRequest;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.BinaryMemcacheResponseStatus;
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.DefaultFullBinaryMemcacheResponse;
@@ -49,14 +58,19 @@ import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.FullBina
 import com.couchbase.client.deps.io.netty.handler.codec.memcache.binary.FullBinaryMemcacheResponse;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.CharsetUtil;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import rx.observers.TestSubscriber;
 import rx.schedulers.Schedulers;
 import rx.subjects.AsyncSubject;
@@ -65,15 +79,27 @@ import rx.subjects.Subject;
 import java.net.InetAddress;
 import java.nio.charset.Charset;
 import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Queue;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -181,6 +207,39 @@ public class KeyValueHandlerTest {
         assertEquals(BUCKET, event.bucket());
     }
 
+    @Test
+    public void shouldRecordLatencyWithInternedIdentifiers() {
+        CoreEnvironment environment = mock(CoreEnvironment.class);
+        NetworkLatencyMetricsCollector collector = mock(NetworkLatencyMetricsCollector.class);
+        when(environment.scheduler()).thenReturn(Schedulers.computation());
+        when(environment.networkLatencyMetricsCollector()).thenReturn(collector);
+        when(collector.isEnabled()).thenReturn(true);
+        AbstractEndpoint endpoint = mock(AbstractEndpoint.class);
+        when(endpoint.environment()).thenReturn(environment);
+        EmbeddedChannel channel = new EmbeddedChannel(
+            new KeyValueHandler(endpoint, eventSink, requestQueue, false, true));
+
+        short[] statuses = { 0, 0, BinaryMemcacheResponseStatus.KEY_ENOENT };
+        for (short status : statuses) {
+            FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse(KEY, Unpooled.EMPTY_BUFFER,
+                Unpooled.EMPTY_BUFFER);
+            response.setStatus(status);
+            GetRequest requestMock = mock(GetRequest.class);
+            when(requestMock.bucket()).thenReturn(BUCKET);
+            when(requestMock.sendTime()).thenReturn(System.nanoTime());
+            requestQueue.add(requestMock);
+            channel.writeInbound(response);
+        }
+
+        ArgumentCaptor<NetworkLatencyMetricsIdentifier> identifiers =
+            ArgumentCaptor.forClass(NetworkLatencyMetricsIdentifier.class);
+        verify(collector, times(3)).record(identifiers.capture(), anyLong());
+        assertSame(identifiers.getAllValues().get(0), identifiers.getAllValues().get(1));
+        assertEquals(ResponseStatus.NOT_EXISTS.toString(), identifiers.getAllValues().get(2).status());
+        assertEquals("BINARY", identifiers.getAllValues().get(2).service());
+        channel.close().awaitUninterruptibly();
+    }
+
     @Test
     public void shouldDecodeNotFoundGet() {
         ByteBuf content = Unpooled.copiedBuffer("Not Found", CharsetUtil.UTF_8);
@@ -961,4 +1020,353 @@ public class KeyValueHandlerTest {
         t2.assertNotCompleted();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldMatchOutOfOrderResponsesByOpaque() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new KeyValueHandler(endpoint, eventSink,
+            new OpaqueRequestQueue(), false, true));
+
+        GetRequest first = new GetRequest("first", BUCKET);
+        first.partition((short) 1);
+        GetRequest second = new GetRequest("second", BUCKET);
+        second.partition((short) 1);
+        channel.writeOutbound(first, second);
+        ReferenceCountUtil.releaseLater(channel.readOutbound());
+        ReferenceCountUtil.releaseLater(channel.readOutbound());
+
+        FullBinaryMemcacheResponse secondResponse = new DefaultFullBinaryMemcacheResponse("second".getBytes(CHARSET),
+            Unpooled.EMPTY_BUFFER, Unpooled.copiedBuffer("2", CHARSET));
+        secondResponse.setOpaque(second.opaque());
+        FullBinaryMemcacheResponse firstResponse = new DefaultFullBinaryMemcacheResponse("first".getBytes(CHARSET),
+            Unpooled.EMPTY_BUFFER, Unpooled.copiedBuffer("1", CHARSET));
+        firstResponse.setOpaque(first.opaque());
+        channel.writeInbound(secondResponse, firstResponse);
+
+        GetResponse firstResult = (GetResponse) first.observable().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        GetResponse secondResult = (GetResponse) second.observable().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        assertEquals("1", firstResult.content().toString(CHARSET));
+        assertEquals("2", secondResult.content().toString(CHARSET));
+        ReferenceCountUtil.releaseLater(firstResult.content());
+        ReferenceCountUtil.releaseLater(secondResult.content());
+        channel.close().awaitUninterruptibly();
+    }
+
+    @Test
+    public void shouldDropResponseWithUnknownOpaque() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new KeyValueHandler(endpoint, eventSink,
+            new OpaqueRequestQueue(), false, true));
+
+        GetRequest request = new GetRequest("key", BUCKET);
+        request.partition((short) 1);
+        channel.writeOutbound(request);
+        ReferenceCountUtil.releaseLater(channel.readOutbound());
+
+        ByteBuf staleContent = Unpooled.copiedBuffer("stale", CHARSET);
+        FullBinaryMemcacheResponse stale = new DefaultFullBinaryMemcacheResponse(KEY, Unpooled.EMPTY_BUFFER,
+            staleContent);
+        stale.setOpaque(request.opaque() + 1);
+        channel.writeInbound(stale);
+        assertEquals(0, staleContent.refCnt());
+        assertTrue(channel.isActive());
+
+        FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse(KEY, Unpooled.EMPTY_BUFFER,
+            Unpooled.copiedBuffer("content", CHARSET));
+        response.setOpaque(request.opaque());
+        channel.writeInbound(response);
+
+        GetResponse result = (GetResponse) request.observable().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        assertEquals("content", result.content().toString(CHARSET));
+        ReferenceCountUtil.releaseLater(result.content());
+        channel.close().awaitUninterruptibly();
+    }
+
+    @Test
+    public void shouldFailRequestWithOpaqueAlreadyInFlight() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new KeyValueHandler(endpoint, eventSink,
+            new OpaqueRequestQueue(), false, true));
+
+        GetRequest request = new GetRequest("key", BUCKET);
+        request.partition((short) 1);
+        Subject<CouchbaseResponse, CouchbaseResponse> duplicateObservable = AsyncSubject.create();
+        GetRequest duplicate = mock(GetRequest.class);
+        when(duplicate.keyBytes()).thenReturn(KEY);
+        when(duplicate.bucket()).thenReturn(BUCKET);
+        when(duplicate.opaque()).thenReturn(request.opaque());
+        when(duplicate.observable()).thenReturn(duplicateObservable);
+
+        channel.writeOutbound(request, duplicate);
+        ReferenceCountUtil.releaseLater(channel.readOutbound());
+        assertNull(channel.readOutbound());
+
+        TestSubscriber<CouchbaseResponse> subscriber = new TestSubscriber<CouchbaseResponse>();
+        duplicateObservable.subscribe(subscriber);
+        subscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        subscriber.assertError(CouchbaseException.class);
+
+        FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse(KEY, Unpooled.EMPTY_BUFFER,
+            Unpooled.copiedBuffer("content", CHARSET));
+        response.setOpaque(request.opaque());
+        channel.writeInbound(response);
+
+        GetResponse result = (GetResponse) request.observable().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        assertEquals("content", result.content().toString(CHARSET));
+        ReferenceCountUtil.releaseLater(result.content());
+        channel.close().awaitUninterruptibly();
+    }
+
+    @Test
+    public void shouldTimeOutRequestAndDropLateResponse() throws Exception {
+        Timer timer = mock(Timer.class);
+        Timeout timeout = mock(Timeout.class);
+        ArgumentCaptor<TimerTask> task = ArgumentCaptor.forClass(TimerTask.class);
+        when(timer.newTimeout(task.capture(), anyLong(), any(TimeUnit.class))).thenReturn(timeout);
+        EmbeddedChannel channel = timedChannel(timer);
+
+        GetRequest request = new GetRequest("key", BUCKET);
+        request.partition((short) 1);
+        request.deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100));
+        channel.writeOutbound(request);
+        ReferenceCountUtil.releaseLater(channel.readOutbound());
+
+        task.getValue().run(timeout);
+        channel.runPendingTasks();
+
+        TestSubscriber<CouchbaseResponse> subscriber = new TestSubscriber<CouchbaseResponse>();
+        request.observable().subscribe(subscriber);
+        subscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        subscriber.assertError(RequestTimeoutException.class);
+        verify(endpoint).notifyRequestTimedOut();
+
+        ByteBuf lateContent = Unpooled.copiedBuffer("late", CHARSET);
+        FullBinaryMemcacheResponse late = new DefaultFullBinaryMemcacheResponse(KEY, Unpooled.EMPTY_BUFFER,
+            lateContent);
+        late.setOpaque(request.opaque());
+        channel.writeInbound(late);
+        assertEquals(0, lateContent.refCnt());
+        assertTrue(channel.isActive());
+        channel.close().awaitUninterruptibly();
+    }
+
+    @Test
+    public void shouldCancelTimeoutOnceResponseArrives() throws Exception {
+        Timer timer = mock(Timer.class);
+        Timeout timeout = mock(Timeout.class);
+        ArgumentCaptor<TimerTask> task = ArgumentCaptor.forClass(TimerTask.class);
+        when(timer.newTimeout(task.capture(), anyLong(), any(TimeUnit.class))).thenReturn(timeout);
+        EmbeddedChannel channel = timedChannel(timer);
+
+        GetRequest request = new GetRequest("key", BUCKET);
+        request.partition((short) 1);
+        request.deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100));
+        channel.writeOutbound(request);
+        ReferenceCountUtil.releaseLater(channel.readOutbound());
+
+        FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse(KEY, Unpooled.EMPTY_BUFFER,
+            Unpooled.copiedBuffer("content", CHARSET));
+        response.setOpaque(request.opaque());
+        channel.writeInbound(response);
+        verify(timeout).cancel();
+
+        // a timeout which already fired while the response was decoded has no effect anymore
+        task.getValue().run(timeout);
+        channel.runPendingTasks();
+
+        GetResponse result = (GetResponse) request.observable().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        assertEquals("content", result.content().toString(CHARSET));
+        ReferenceCountUtil.releaseLater(result.content());
+        verify(endpoint, times(0)).notifyRequestTimedOut();
+        channel.close().awaitUninterruptibly();
+    }
+
+    @Test
+    public void shouldCompressLargeValuesOnceSnappyIsNegotiated() throws Exception {
+        RuntimeMetricsCollector metrics = mock(RuntimeMetricsCollector.class);
+        EmbeddedChannel channel = compressingChannel(metrics);
+        channel.pipeline().fireUserEventTriggered(
+            new ServerFeaturesEvent(Arrays.asList(ServerFeatures.XATTR, ServerFeatures.SNAPPY)));
+
+        String value = compressibleJson();
+        ByteBuf content = Unpooled.copiedBuffer(value, CHARSET);
+        UpsertRequest request = new UpsertRequest("key", content, BUCKET);
+        request.partition((short) 1);
+        channel.writeOutbound(request);
+
+        FullBinaryMemcacheRequest outbound = (FullBinaryMemcacheRequest) channel.readOutbound();
+        assertEquals(KeyValueHandler.DATATYPE_SNAPPY, outbound.getDataType());
+        assertTrue(outbound.content().readableBytes() < value.length() / 2);
+        assertEquals("key".length() + 8 + outbound.content().readableBytes(), outbound.getTotalBodyLength());
+        ByteBuf decompressed = Snappy.decompress(UnpooledByteBufAllocator.DEFAULT, outbound.content());
+        assertEquals(value, decompressed.toString(CHARSET));
+        decompressed.release();
+        verify(metrics).recordCompression(value.length(), outbound.content().readableBytes(), true);
+
+        // the compressed copy is not retained, the original value is kept until the server responded
+        assertEquals(1, outbound.content().refCnt());
+        assertEquals(1, content.refCnt());
+        outbound.release();
+
+        FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse(KEY, Unpooled.EMPTY_BUFFER,
+            Unpooled.EMPTY_BUFFER);
+        response.setOpaque(request.opaque());
+        channel.writeInbound(response);
+        request.observable().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        assertEquals(0, content.refCnt());
+        channel.close().awaitUninterruptibly();
+    }
+
+    @Test
+    public void shouldNotCompressSmallOrIncompressibleValues() throws Exception {
+        RuntimeMetricsCollector metrics = mock(RuntimeMetricsCollector.class);
+        EmbeddedChannel channel = compressingChannel(metrics);
+        channel.pipeline().fireUserEventTriggered(
+            new ServerFeaturesEvent(Collections.singletonList(ServerFeatures.SNAPPY)));
+
+        UpsertRequest request = new UpsertRequest("key", Unpooled.copiedBuffer("{\"small\":true}", CHARSET), BUCKET);
+        request.partition((short) 1);
+        channel.writeOutbound(request);
+        FullBinaryMemcacheRequest outbound = (FullBinaryMemcacheRequest) channel.readOutbound();
+        assertEquals(0, outbound.getDataType());
+        assertEquals("{\"small\":true}", outbound.content().toString(CHARSET));
+        ReferenceCountUtil.releaseLater(outbound);
+
+        byte[] random = new byte[1024];
+        new Random(0).nextBytes(random);
+        request = new UpsertRequest("key", Unpooled.wrappedBuffer(random), BUCKET);
+        request.partition((short) 1);
+        channel.writeOutbound(request);
+        outbound = (FullBinaryMemcacheRequest) channel.readOutbound();
+        assertEquals(0, outbound.getDataType());
+        assertEquals(Unpooled.wrappedBuffer(random), outbound.content());
+        ReferenceCountUtil.releaseLater(outbound);
+
+        verify(metrics).recordCompression(eq(1024), anyInt(), eq(false));
+        channel.close().awaitUninterruptibly();
+    }
+
+    @Test
+    public void shouldNotCompressIfSnappyIsNotSupported() throws Exception {
+        RuntimeMetricsCollector metrics = mock(RuntimeMetricsCollector.class);
+        EmbeddedChannel channel = compressingChannel(metrics);
+        channel.pipeline().fireUserEventTriggered(
+            new ServerFeaturesEvent(Collections.singletonList(ServerFeatures.XATTR)));
+
+        String value = compressibleJson();
+        UpsertRequest request = new UpsertRequest("key", Unpooled.copiedBuffer(value, CHARSET), BUCKET);
+        request.partition((short) 1);
+        channel.writeOutbound(request);
+        FullBinaryMemcacheRequest outbound = (FullBinaryMemcacheRequest) channel.readOutbound();
+        assertEquals(0, outbound.getDataType());
+        assertEquals(value, outbound.content().toString(CHARSET));
+        ReferenceCountUtil.releaseLater(outbound);
+
+        verify(metrics, times(0)).recordCompression(anyInt(), anyInt(), anyBoolean());
+        channel.close().awaitUninterruptibly();
+    }
+
+    @Test
+    public void shouldDecompressSnappyValues() throws Exception {
+        RuntimeMetricsCollector metrics = mock(RuntimeMetricsCollector.class);
+        EmbeddedChannel channel = compressingChannel(metrics);
+        String value = compressibleJson();
+
+        GetRequest get = new GetRequest("key", BUCKET);
+        ReplicaGetRequest replicaGet = new ReplicaGetRequest("key", BUCKET, (short) 1);
+        SubGetRequest subGet = new SubGetRequest("key", "path", BUCKET);
+        get.partition((short) 1);
+        replicaGet.partition((short) 1);
+        subGet.partition((short) 1);
+        channel.writeOutbound(get, replicaGet, subGet);
+        for (int i = 0; i < 3; i++) {
+            ReferenceCountUtil.releaseLater(channel.readOutbound());
+        }
+
+        ByteBuf[] compressed = new ByteBuf[3];
+        int[] opaques = new int[] { get.opaque(), replicaGet.opaque(), subGet.opaque() };
+        for (int i = 0; i < compressed.length; i++) {
+            compressed[i] = Snappy.compress(UnpooledByteBufAllocator.DEFAULT, Unpooled.copiedBuffer(value, CHARSET));
+            FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse(KEY,
+                Unpooled.buffer().writeInt(42), compressed[i]);
+            response.setExtrasLength((byte) 4);
+            response.setDataType((byte) (KeyValueHandler.DATATYPE_SNAPPY | 0x01));
+            response.setCAS(1234);
+            response.setOpaque(opaques[i]);
+            channel.writeInbound(response);
+            assertEquals(0, compressed[i].refCnt());
+        }
+
+        GetResponse getResponse = (GetResponse) get.observable().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        assertEquals(value, getResponse.content().toString(CHARSET));
+        assertEquals(42, getResponse.flags());
+        assertEquals(1234, getResponse.cas());
+        ReferenceCountUtil.releaseLater(getResponse.content());
+
+        GetResponse replicaResponse = (GetResponse) replicaGet.observable().timeout(1, TimeUnit.SECONDS)
+            .toBlocking().single();
+        assertEquals(value, replicaResponse.content().toString(CHARSET));
+        ReferenceCountUtil.releaseLater(replicaResponse.content());
+
+        SimpleSubdocResponse subResponse = (SimpleSubdocResponse) subGet.observable().timeout(1, TimeUnit.SECONDS)
+            .toBlocking().single();
+        assertEquals(value, subResponse.content().toString(CHARSET));
+        ReferenceCountUtil.releaseLater(subResponse.content());
+
+        verify(metrics, times(3)).recordDecompression(anyInt(), eq(value.length()));
+        channel.close().awaitUninterruptibly();
+    }
+
+    @Test
+    public void shouldFailRequestOnInvalidSnappyValue() throws Exception {
+        EmbeddedChannel channel = compressingChannel(mock(RuntimeMetricsCollector.class));
+
+        GetRequest get = new GetRequest("key", BUCKET);
+        get.partition((short) 1);
+        channel.writeOutbound(get);
+        ReferenceCountUtil.releaseLater(channel.readOutbound());
+
+        FullBinaryMemcacheResponse response = new DefaultFullBinaryMemcacheResponse(KEY, Unpooled.EMPTY_BUFFER,
+            Unpooled.copiedBuffer("not snappy", CHARSET));
+        response.setDataType(KeyValueHandler.DATATYPE_SNAPPY);
+        response.setOpaque(get.opaque());
+        channel.writeInbound(response);
+
+        TestSubscriber<CouchbaseResponse> subscriber = new TestSubscriber<CouchbaseResponse>();
+        get.observable().subscribe(subscriber);
+        subscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        assertTrue(subscriber.getOnErrorEvents().get(0) instanceof CouchbaseException);
+        assertTrue(channel.isActive());
+        channel.close().awaitUninterruptibly();
+    }
+
+    private EmbeddedChannel timedChannel(final Timer timer) {
+        CoreEnvironment environment = mock(CoreEnvironment.class);
+        when(environment.scheduler()).thenReturn(Schedulers.computation());
+        when(environment.requestTimer()).thenReturn(timer);
+        when(endpoint.environment()).thenReturn(environment);
+        return new EmbeddedChannel(new KeyValueHandler(endpoint, eventSink, new OpaqueRequestQueue(), false, true));
+    }
+
+    private EmbeddedChannel compressingChannel(final RuntimeMetricsCollector metrics) {
+        CoreEnvironment environment = mock(CoreEnvironment.class);
+        when(environment.scheduler()).thenReturn(Schedulers.computation());
+        when(environment.compressionEnabled()).thenReturn(true);
+        when(environment.compressionMinSize()).thenReturn(32);
+        when(environment.compressionMinRatio()).thenReturn(0.83);
+        when(environment.runtimeMetricsCollector()).thenReturn(metrics);
+        when(metrics.isEnabled()).thenReturn(true);
+        AbstractEndpoint endpoint = mock(AbstractEndpoint.class);
+        when(endpoint.environment()).thenReturn(environment);
+        return new EmbeddedChannel(new KeyValueHandler(endpoint, eventSink, new OpaqueRequestQueue(), false, true));
+    }
+
+    private static String compressibleJson() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":").append(i).append(",\"type\":\"user\",\"active\":true,\"tags\":[\"a\",\"b\"]}");
+        }
+        return sb.append(']').toString();
+    }
+
+}
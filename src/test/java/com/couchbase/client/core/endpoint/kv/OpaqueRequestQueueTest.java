@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.kv;
+
+import com.couchbase.client.core.message.kv.BinaryRequest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of the {@link OpaqueRequestQueue}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class OpaqueRequestQueueTest {
+
+    private static BinaryRequest request(int opaque) {
+        BinaryRequest request = mock(BinaryRequest.class);
+        when(request.opaque()).thenReturn(opaque);
+        return request;
+    }
+
+    @Test
+    public void shouldPollInInsertionOrder() {
+        OpaqueRequestQueue queue = new OpaqueRequestQueue();
+        BinaryRequest first = request(5);
+        BinaryRequest second = request(1);
+        BinaryRequest third = request(3);
+        queue.offer(first);
+        queue.offer(second);
+        queue.offer(third);
+
+        assertEquals(3, queue.size());
+        assertSame(first, queue.peek());
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+        assertSame(third, queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void shouldRemoveByOpaque() {
+        OpaqueRequestQueue queue = new OpaqueRequestQueue();
+        BinaryRequest first = request(1);
+        BinaryRequest second = request(2);
+        BinaryRequest third = request(3);
+        queue.offer(first);
+        queue.offer(second);
+        queue.offer(third);
+
+        assertSame(second, queue.get(2));
+        assertSame(second, queue.remove(2));
+        assertNull(queue.remove(2));
+        assertNull(queue.get(2));
+        assertNull(queue.remove(42));
+
+        assertEquals(2, queue.size());
+        assertSame(first, queue.poll());
+        assertSame(third, queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void shouldRejectDuplicateOpaque() {
+        OpaqueRequestQueue queue = new OpaqueRequestQueue();
+        BinaryRequest first = request(1);
+        assertTrue(queue.offer(first));
+        assertFalse(queue.offer(request(1)));
+        assertEquals(1, queue.size());
+        assertSame(first, queue.remove(1));
+    }
+
+    @Test
+    public void shouldHandleCollidingAndNegativeOpaques() {
+        OpaqueRequestQueue queue = new OpaqueRequestQueue(64);
+        List<BinaryRequest> requests = new ArrayList<BinaryRequest>();
+        for (int i = 0; i < 20; i++) {
+            BinaryRequest request = request(i * 64 - 640);
+            requests.add(request);
+            queue.offer(request);
+        }
+
+        for (int i = 19; i >= 0; i -= 2) {
+            assertSame(requests.get(i), queue.remove(i * 64 - 640));
+        }
+        for (int i = 0; i < 20; i += 2) {
+            assertSame(requests.get(i), queue.get(i * 64 - 640));
+        }
+        assertEquals(10, queue.size());
+    }
+
+    @Test
+    public void shouldGrowAndKeepOrder() {
+        OpaqueRequestQueue queue = new OpaqueRequestQueue();
+        List<BinaryRequest> requests = new ArrayList<BinaryRequest>();
+        for (int i = 0; i < 1000; i++) {
+            BinaryRequest request = request(i);
+            requests.add(request);
+            queue.offer(request);
+        }
+
+        assertEquals(1000, queue.size());
+        for (int i = 999; i >= 0; i--) {
+            assertSame(requests.get(i), queue.get(i));
+        }
+        int i = 0;
+        for (BinaryRequest request : queue) {
+            assertSame(requests.get(i++), request);
+        }
+        assertEquals(1000, i);
+    }
+
+    @Test
+    public void shouldReuseSlotsOnSteadyChurn() {
+        OpaqueRequestQueue queue = new OpaqueRequestQueue();
+        for (int i = 0; i < 10000; i++) {
+            queue.offer(request(i));
+            if (i >= 10) {
+                assertEquals(i - 10, queue.poll().opaque());
+            }
+        }
+        assertEquals(10, queue.size());
+    }
+
+    @Test
+    public void shouldRemoveThroughIterator() {
+        OpaqueRequestQueue queue = new OpaqueRequestQueue();
+        for (int i = 0; i < 10; i++) {
+            queue.offer(request(i));
+        }
+
+        Iterator<BinaryRequest> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().opaque() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+
+        assertEquals(5, queue.size());
+        for (int i = 1; i < 10; i += 2) {
+            assertEquals(i, queue.poll().opaque());
+        }
+    }
+}
@@ -57,10 +57,14 @@ import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.CharsetUtil;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
 import org.assertj.core.api.SoftAssertions;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import rx.functions.Action1;
 import rx.observers.TestSubscriber;
 import rx.schedulers.Schedulers;
@@ -88,6 +92,8 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -858,6 +864,28 @@ public class QueryHandlerTest {
         }
     }
 
+    @Test
+    public void shouldDecodeChunkedResponseSplitAtEveryPositionWithZeroCopyRows() throws Throwable {
+        CoreEnvironment environment = endpoint.environment();
+        when(environment.zeroCopyRowsEnabled()).thenReturn(true);
+        channel.close().awaitUninterruptibly();
+        handler = new QueryHandler(endpoint, responseRingBuffer, queue, false, false);
+        channel = new EmbeddedChannel(handler);
+
+        String response = Resources.read("chunked.json", this.getClass());
+        for (int i = 1; i < response.length() - 1; i++) {
+            String chunk1 = response.substring(0, i);
+            String chunk2 = response.substring(i);
+
+            try {
+                shouldDecodeChunked(true, chunk1, chunk2);
+            } catch (Throwable t) {
+                LOGGER.info("Test failed in decoding response with zero copy rows and chunk at position " + i);
+                throw t;
+            }
+        }
+    }
+
     private void shouldDecodeChunked(boolean metrics, String... chunks) throws Exception {
         HttpResponse responseHeader = new DefaultHttpResponse(HttpVersion.HTTP_1_1, new HttpResponseStatus(200, "OK"));
         Object[] httpChunks = new Object[chunks.length + 1];
@@ -1537,6 +1565,73 @@ public class QueryHandlerTest {
         softly.assertAll();
     }
 
+    @Test
+    public void shouldDrainRowsOfTimedOutQuery() throws Exception {
+        Timer timer = mock(Timer.class);
+        ArgumentCaptor<TimerTask> task = ArgumentCaptor.forClass(TimerTask.class);
+        when(timer.newTimeout(task.capture(), anyLong(), any(TimeUnit.class))).thenReturn(mock(Timeout.class));
+        CoreEnvironment environment = endpoint.environment();
+        when(environment.requestTimer()).thenReturn(timer);
+        when(environment.streamingRowBufferSize()).thenReturn(2);
+        EmbeddedChannel timedChannel = new EmbeddedChannel(
+            new QueryHandler(endpoint, responseRingBuffer, queue, false, false));
+
+        GenericQueryRequest request = GenericQueryRequest.simpleStatement("SELECT * FROM `default`", "default", "");
+        request.deadline(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+        timedChannel.writeOutbound(request);
+        ReferenceCountUtil.releaseLater(timedChannel.readOutbound());
+        task.getValue().run(mock(Timeout.class));
+        timedChannel.runPendingTasks();
+
+        // all rows but not the end of the response, so it is still streaming and reading paused on the rows
+        String response = Resources.read("success_5.json", this.getClass());
+        HttpResponse responseHeader = new DefaultHttpResponse(HttpVersion.HTTP_1_1, new HttpResponseStatus(200, "OK"));
+        HttpContent responseChunk = new DefaultHttpContent(
+            Unpooled.copiedBuffer(response.substring(0, response.indexOf("\"status\"")), CharsetUtil.UTF_8));
+        timedChannel.writeInbound(responseHeader, responseChunk);
+
+        for (int i = 0; i < 100 && !timedChannel.config().isAutoRead(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(timedChannel.config().isAutoRead());
+        assertTrue(firedEvents.isEmpty());
+        timedChannel.close().awaitUninterruptibly();
+    }
+
+    @Test
+    public void shouldPauseReadingUntilRowsAreConsumed() throws Exception {
+        when(endpoint.environment().streamingRowBufferSize()).thenReturn(2);
+        EmbeddedChannel pausingChannel = new EmbeddedChannel(
+            new QueryHandler(endpoint, responseRingBuffer, queue, false, false));
+
+        // all rows but not the end of the response, so it is still streaming
+        String response = Resources.read("success_5.json", this.getClass());
+        HttpResponse responseHeader = new DefaultHttpResponse(HttpVersion.HTTP_1_1, new HttpResponseStatus(200, "OK"));
+        HttpContent responseChunk = new DefaultHttpContent(
+            Unpooled.copiedBuffer(response.substring(0, response.indexOf("\"status\"")), CharsetUtil.UTF_8));
+        queue.add(mock(GenericQueryRequest.class));
+        pausingChannel.writeInbound(responseHeader, responseChunk);
+        latch.await(1, TimeUnit.SECONDS);
+        GenericQueryResponse inbound = (GenericQueryResponse) firedEvents.get(0);
+        assertFalse(pausingChannel.config().isAutoRead());
+
+        // rows prefetched on the way to the subscriber do not count as consumed
+        TestSubscriber<ByteBuf> subscriber = new TestSubscriber<ByteBuf>(0);
+        inbound.rows().subscribe(subscriber);
+        subscriber.requestMore(1);
+        subscriber.awaitValueCount(1, 1, TimeUnit.SECONDS);
+        assertFalse(pausingChannel.config().isAutoRead());
+
+        subscriber.requestMore(4);
+        subscriber.awaitValueCount(5, 1, TimeUnit.SECONDS);
+        assertTrue(pausingChannel.config().isAutoRead());
+
+        for (ByteBuf row : subscriber.getOnNextEvents()) {
+            row.release();
+        }
+        pausingChannel.close().awaitUninterruptibly();
+    }
+
     @Test
     public void shouldHavePipeliningDisabled() {
         Subject<CouchbaseResponse,CouchbaseResponse> obs1 = AsyncSubject.create();
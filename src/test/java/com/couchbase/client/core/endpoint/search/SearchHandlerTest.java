@@ -26,14 +26,20 @@ import com.couchbase.client.core.message.CouchbaseResponse;
 import com.couchbase.client.core.message.ResponseStatus;
 import com.couchbase.client.core.message.search.SearchQueryRequest;
 import com.couchbase.client.core.message.search.SearchRequest;
+import com.couchbase.client.core.message.search.StreamingSearchQueryRequest;
+import com.couchbase.client.core.message.search.StreamingSearchQueryResponse;
 import com.couchbase.client.core.retry.FailFastRetryStrategy;
+import com.couchbase.client.core.util.Resources;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lmax.disruptor.EventFactory;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
 import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
 import io.netty.handler.codec.http.HttpResponse;
@@ -41,6 +47,7 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.CharsetUtil;
 import org.junit.Before;
 import org.junit.Test;
 import rx.observers.TestSubscriber;
@@ -52,6 +59,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
@@ -194,4 +202,91 @@ public class SearchHandlerTest {
         assertEquals(0, responseEnd.refCnt());
     }
 
+    @Test
+    public void shouldStreamSearchHitsSplitAtEveryPosition() throws Exception {
+        String response = Resources.read("search_hits.json", this.getClass());
+        for (int i = 1; i < response.length() - 1; i++) {
+            try {
+                shouldStreamSearchHits(response, response.substring(0, i), response.substring(i));
+            } catch (AssertionError e) {
+                throw new AssertionError("Failed with chunk split at position " + i + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void shouldStreamSearchHitsWithZeroCopyRows() throws Exception {
+        CoreEnvironment environment = endpoint.environment();
+        when(environment.zeroCopyRowsEnabled()).thenReturn(true);
+        channel.close().awaitUninterruptibly();
+        handler = new SearchHandler(endpoint, responseRingBuffer, queue, false, false);
+        channel = new EmbeddedChannel(handler);
+
+        String response = Resources.read("search_hits.json", this.getClass());
+        for (int i = 1; i < response.length() - 1; i += 7) {
+            shouldStreamSearchHits(response, response.substring(0, i), response.substring(i, i + 1),
+                response.substring(i + 1));
+        }
+    }
+
+    @Test
+    public void shouldStreamEscapedStringValuesByteByByte() throws Exception {
+        String response = "{\"status\": {\"total\": 1}, \"hits\": [{\"id\": \"a\"}], "
+            + "\"note\": \"say \\\"hi\\\" \\\\\", \"max_score\": 1}";
+        String[] chunks = new String[response.length()];
+        for (int i = 0; i < response.length(); i++) {
+            chunks[i] = response.substring(i, i + 1);
+        }
+        shouldStreamSearchHits(response, chunks);
+    }
+
+    @Test
+    public void shouldStreamNonJsonSearchErrorAsMeta() throws Exception {
+        HttpResponse responseHeader = new DefaultHttpResponse(HttpVersion.HTTP_1_1,
+            new HttpResponseStatus(400, "Bad Request"));
+        LastHttpContent body = new DefaultLastHttpContent(Unpooled.copiedBuffer(
+            "rest_index: Query, indexName: foo, err: index not found", CharsetUtil.UTF_8));
+
+        StreamingSearchQueryResponse inbound = writeStreamingSearch(responseHeader, body);
+        assertEquals(ResponseStatus.INVALID_ARGUMENTS, inbound.status());
+        assertEquals(0, inbound.hits().toList().timeout(1, TimeUnit.SECONDS).toBlocking().single().size());
+        ByteBuf meta = inbound.meta().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        assertEquals("rest_index: Query, indexName: foo, err: index not found", meta.toString(CharsetUtil.UTF_8));
+        meta.release();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void shouldStreamSearchHits(String response, String... chunks) throws Exception {
+        Object[] messages = new Object[chunks.length + 1];
+        messages[0] = new DefaultHttpResponse(HttpVersion.HTTP_1_1, new HttpResponseStatus(200, "OK"));
+        for (int i = 0; i < chunks.length; i++) {
+            ByteBuf chunk = Unpooled.copiedBuffer(chunks[i], CharsetUtil.UTF_8);
+            messages[i + 1] = i == chunks.length - 1 ? new DefaultLastHttpContent(chunk) : new DefaultHttpContent(chunk);
+        }
+        StreamingSearchQueryResponse inbound = writeStreamingSearch(messages);
+        assertEquals(ResponseStatus.SUCCESS, inbound.status());
+
+        Map<String, Object> expected = mapper.readValue(response, Map.class);
+        List<Object> expectedHits = (List<Object>) expected.remove("hits");
+
+        List<ByteBuf> hits = inbound.hits().toList().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        assertEquals(expectedHits.size(), hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            assertEquals(expectedHits.get(i), mapper.readValue(hits.get(i).toString(CharsetUtil.UTF_8), Map.class));
+            hits.get(i).release();
+        }
+
+        ByteBuf meta = inbound.meta().timeout(1, TimeUnit.SECONDS).toBlocking().single();
+        assertEquals(expected, mapper.readValue(meta.toString(CharsetUtil.UTF_8), Map.class));
+        meta.release();
+    }
+
+    private StreamingSearchQueryResponse writeStreamingSearch(Object... messages) {
+        Subject<CouchbaseResponse, CouchbaseResponse> obs = AsyncSubject.create();
+        StreamingSearchQueryRequest requestMock = mock(StreamingSearchQueryRequest.class);
+        when(requestMock.observable()).thenReturn(obs);
+        queue.add(requestMock);
+        channel.writeInbound(messages);
+        return (StreamingSearchQueryResponse) obs.timeout(1, TimeUnit.SECONDS).toBlocking().last();
+    }
 }
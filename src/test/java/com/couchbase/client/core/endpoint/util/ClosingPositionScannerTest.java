@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies the functionality of the {@link ClosingPositionScanner}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class ClosingPositionScannerTest {
+
+    @Test
+    public void shouldFindClosingInSectionWithSubsection() {
+        ByteBuf source = Unpooled.copiedBuffer(", { this is { simple } }", CharsetUtil.UTF_8);
+        assertEquals(23, new ClosingPositionScanner('{', '}').find(source));
+        assertEquals(0, source.readerIndex());
+    }
+
+    @Test
+    public void shouldResumeAcrossChunks() {
+        String row = "{ \"a\": { \"b\": \"} \\\" {\" }, \"c\": [1, 2] }";
+        ByteBuf source = Unpooled.buffer();
+        ClosingPositionScanner scanner = new ClosingPositionScanner('{', '}');
+        for (int i = 0; i < row.length() - 1; i++) {
+            source.writeByte(row.charAt(i));
+            assertEquals(-1, scanner.find(source));
+        }
+        source.writeByte(row.charAt(row.length() - 1));
+        assertEquals(row.length() - 1, scanner.find(source));
+    }
+
+    @Test
+    public void shouldHandleEscapedBackslashesBeforeQuotes() {
+        ByteBuf source = Unpooled.copiedBuffer("{\"a\\\\\":\"}\\\\\\\"}\"}", CharsetUtil.UTF_8);
+        assertEquals(source.writerIndex() - 1, new ClosingPositionScanner('{', '}').find(source));
+    }
+
+    @Test
+    public void shouldKeepPositionRelativeToReaderIndex() {
+        ByteBuf source = Unpooled.copiedBuffer("{\"row\":1},{\"row\":", CharsetUtil.UTF_8);
+        ClosingPositionScanner scanner = new ClosingPositionScanner('{', '}');
+        int closingPos = scanner.find(source);
+        assertEquals(8, closingPos);
+
+        source.readerIndex(closingPos + 1);
+        assertEquals(-1, scanner.find(source));
+        source.discardReadBytes();
+        source.writeBytes("2}".getBytes(CharsetUtil.UTF_8));
+        assertEquals(9, scanner.find(source));
+    }
+
+    @Test
+    public void shouldStartOverAfterReset() {
+        ByteBuf source = Unpooled.copiedBuffer("{ \"a\": {", CharsetUtil.UTF_8);
+        ClosingPositionScanner scanner = new ClosingPositionScanner('{', '}');
+        assertEquals(-1, scanner.find(source));
+
+        scanner.reset();
+        source.readerIndex(7);
+        source.writeBytes("}".getBytes(CharsetUtil.UTF_8));
+        assertEquals(8, scanner.find(source));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.endpoint.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the functionality of {@link ResponseContents}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class ResponseContentsTest {
+
+    @Test
+    public void shouldCopyWithoutZeroCopy() {
+        ByteBuf content = ResponseContents.prepare(null, UnpooledByteBufAllocator.DEFAULT, false);
+        assertFalse(content instanceof CompositeByteBuf);
+        ByteBuf chunk = Unpooled.copiedBuffer("{\"a\":1}", CharsetUtil.UTF_8);
+        ResponseContents.append(content, chunk);
+        chunk.release();
+
+        ByteBuf row = ResponseContents.extract(content, 0, 7);
+        content.setByte(0, '[');
+        assertEquals("{\"a\":1}", row.toString(CharsetUtil.UTF_8));
+        row.release();
+        assertSame(content, ResponseContents.prepare(content, UnpooledByteBufAllocator.DEFAULT, false));
+        content.release();
+    }
+
+    @Test
+    public void shouldRetainChunksWithZeroCopy() {
+        ByteBuf content = ResponseContents.prepare(null, UnpooledByteBufAllocator.DEFAULT, true);
+        assertTrue(content instanceof CompositeByteBuf);
+        ByteBuf chunk1 = Unpooled.copiedBuffer("{\"a\":1},{\"b\"", CharsetUtil.UTF_8);
+        ByteBuf chunk2 = Unpooled.copiedBuffer(":2}", CharsetUtil.UTF_8);
+        ResponseContents.append(content, chunk1);
+        ResponseContents.append(content, chunk2);
+        ResponseContents.append(content, Unpooled.EMPTY_BUFFER);
+        chunk1.release();
+        chunk2.release();
+
+        ByteBuf first = ResponseContents.extract(content, 0, 7);
+        ByteBuf second = ResponseContents.extract(content, 8, 7);
+        content.readerIndex(content.writerIndex());
+        content.discardReadBytes();
+        content = ResponseContents.prepare(content, UnpooledByteBufAllocator.DEFAULT, true);
+
+        assertEquals("{\"a\":1}", first.toString(CharsetUtil.UTF_8));
+        assertEquals("{\"b\":2}", second.toString(CharsetUtil.UTF_8));
+        first.release();
+        assertEquals(1, chunk1.refCnt());
+        second.release();
+        assertEquals(0, chunk1.refCnt());
+        assertEquals(0, chunk2.refCnt());
+        content.release();
+    }
+
+    @Test
+    public void shouldExtractAfterDiscardingPartOfAChunk() {
+        ByteBuf content = ResponseContents.prepare(null, UnpooledByteBufAllocator.DEFAULT, true);
+        ByteBuf chunk1 = Unpooled.copiedBuffer("0123456789", CharsetUtil.UTF_8);
+        ByteBuf chunk2 = Unpooled.copiedBuffer("abcdefghij", CharsetUtil.UTF_8);
+        ResponseContents.append(content, chunk1);
+        ResponseContents.append(content, chunk2);
+        chunk1.release();
+        chunk2.release();
+
+        content.readerIndex(5);
+        content.discardReadBytes();
+        ByteBuf spanning = ResponseContents.extract(content, 0, 7);
+        ByteBuf second = ResponseContents.extract(content, 6, 3);
+        assertEquals("56789ab", spanning.toString(CharsetUtil.UTF_8));
+        assertEquals("bcd", second.toString(CharsetUtil.UTF_8));
+
+        spanning.release();
+        second.release();
+        content.release();
+        assertEquals(0, chunk1.refCnt());
+        assertEquals(0, chunk2.refCnt());
+    }
+}
@@ -35,6 +35,7 @@ import com.lmax.disruptor.EventFactory;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
+import com.couchbase.client.core.utils.Buffers;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
@@ -358,6 +359,101 @@ public class ViewHandlerTest {
         assertEquals(1, called.get());
     }
 
+    @Test
+    public void shouldDecodeManyViewQueryResponseWithZeroCopyRows() throws Exception {
+        CoreEnvironment environment = endpoint.environment();
+        when(environment.zeroCopyRowsEnabled()).thenReturn(true);
+        channel.close().awaitUninterruptibly();
+        handler = new ViewHandler(endpoint, responseRingBuffer, queue, false, false);
+        channel = new EmbeddedChannel(handler);
+
+        String response = Resources.read("query_many.json", this.getClass());
+        HttpResponse responseHeader = new DefaultHttpResponse(HttpVersion.HTTP_1_1, new HttpResponseStatus(200, "OK"));
+        int[] splits = new int[] { 0, 37, 500, 1234, 1235, 9000, response.length() };
+        ByteBuf[] chunks = new ByteBuf[splits.length - 1];
+        Object[] messages = new Object[splits.length];
+        messages[0] = responseHeader;
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = Unpooled.copiedBuffer(response.substring(splits[i], splits[i + 1]), CharsetUtil.UTF_8);
+            messages[i + 1] = i == chunks.length - 1 ? new DefaultLastHttpContent(chunks[i])
+                : new DefaultHttpContent(chunks[i]);
+        }
+
+        ViewQueryRequest requestMock = mock(ViewQueryRequest.class);
+        queue.add(requestMock);
+        channel.writeInbound(messages);
+        latch.await(1, TimeUnit.SECONDS);
+        assertEquals(1, firedEvents.size());
+        ViewQueryResponse inbound = (ViewQueryResponse) firedEvents.get(0);
+
+        final AtomicInteger calledRow = new AtomicInteger();
+        inbound.rows().toBlocking().forEach(new Action1<ByteBuf>() {
+            @Override
+            public void call(ByteBuf byteBuf) {
+                calledRow.incrementAndGet();
+                try {
+                    Map found = mapper.readValue(byteBuf.toString(CharsetUtil.UTF_8), Map.class);
+                    assertEquals(3, found.size());
+                } catch (IOException e) {
+                    fail(e.getMessage());
+                } finally {
+                    byteBuf.release();
+                }
+            }
+        });
+        assertEquals(500, calledRow.get());
+        inbound.info().subscribe(Buffers.BYTE_BUF_RELEASER);
+
+        channel.close().awaitUninterruptibly();
+        for (ByteBuf chunk : chunks) {
+            assertEquals(0, chunk.refCnt());
+        }
+    }
+
+    @Test
+    public void shouldPauseReadingWhileRowsAreNotRequested() throws Exception {
+        CoreEnvironment environment = endpoint.environment();
+        when(environment.streamingRowBufferSize()).thenReturn(100);
+        channel.close().awaitUninterruptibly();
+        handler = new ViewHandler(endpoint, responseRingBuffer, queue, false, false);
+        channel = new EmbeddedChannel(handler);
+
+        String response = Resources.read("query_many.json", this.getClass());
+        int rowsEnd = response.lastIndexOf(']');
+        HttpResponse responseHeader = new DefaultHttpResponse(HttpVersion.HTTP_1_1, new HttpResponseStatus(200, "OK"));
+        HttpContent rows = new DefaultHttpContent(Unpooled.copiedBuffer(response.substring(0, rowsEnd),
+            CharsetUtil.UTF_8));
+        HttpContent end = new DefaultLastHttpContent(Unpooled.copiedBuffer(response.substring(rowsEnd),
+            CharsetUtil.UTF_8));
+
+        ViewQueryRequest requestMock = mock(ViewQueryRequest.class);
+        queue.add(requestMock);
+        channel.writeInbound(responseHeader, rows);
+        latch.await(1, TimeUnit.SECONDS);
+        assertEquals(1, firedEvents.size());
+        ViewQueryResponse inbound = (ViewQueryResponse) firedEvents.get(0);
+        assertFalse(channel.config().isAutoRead());
+
+        TestSubscriber<ByteBuf> subscriber = new TestSubscriber<ByteBuf>(0);
+        inbound.rows().subscribe(subscriber);
+        subscriber.requestMore(100);
+        assertTrue(subscriber.awaitValueCount(100, 1, TimeUnit.SECONDS));
+        assertFalse(channel.config().isAutoRead());
+        subscriber.requestMore(400);
+        assertTrue(subscriber.awaitValueCount(500, 1, TimeUnit.SECONDS));
+        assertTrue(channel.config().isAutoRead());
+
+        channel.writeInbound(end);
+        subscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+        subscriber.assertValueCount(500);
+        subscriber.assertCompleted();
+        for (ByteBuf row : subscriber.getOnNextEvents()) {
+            row.release();
+        }
+        inbound.info().subscribe(Buffers.BYTE_BUF_RELEASER);
+        assertTrue(channel.config().isAutoRead());
+    }
+
     @Test
     public void shouldFireKeepAlive() throws Exception {
         final AtomicInteger keepAliveEventCounter = new AtomicInteger();
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.env;
+
+import com.couchbase.client.core.message.CouchbaseResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observer;
+import rx.subjects.AsyncSubject;
+import rx.subjects.Subject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Verifies the functionality of the {@link ResponseCompletionPool}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class ResponseCompletionPoolTest {
+
+    private ResponseCompletionPool pool;
+
+    @Before
+    public void setup() {
+        pool = new ResponseCompletionPool(2);
+    }
+
+    @After
+    public void teardown() {
+        pool.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailWithoutThreads() {
+        new ResponseCompletionPool(0);
+    }
+
+    @Test
+    public void shouldCompleteOnCompletionThread() throws Exception {
+        final CouchbaseResponse response = mock(CouchbaseResponse.class);
+        AsyncSubject<CouchbaseResponse> subject = AsyncSubject.create();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        subject.subscribe(new Observer<CouchbaseResponse>() {
+            @Override
+            public void onCompleted() {
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(Throwable e) {
+            }
+
+            @Override
+            public void onNext(CouchbaseResponse r) {
+                assertSame(response, r);
+                threads.add(Thread.currentThread().getName());
+            }
+        });
+
+        pool.lane().complete(response, subject);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, threads.size());
+        assertTrue(threads.get(0).startsWith("cb-completion-"));
+    }
+
+    @Test
+    public void shouldCompleteInOrderPerLane() throws Exception {
+        final ResponseCompletionPool.Lane lane = pool.lane();
+        final int count = 10000;
+        final List<Integer> completed = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch latch = new CountDownLatch(count);
+
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            Subject<CouchbaseResponse, CouchbaseResponse> subject = AsyncSubject.create();
+            subject.subscribe(new Observer<CouchbaseResponse>() {
+                @Override
+                public void onCompleted() {
+                    completed.add(index);
+                    latch.countDown();
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                }
+
+                @Override
+                public void onNext(CouchbaseResponse r) {
+                }
+            });
+            lane.complete(mock(CouchbaseResponse.class), subject);
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, (int) completed.get(i));
+        }
+    }
+
+    @Test
+    public void shouldKeepCompletingAfterFatalError() {
+        ResponseCompletionPool.Lane lane = pool.lane();
+        AsyncSubject<CouchbaseResponse> failing = AsyncSubject.create();
+        failing.subscribe(new Observer<CouchbaseResponse>() {
+            @Override
+            public void onCompleted() {
+            }
+
+            @Override
+            public void onError(Throwable e) {
+            }
+
+            @Override
+            public void onNext(CouchbaseResponse r) {
+                throw new StackOverflowError();
+            }
+        });
+        lane.complete(mock(CouchbaseResponse.class), failing);
+
+        CouchbaseResponse response = mock(CouchbaseResponse.class);
+        AsyncSubject<CouchbaseResponse> subject = AsyncSubject.create();
+        lane.complete(response, subject);
+
+        assertSame(response, subject.timeout(5, TimeUnit.SECONDS).toBlocking().single());
+    }
+
+    @Test
+    public void shouldCompleteOnCallerAfterShutdown() {
+        ResponseCompletionPool.Lane lane = pool.lane();
+        pool.shutdown();
+        assertTrue(pool.isShutdown());
+
+        CouchbaseResponse response = mock(CouchbaseResponse.class);
+        AsyncSubject<CouchbaseResponse> subject = AsyncSubject.create();
+        lane.complete(response, subject);
+
+        assertSame(response, subject.toBlocking().single());
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.message.observe;
+
+import com.couchbase.client.core.ClusterFacade;
+import com.couchbase.client.core.DocumentMutationLostException;
+import com.couchbase.client.core.ReplicaNotConfiguredException;
+import com.couchbase.client.core.RequestCancelledException;
+import com.couchbase.client.core.config.ClusterConfig;
+import com.couchbase.client.core.config.ConfigurationProvider;
+import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.kv.FailoverObserveSeqnoResponse;
+import com.couchbase.client.core.message.kv.MutationToken;
+import com.couchbase.client.core.message.kv.NoFailoverObserveSeqnoResponse;
+import com.couchbase.client.core.message.kv.ObserveSeqnoRequest;
+import com.couchbase.client.core.retry.RetryStrategy;
+import com.couchbase.client.core.time.Delay;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the functionality of the {@link DurabilityCoordinator}.
+ */
+public class DurabilityCoordinatorTest {
+
+    private static final String BUCKET = "bucket";
+    private static final long VBUCKET_UUID = 1234;
+
+    private List<CouchbaseRequest> sent;
+    private Timer timer;
+    private ArgumentCaptor<TimerTask> task;
+    private DurabilityCoordinator coordinator;
+    private RetryStrategy retryStrategy;
+
+    @Before
+    public void setup() {
+        sent = new CopyOnWriteArrayList<CouchbaseRequest>();
+        ClusterFacade core = mock(ClusterFacade.class);
+        when(core.send(any(CouchbaseRequest.class))).thenAnswer(new Answer<Observable<?>>() {
+            @Override
+            public Observable<?> answer(InvocationOnMock invocation) throws Throwable {
+                CouchbaseRequest request = (CouchbaseRequest) invocation.getArguments()[0];
+                sent.add(request);
+                return request.observable();
+            }
+        });
+
+        timer = mock(Timer.class);
+        task = ArgumentCaptor.forClass(TimerTask.class);
+        when(timer.newTimeout(task.capture(), anyLong(), any(TimeUnit.class))).thenReturn(mock(Timeout.class));
+
+        retryStrategy = mock(RetryStrategy.class);
+        when(retryStrategy.shouldRetryObserve()).thenReturn(false);
+
+        CoreEnvironment environment = mock(CoreEnvironment.class);
+        when(environment.requestTimer()).thenReturn(timer);
+        when(environment.retryStrategy()).thenReturn(retryStrategy);
+        when(environment.observeIntervalDelay()).thenReturn(Delay.fixed(10, TimeUnit.MILLISECONDS));
+
+        CouchbaseBucketConfig bucketConfig = mock(CouchbaseBucketConfig.class);
+        when(bucketConfig.numberOfReplicas()).thenReturn(1);
+        ClusterConfig clusterConfig = mock(ClusterConfig.class);
+        when(clusterConfig.bucketConfig(BUCKET)).thenReturn(bucketConfig);
+        ConfigurationProvider configProvider = mock(ConfigurationProvider.class);
+        when(configProvider.config()).thenReturn(clusterConfig);
+
+        coordinator = new DurabilityCoordinator(environment, core, configProvider);
+    }
+
+    @Test
+    public void shouldPollTokensOfSameVbucketTogether() throws Exception {
+        BatchedObserveRequest first = request("key1", 5, Observe.PersistTo.MASTER, Observe.ReplicateTo.NONE);
+        BatchedObserveRequest second = request("key2", 10, Observe.PersistTo.MASTER, Observe.ReplicateTo.NONE);
+        TestSubscriber<BatchedObserveResponse> firstSubscriber = subscribe(first);
+        TestSubscriber<BatchedObserveResponse> secondSubscriber = subscribe(second);
+
+        coordinator.send(first);
+        coordinator.send(second);
+        assertEquals(1, sent.size());
+        assertEquals(1, coordinator.polledPartitions());
+
+        respond(0, 7, 10);
+        firstSubscriber.assertCompleted();
+        secondSubscriber.assertNotCompleted();
+        verify(timer, times(1)).newTimeout(any(TimerTask.class), anyLong(), any(TimeUnit.class));
+
+        task.getValue().run(mock(Timeout.class));
+        assertEquals(2, sent.size());
+        respond(1, 10, 10);
+        secondSubscriber.assertCompleted();
+        assertEquals(0, coordinator.polledPartitions());
+        verify(timer, times(1)).newTimeout(any(TimerTask.class), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void shouldAskReplicasOnlyIfNeeded() throws Exception {
+        BatchedObserveRequest request = request("key", 5, Observe.PersistTo.NONE, Observe.ReplicateTo.ONE);
+        TestSubscriber<BatchedObserveResponse> subscriber = subscribe(request);
+
+        coordinator.send(request);
+        assertEquals(2, sent.size());
+        assertTrue(((ObserveSeqnoRequest) sent.get(0)).master());
+        assertEquals(1, ((ObserveSeqnoRequest) sent.get(1)).replica());
+
+        respond(0, 0, 5);
+        subscriber.assertNotCompleted();
+        ObserveSeqnoRequest replica = (ObserveSeqnoRequest) sent.get(1);
+        replica.observable().onNext(new NoFailoverObserveSeqnoResponse(false, (short) 12, VBUCKET_UUID, 0, 5,
+            ResponseStatus.SUCCESS, (short) 0, BUCKET, replica));
+        replica.observable().onCompleted();
+        subscriber.assertCompleted();
+        verify(timer, never()).newTimeout(any(TimerTask.class), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void shouldFailLostMutationsAfterFailover() {
+        BatchedObserveRequest lost = request("key1", 10, Observe.PersistTo.MASTER, Observe.ReplicateTo.NONE);
+        BatchedObserveRequest kept = request("key2", 3, Observe.PersistTo.MASTER, Observe.ReplicateTo.NONE);
+        TestSubscriber<BatchedObserveResponse> lostSubscriber = subscribe(lost);
+        TestSubscriber<BatchedObserveResponse> keptSubscriber = subscribe(kept);
+
+        coordinator.send(lost);
+        coordinator.send(kept);
+        ObserveSeqnoRequest master = (ObserveSeqnoRequest) sent.get(0);
+        master.observable().onNext(new FailoverObserveSeqnoResponse(true, (short) 12, 5678, 4, 4, VBUCKET_UUID, 4,
+            ResponseStatus.SUCCESS, (short) 0, BUCKET, master));
+        master.observable().onCompleted();
+
+        lostSubscriber.assertError(DocumentMutationLostException.class);
+        keptSubscriber.assertCompleted();
+    }
+
+    @Test
+    public void shouldFailFastWhenNotEnoughReplicas() {
+        BatchedObserveRequest request = request("key", 5, Observe.PersistTo.NONE, Observe.ReplicateTo.TWO);
+        TestSubscriber<BatchedObserveResponse> subscriber = subscribe(request);
+
+        coordinator.send(request);
+        subscriber.assertError(ReplicaNotConfiguredException.class);
+        assertEquals(0, sent.size());
+        assertEquals(0, coordinator.polledPartitions());
+    }
+
+    @Test
+    public void shouldFailWaitersPastTheirDeadline() throws Exception {
+        BatchedObserveRequest request = request("key", 5, Observe.PersistTo.MASTER, Observe.ReplicateTo.NONE);
+        TestSubscriber<BatchedObserveResponse> subscriber = subscribe(request);
+
+        coordinator.send(request);
+        respond(0, 0, 5);
+        request.deadline(System.nanoTime() - 1);
+        task.getValue().run(mock(Timeout.class));
+
+        subscriber.assertError(RequestCancelledException.class);
+        assertEquals(1, sent.size());
+        assertEquals(0, coordinator.polledPartitions());
+    }
+
+    @Test
+    public void shouldDropUnsubscribedWaiters() throws Exception {
+        BatchedObserveRequest request = request("key", 5, Observe.PersistTo.MASTER, Observe.ReplicateTo.NONE);
+        TestSubscriber<BatchedObserveResponse> subscriber = subscribe(request);
+
+        coordinator.send(request);
+        respond(0, 0, 5);
+        task.getValue().run(mock(Timeout.class));
+        assertEquals(2, sent.size());
+
+        subscriber.unsubscribe();
+        respond(1, 0, 5);
+        task.getValue().run(mock(Timeout.class));
+        assertEquals(2, sent.size());
+        assertEquals(0, coordinator.polledPartitions());
+    }
+
+    @Test
+    public void shouldStopRetryingAfterTooManyFailedRounds() throws Exception {
+        when(retryStrategy.shouldRetryObserve()).thenReturn(true);
+        BatchedObserveRequest request = request("key", 5, Observe.PersistTo.MASTER, Observe.ReplicateTo.NONE);
+        TestSubscriber<BatchedObserveResponse> subscriber = subscribe(request);
+
+        coordinator.send(request);
+        for (int round = 0; round < DurabilityCoordinator.MAX_FAILED_ROUNDS; round++) {
+            subscriber.assertNoTerminalEvent();
+            sent.get(round).observable().onError(new IllegalStateException());
+            if (round < DurabilityCoordinator.MAX_FAILED_ROUNDS - 1) {
+                task.getValue().run(mock(Timeout.class));
+            }
+        }
+
+        subscriber.assertError(IllegalStateException.class);
+        assertEquals(DurabilityCoordinator.MAX_FAILED_ROUNDS, sent.size());
+        assertEquals(0, coordinator.polledPartitions());
+    }
+
+    private static BatchedObserveRequest request(String key, long seqno, Observe.PersistTo persistTo,
+        Observe.ReplicateTo replicateTo) {
+        return new BatchedObserveRequest(key, new MutationToken(12, VBUCKET_UUID, seqno, BUCKET), persistTo,
+            replicateTo, BUCKET);
+    }
+
+    private static TestSubscriber<BatchedObserveResponse> subscribe(BatchedObserveRequest request) {
+        TestSubscriber<BatchedObserveResponse> subscriber = new TestSubscriber<BatchedObserveResponse>();
+        request.observable().cast(BatchedObserveResponse.class).subscribe(subscriber);
+        return subscriber;
+    }
+
+    private void respond(int index, long persisted, long current) {
+        ObserveSeqnoRequest request = (ObserveSeqnoRequest) sent.get(index);
+        request.observable().onNext(new NoFailoverObserveSeqnoResponse(true, (short) 12, VBUCKET_UUID, persisted,
+            current, ResponseStatus.SUCCESS, (short) 0, BUCKET, request));
+        request.observable().onCompleted();
+    }
+}
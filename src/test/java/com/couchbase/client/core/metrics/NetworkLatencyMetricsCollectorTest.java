@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.metrics;
+
+import com.couchbase.client.core.event.EventBus;
+import com.couchbase.client.core.event.metrics.LatencyMetric;
+import com.couchbase.client.core.event.metrics.NetworkLatencyMetricsEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.schedulers.Schedulers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Verifies the functionality of the {@link NetworkLatencyMetricsCollector}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class NetworkLatencyMetricsCollectorTest {
+
+    private static final NetworkLatencyMetricsIdentifier IDENTIFIER =
+        new NetworkLatencyMetricsIdentifier("127.0.0.1", "BINARY", "GetRequest", "SUCCESS");
+
+    private NetworkLatencyMetricsCollector collector;
+
+    @Before
+    public void setup() {
+        collector = new NetworkLatencyMetricsCollector(mock(EventBus.class), Schedulers.computation(),
+            DefaultLatencyMetricsCollectorConfig.create(1, TimeUnit.HOURS));
+    }
+
+    @After
+    public void teardown() {
+        collector.shutdown();
+    }
+
+    @Test
+    public void shouldNotLoseLatenciesRecordedConcurrently() throws Exception {
+        final int threads = 8;
+        final int latencies = 10000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < latencies; j++) {
+                            collector.record(new NetworkLatencyMetricsIdentifier("127.0.0.1", "BINARY",
+                                "GetRequest", "SUCCESS"), TimeUnit.MICROSECONDS.toNanos(100));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        LatencyMetric metric = emit().latencies().get(IDENTIFIER);
+        // pauses detected during the run add corrected latencies on top
+        assertTrue(metric.count() >= threads * latencies);
+        assertEquals(100, metric.percentiles().get(50.0), 2);
+    }
+
+    @Test
+    public void shouldNotCreateMoreRecordersThanStripesUnderThreadChurn() throws Exception {
+        int threads = AbstractLatencyMetricsCollector.STRIPES * 4;
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    collector.record(IDENTIFIER, TimeUnit.MICROSECONDS.toNanos(100));
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+
+        assertTrue(collector.recorders(IDENTIFIER) <= AbstractLatencyMetricsCollector.STRIPES);
+        assertTrue(emit().latencies().get(IDENTIFIER).count() >= threads);
+    }
+
+    @Test
+    public void shouldOnlyReportLatenciesOfLastInterval() {
+        collector.record(IDENTIFIER, TimeUnit.MICROSECONDS.toNanos(100));
+        collector.record(IDENTIFIER, TimeUnit.MICROSECONDS.toNanos(300));
+        LatencyMetric metric = emit().latencies().get(IDENTIFIER);
+        assertEquals(2, metric.count());
+        assertEquals(100, metric.min(), 2);
+
+        collector.record(IDENTIFIER, TimeUnit.MICROSECONDS.toNanos(500));
+        metric = emit().latencies().get(IDENTIFIER);
+        assertEquals(1, metric.count());
+        assertEquals(500, metric.min(), 5);
+    }
+
+    @Test
+    public void shouldRemoveIdleIdentifiersAndPickThemUpAgain() {
+        collector.record(IDENTIFIER, TimeUnit.MICROSECONDS.toNanos(100));
+        assertTrue(emit().latencies().containsKey(IDENTIFIER));
+        assertFalse(emit().latencies().containsKey(IDENTIFIER));
+
+        collector.record(IDENTIFIER, TimeUnit.MICROSECONDS.toNanos(200));
+        LatencyMetric metric = emit().latencies().get(IDENTIFIER);
+        assertEquals(1, metric.count());
+        assertEquals(200, metric.max(), 2);
+    }
+
+    @Test
+    public void shouldCapLatenciesOutOfRange() {
+        collector.record(IDENTIFIER, TimeUnit.DAYS.toNanos(2));
+        LatencyMetric metric = emit().latencies().get(IDENTIFIER);
+        assertEquals(1, metric.count());
+    }
+
+    @Test
+    public void shouldReportLatencyOfLastRollingWindowWithoutEmitting() {
+        NetworkLatencyMetricsCollector rolling = new NetworkLatencyMetricsCollector(mock(EventBus.class),
+            Schedulers.computation(), DefaultLatencyMetricsCollectorConfig.create(1, TimeUnit.HOURS), 0);
+        try {
+            assertEquals(-1, rolling.latencyAtPercentile("GetRequest", 99.0));
+
+            rolling.record(IDENTIFIER, TimeUnit.MICROSECONDS.toNanos(100));
+            rolling.record(new NetworkLatencyMetricsIdentifier("127.0.0.1", "BINARY", "GetRequest", "NOT_EXISTS"),
+                TimeUnit.MICROSECONDS.toNanos(900));
+            assertEquals(TimeUnit.MICROSECONDS.toNanos(100), rolling.latencyAtPercentile("GetRequest", 99.0),
+                TimeUnit.MICROSECONDS.toNanos(2));
+
+            assertEquals(-1, rolling.latencyAtPercentile("GetRequest", 99.0));
+        } finally {
+            rolling.shutdown();
+        }
+    }
+
+    private NetworkLatencyMetricsEvent emit() {
+        return (NetworkLatencyMetricsEvent) collector.generateCouchbaseEvent();
+    }
+
+}
@@ -15,23 +15,48 @@
  */
 package com.couchbase.client.core.node.locate;
 
+import com.couchbase.client.core.ResponseEvent;
+import com.couchbase.client.core.ResponseEventFactory;
 import com.couchbase.client.core.config.ClusterConfig;
 import com.couchbase.client.core.config.CouchbaseBucketConfig;
+import com.couchbase.client.core.config.DefaultMemcachedBucketConfig;
 import com.couchbase.client.core.config.DefaultNodeInfo;
+import com.couchbase.client.core.config.MemcachedBucketConfig;
 import com.couchbase.client.core.config.NodeInfo;
+import com.couchbase.client.core.env.CoreEnvironment;
+import com.couchbase.client.core.message.CouchbaseRequest;
+import com.couchbase.client.core.message.CouchbaseResponse;
+import com.couchbase.client.core.message.ResponseStatus;
+import com.couchbase.client.core.message.kv.BulkGetRequest;
 import com.couchbase.client.core.message.kv.GetBucketConfigRequest;
 import com.couchbase.client.core.message.kv.GetRequest;
+import com.couchbase.client.core.message.kv.GetResponse;
 import com.couchbase.client.core.node.Node;
+import com.couchbase.client.core.retry.BestEffortRetryStrategy;
 import com.couchbase.client.core.state.LifecycleState;
+import com.lmax.disruptor.RingBuffer;
+import io.netty.buffer.Unpooled;
 import io.netty.util.CharsetUtil;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import rx.observers.TestSubscriber;
 
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -76,6 +101,65 @@ public class KeyValueLocatorTest {
         verify(node2Mock, never()).send(getRequestMock);
     }
 
+    @Test
+    public void shouldLocateGetRequestForMemcachedBucket() throws Exception {
+        Locator locator = new KeyValueLocator();
+
+        NodeInfo nodeInfo1 = new DefaultNodeInfo("foo", "192.168.56.101:11210", Collections.EMPTY_MAP);
+        NodeInfo nodeInfo2 = new DefaultNodeInfo("foo", "192.168.56.102:11210", Collections.EMPTY_MAP);
+
+        GetRequest getRequestMock = mock(GetRequest.class);
+        ClusterConfig configMock = mock(ClusterConfig.class);
+        List<Node> nodes = new ArrayList<Node>();
+        Node node1Mock = mock(Node.class);
+        when(node1Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.101"));
+        Node node2Mock = mock(Node.class);
+        when(node2Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.102"));
+        nodes.addAll(Arrays.asList(node1Mock, node2Mock));
+        DefaultMemcachedBucketConfig bucketMock = mock(DefaultMemcachedBucketConfig.class);
+        byte[] key = "key".getBytes(CharsetUtil.UTF_8);
+        when(getRequestMock.bucket()).thenReturn("bucket");
+        when(getRequestMock.key()).thenReturn("key");
+        when(getRequestMock.keyBytes()).thenReturn(key);
+        when(configMock.bucketConfig("bucket")).thenReturn(bucketMock);
+        when(bucketMock.nodes()).thenReturn(Arrays.asList(nodeInfo1, nodeInfo2));
+        when(bucketMock.nodeIndexForId(key)).thenReturn(1);
+
+        locator.locateAndDispatch(getRequestMock, nodes, configMock, null, null);
+        locator.locateAndDispatch(getRequestMock, nodes, configMock, null, null);
+        verify(node1Mock, never()).send(getRequestMock);
+        verify(node2Mock, times(2)).send(getRequestMock);
+        verify(getRequestMock, times(2)).partition((short) 0);
+    }
+
+    @Test
+    public void shouldLocateGetRequestForOtherMemcachedBucketConfig() throws Exception {
+        Locator locator = new KeyValueLocator();
+
+        NodeInfo nodeInfo1 = new DefaultNodeInfo("foo", "192.168.56.101:11210", Collections.EMPTY_MAP);
+        NodeInfo nodeInfo2 = new DefaultNodeInfo("foo", "192.168.56.102:11210", Collections.EMPTY_MAP);
+
+        GetRequest getRequestMock = mock(GetRequest.class);
+        ClusterConfig configMock = mock(ClusterConfig.class);
+        List<Node> nodes = new ArrayList<Node>();
+        Node node1Mock = mock(Node.class);
+        when(node1Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.101"));
+        Node node2Mock = mock(Node.class);
+        when(node2Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.102"));
+        nodes.addAll(Arrays.asList(node1Mock, node2Mock));
+        MemcachedBucketConfig bucketMock = mock(MemcachedBucketConfig.class);
+        byte[] key = "key".getBytes(CharsetUtil.UTF_8);
+        when(getRequestMock.bucket()).thenReturn("bucket");
+        when(getRequestMock.keyBytes()).thenReturn(key);
+        when(configMock.bucketConfig("bucket")).thenReturn(bucketMock);
+        when(bucketMock.nodes()).thenReturn(Arrays.asList(nodeInfo1, nodeInfo2));
+        when(bucketMock.nodeForId(key)).thenReturn(InetAddress.getByName("192.168.56.102"));
+
+        locator.locateAndDispatch(getRequestMock, nodes, configMock, null, null);
+        verify(node1Mock, never()).send(getRequestMock);
+        verify(node2Mock, times(1)).send(getRequestMock);
+    }
+
     @Test
     public void shouldPickTheRightNodeForGetBucketConfigRequest() throws Exception {
         Locator locator = new KeyValueLocator();
@@ -203,4 +287,231 @@ public class KeyValueLocatorTest {
         verify(node2Mock, never()).send(getRequestMock);
     }
 
+    @Test
+    public void shouldCalculateSameChecksumAsCRC32() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 1000; i++) {
+            byte[] key = new byte[1 + random.nextInt(250)];
+            random.nextBytes(key);
+
+            CRC32 crc32 = new CRC32();
+            crc32.update(key);
+            int expected = (int) ((crc32.getValue() >> 16) & 0x7fff) & 1023;
+            assertEquals(expected, KeyValueLocator.partitionForKey(key, 1024));
+        }
+    }
+
+    @Test
+    public void shouldPickUpNodeAddedAfterConfig() throws Exception {
+        Locator locator = new KeyValueLocator();
+
+        NodeInfo nodeInfo1 = new DefaultNodeInfo("foo", "192.168.56.101:11210", Collections.EMPTY_MAP);
+        NodeInfo nodeInfo2 = new DefaultNodeInfo("foo", "192.168.56.102:11210", Collections.EMPTY_MAP);
+        List<Node> nodes = new ArrayList<Node>();
+        Node node1Mock = mock(Node.class);
+        when(node1Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.101"));
+        Node node2Mock = mock(Node.class);
+        when(node2Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.102"));
+        nodes.add(node1Mock);
+
+        ClusterConfig configMock = mock(ClusterConfig.class);
+        CouchbaseBucketConfig bucketMock = mock(CouchbaseBucketConfig.class);
+        when(configMock.bucketConfig("bucket")).thenReturn(bucketMock);
+        when(bucketMock.name()).thenReturn("bucket");
+        when(bucketMock.nodes()).thenReturn(Arrays.asList(nodeInfo1, nodeInfo2));
+        when(bucketMock.numberOfPartitions()).thenReturn(1024);
+        when(bucketMock.nodeIndexForMaster(656, false)).thenReturn((short) 1);
+        when(bucketMock.nodeAtIndex(0)).thenReturn(nodeInfo1);
+        when(bucketMock.nodeAtIndex(1)).thenReturn(nodeInfo2);
+
+        GetRequest getRequestMock = mock(GetRequest.class);
+        when(getRequestMock.bucket()).thenReturn("bucket");
+        when(getRequestMock.keyBytes()).thenReturn("key".getBytes(CharsetUtil.UTF_8));
+        when(getRequestMock.creationTime()).thenReturn(System.nanoTime());
+
+        CoreEnvironment env = mock(CoreEnvironment.class);
+        when(env.retryStrategy()).thenReturn(BestEffortRetryStrategy.INSTANCE);
+        when(env.maxRequestLifetime()).thenReturn(75000L);
+        RingBuffer<ResponseEvent> responseBuffer = RingBuffer.createSingleProducer(new ResponseEventFactory(), 8);
+
+        locator.locateAndDispatch(getRequestMock, nodes, configMock, env, responseBuffer);
+        verify(node1Mock, never()).send(getRequestMock);
+        assertEquals(0, responseBuffer.getCursor());
+        assertSame(getRequestMock, responseBuffer.get(0).getMessage());
+
+        // the request handler hands out a new snapshot whenever the node list changes
+        nodes = new ArrayList<Node>(nodes);
+        nodes.add(node2Mock);
+        locator.locateAndDispatch(getRequestMock, nodes, configMock, env, responseBuffer);
+        verify(node1Mock, never()).send(getRequestMock);
+        verify(node2Mock, times(1)).send(getRequestMock);
+    }
+
+    @Test
+    public void shouldPickUpNodeReplacedWithSameNodeCount() throws Exception {
+        Locator locator = new KeyValueLocator();
+
+        NodeInfo nodeInfo1 = new DefaultNodeInfo("foo", "192.168.56.101:11210", Collections.EMPTY_MAP);
+        NodeInfo nodeInfo2 = new DefaultNodeInfo("foo", "192.168.56.102:11210", Collections.EMPTY_MAP);
+        List<Node> nodes = new ArrayList<Node>();
+        Node node1Mock = mock(Node.class);
+        when(node1Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.101"));
+        Node node2Mock = mock(Node.class);
+        when(node2Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.102"));
+        Node replacedNode2Mock = mock(Node.class);
+        when(replacedNode2Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.102"));
+        nodes.addAll(Arrays.asList(node1Mock, node2Mock));
+
+        ClusterConfig configMock = mock(ClusterConfig.class);
+        CouchbaseBucketConfig bucketMock = mock(CouchbaseBucketConfig.class);
+        when(configMock.bucketConfig("bucket")).thenReturn(bucketMock);
+        when(bucketMock.name()).thenReturn("bucket");
+        when(bucketMock.nodes()).thenReturn(Arrays.asList(nodeInfo1, nodeInfo2));
+        when(bucketMock.numberOfPartitions()).thenReturn(1024);
+        when(bucketMock.nodeIndexForMaster(656, false)).thenReturn((short) 1);
+        when(bucketMock.nodeAtIndex(0)).thenReturn(nodeInfo1);
+        when(bucketMock.nodeAtIndex(1)).thenReturn(nodeInfo2);
+
+        GetRequest getRequestMock = mock(GetRequest.class);
+        when(getRequestMock.bucket()).thenReturn("bucket");
+        when(getRequestMock.keyBytes()).thenReturn("key".getBytes(CharsetUtil.UTF_8));
+
+        locator.locateAndDispatch(getRequestMock, nodes, configMock, null, null);
+        verify(node2Mock, times(1)).send(getRequestMock);
+
+        nodes = new ArrayList<Node>(nodes);
+        nodes.set(1, replacedNode2Mock);
+        locator.locateAndDispatch(getRequestMock, nodes, configMock, null, null);
+        verify(node2Mock, times(1)).send(getRequestMock);
+        verify(replacedNode2Mock, times(1)).send(getRequestMock);
+    }
+
+    @Test
+    public void shouldDispatchBulkRequestGroupedByNode() throws Exception {
+        Locator locator = new KeyValueLocator();
+
+        NodeInfo nodeInfo1 = new DefaultNodeInfo("foo", "192.168.56.101:11210", Collections.EMPTY_MAP);
+        NodeInfo nodeInfo2 = new DefaultNodeInfo("foo", "192.168.56.102:11210", Collections.EMPTY_MAP);
+        final List<Node> sentTo = new ArrayList<Node>();
+        final List<CouchbaseRequest> sent = new ArrayList<CouchbaseRequest>();
+        Node node1Mock = mock(Node.class);
+        when(node1Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.101"));
+        Node node2Mock = mock(Node.class);
+        when(node2Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.102"));
+        for (final Node node : Arrays.asList(node1Mock, node2Mock)) {
+            doAnswer(new Answer<Void>() {
+                @Override
+                public Void answer(InvocationOnMock invocation) throws Throwable {
+                    sentTo.add(node);
+                    sent.add((CouchbaseRequest) invocation.getArguments()[0]);
+                    return null;
+                }
+            }).when(node).send(any(CouchbaseRequest.class));
+        }
+        List<Node> nodes = new ArrayList<Node>(Arrays.asList(node1Mock, node2Mock));
+
+        ClusterConfig configMock = mock(ClusterConfig.class);
+        CouchbaseBucketConfig bucketMock = mock(CouchbaseBucketConfig.class);
+        when(configMock.bucketConfig("bucket")).thenReturn(bucketMock);
+        when(bucketMock.nodes()).thenReturn(Arrays.asList(nodeInfo1, nodeInfo2));
+        when(bucketMock.numberOfPartitions()).thenReturn(1024);
+        when(bucketMock.nodeAtIndex(0)).thenReturn(nodeInfo1);
+        when(bucketMock.nodeAtIndex(1)).thenReturn(nodeInfo2);
+        when(bucketMock.nodeIndexForMaster(anyInt(), eq(false))).thenAnswer(new Answer<Short>() {
+            @Override
+            public Short answer(InvocationOnMock invocation) throws Throwable {
+                return (short) ((Integer) invocation.getArguments()[0] % 2);
+            }
+        });
+
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            keys.add("key-" + i);
+        }
+        BulkGetRequest bulk = new BulkGetRequest(keys, "bucket");
+        locator.locateAndDispatch(bulk, nodes, configMock, null, null);
+
+        assertEquals(keys.size(), sent.size());
+        int switches = 0;
+        for (int i = 0; i < sent.size(); i++) {
+            GetRequest request = (GetRequest) sent.get(i);
+            assertTrue(bulk.requests().contains(request));
+            assertSame(request.partition() % 2 == 0 ? node1Mock : node2Mock, sentTo.get(i));
+            if (i > 0 && sentTo.get(i) != sentTo.get(i - 1)) {
+                switches++;
+            }
+        }
+        assertEquals(1, switches);
+    }
+
+    @Test
+    public void shouldEmitEveryResponseOfBulkRequest() {
+        BulkGetRequest bulk = new BulkGetRequest(Arrays.asList("a", "b", "c"), "bucket");
+        TestSubscriber<CouchbaseResponse> subscriber = new TestSubscriber<CouchbaseResponse>();
+        bulk.observable().subscribe(subscriber);
+
+        GetRequest first = bulk.requests().get(0);
+        first.observable().onNext(new GetResponse(ResponseStatus.SUCCESS, (short) 0, 1, 0, "bucket",
+            Unpooled.EMPTY_BUFFER, first));
+        first.observable().onCompleted();
+        bulk.requests().get(1).observable().onError(new IllegalStateException());
+        subscriber.assertValueCount(1);
+        subscriber.assertNoTerminalEvent();
+
+        GetRequest last = bulk.requests().get(2);
+        last.observable().onNext(new GetResponse(ResponseStatus.NOT_EXISTS, (short) 1, 0, 0, "bucket",
+            Unpooled.EMPTY_BUFFER, last));
+        last.observable().onCompleted();
+
+        subscriber.assertValueCount(2);
+        assertSame(first, subscriber.getOnNextEvents().get(0).request());
+        assertSame(last, subscriber.getOnNextEvents().get(1).request());
+        subscriber.assertError(IllegalStateException.class);
+    }
+
+    @Test
+    public void shouldSendRemainingBulkRequestsIfOneCannotBeLocated() throws Exception {
+        Locator locator = new KeyValueLocator();
+
+        NodeInfo nodeInfo1 = new DefaultNodeInfo("foo", "192.168.56.101:11210", Collections.EMPTY_MAP);
+        NodeInfo nodeInfo2 = new DefaultNodeInfo("foo", "192.168.56.102:11210", Collections.EMPTY_MAP);
+        Node node1Mock = mock(Node.class);
+        when(node1Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.101"));
+        Node node2Mock = mock(Node.class);
+        when(node2Mock.hostname()).thenReturn(InetAddress.getByName("192.168.56.102"));
+        List<Node> nodes = new ArrayList<Node>(Arrays.asList(node1Mock, node2Mock));
+
+        ClusterConfig configMock = mock(ClusterConfig.class);
+        CouchbaseBucketConfig bucketMock = mock(CouchbaseBucketConfig.class);
+        when(configMock.bucketConfig("bucket")).thenReturn(bucketMock);
+        when(bucketMock.nodes()).thenReturn(Arrays.asList(nodeInfo1, nodeInfo2));
+        when(bucketMock.numberOfPartitions()).thenReturn(1024);
+        when(bucketMock.nodeAtIndex(0)).thenReturn(nodeInfo1);
+        when(bucketMock.nodeAtIndex(1)).thenReturn(nodeInfo2);
+        // odd partitions point to a node which is unknown, so locating them throws
+        when(bucketMock.nodeIndexForMaster(anyInt(), eq(false))).thenAnswer(new Answer<Short>() {
+            @Override
+            public Short answer(InvocationOnMock invocation) throws Throwable {
+                return (short) ((Integer) invocation.getArguments()[0] % 2 == 0 ? 0 : 2);
+            }
+        });
+
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            keys.add("key-" + i);
+        }
+        BulkGetRequest bulk = new BulkGetRequest(keys, "bucket");
+        locator.locateAndDispatch(bulk, nodes, configMock, null, null);
+
+        for (GetRequest request : bulk.requests()) {
+            if (request.partition() % 2 == 0) {
+                verify(node1Mock, times(1)).send(request);
+            } else {
+                TestSubscriber<CouchbaseResponse> subscriber = new TestSubscriber<CouchbaseResponse>();
+                request.observable().subscribe(subscriber);
+                subscriber.assertError(IllegalStateException.class);
+            }
+        }
+        verify(node2Mock, never()).send(any(CouchbaseRequest.class));
+    }
 }
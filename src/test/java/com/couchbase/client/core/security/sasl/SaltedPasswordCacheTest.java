@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.security.sasl;
+
+import com.couchbase.client.core.utils.Base64;
+import org.junit.Test;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.callback.NameCallback;
+import javax.security.auth.callback.PasswordCallback;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the functionality of the {@link SaltedPasswordCache}.
+ */
+public class SaltedPasswordCacheTest {
+
+    private static final byte[] SALT = new byte[] { 1, 2, 3, 4 };
+
+    @Test
+    public void shouldReturnCachedSaltedPassword() {
+        SaltedPasswordCache cache = new SaltedPasswordCache(2);
+        byte[] salted = new byte[] { 5, 6, 7 };
+        cache.put("SCRAM-SHA512", "user", "pass", SALT, 4096, salted);
+
+        assertArrayEquals(salted, cache.get("SCRAM-SHA512", "user", "pass", SALT, 4096));
+        assertNull(cache.get("SCRAM-SHA256", "user", "pass", SALT, 4096));
+        assertNull(cache.get("SCRAM-SHA512", "other", "pass", SALT, 4096));
+        assertNull(cache.get("SCRAM-SHA512", "user", "pass", new byte[] { 4, 3, 2, 1 }, 4096));
+        assertNull(cache.get("SCRAM-SHA512", "user", "pass", SALT, 1000));
+    }
+
+    @Test
+    public void shouldNotAnswerChangedPassword() {
+        SaltedPasswordCache cache = new SaltedPasswordCache(2);
+        cache.put("SCRAM-SHA512", "user", "pass", SALT, 4096, new byte[] { 5, 6, 7 });
+
+        assertNull(cache.get("SCRAM-SHA512", "user", "changed", SALT, 4096));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        SaltedPasswordCache cache = new SaltedPasswordCache(2);
+        cache.put("SCRAM-SHA512", "a", "pass", SALT, 4096, new byte[] { 1 });
+        cache.put("SCRAM-SHA512", "b", "pass", SALT, 4096, new byte[] { 2 });
+        cache.get("SCRAM-SHA512", "a", "pass", SALT, 4096);
+        cache.put("SCRAM-SHA512", "c", "pass", SALT, 4096, new byte[] { 3 });
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("SCRAM-SHA512", "b", "pass", SALT, 4096));
+        assertArrayEquals(new byte[] { 1 }, cache.get("SCRAM-SHA512", "a", "pass", SALT, 4096));
+    }
+
+    @Test
+    public void shouldReuseSaltedPasswordOnNextHandshake() throws Exception {
+        SaltedPasswordCache cache = new SaltedPasswordCache(2);
+        String serverFirst = "r=nonce,s=" + Base64.encode(SALT) + ",i=4096";
+
+        ShaSaslClient first = new ShaSaslClient(credentials(), 512, cache);
+        first.evaluateChallenge(new byte[0]);
+        first.evaluateChallenge(serverFirst.getBytes());
+        assertEquals(1, cache.size());
+        byte[] salted = cache.get("SCRAM-SHA512", "user", "pass", SALT, 4096);
+        assertEquals(64, salted.length);
+
+        ShaSaslClient second = new ShaSaslClient(credentials(), 512, cache);
+        second.evaluateChallenge(new byte[0]);
+        String clientFinal = new String(second.evaluateChallenge(serverFirst.getBytes()));
+        assertTrue(clientFinal.startsWith("c=biws,r=nonce,p="));
+        assertEquals(1, cache.size());
+        assertArrayEquals(salted, cache.get("SCRAM-SHA512", "user", "pass", SALT, 4096));
+    }
+
+    private static CallbackHandler credentials() {
+        return new CallbackHandler() {
+            @Override
+            public void handle(Callback[] callbacks) {
+                for (Callback callback : callbacks) {
+                    if (callback instanceof NameCallback) {
+                        ((NameCallback) callback).setName("user");
+                    } else if (callback instanceof PasswordCallback) {
+                        ((PasswordCallback) callback).setPassword("pass".toCharArray());
+                    }
+                }
+            }
+        };
+    }
+}
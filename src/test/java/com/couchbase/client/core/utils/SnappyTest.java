@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.couchbase.client.core.utils;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifies the functionality of {@link Snappy}.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class SnappyTest {
+
+    private static final UnpooledByteBufAllocator ALLOC = UnpooledByteBufAllocator.DEFAULT;
+
+    @Test
+    public void shouldDecodeLiteralsAndCopies() {
+        ByteBuf input = Unpooled.wrappedBuffer(new byte[] { 0x0c, 0x04, 'a', 'b', 0x19, 0x02 });
+        ByteBuf output = Snappy.decompress(ALLOC, input);
+        assertEquals("abababababab", output.toString(CharsetUtil.UTF_8));
+        assertEquals(0, input.readerIndex());
+    }
+
+    @Test
+    public void shouldRoundTripAcrossSizes() {
+        Random random = new Random(42);
+        int[] sizes = new int[] { 0, 1, 14, 15, 16, 100, 4096, 65535, 65536, 65537, 300000 };
+        for (int size : sizes) {
+            byte[] data = new byte[size];
+            for (int i = 0; i < size; i++) {
+                data[i] = i > 16 && random.nextBoolean()
+                    ? data[i - 1 - random.nextInt(Math.min(i, 70000))]
+                    : (byte) random.nextInt(16);
+            }
+            ByteBuf original = Unpooled.wrappedBuffer(data);
+
+            ByteBuf compressed = Snappy.compress(ALLOC, original);
+            assertTrue(compressed.readableBytes() <= Snappy.maxCompressedLength(size));
+            assertEquals(0, original.readerIndex());
+            assertEquals(original, Snappy.decompress(ALLOC, compressed));
+
+            ByteBuf directOriginal = Unpooled.directBuffer(size).writeBytes(data);
+            assertEquals(compressed, Snappy.compress(ALLOC, directOriginal));
+            directOriginal.release();
+
+            ByteBuf direct = Unpooled.directBuffer(compressed.readableBytes()).writeBytes(compressed);
+            assertEquals(original, Snappy.decompress(ALLOC, direct));
+            direct.release();
+        }
+    }
+
+    @Test
+    public void shouldShrinkRepetitiveContent() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("{\"name\":\"user").append(i).append("\",\"enabled\":true},");
+        }
+        ByteBuf original = Unpooled.copiedBuffer(sb.toString(), CharsetUtil.UTF_8);
+        ByteBuf compressed = Snappy.compress(ALLOC, original);
+        assertTrue(compressed.readableBytes() < original.readableBytes() / 3);
+        assertEquals(original, Snappy.decompress(ALLOC, compressed));
+    }
+
+    @Test
+    public void shouldRejectInvalidInput() {
+        byte[][] inputs = new byte[][] {
+            {},
+            { (byte) 0x80 },
+            { 0x05, 0x10, 'a' },
+            { 0x0c, 0x04, 'a', 'b', 0x19, 0x03 },
+            { 0x0c, 0x04, 'a', 'b', 0x19 },
+            { 0x03, 0x04, 'a', 'b' },
+        };
+        for (byte[] input : inputs) {
+            try {
+                Snappy.decompress(ALLOC, Unpooled.wrappedBuffer(input));
+                fail("Expected decompression to fail");
+            } catch (DecompressionException ex) {
+                // expected
+            }
+        }
+    }
+
+}
@@ -38,6 +38,7 @@ import rx.functions.Action0;
 import rx.functions.Action1;
 import rx.functions.Actions;
 import rx.observers.Subscribers;
+import rx.observers.TestSubscriber;
 import rx.schedulers.Schedulers;
 import rx.schedulers.TestScheduler;
 
@@ -210,6 +211,111 @@ public class UnicastAutoReleaseSubjectTest {
         Assert.assertEquals("Byte buffer not fully released", 0, buffer.refCnt());
     }
 
+    @Test
+    public void testDemandTrackingPausesAndResumes() throws Exception {
+        final List<Boolean> demand = new ArrayList<Boolean>();
+        UnicastAutoReleaseSubject<String> subject = UnicastAutoReleaseSubject.<String>createWithoutNoSubscriptionTimeout()
+            .withDemandTracking(4, new Action1<Boolean>() {
+                @Override
+                public void call(Boolean d) {
+                    demand.add(d);
+                }
+            });
+
+        for (int i = 0; i < 4; i++) {
+            subject.onNext("item" + i);
+        }
+        assertThat(demand).containsExactly(false);
+
+        TestSubscriber<String> subscriber = new TestSubscriber<String>(0);
+        subject.observeOnTrackingDemand(Schedulers.immediate()).subscribe(subscriber);
+        subscriber.assertNoValues();
+
+        subscriber.requestMore(1);
+        assertThat(demand).containsExactly(false);
+        subscriber.requestMore(1);
+        assertThat(demand).containsExactly(false, true);
+        subscriber.assertValues("item0", "item1");
+
+        subject.onNext("item4");
+        subject.onNext("item5");
+        assertThat(demand).containsExactly(false, true, false);
+        subscriber.requestMore(Long.MAX_VALUE);
+        assertThat(demand).containsExactly(false, true, false, true);
+        subscriber.assertValueCount(6);
+    }
+
+    @Test
+    public void testDemandTrackingLiftedOnCompletion() throws Exception {
+        final List<Boolean> demand = new ArrayList<Boolean>();
+        UnicastAutoReleaseSubject<String> subject = UnicastAutoReleaseSubject.<String>createWithoutNoSubscriptionTimeout()
+            .withDemandTracking(2, new Action1<Boolean>() {
+                @Override
+                public void call(Boolean d) {
+                    demand.add(d);
+                }
+            });
+
+        subject.onNext("item0");
+        subject.onNext("item1");
+        assertThat(demand).containsExactly(false);
+        subject.onCompleted();
+        assertThat(demand).containsExactly(false, true);
+
+        TestSubscriber<String> subscriber = new TestSubscriber<String>(0);
+        subject.observeOnTrackingDemand(Schedulers.immediate()).subscribe(subscriber);
+        subscriber.requestMore(2);
+        subscriber.assertValues("item0", "item1");
+        subscriber.assertCompleted();
+        assertThat(demand).containsExactly(false, true);
+    }
+
+    @Test
+    public void testDemandTrackingLiftedOnUnsubscribe() throws Exception {
+        final List<Boolean> demand = new ArrayList<Boolean>();
+        UnicastAutoReleaseSubject<String> subject = UnicastAutoReleaseSubject.<String>createWithoutNoSubscriptionTimeout()
+            .withDemandTracking(2, new Action1<Boolean>() {
+                @Override
+                public void call(Boolean d) {
+                    demand.add(d);
+                }
+            });
+
+        TestSubscriber<String> subscriber = new TestSubscriber<String>(0);
+        subject.observeOnTrackingDemand(Schedulers.immediate()).subscribe(subscriber);
+        subject.onNext("item0");
+        subject.onNext("item1");
+        assertThat(demand).containsExactly(false);
+
+        subscriber.unsubscribe();
+        assertThat(demand).containsExactly(false, true);
+        subject.onNext("item2");
+        subject.onNext("item3");
+        assertThat(demand).containsExactly(false, true);
+    }
+
+    @Test
+    public void testDemandTrackingLiftedOnDispose() throws Exception {
+        TestScheduler testScheduler = Schedulers.test();
+        final List<Boolean> demand = new ArrayList<Boolean>();
+        UnicastAutoReleaseSubject<ByteBuf> subject = UnicastAutoReleaseSubject.<ByteBuf>create(100,
+            TimeUnit.MILLISECONDS, testScheduler)
+            .withDemandTracking(1, new Action1<Boolean>() {
+                @Override
+                public void call(Boolean d) {
+                    demand.add(d);
+                }
+            });
+
+        ByteBuf buffer = Unpooled.buffer();
+        subject.onNext(buffer);
+        assertThat(demand).containsExactly(false);
+
+        testScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        assertThat(demand).containsExactly(false, true);
+        Assert.assertEquals(0, buffer.refCnt());
+    }
+
     private static class OnUnsubscribeAction implements Action0 {
 
         private volatile boolean called;
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016 Couchbase, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Cross-checks {@link com.couchbase.client.core.utils.Snappy} against the snappy codec of netty in both directions.
+ *
+ * The netty codec is package private, which is why this test lives in its package. It only supports offsets up
+ * to 32KB in both directions, so the values are limited to that size. Larger values, which are split into more
+ * than one fragment, are covered by the round trips in the unit test of the client codec.
+ *
+ * @author Michael Nitschinger
+ * @since 1.4.2
+ */
+public class SnappyInteropTest {
+
+    private static final UnpooledByteBufAllocator ALLOC = UnpooledByteBufAllocator.DEFAULT;
+    private static final int[] SIZES = new int[] { 0, 1, 15, 16, 100, 255, 256, 257, 4096, 16383, 16384, 16385,
+        32767 };
+
+    @Test
+    public void shouldDecompressWhatNettyCompresses() {
+        for (byte[] value : values()) {
+            ByteBuf original = Unpooled.wrappedBuffer(value);
+            ByteBuf compressed = Unpooled.buffer();
+            new Snappy().encode(original.duplicate(), compressed, value.length);
+
+            ByteBuf decompressed = com.couchbase.client.core.utils.Snappy.decompress(ALLOC, compressed);
+            assertEquals("length " + value.length, original, decompressed);
+            compressed.release();
+            decompressed.release();
+        }
+    }
+
+    @Test
+    public void shouldBeDecompressibleByNetty() {
+        for (byte[] value : values()) {
+            ByteBuf original = Unpooled.wrappedBuffer(value);
+            ByteBuf compressed = com.couchbase.client.core.utils.Snappy.compress(ALLOC, original);
+
+            ByteBuf decompressed = Unpooled.buffer(value.length);
+            new Snappy().decode(compressed, decompressed);
+            assertEquals("length " + value.length, original, decompressed);
+            compressed.release();
+            decompressed.release();
+        }
+    }
+
+    /**
+     * Creates repetitive, random and JSON values of various sizes.
+     */
+    private static List<byte[]> values() {
+        Random random = new Random(1337);
+        List<byte[]> values = new ArrayList<byte[]>();
+        for (int size : SIZES) {
+            byte[] repetitive = new byte[size];
+            for (int i = 0; i < size; i++) {
+                repetitive[i] = i > 16 && random.nextBoolean()
+                    ? repetitive[i - 1 - random.nextInt(i)]
+                    : (byte) random.nextInt(16);
+            }
+            values.add(repetitive);
+
+            byte[] incompressible = new byte[size];
+            random.nextBytes(incompressible);
+            values.add(incompressible);
+
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; json.length() < size; i++) {
+                json.append("{\"name\":\"user").append(random.nextInt(1000)).append("\",\"enabled\":")
+                    .append(random.nextBoolean()).append(",\"logins\":").append(i).append("},");
+            }
+            values.add(json.substring(0, size).getBytes(CharsetUtil.UTF_8));
+        }
+        return values;
+    }
+
+}